@@ -0,0 +1,404 @@
+package benchmark;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import scriptease.controller.modelverifier.problem.StoryProblem;
+import scriptease.model.semodel.StoryModel;
+import scriptease.translator.codegenerator.CodeGenerationProfiler;
+import scriptease.translator.codegenerator.CodeGenerationProfiler.Timing;
+import scriptease.translator.codegenerator.CodeGenerator;
+import scriptease.translator.codegenerator.GenerationSession;
+import scriptease.translator.codegenerator.ScriptInfo;
+
+/**
+ * Measures how long {@link CodeGenerator#generateCode(StoryModel, Collection)}
+ * takes on a story built by {@link SyntheticStory} for the synthetic
+ * translator in <code>benchmark/synthetic</code>. This runs headless and
+ * offline, since the synthetic translator has no game behind it. Run it
+ * through the <code>benchmark</code> target of the build file, or directly
+ * with arguments of the form <code>name=value</code>:
+ * 
+ * <ul>
+ * <li><b>points</b> - the number of story points. Default 100.</li>
+ * <li><b>fanout</b> - the most successors a story point has. Default 2.</li>
+ * <li><b>causes</b> - the number of causes on each story point. Default
+ * 3.</li>
+ * <li><b>effects</b> - the number of effects in each cause. Default 3.</li>
+ * <li><b>depth</b> - how deep the functions bound to each effect are nested.
+ * Default 2.</li>
+ * <li><b>objects</b> - the number of objects that causes are attached to.
+ * There is a script for each object and slot used. Default 20.</li>
+ * <li><b>threads</b> - the number of threads to generate scripts on. Default
+ * 1, since only the allocations of the thread that started generating are
+ * counted.</li>
+ * <li><b>warmup</b> - how many runs to throw away first. Default 3.</li>
+ * <li><b>iterations</b> - how many runs to measure. Default 5.</li>
+ * <li><b>translator</b> - the translator.ini of the synthetic translator.
+ * Default <code>benchmark/synthetic/translator.ini</code>.</li>
+ * <li><b>baseline</b> - a file to compare the results against. If it does not
+ * exist, the results are saved to it.</li>
+ * <li><b>update</b> - if true, the results are saved to the baseline even if
+ * it exists. Default false.</li>
+ * <li><b>tolerance</b> - how many percent slower, or how many percent more
+ * allocation, than the baseline is a regression. Default 20.</li>
+ * </ul>
+ * 
+ * The median time and allocation of each phase of code generation, and the
+ * size of the output, are reported. Times under {@link #MIN_TIME} and
+ * allocations under {@link #MIN_ALLOCATED} are too noisy to compare, so they
+ * are never regressions. The output must be exactly the same size as the
+ * baseline's, since anything else means the baseline is for different code.
+ * The benchmark exits with a status of 1 if there is a regression.
+ */
+public class CodeGenerationBenchmark {
+	private static final long MIN_TIME = 1000000;
+	private static final long MIN_ALLOCATED = 1024 * 1024;
+	private static final double MEGABYTE = 1024 * 1024;
+
+	private static final String TOTAL = "Total";
+	private static final String TIME = "time.";
+	private static final String ALLOCATED = "allocated.";
+	private static final String SCRIPTS = "output.scripts";
+	private static final String CHARACTERS = "output.characters";
+	private static final String CONFIGURATION = "configuration";
+
+	private final Map<String, String> arguments;
+
+	private CodeGenerationBenchmark(Map<String, String> arguments) {
+		this.arguments = arguments;
+	}
+
+	public static void main(String[] args) throws IOException {
+		final Map<String, String> arguments = new HashMap<String, String>();
+
+		for (String arg : args) {
+			final String[] split = arg.split("=", 2);
+
+			if (split.length != 2)
+				throw new IllegalArgumentException("Argument " + arg
+						+ " is not of the form name=value.");
+
+			arguments.put(split[0], split[1]);
+		}
+
+		final boolean passed = new CodeGenerationBenchmark(arguments).run();
+
+		// The UI classes that ScriptEase loaded keep the JVM alive.
+		System.exit(passed ? 0 : 1);
+	}
+
+	private int getInt(String name, int defaultValue) {
+		final String value = this.arguments.get(name);
+
+		return value == null ? defaultValue : Integer.parseInt(value);
+	}
+
+	private String getString(String name, String defaultValue) {
+		final String value = this.arguments.get(name);
+
+		return value == null ? defaultValue : value;
+	}
+
+	/**
+	 * Runs the benchmark and compares it to the baseline, if there is one.
+	 * 
+	 * @return False if there was a regression.
+	 * @throws IOException
+	 */
+	private boolean run() throws IOException {
+		final int points = this.getInt("points", 100);
+		final int fanOut = this.getInt("fanout", 2);
+		final int causes = this.getInt("causes", 3);
+		final int effects = this.getInt("effects", 3);
+		final int depth = this.getInt("depth", 2);
+		final int objects = this.getInt("objects", 20);
+		final int threads = this.getInt("threads", 1);
+		final int warmup = this.getInt("warmup", 3);
+		final int iterations = this.getInt("iterations", 5);
+		final String baseline = this.arguments.get("baseline");
+		final boolean update = Boolean.parseBoolean(this.getString("update",
+				"false"));
+		final int tolerance = this.getInt("tolerance", 20);
+
+		final String configuration;
+		final SyntheticTranslator translator;
+		final SyntheticGameModule module;
+		final StoryModel story;
+		final CodeGenerator generator;
+		final Map<String, List<Long>> samples;
+		final Map<String, Long> results;
+
+		configuration = "points=" + points + " fanout=" + fanOut + " causes="
+				+ causes + " effects=" + effects + " depth=" + depth
+				+ " objects=" + objects + " threads=" + threads;
+
+		translator = new SyntheticTranslator(new File(this.getString(
+				"translator", "benchmark/synthetic/translator.ini")));
+		module = new SyntheticGameModule(objects);
+		story = new SyntheticStory(points, fanOut, causes, effects, depth, 0)
+				.build(translator, module);
+
+		generator = CodeGenerator.getInstance();
+		generator.setThreadCount(threads);
+		generator.setProfiling(true);
+
+		System.out.println("Generating code for " + configuration);
+
+		for (int i = 0; i < warmup; i++) {
+			CodeGenerationBenchmark.generate(generator, story, null);
+		}
+
+		samples = new LinkedHashMap<String, List<Long>>();
+
+		for (int i = 0; i < iterations; i++) {
+			CodeGenerationBenchmark.generate(generator, story, samples);
+		}
+
+		results = new LinkedHashMap<String, Long>();
+		for (Map.Entry<String, List<Long>> entry : samples.entrySet()) {
+			results.put(entry.getKey(),
+					CodeGenerationBenchmark.median(entry.getValue()));
+		}
+
+		CodeGenerationBenchmark.report(results);
+
+		if (baseline == null)
+			return true;
+
+		final File baselineFile = new File(baseline);
+
+		if (update || !baselineFile.exists()) {
+			CodeGenerationBenchmark.save(baselineFile, configuration, results);
+
+			System.out.println("Saved the results to " + baselineFile);
+
+			return true;
+		}
+
+		return CodeGenerationBenchmark.compare(baselineFile, configuration,
+				results, tolerance);
+	}
+
+	/**
+	 * Generates code for the story once. If samples is not null, the time and
+	 * allocation of each phase and the size of the output are added to it.
+	 * 
+	 * @param generator
+	 * @param story
+	 * @param samples
+	 */
+	private static void generate(CodeGenerator generator, StoryModel story,
+			Map<String, List<Long>> samples) {
+		final Collection<StoryProblem> problems = new ArrayList<StoryProblem>();
+		final long startAllocated = CodeGenerationBenchmark.getAllocatedBytes();
+		final long startTime = System.nanoTime();
+		final Collection<ScriptInfo> scripts;
+		final long time;
+		final long allocated;
+		final CodeGenerationProfiler profile;
+		final GenerationSession session;
+		long characters = 0;
+
+		session = generator.startSession(story, null);
+		scripts = generator.generateCode(session, problems);
+
+		time = System.nanoTime() - startTime;
+		allocated = CodeGenerationBenchmark.getAllocatedBytes()
+				- startAllocated;
+		profile = session.getProfiler();
+
+		if (!problems.isEmpty())
+			throw new IllegalStateException("The synthetic story has problems: "
+					+ problems);
+
+		if (samples == null)
+			return;
+
+		for (ScriptInfo script : scripts) {
+			characters += script.getCode().length();
+		}
+
+		CodeGenerationBenchmark.add(samples, TIME + TOTAL, time);
+		CodeGenerationBenchmark.add(samples, ALLOCATED + TOTAL, allocated);
+
+		for (Timing timing : profile.getTimings(Timing.BY_TOTAL_TIME)) {
+			if (!timing.getCategory().equals(CodeGenerationProfiler.PHASE))
+				continue;
+
+			CodeGenerationBenchmark.add(samples, TIME + timing.getName(),
+					timing.getTotalTime());
+			CodeGenerationBenchmark.add(samples,
+					ALLOCATED + timing.getName(), timing.getAllocatedBytes());
+		}
+
+		CodeGenerationBenchmark.add(samples, SCRIPTS, scripts.size());
+		CodeGenerationBenchmark.add(samples, CHARACTERS, characters);
+	}
+
+	private static void add(Map<String, List<Long>> samples, String name,
+			long value) {
+		List<Long> values = samples.get(name);
+
+		if (values == null) {
+			values = new ArrayList<Long>();
+			samples.put(name, values);
+		}
+
+		values.add(value);
+	}
+
+	private static long median(List<Long> values) {
+		final List<Long> sorted = new ArrayList<Long>(values);
+
+		Collections.sort(sorted);
+
+		return sorted.get(sorted.size() / 2);
+	}
+
+	private static void report(Map<String, Long> results) {
+		System.out.println(String.format("%-24s %10s %14s", "Phase",
+				"Time (ms)", "Allocated (MB)"));
+
+		for (Map.Entry<String, Long> entry : results.entrySet()) {
+			final String key = entry.getKey();
+
+			if (!key.startsWith(TIME))
+				continue;
+
+			final String phase = key.substring(TIME.length());
+			final Long allocated = results.get(ALLOCATED + phase);
+
+			System.out.println(String.format("%-24s %10.1f %14.1f", phase,
+					entry.getValue() / 1000000.0,
+					allocated == null ? 0 : allocated / MEGABYTE));
+		}
+
+		System.out.println("Generated " + results.get(SCRIPTS)
+				+ " scripts with " + results.get(CHARACTERS) + " characters.");
+	}
+
+	private static void save(File baselineFile, String configuration,
+			Map<String, Long> results) throws IOException {
+		final Properties properties = new Properties();
+		final OutputStream out;
+
+		properties.setProperty(CONFIGURATION, configuration);
+
+		for (Map.Entry<String, Long> entry : results.entrySet()) {
+			properties.setProperty(entry.getKey(), entry.getValue().toString());
+		}
+
+		out = new FileOutputStream(baselineFile);
+		try {
+			properties.store(out, "Code generation benchmark baseline");
+		} finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * Compares the results to the baseline and prints out every regression.
+	 * 
+	 * @param baselineFile
+	 * @param configuration
+	 * @param results
+	 * @param tolerance
+	 * @return False if there was a regression.
+	 * @throws IOException
+	 */
+	private static boolean compare(File baselineFile, String configuration,
+			Map<String, Long> results, int tolerance) throws IOException {
+		final Properties baseline = new Properties();
+		final InputStream in = new FileInputStream(baselineFile);
+		boolean passed = true;
+
+		try {
+			baseline.load(in);
+		} finally {
+			in.close();
+		}
+
+		if (!configuration.equals(baseline.getProperty(CONFIGURATION))) {
+			System.out.println("The baseline in " + baselineFile
+					+ " is for " + baseline.getProperty(CONFIGURATION)
+					+ ", so it was not compared.");
+			return true;
+		}
+
+		for (Map.Entry<String, Long> entry : results.entrySet()) {
+			final String key = entry.getKey();
+			final String baselineValue = baseline.getProperty(key);
+			final long current = entry.getValue();
+			final long previous;
+			final long floor;
+
+			if (baselineValue == null)
+				continue;
+
+			previous = Long.parseLong(baselineValue);
+
+			if (key.equals(SCRIPTS) || key.equals(CHARACTERS)) {
+				if (current != previous) {
+					System.out.println("CHANGED " + key + ": " + previous
+							+ " -> " + current
+							+ ". Update the baseline if this is expected.");
+					passed = false;
+				}
+				continue;
+			}
+
+			floor = key.startsWith(TIME) ? MIN_TIME : MIN_ALLOCATED;
+
+			if (current > floor
+					&& current * 100 > previous * (100L + tolerance)) {
+				System.out.println(String.format(
+						"REGRESSION %s: %d -> %d (+%.0f%%)", key, previous,
+						current, previous > 0 ? (current - previous) * 100.0
+								/ previous : 100.0));
+				passed = false;
+			}
+		}
+
+		if (passed)
+			System.out.println("No regressions against " + baselineFile);
+
+		return passed;
+	}
+
+	/**
+	 * Returns the number of bytes allocated by the current thread, or 0 if the
+	 * JVM can not tell us.
+	 * 
+	 * @return
+	 */
+	private static long getAllocatedBytes() {
+		final ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+
+		if (threadBean instanceof com.sun.management.ThreadMXBean) {
+			final com.sun.management.ThreadMXBean sunBean;
+
+			sunBean = (com.sun.management.ThreadMXBean) threadBean;
+
+			if (sunBean.isThreadAllocatedMemorySupported())
+				return sunBean.getThreadAllocatedBytes(Thread.currentThread()
+						.getId());
+		}
+
+		return 0;
+	}
+}
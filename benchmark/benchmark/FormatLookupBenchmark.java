@@ -0,0 +1,494 @@
+package benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import scriptease.controller.FragmentAdapter;
+import scriptease.controller.FragmentVisitor;
+import scriptease.controller.io.FileIO;
+import scriptease.model.CodeBlock;
+import scriptease.model.StoryComponent;
+import scriptease.model.complex.StoryNode;
+import scriptease.model.semodel.StoryModel;
+import scriptease.translator.LanguageDictionary;
+import scriptease.translator.codegenerator.code.fragments.AbstractFragment;
+import scriptease.translator.codegenerator.code.fragments.FormatReferenceFragment;
+import scriptease.translator.codegenerator.code.fragments.SimpleDataFragment;
+import scriptease.translator.codegenerator.code.fragments.container.AbstractContainerFragment;
+import scriptease.translator.codegenerator.code.fragments.container.FormatDefinitionFragment;
+import scriptease.translator.codegenerator.code.fragments.container.IndentFragment;
+import scriptease.translator.codegenerator.code.fragments.container.LineFragment;
+import scriptease.translator.codegenerator.code.fragments.container.ScopeFragment;
+import scriptease.translator.codegenerator.code.fragments.container.SeriesFragment;
+
+/**
+ * Measures how long the formats of real language dictionaries take to look up,
+ * against the way they were looked up before {@link LanguageDictionary} kept
+ * its formats by ID and fragments kept their parsed directives. Before, every
+ * format reference searched the formats one by one and copied the one it
+ * found, and every data, series and scope fragment parsed its directive again
+ * each time it was resolved.<br>
+ * <br>
+ * The synthetic translator can not generate with the NWN or Unity
+ * dictionaries, since their formats need the games' own libraries. Instead,
+ * each dictionary's formats are walked from the formats that nothing refers
+ * to, following every reference and reading every directive on the way, the
+ * same as resolving them would. That walk is replayed once for every code
+ * block in the scripts of a story built by {@link SyntheticStory}. The lookups are checked to find the same formats and
+ * directives both ways. Run it through the <code>benchmark</code> target of
+ * the build file with <code>-Dbenchmark.class=benchmark.FormatLookupBenchmark</code>,
+ * or directly with arguments of the form <code>name=value</code>:
+ *
+ * <ul>
+ * <li><b>dictionaries</b> - the language dictionaries to look up formats in,
+ * separated by commas. Default the NWN and Unity dictionaries.</li>
+ * <li><b>points</b> - the number of story points. Default 100.</li>
+ * <li><b>objects</b> - the number of objects that causes are attached to.
+ * Default 20.</li>
+ * <li><b>warmup</b> - how many runs to throw away first. Default 3.</li>
+ * <li><b>iterations</b> - how many runs to measure. Default 5.</li>
+ * <li><b>translator</b> - the translator.ini of the synthetic translator
+ * that builds the story. Default
+ * <code>benchmark/synthetic/translator.ini</code>.</li>
+ * </ul>
+ *
+ * The median time of each kind of lookup is reported for each dictionary.
+ */
+public class FormatLookupBenchmark {
+	private static final String DICTIONARIES = "translators_src/nwn/resources/languageDictionary.xml,"
+			+ "translators_src/unity/resources/languageDictionary.xml";
+
+	private final Map<String, String> arguments;
+
+	private FormatLookupBenchmark(Map<String, String> arguments) {
+		this.arguments = arguments;
+	}
+
+	public static void main(String[] args) throws IOException {
+		final Map<String, String> arguments = new HashMap<String, String>();
+
+		for (String arg : args) {
+			final String[] split = arg.split("=", 2);
+
+			if (split.length != 2)
+				throw new IllegalArgumentException("Argument " + arg
+						+ " is not of the form name=value.");
+
+			arguments.put(split[0], split[1]);
+		}
+
+		new FormatLookupBenchmark(arguments).run();
+
+		// The UI classes that ScriptEase loaded keep the JVM alive.
+		System.exit(0);
+	}
+
+	private int getInt(String name, int defaultValue) {
+		final String value = this.arguments.get(name);
+
+		return value == null ? defaultValue : Integer.parseInt(value);
+	}
+
+	private String getString(String name, String defaultValue) {
+		final String value = this.arguments.get(name);
+
+		return value == null ? defaultValue : value;
+	}
+
+	private void run() throws IOException {
+		final int points = this.getInt("points", 100);
+		final int objects = this.getInt("objects", 20);
+		final int warmup = this.getInt("warmup", 3);
+		final int iterations = this.getInt("iterations", 5);
+		final String dictionaries = this.getString("dictionaries",
+				DICTIONARIES);
+		final List<Walk> walks = new ArrayList<Walk>();
+		final int codeBlocks;
+
+		for (String path : dictionaries.split(",")) {
+			final LanguageDictionary dictionary;
+
+			dictionary = FileIO.getInstance().readLanguageDictionary(
+					new File(path.trim()));
+
+			if (dictionary == null)
+				throw new IllegalArgumentException("Could not read the "
+						+ "language dictionary " + path);
+
+			walks.add(new Walk(path.trim(), dictionary));
+		}
+
+		codeBlocks = FormatLookupBenchmark.countCodeBlocks(
+				new SyntheticTranslator(new File(this.getString("translator",
+						"benchmark/synthetic/translator.ini"))), points,
+				objects);
+
+		System.out.println("Looking up formats for " + codeBlocks
+				+ " code blocks from points=" + points + " objects="
+				+ objects);
+		for (Walk walk : walks) {
+			final List<List<Long>> samples = new ArrayList<List<Long>>();
+
+			for (int i = 0; i < warmup; i++) {
+				walk.time(codeBlocks);
+			}
+
+			for (int i = 0; i < iterations; i++) {
+				final long[] times = walk.time(codeBlocks);
+
+				for (int j = 0; j < times.length; j++) {
+					if (samples.size() <= j)
+						samples.add(new ArrayList<Long>());
+
+					samples.get(j).add(times[j]);
+				}
+			}
+
+			System.out.println(walk.getName());
+			System.out.println(String.format("%-18s %10s %10s %10s",
+					"Lookup", "Count", "Old (ms)", "New (ms)"));
+			System.out.println(String.format("%-18s %10d %10.1f %10.1f",
+					"Format references", codeBlocks * walk.references.size(),
+					FormatLookupBenchmark.median(samples.get(0)) / 1000000.0,
+					FormatLookupBenchmark.median(samples.get(1)) / 1000000.0));
+			System.out.println(String.format("%-18s %10d %10.1f %10.1f",
+					"Directives", codeBlocks * walk.directives.size(),
+					FormatLookupBenchmark.median(samples.get(2)) / 1000000.0,
+					FormatLookupBenchmark.median(samples.get(3)) / 1000000.0));
+		}
+	}
+
+	/**
+	 * Builds a synthetic story and counts the code blocks in each of the
+	 * scripts it would be generated into.
+	 *
+	 * @param translator
+	 * @param points
+	 * @param objects
+	 * @return
+	 */
+	private static int countCodeBlocks(SyntheticTranslator translator,
+			int points, int objects) {
+		final SyntheticGameModule module = new SyntheticGameModule(objects);
+		final StoryModel story;
+		final List<StoryComponent> roots = new ArrayList<StoryComponent>();
+		int codeBlocks = 0;
+
+		story = new SyntheticStory(points, 2, 3, 3, 2, 0).build(translator,
+				module);
+
+		for (StoryNode node : story.getRoot().getOrderedDescendants()) {
+			roots.add(node);
+		}
+
+		for (Set<CodeBlock> script : module.aggregateScripts(roots)) {
+			codeBlocks += script.size();
+		}
+
+		return codeBlocks;
+	}
+
+	private static long median(List<Long> values) {
+		final List<Long> sorted = new ArrayList<Long>(values);
+
+		Collections.sort(sorted);
+
+		return sorted.get(sorted.size() / 2);
+	}
+
+	/**
+	 * The format references and directives met while walking a dictionary's
+	 * formats, in the order they were met.
+	 */
+	private static class Walk {
+		private final String path;
+		private final LanguageDictionary dictionary;
+		private final Collection<FormatDefinitionFragment> formats;
+		private final List<String> references;
+		private final List<Directive> directives;
+
+		private Walk(String path, LanguageDictionary dictionary) {
+			final Set<String> formatIDs = new HashSet<String>();
+			final Set<String> referenced = new HashSet<String>();
+			final List<String> roots = new ArrayList<String>();
+
+			this.path = path;
+			this.dictionary = dictionary;
+			this.formats = dictionary.getFormats();
+			this.references = new ArrayList<String>();
+			this.directives = new ArrayList<Directive>();
+
+			for (FormatDefinitionFragment format : this.formats) {
+				formatIDs.add(format.getDirectiveText().toUpperCase());
+			}
+
+			for (FormatDefinitionFragment format : this.formats) {
+				this.walk(format.getSubFragments(), formatIDs,
+						new HashSet<String>(), referenced, false);
+			}
+
+			for (FormatDefinitionFragment format : this.formats) {
+				final String formatID = format.getDirectiveText();
+
+				if (!referenced.contains(formatID.toUpperCase()))
+					roots.add(formatID);
+			}
+
+			for (String formatID : roots) {
+				final Set<String> expanding = new HashSet<String>();
+
+				expanding.add(formatID.toUpperCase());
+
+				this.walk(dictionary.getFormat(formatID), formatIDs,
+						expanding, referenced, true);
+			}
+		}
+
+		/**
+		 * Returns the name of the dictionary, or where it was read from if it
+		 * has no name.
+		 *
+		 * @return
+		 */
+		private String getName() {
+			final String name = this.dictionary.getName();
+
+			return name == null ? this.path : name;
+		}
+
+		/**
+		 * Walks the fragments, following references to formats that are not
+		 * already being expanded. Only records what it meets if record is
+		 * true.
+		 *
+		 * @param fragments
+		 * @param formatIDs
+		 *            The upper case IDs of every format in the dictionary.
+		 * @param expanding
+		 *            The upper case IDs of the formats being expanded.
+		 * @param referenced
+		 *            Collects the upper case IDs of every format referred to.
+		 * @param record
+		 */
+		private void walk(List<AbstractFragment> fragments,
+				final Set<String> formatIDs, final Set<String> expanding,
+				final Set<String> referenced, final boolean record) {
+			final FragmentVisitor walker = new FragmentAdapter() {
+				@Override
+				public void processFormatReferenceFragment(
+						FormatReferenceFragment fragment) {
+					final String formatID = fragment.getDirectiveText();
+					final String upperCaseID = formatID.toUpperCase();
+
+					referenced.add(upperCaseID);
+
+					// Generating would fail on a missing format anyway.
+					if (!record || !formatIDs.contains(upperCaseID))
+						return;
+
+					Walk.this.references.add(formatID);
+
+					if (expanding.add(upperCaseID)) {
+						Walk.this.walk(Walk.this.dictionary
+								.getFormat(formatID), formatIDs, expanding,
+								referenced, record);
+						expanding.remove(upperCaseID);
+					}
+				}
+
+				@Override
+				public void processSimpleDataFragment(
+						SimpleDataFragment fragment) {
+					this.addDirective(fragment, SimpleDataFragment.Type.class);
+				}
+
+				@Override
+				public void processSeriesFragment(SeriesFragment fragment) {
+					this.addDirective(fragment, SeriesFragment.Type.class);
+					this.processContainer(fragment);
+				}
+
+				@Override
+				public void processScopeFragment(ScopeFragment fragment) {
+					this.addDirective(fragment, ScopeFragment.Type.class);
+					this.processContainer(fragment);
+				}
+
+				@Override
+				public void processLineFragment(LineFragment fragment) {
+					this.processContainer(fragment);
+				}
+
+				@Override
+				public void processIndentFragment(IndentFragment fragment) {
+					this.processContainer(fragment);
+				}
+
+				private void addDirective(AbstractFragment fragment,
+						Class<? extends Enum<?>> type) {
+					if (record)
+						Walk.this.directives.add(new Directive(fragment
+								.getDirectiveText(), type));
+				}
+
+				private void processContainer(
+						AbstractContainerFragment container) {
+					Walk.this.walk(container.getSubFragments(), formatIDs,
+							expanding, referenced, record);
+				}
+			};
+
+			for (AbstractFragment fragment : fragments) {
+				fragment.process(walker);
+			}
+		}
+
+		/**
+		 * Replays the walk once for every code block, the old way and the new
+		 * way, and checks that both found the same things.
+		 *
+		 * @param codeBlocks
+		 * @return The time taken to look up the references the old way and the
+		 *         new way, then the directives the old way and the new way.
+		 */
+		private long[] time(int codeBlocks) {
+			final long[] times = new long[4];
+			long oldFound = 0;
+			long newFound = 0;
+			long start;
+
+			start = System.nanoTime();
+			for (int i = 0; i < codeBlocks; i++) {
+				for (String formatID : this.references) {
+					oldFound += this.oldGetFormat(formatID.toUpperCase())
+							.size();
+				}
+			}
+			times[0] = System.nanoTime() - start;
+
+			start = System.nanoTime();
+			for (int i = 0; i < codeBlocks; i++) {
+				for (String formatID : this.references) {
+					newFound += this.dictionary.getFormat(formatID).size();
+				}
+			}
+			times[1] = System.nanoTime() - start;
+
+			FormatLookupBenchmark.check("format references", oldFound,
+					newFound);
+
+			oldFound = 0;
+			newFound = 0;
+
+			start = System.nanoTime();
+			for (int i = 0; i < codeBlocks; i++) {
+				for (Directive directive : this.directives) {
+					oldFound += directive.oldParse();
+				}
+			}
+			times[2] = System.nanoTime() - start;
+
+			start = System.nanoTime();
+			for (int i = 0; i < codeBlocks; i++) {
+				for (Directive directive : this.directives) {
+					newFound += directive.parse();
+				}
+			}
+			times[3] = System.nanoTime() - start;
+
+			FormatLookupBenchmark.check("directives", oldFound, newFound);
+
+			return times;
+		}
+
+		/**
+		 * The lookup that {@link LanguageDictionary#getFormat(String)}
+		 * replaced.
+		 *
+		 * @param formatID
+		 * @return
+		 */
+		private List<AbstractFragment> oldGetFormat(String formatID) {
+			final List<AbstractFragment> format = new ArrayList<AbstractFragment>();
+
+			boolean containsFragment = false;
+
+			for (FormatDefinitionFragment formatFragment : this.formats) {
+				if (formatFragment.getDirectiveText().equalsIgnoreCase(
+						formatID)) {
+					format.addAll(formatFragment.getSubFragments());
+					containsFragment = true;
+					break;
+				}
+			}
+
+			if (!containsFragment)
+				throw new IllegalArgumentException(
+						"Unable to resolve formatID " + formatID);
+
+			return format;
+		}
+	}
+
+	private static void check(String lookup, long oldFound, long newFound) {
+		if (oldFound != newFound)
+			throw new IllegalStateException("The old and new " + lookup
+					+ " found different things: " + oldFound + " and "
+					+ newFound);
+	}
+
+	/**
+	 * A directive of a data, series or scope fragment. It keeps its parsed
+	 * value the same way the fragment it was found in does.
+	 */
+	private static class Directive extends AbstractFragment {
+		@SuppressWarnings("rawtypes")
+		private final Class type;
+
+		private Directive(String text, Class<? extends Enum<?>> type) {
+			super(text);
+
+			this.type = type;
+		}
+
+		/**
+		 * Returns the ordinal of the directive's value, or -1 if it has none.
+		 *
+		 * @return
+		 */
+		@SuppressWarnings("unchecked")
+		private int parse() {
+			final Enum<?> value = this.getDirectiveValue(this.type);
+
+			return value == null ? -1 : value.ordinal();
+		}
+
+		/**
+		 * Parses the directive the way fragments did every time they were
+		 * resolved.
+		 *
+		 * @return
+		 */
+		@SuppressWarnings("unchecked")
+		private int oldParse() {
+			try {
+				return Enum.valueOf(this.type,
+						this.getDirectiveText().toUpperCase()).ordinal();
+			} catch (IllegalArgumentException e) {
+				return -1;
+			}
+		}
+
+		@Override
+		public void process(FragmentVisitor visitor) {
+		}
+	}
+}
@@ -0,0 +1,180 @@
+package benchmark;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import scriptease.model.semodel.StoryModel;
+import scriptease.translator.codegenerator.ScriptInfo;
+import scriptease.translator.io.model.GameModule;
+import scriptease.translator.io.model.Resource;
+
+/**
+ * A game module that only exists in memory. It has a number of objects that
+ * causes can be attached to, and throws away any scripts added to it.
+ */
+public class SyntheticGameModule extends GameModule {
+	public static final String OBJECT_TYPE = "Object";
+
+	private final List<Resource> objects;
+	private File location;
+
+	/**
+	 * Builds a module with the passed in number of objects.
+	 * 
+	 * @param objectCount
+	 */
+	public SyntheticGameModule(int objectCount) {
+		this.objects = new ArrayList<Resource>(objectCount);
+
+		for (int i = 0; i < objectCount; i++) {
+			this.objects.add(new SyntheticObject("object" + i));
+		}
+	}
+
+	/**
+	 * Required by the translator, which loads the game module class by name.
+	 */
+	public SyntheticGameModule() {
+		this(0);
+	}
+
+	@Override
+	public void load(boolean readOnly) {
+	}
+
+	@Override
+	public void save(boolean compile) {
+	}
+
+	@Override
+	public void close() {
+	}
+
+	@Override
+	public List<Resource> getResourcesOfType(String type) {
+		if (type.equals(OBJECT_TYPE))
+			return Collections.unmodifiableList(this.objects);
+
+		return Collections.emptyList();
+	}
+
+	@Override
+	public Resource getInstanceForObjectIdentifier(String id) {
+		for (Resource object : this.objects) {
+			if (object.getTemplateID().equals(id))
+				return object;
+		}
+
+		return null;
+	}
+
+	@Override
+	public Map<String, Collection<Resource>> getAutomaticHandlers() {
+		return Collections.emptyMap();
+	}
+
+	@Override
+	public File getLocation() {
+		return this.location;
+	}
+
+	@Override
+	public String getName() {
+		return "Synthetic";
+	}
+
+	@Override
+	public void setLocation(File location) {
+		this.location = location;
+	}
+
+	@Override
+	public void addScripts(Collection<ScriptInfo> scripts, StoryModel story) {
+	}
+
+	@Override
+	public void addIncludeFiles(Collection<File> includeFiles) {
+	}
+
+	@Override
+	public void configureTester(ProcessBuilder builder) {
+		throw new UnsupportedOperationException(
+				"The synthetic game module can not be tested.");
+	}
+
+	@Override
+	public String getImageType() {
+		return "";
+	}
+
+	@Override
+	public String getAudioType() {
+		return "";
+	}
+
+	@Override
+	public String getDialogueLineType() {
+		return "";
+	}
+
+	@Override
+	public String getDialogueType() {
+		return "";
+	}
+
+	/**
+	 * An object in the module that causes can be attached to.
+	 */
+	private static class SyntheticObject extends Resource {
+		private final String tag;
+
+		private SyntheticObject(String tag) {
+			this.tag = tag;
+		}
+
+		@Override
+		public Collection<String> getTypes() {
+			return Collections.singletonList(OBJECT_TYPE);
+		}
+
+		@Override
+		public String getName() {
+			return this.tag;
+		}
+
+		@Override
+		public String getTag() {
+			return this.tag;
+		}
+
+		@Override
+		public String getTemplateID() {
+			return this.tag;
+		}
+
+		@Override
+		public String getCodeText() {
+			return this.tag;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			return obj instanceof SyntheticObject
+					&& this.tag.equals(((SyntheticObject) obj).tag);
+		}
+
+		@Override
+		public int hashCode() {
+			return this.tag.hashCode();
+		}
+
+		@Override
+		public String toString() {
+			return this.tag;
+		}
+	}
+}
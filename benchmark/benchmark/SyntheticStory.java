@@ -0,0 +1,223 @@
+package benchmark;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Random;
+
+import scriptease.ScriptEase;
+import scriptease.model.StoryComponent;
+import scriptease.model.complex.CauseIt;
+import scriptease.model.complex.ScriptIt;
+import scriptease.model.complex.StoryComponentContainer;
+import scriptease.model.complex.StoryPoint;
+import scriptease.model.semodel.SEModelManager;
+import scriptease.model.semodel.StoryModel;
+import scriptease.model.semodel.librarymodel.LibraryModel;
+import scriptease.translator.Translator;
+import scriptease.translator.io.model.Resource;
+
+/**
+ * Builds stories for the synthetic translator, so that code generation can be
+ * timed on stories of any size. The story points form a graph where each point
+ * has up to {@link #fanOut} successors, and some points also follow a second,
+ * earlier point. Each story point has a number of causes attached to objects
+ * in the {@link SyntheticGameModule}. Each cause changes a few objects by
+ * amounts that are calculated by functions nested {@link #bindingDepth} deep,
+ * and succeeds one of the point's successors.<br>
+ * <br>
+ * The same seed always builds the same story.
+ */
+public class SyntheticStory {
+	private static final String[] CAUSES = { "When <Subject> updates",
+			"When <Subject> is used" };
+	private static final String CHANGE = "Change <Target> by <Amount>";
+	private static final String SUM = "Sum of <First> and <Second>";
+	private static final String SUCCEED = "Succeed <Story Point>";
+
+	private final int storyPointCount;
+	private final int fanOut;
+	private final int causesPerPoint;
+	private final int effectsPerCause;
+	private final int bindingDepth;
+	private final Random random;
+
+	/**
+	 * Creates a builder for stories with the passed in dimensions.
+	 * 
+	 * @param storyPointCount
+	 *            The number of story points, including the start point.
+	 * @param fanOut
+	 *            The most successors a story point can have.
+	 * @param causesPerPoint
+	 * @param effectsPerCause
+	 * @param bindingDepth
+	 *            How deep the functions that calculate each amount are
+	 *            nested. 0 uses a constant.
+	 * @param seed
+	 */
+	public SyntheticStory(int storyPointCount, int fanOut, int causesPerPoint,
+			int effectsPerCause, int bindingDepth, long seed) {
+		if (storyPointCount < 1 || fanOut < 1)
+			throw new IllegalArgumentException(
+					"A story needs at least one point and a fan out of one.");
+
+		this.storyPointCount = storyPointCount;
+		this.fanOut = fanOut;
+		this.causesPerPoint = causesPerPoint;
+		this.effectsPerCause = effectsPerCause;
+		this.bindingDepth = bindingDepth;
+		this.random = new Random(seed);
+	}
+
+	/**
+	 * Builds a story for the module using the translator's default library,
+	 * and makes it the active model.
+	 * 
+	 * @param translator
+	 * @param module
+	 * @return
+	 */
+	public StoryModel build(Translator translator, SyntheticGameModule module) {
+		final StoryModel story;
+		final LibraryModel library;
+		final List<StoryPoint> storyPoints;
+		final List<Resource> objects;
+
+		story = new StoryModel(module, "Synthetic Story", "Benchmark",
+				"A story built by the code generation benchmark.",
+				ScriptEase.getInstance().getVersion(), translator,
+				new ArrayList<LibraryModel>());
+		library = translator.getLibrary();
+		storyPoints = new ArrayList<StoryPoint>(this.storyPointCount);
+		objects = module.getResourcesOfType(SyntheticGameModule.OBJECT_TYPE);
+
+		if (objects.isEmpty())
+			throw new IllegalArgumentException(
+					"The module needs objects to attach causes to.");
+
+		/*
+		 * Story point bindings are only accepted for story points in the
+		 * active model, and story points look up their types through it.
+		 */
+		SEModelManager.getInstance().add(story);
+		SEModelManager.getInstance().activate(story);
+
+		storyPoints.add(story.getRoot());
+
+		/*
+		 * Every point follows the point that was filled up before it, which
+		 * makes a tree with the fan out. Some also follow a random earlier
+		 * point. Points only ever follow earlier points, so there are no
+		 * cycles.
+		 */
+		for (int i = 1; i < this.storyPointCount; i++) {
+			final StoryPoint storyPoint = new StoryPoint("Point " + i);
+			final int parentIndex = (i - 1) / this.fanOut;
+
+			storyPoints.get(parentIndex).addSuccessor(storyPoint);
+
+			if (parentIndex > 0 && this.random.nextInt(4) == 0)
+				storyPoints.get(this.random.nextInt(parentIndex)).addSuccessor(
+						storyPoint);
+
+			storyPoints.add(storyPoint);
+		}
+
+		for (StoryPoint storyPoint : storyPoints) {
+			for (int i = 0; i < this.causesPerPoint; i++) {
+				storyPoint.addStoryChild(this.buildCause(library, storyPoint,
+						objects, i));
+			}
+		}
+
+		return story;
+	}
+
+	private CauseIt buildCause(LibraryModel library, StoryPoint owner,
+			List<Resource> objects, int index) {
+		final CauseIt cause;
+		final Collection<StoryPoint> successors;
+
+		cause = (CauseIt) SyntheticStory.find(library.getCausesCategory(),
+				CAUSES[index % CAUSES.length]);
+
+		cause.getParameter("Subject").setBinding(this.pick(objects));
+
+		for (int i = 0; i < this.effectsPerCause; i++) {
+			final ScriptIt change;
+
+			change = (ScriptIt) SyntheticStory.find(
+					library.getEffectsCategory(), CHANGE);
+
+			change.getParameter("Target").setBinding(this.pick(objects));
+
+			if (this.bindingDepth > 0)
+				change.getParameter("Amount").setBinding(
+						this.buildSum(library, this.bindingDepth));
+
+			cause.addStoryChild(change);
+		}
+
+		successors = new ArrayList<StoryPoint>();
+		for (StoryComponent successor : owner.getSuccessors()) {
+			if (successor instanceof StoryPoint)
+				successors.add((StoryPoint) successor);
+		}
+
+		if (!successors.isEmpty()) {
+			final ScriptIt succeed;
+
+			succeed = (ScriptIt) SyntheticStory.find(
+					library.getEffectsCategory(), SUCCEED);
+
+			succeed.getParameter("Story Point").setBinding(
+					this.pick(new ArrayList<StoryPoint>(successors)));
+
+			cause.addStoryChild(succeed);
+		}
+
+		return cause;
+	}
+
+	/**
+	 * Builds a sum whose first number is another sum, nested to the depth.
+	 * 
+	 * @param library
+	 * @param depth
+	 * @return
+	 */
+	private ScriptIt buildSum(LibraryModel library, int depth) {
+		final ScriptIt sum;
+
+		sum = (ScriptIt) SyntheticStory.find(library.getEffectsCategory(), SUM);
+
+		if (depth > 1)
+			sum.getParameter("First").setBinding(
+					this.buildSum(library, depth - 1));
+
+		return sum;
+	}
+
+	private <T> T pick(List<T> list) {
+		return list.get(this.random.nextInt(list.size()));
+	}
+
+	/**
+	 * Returns a copy of the component in the container with the display text.
+	 * 
+	 * @param container
+	 * @param displayText
+	 * @return
+	 */
+	private static StoryComponent find(StoryComponentContainer container,
+			String displayText) {
+		for (StoryComponent component : container.getChildren()) {
+			if (component.getDisplayText().equals(displayText))
+				return component.clone();
+		}
+
+		throw new IllegalStateException("The synthetic library has no "
+				+ displayText);
+	}
+}
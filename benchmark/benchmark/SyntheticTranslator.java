@@ -0,0 +1,23 @@
+package benchmark;
+
+import java.io.File;
+import java.io.IOException;
+
+import scriptease.translator.Translator;
+
+/**
+ * Loads the synthetic translator, which is kept next to the benchmark instead
+ * of in the translators directory so that ScriptEase never offers it to
+ * users.
+ */
+public class SyntheticTranslator extends Translator {
+	/**
+	 * Loads the translator described by the passed in translator.ini file.
+	 * 
+	 * @param descriptionFile
+	 * @throws IOException
+	 */
+	public SyntheticTranslator(File descriptionFile) throws IOException {
+		super(descriptionFile);
+	}
+}
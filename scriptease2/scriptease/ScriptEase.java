@@ -72,6 +72,7 @@ public final class ScriptEase implements Runnable {
 	public static final String OUTPUT_DIRECTORY_KEY = "outputDirectory";
 	public static final String FONT_SIZE_KEY = "FontSize";
 	public static final String UNDO_STACK_SIZE_KEY = "MaxUndoSteps";
+	public static final String PROFILE_CODE_GENERATION_KEY = "profileCodeGeneration";
 
 	/**
 	 * If <code>true</code> then some extra features useful to debugging will be
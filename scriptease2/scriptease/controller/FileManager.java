@@ -1,11 +1,15 @@
 package scriptease.controller;
 
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileFilter;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
 import java.io.IOError;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.nio.channels.FileChannel;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -37,10 +41,12 @@ import scriptease.translator.GameCompilerException;
 import scriptease.translator.LanguageDictionary;
 import scriptease.translator.Translator;
 import scriptease.translator.Translator.DescriptionKeys;
+import scriptease.translator.codegenerator.CodeGenerationProfiler;
 import scriptease.translator.codegenerator.CodeGenerator;
+import scriptease.translator.codegenerator.GenerationSession;
+import scriptease.translator.codegenerator.ScriptCache;
 import scriptease.translator.codegenerator.ScriptInfo;
 import scriptease.translator.io.model.GameModule;
-import scriptease.translator.io.tools.ScriptEaseFileAccess;
 import scriptease.util.BiHashMap;
 import scriptease.util.FileOp;
 
@@ -75,6 +81,11 @@ public final class FileManager {
 	 * The file extension for ScriptEase Story Packages
 	 */
 	public static final String FILE_EXTENSION_PACKAGE = "zip";
+	/**
+	 * The file extension for the cache of scripts generated for a story,
+	 * which is kept next to the story file.
+	 */
+	public static final String FILE_EXTENSION_SCRIPT_CACHE = "sescache";
 
 	public static final FileNameExtensionFilter STORY_FILTER = new FileNameExtensionFilter(
 			"ScriptEase Story Files", FileManager.FILE_EXTENSION_STORY);
@@ -96,6 +107,12 @@ public final class FileManager {
 
 	private final Map<File, FileChannel> filesToChannels;
 
+	/**
+	 * The scripts generated for each open story, so that scripts that have
+	 * not changed do not have to be generated again on every save.
+	 */
+	private final Map<StoryModel, ScriptCache> scriptCaches;
+
 	private final ObserverManager<FileManagerObserver> modelObserverManager;
 
 	private final ObserverManager<RecentFileObserver> recentFileObserverManager;
@@ -121,6 +138,8 @@ public final class FileManager {
 
 		this.filesToChannels = new HashMap<File, FileChannel>();
 
+		this.scriptCaches = new HashMap<StoryModel, ScriptCache>();
+
 		this.modelObserverManager = new ObserverManager<FileManagerObserver>();
 
 		this.recentFileObserverManager = new ObserverManager<RecentFileObserver>();
@@ -553,15 +572,28 @@ public final class FileManager {
 		final Translator translator;
 		final Collection<StoryProblem> problems;
 		final Collection<ScriptInfo> scriptInfos;
+		final ScriptCache scriptCache;
+		final GenerationSession session;
 		final File compiler;
 
 		module = model.getModule();
 		translator = model.getTranslator();
 		problems = new ArrayList<StoryProblem>();
-		scriptInfos = CodeGenerator.getInstance().generateCode(model, problems);
+		scriptCache = this.getScriptCache(model);
+
+		CodeGenerator.getInstance().setProfiling(
+				Boolean.parseBoolean(ScriptEase.getInstance().getPreference(
+						ScriptEase.PROFILE_CODE_GENERATION_KEY)));
+
+		session = CodeGenerator.getInstance().startSession(model, scriptCache);
+		scriptInfos = CodeGenerator.getInstance().generateCode(session,
+				problems);
 		compiler = translator.getCompiler();
 
-		module.addScripts(scriptInfos);
+		this.writeScriptCache(model, scriptCache);
+		this.saveProfileInOutput(session.getProfiler(), model);
+
+		module.addScripts(scriptInfos, model);
 		module.addIncludeFiles(model.getIncludes());
 
 		this.saveScriptInOutput(scriptInfos, model, false);
@@ -621,6 +653,121 @@ public final class FileManager {
 		}
 	}
 
+	/**
+	 * Returns the cache of scripts generated for the story. The first time we
+	 * generate code for a story in a session, the cache is read from next to
+	 * the story file.
+	 * 
+	 * @param model
+	 * @return
+	 */
+	private ScriptCache getScriptCache(StoryModel model) {
+		ScriptCache cache = this.scriptCaches.get(model);
+
+		if (cache == null) {
+			final File location = this.getScriptCacheLocation(model);
+
+			if (location != null)
+				cache = ScriptCache.read(location);
+			else
+				cache = new ScriptCache();
+
+			this.scriptCaches.put(model, cache);
+		}
+
+		return cache;
+	}
+
+	/**
+	 * Writes the script cache next to the story file. The cache only saves us
+	 * time, so failing to write it is not worth bothering the user about.
+	 * 
+	 * @param model
+	 * @param cache
+	 */
+	private void writeScriptCache(StoryModel model, ScriptCache cache) {
+		final File location = this.getScriptCacheLocation(model);
+
+		if (location == null)
+			return;
+
+		try {
+			cache.write(location);
+		} catch (IOException e) {
+			System.err.println("Failed to write the script cache to "
+					+ location.getAbsolutePath() + ": " + e);
+		}
+	}
+
+	/**
+	 * Returns where the script cache of the story is kept, or null if the
+	 * story has not been saved yet.
+	 * 
+	 * @param model
+	 * @return
+	 */
+	private File getScriptCacheLocation(StoryModel model) {
+		final File location = this.openFiles.getKey(model);
+
+		if (location == null)
+			return null;
+
+		return FileOp.replaceExtension(location,
+				FileManager.FILE_EXTENSION_SCRIPT_CACHE);
+	}
+
+	/**
+	 * Saves the profile of a code generation run in scriptease's output
+	 * directory, as both a report and JSON. Does nothing if the profile is
+	 * null.
+	 * 
+	 * @param profile
+	 * @param model
+	 */
+	private void saveProfileInOutput(CodeGenerationProfiler profile,
+			StoryModel model) {
+		if (profile == null)
+			return;
+
+		final String storyName = model.getTitle();
+		final File outputDir;
+		final File reportFile;
+		final File jsonFile;
+
+		outputDir = new File(ScriptEase.getInstance().getPreference(
+				ScriptEase.OUTPUT_DIRECTORY_KEY), storyName);
+		reportFile = new File(outputDir, storyName + "_profile.txt");
+		jsonFile = new File(outputDir, storyName + "_profile.json");
+
+		outputDir.mkdirs();
+
+		try {
+			Writer writer;
+
+			writer = new BufferedWriter(new OutputStreamWriter(
+					new FileOutputStream(reportFile), "UTF-8"));
+			try {
+				profile.writeReport(writer);
+			} finally {
+				writer.close();
+			}
+
+			writer = new BufferedWriter(new OutputStreamWriter(
+					new FileOutputStream(jsonFile), "UTF-8"));
+			try {
+				profile.writeJSON(writer);
+			} finally {
+				writer.close();
+			}
+
+			System.out.println("Wrote the code generation profile to "
+					+ reportFile.getAbsolutePath());
+		} catch (IOException e) {
+			System.err.println("Unable to save the code generation profile: "
+					+ e);
+		}
+	}
+
 	/**
 	 * Saves a copy of the scripts and include files in scriptease's output
 	 * directory
@@ -642,17 +789,22 @@ public final class FileManager {
 		File outputFile = new File(outputDir + storyName + "/" + storyName
 				+ ".output");
 
-		// Write the script to the file
-		ScriptEaseFileAccess seWriter;
+		// Write the scripts to the file one at a time, without first making a
+		// byte copy of each. The scripts themselves are still whole Strings.
+		Writer writer;
 		try {
-			seWriter = new ScriptEaseFileAccess(outputFile, "rw");
+			writer = new BufferedWriter(new OutputStreamWriter(
+					new FileOutputStream(outputFile), "ISO-8859-1"));
 
-			for (ScriptInfo script : scriptInfos) {
-				seWriter.writeString(script == null ? "" : script.getCode());
+			try {
+				for (ScriptInfo script : scriptInfos) {
+					if (script != null)
+						writer.write(script.getCode());
+				}
+			} finally {
+				writer.close();
 			}
 
-			seWriter.close();
-
 			if (writeIncludeFiles)
 				// Copy necessary include files
 				for (File include : model.getIncludes()) {
@@ -936,6 +1088,7 @@ public final class FileManager {
 		SEModelManager.getInstance().remove(model);
 
 		this.openFiles.removeValue(model);
+		this.scriptCaches.remove(model);
 
 		return true;
 	}
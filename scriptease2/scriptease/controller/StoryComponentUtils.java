@@ -229,6 +229,51 @@ public class StoryComponentUtils {
 		return matched;
 	}
 
+	/**
+	 * Returns every resource bound to a knowit in the components or anywhere
+	 * under them, including the parameters of the functions they call and the
+	 * tasks of their behaviours. A resource bound more than once is returned
+	 * more than once.
+	 * 
+	 * @param components
+	 * @return
+	 */
+	public static Collection<Resource> getBoundResources(
+			Collection<? extends StoryComponent> components) {
+		final Collection<Resource> resources = new ArrayList<Resource>();
+		final BindingAdapter resourceCollector = new BindingAdapter() {
+			@Override
+			public void processResource(KnowItBindingResource resource) {
+				resources.add(resource.getValue());
+			}
+		};
+		final DescendantCollector collector = new DescendantCollector() {
+			@Override
+			public void processKnowIt(KnowIt knowIt) {
+				if (!this.getChildren().contains(knowIt)) {
+					super.processKnowIt(knowIt);
+					knowIt.getBinding().process(resourceCollector);
+				}
+			}
+
+			@Override
+			public void processBehaviour(Behaviour behaviour) {
+				final Task startTask = behaviour.getStartTask();
+
+				super.processBehaviour(behaviour);
+
+				if (startTask != null)
+					startTask.process(this);
+			}
+		};
+
+		for (StoryComponent component : components) {
+			component.process(collector);
+		}
+
+		return resources;
+	}
+
 	/**
 	 * Returns all scriptIts descended from the ComplexStoryComponent passed in.
 	 * 
@@ -19,6 +19,10 @@ public enum XMLAttribute {
 	DEFAULT("default"),
 
 	DEFAULT_FORMAT("defaultFormat"),
+
+	DECLARATION("declaration"),
+
+	DEFINITION("definition"),
 	
 	FLAVOUR("flavour"),
 	
@@ -32,6 +36,8 @@ public enum XMLAttribute {
 
 	ID("id"),
 
+	INCLUDE("include"),
+
 	INITIATE("Initiate"),
 	
 	READONLY("readonly"),
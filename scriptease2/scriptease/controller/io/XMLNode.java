@@ -162,6 +162,8 @@ public enum XMLNode {
 
 	RESERVED_WORDS("ReservedWords", RESERVED_WORD),
 
+	SHARED_FUNCTIONS("SharedFunctions"),
+
 	SLOT("Slot"),
 
 	SLOTS("Slots", SLOT),
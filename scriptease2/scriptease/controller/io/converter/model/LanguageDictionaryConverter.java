@@ -5,6 +5,7 @@ import java.util.Collection;
 import scriptease.controller.io.XMLAttribute;
 import scriptease.controller.io.XMLNode;
 import scriptease.translator.LanguageDictionary;
+import scriptease.translator.LanguageDictionary.SharedFunctions;
 import scriptease.translator.codegenerator.code.fragments.container.FormatDefinitionFragment;
 
 import com.thoughtworks.xstream.converters.Converter;
@@ -23,6 +24,7 @@ public class LanguageDictionaryConverter implements Converter {
 	public void marshal(Object source, HierarchicalStreamWriter writer,
 			MarshallingContext context) {
 		final LanguageDictionary languageDictionary = (LanguageDictionary) source;
+		final SharedFunctions sharedFunctions;
 
 		XMLAttribute.NAME.write(writer, languageDictionary.getName());
 
@@ -40,6 +42,25 @@ public class LanguageDictionaryConverter implements Converter {
 		
 		XMLNode.FORMATS.writeObject(writer, context,
 				languageDictionary.getFormats());
+
+		sharedFunctions = languageDictionary.getSharedFunctions();
+
+		if (sharedFunctions != null) {
+			writer.startNode(XMLNode.SHARED_FUNCTIONS.getName());
+
+			XMLAttribute.INCLUDE.write(writer, sharedFunctions.getInclude());
+			XMLAttribute.DEFINITION.write(writer,
+					sharedFunctions.getDefinitionFormat());
+			if (sharedFunctions.getDeclarationFormat() != null)
+				XMLAttribute.DECLARATION.write(writer,
+						sharedFunctions.getDeclarationFormat());
+			XMLAttribute.NAME.write(writer, sharedFunctions.getNameFormat());
+			if (sharedFunctions.getFileFormat() != null)
+				XMLAttribute.FORMAT.write(writer,
+						sharedFunctions.getFileFormat());
+
+			writer.endNode();
+		}
 	}
 
 	@Override
@@ -51,6 +72,7 @@ public class LanguageDictionaryConverter implements Converter {
 		String functionCallFormat;
 		final Collection<String> reservedWords;
 		final Collection<FormatDefinitionFragment> fragments;
+		SharedFunctions sharedFunctions = null;
 
 		final LanguageDictionary languageDictionary;
 
@@ -66,8 +88,26 @@ public class LanguageDictionaryConverter implements Converter {
 		fragments = XMLNode.FORMATS.readCollection(reader, context,
 				FormatDefinitionFragment.class);
 
+		// Sharing functions between scripts is optional.
+		if (reader.hasMoreChildren()) {
+			reader.moveDown();
+
+			if (reader.getNodeName().equals(
+					XMLNode.SHARED_FUNCTIONS.getName())) {
+				sharedFunctions = new SharedFunctions(
+						XMLAttribute.INCLUDE.read(reader),
+						XMLAttribute.DEFINITION.read(reader),
+						XMLAttribute.DECLARATION.read(reader),
+						XMLAttribute.NAME.read(reader),
+						XMLAttribute.FORMAT.read(reader));
+			}
+
+			reader.moveUp();
+		}
+
 		languageDictionary = new LanguageDictionary(name, indentString,
-				lineBreak, functionCallFormat, reservedWords, fragments);
+				lineBreak, functionCallFormat, reservedWords, fragments,
+				sharedFunctions);
 
 		return languageDictionary;
 	}
@@ -9,6 +9,8 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 
+import scriptease.util.GraphOp;
+
 /**
  * Model class for SEGraph. This stores and handles all of the nodes in the
  * Graph. A model must be created for an SEGraph. <br>
@@ -341,38 +343,20 @@ public abstract class SEGraphModel<E> {
 
 	/**
 	 * Returns a map of all of the nodes after and including the node passed in
-	 * to how far away they are from the passed in node. Naturally, the passed
-	 * in node will have a value of "0".
+	 * to how far away they are from the passed in node, along the longest path.
+	 * Naturally, the passed in node will have a value of "0". This takes time
+	 * linear in the size of the graph.
 	 * 
 	 * @param node
 	 * @return
 	 */
 	private final Map<E, Integer> createDepthMap(E node) {
-		final Map<E, Integer> depthMap = new IdentityHashMap<E, Integer>();
-
-		// Goes through every child of the node
-		for (E child : this.getChildren(node)) {
-			// Gets the depth map of every child
-			final Map<E, Integer> childDepthMap = this.createDepthMap(child);
-
-			for (Entry<E, Integer> entry : childDepthMap.entrySet()) {
-				final E childNode = entry.getKey();
-				final Integer depth = entry.getValue() + 1;
-
-				// If the node is already in the depthMap and the new depth is
-				// greater, use the greater depth value.
-				if (depthMap.containsKey(childNode)) {
-					if (depth > depthMap.get(childNode))
-						depthMap.put(childNode, depth);
-				} else
-					depthMap.put(childNode, depth);
+		return GraphOp.createDepthMap(node, new GraphOp.Successors<E>() {
+			@Override
+			public Collection<E> getSuccessors(E node) {
+				return SEGraphModel.this.getChildren(node);
 			}
-		}
-
-		if (!depthMap.containsKey(node))
-			depthMap.put(node, 0);
-
-		return depthMap;
+		});
 	}
 
 	/**
@@ -7,6 +7,7 @@ import java.awt.Dialog;
 import java.awt.Dimension;
 import java.awt.Font;
 import java.awt.Frame;
+import java.awt.GraphicsEnvironment;
 import java.awt.GridLayout;
 import java.awt.KeyboardFocusManager;
 import java.awt.event.ActionEvent;
@@ -278,6 +279,12 @@ public final class WindowFactory {
 	 * @see #hideProgressBar()
 	 */
 	public static void showProgressBar(final String text, final Runnable run) {
+		// There is nothing to show the progress bar on, so just do the work.
+		if (GraphicsEnvironment.isHeadless()) {
+			run.run();
+			return;
+		}
+
 		final JFrame frame = WindowFactory.getInstance().getCurrentFrame();
 
 		if (frame != null)
@@ -390,6 +397,15 @@ public final class WindowFactory {
 
 		final int numberOfProblems = visibleProblems.size();
 
+		// There is no window to show them in, so just print them.
+		if (GraphicsEnvironment.isHeadless()) {
+			for (StoryProblem problem : visibleProblems) {
+				System.err.println(WindowFactory.CODE_GENERATION_PROBLEM
+						+ ": " + problem.getDescription());
+			}
+			return;
+		}
+
 		panel.setLayout(new GridLayout(numberOfProblems + 2, 1));
 
 		{
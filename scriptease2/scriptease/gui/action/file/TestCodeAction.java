@@ -84,9 +84,13 @@ public final class TestCodeAction extends ActiveModelSensitiveAction {
 
 		String code = "";
 		for (ScriptInfo script : scriptInfos) {
-			code = code + "\n\n==== New script file for slot: "
-					+ script.getSlot() + " on object: " + script.getSubject()
-					+ " ====\n" + script.getCode();
+			if (script.isInclude())
+				code = code + "\n\n==== Generated include file: "
+						+ script.getIncludeName() + " ====\n" + script.getCode();
+			else
+				code = code + "\n\n==== New script file for slot: "
+						+ script.getSlot() + " on object: "
+						+ script.getSubject() + " ====\n" + script.getCode();
 		}
 
 		final JDialog dialog = new CodeEditorDialog(code);
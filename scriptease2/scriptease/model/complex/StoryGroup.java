@@ -150,6 +150,28 @@ public class StoryGroup extends StoryNode {
 		return storyNodes;
 	}
 
+	@Override
+	public boolean addStoryChildBefore(StoryComponent newChild,
+			StoryComponent sibling) {
+		final boolean success = super.addStoryChildBefore(newChild, sibling);
+
+		// The story points in this group are story point descendants.
+		if (success)
+			StoryNode.graphChanged();
+
+		return success;
+	}
+
+	@Override
+	public boolean removeStoryChild(StoryComponent child) {
+		final boolean success = super.removeStoryChild(child);
+
+		if (success)
+			StoryNode.graphChanged();
+
+		return success;
+	}
+
 	/**
 	 * Returns the SEGraph associated with this group.
 	 * 
@@ -1,19 +1,25 @@
 package scriptease.model.complex;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
 import java.util.HashSet;
-import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import scriptease.controller.StoryVisitor;
 import scriptease.controller.observer.storycomponent.StoryComponentEvent;
 import scriptease.controller.observer.storycomponent.StoryComponentEvent.StoryComponentChangeEnum;
 import scriptease.model.StoryComponent;
 import scriptease.model.semodel.librarymodel.LibraryModel;
+import scriptease.util.GraphOp;
 
 /**
  * A story node represents a node in the story graph. A story node can either
@@ -23,7 +29,15 @@ import scriptease.model.semodel.librarymodel.LibraryModel;
  * @author jyuen
  */
 public abstract class StoryNode extends ComplexStoryComponent {
-	private static int storyNodeCounter = 1;
+	// Atomic, since story nodes can be created by more than one thread.
+	private static final AtomicInteger storyNodeCounter = new AtomicInteger(1);
+
+	/*
+	 * Changes every time successors are added or removed anywhere, so that
+	 * each node can tell if its cached descendants are out of date without
+	 * having to tell every node that can reach the change.
+	 */
+	private static final AtomicLong graphVersion = new AtomicLong();
 
 	/**
 	 * StoryNodes must be unique. This uniqueID helps maintain uniqueness. It
@@ -35,6 +49,8 @@ public abstract class StoryNode extends ComplexStoryComponent {
 	protected Set<StoryNode> successors;
 	protected Set<StoryNode> parents;
 
+	private volatile DescendantCache descendantCache;
+
 	public StoryNode() {
 		super(LibraryModel.getNonLibrary());
 	}
@@ -48,6 +64,7 @@ public abstract class StoryNode extends ComplexStoryComponent {
 		if (successor != this && !successor.getSuccessors().contains(this)) {
 			if (this.successors.add(successor)) {
 				successor.parents.add(this);
+				StoryNode.graphChanged();
 
 				this.notifyObservers(new StoryComponentEvent(successor,
 						StoryComponentChangeEnum.STORY_NODE_SUCCESSOR_ADDED));
@@ -65,6 +82,7 @@ public abstract class StoryNode extends ComplexStoryComponent {
 	public boolean removeSuccessor(StoryNode successor) {
 		if (this.successors.remove(successor)) {
 			successor.parents.remove(this);
+			StoryNode.graphChanged();
 
 			this.notifyObservers(new StoryComponentEvent(successor,
 					StoryComponentChangeEnum.STORY_NODE_SUCCESSOR_REMOVED));
@@ -73,45 +91,12 @@ public abstract class StoryNode extends ComplexStoryComponent {
 		return false;
 	}
 
-
-	/**
-	 * Adds the descendants to the passed in collection. You should use
-	 * {@link #getDescendants()} or {@link #getOrderedDescendants()} instead of
-	 * this method. Having this method separate lets us keep our descendant
-	 * collecting code in one method for different types of collections. It also
-	 * lets us avoid going through the graph multiple times in cases where we
-	 * branch around.
-	 * 
-	 * @see #getDescendants()
-	 * @see #getOrderedDescendants()
-	 * @param descendants
-	 *            The collection to add to and to return.
-	 * @return The same collection that was passed in, but with descendants
-	 *         added.
-	 */
-	protected <E extends Collection<StoryNode>> E addDescendants(E descendants) {
-		descendants.add(this);
-
-		for (StoryNode successor : this.getSuccessors()) {
-			/*
-			 * This check prevents us from going over paths twice, which saves a
-			 * ton of time in complex stories. Note that the contains
-			 * implementation in Sets is much faster, which is why
-			 * getDescendants is faster than getOrderedDescendants.
-			 */
-			if (!descendants.contains(successor))
-				successor.addDescendants(descendants);
-		}
-
-		return descendants;
-	}
 
 	/**
 	 * Gets all descendants of the StoryNode in an unordered set, including the
 	 * StoryNode itself. That is, the successors, the successors of the
-	 * successors, etc. This is computationally expensive, and should thus be
-	 * used carefully. Try to cache the descendants somewhere if they need to be
-	 * accessed more than once. If order matters, use
+	 * successors, etc. The set is cached until successors are added or removed
+	 * anywhere in the graph, so it can not be modified. If order matters, use
 	 * {@link #getOrderedDescendants()}. If you are trying to get all story
 	 * point descendants, use {@link #getStoryPointDescendants}.
 	 * 
@@ -119,42 +104,98 @@ public abstract class StoryNode extends ComplexStoryComponent {
 	 * @return An unordered set of the story node's descendants.
 	 */
 	public Set<StoryNode> getDescendants() {
-		return this.addDescendants(new HashSet<StoryNode>());
+		return this.getDescendantCache().descendants;
 	}
 
 	/**
 	 * Gets all descendants of the StoryNode, including the StoryNode itself.
-	 * This is much slower than {@link #getDescendants()}, so it should be used
-	 * sparingly.
+	 * Each descendant comes before its successors, unless there is another
+	 * path to them. Like {@link #getDescendants()}, the list is cached and can
+	 * not be modified.
 	 * 
 	 * @see #getDescendants()
 	 * @return An ordered list of the story node's descendants.
 	 */
 	public List<StoryNode> getOrderedDescendants() {
-		return this.addDescendants(new ArrayList<StoryNode>());
+		return this.getDescendantCache().orderedDescendants;
 	}
 
 	/**
 	 * Gets all descendants of the StoryNode that are StoryPoints. If a
 	 * StoryGroup descendant is encountered, all the StoryPoints in that group
-	 * is added instead.
+	 * is added instead. Like {@link #getDescendants()}, the set is cached and
+	 * can not be modified.
 	 * 
 	 * @return
 	 */
 	public Set<StoryPoint> getStoryPointDescendants() {
-		final Set<StoryPoint> descendants = new HashSet<StoryPoint>();
-
-		for (StoryNode descendant : this.getDescendants()) {
-			if (descendant instanceof StoryPoint)
-				descendants.add((StoryPoint) descendant);
-			else if (descendant instanceof StoryGroup)
-				descendants.addAll(((StoryGroup) descendant)
-						.getAllStoryPoints());
+		return this.getDescendantCache().storyPointDescendants;
+	}
+
+	/**
+	 * Returns the cached descendants of this node, finding them again if the
+	 * graph has changed since they were cached.
+	 * 
+	 * @return
+	 */
+	private DescendantCache getDescendantCache() {
+		final long version = StoryNode.graphVersion.get();
+		DescendantCache cache = this.descendantCache;
+
+		if (cache == null || cache.version != version) {
+			// If the graph changes while we look, the old version is kept so
+			// that the next call looks again.
+			cache = new DescendantCache(version, this.findDescendants());
+			this.descendantCache = cache;
+		}
+
+		return cache;
+	}
+
+	/**
+	 * Goes through the graph depth first, adding each node the first time it
+	 * is reached. This uses a stack instead of recursion so that long stories
+	 * can not overflow the call stack.
+	 * 
+	 * @return The descendants in the order they were reached.
+	 */
+	private Set<StoryNode> findDescendants() {
+		final Set<StoryNode> descendants = new LinkedHashSet<StoryNode>();
+		final Deque<Iterator<StoryNode>> stack = new ArrayDeque<Iterator<StoryNode>>();
+
+		descendants.add(this);
+		stack.push(this.getSuccessors().iterator());
+
+		while (!stack.isEmpty()) {
+			final Iterator<StoryNode> successors = stack.peek();
+
+			if (!successors.hasNext()) {
+				stack.pop();
+				continue;
+			}
+
+			final StoryNode successor = successors.next();
+
+			/*
+			 * This check prevents us from going over paths twice, which saves a
+			 * ton of time in complex stories.
+			 */
+			if (descendants.add(successor))
+				stack.push(successor.getSuccessors().iterator());
 		}
 
 		return descendants;
 	}
 
+	/**
+	 * Marks every cached descendant collection as out of date. This must be
+	 * called whenever successors are added or removed, or whenever the story
+	 * nodes in a group change.
+	 */
+	protected static void graphChanged() {
+		StoryNode.graphVersion.incrementAndGet();
+	}
+
 	/**
 	 * Adds multiple successors to the StoryPoint.
 	 * 
@@ -170,43 +211,22 @@ public abstract class StoryNode extends ComplexStoryComponent {
 	 * Gets a mapping of the depth of each StoryNode. The depth corresponds to
 	 * the longest path it will take to get to the Story Node at the highest
 	 * level. i.e. Story Groups and Story Points within the highest level Story
-	 * Group will be ignored. This is very computationally expensive, so it
-	 * should not be used too often.
+	 * Group will be ignored. This takes time linear in the size of the graph.
 	 * 
 	 * @return
 	 */
 	public final Map<StoryNode, Integer> createDepthMap() {
-		final Map<StoryNode, Integer> depthMap = new IdentityHashMap<StoryNode, Integer>();
-
-		// Goes through every successor of the node
-		for (StoryNode successor : this.getSuccessors()) {
-
-			// Gets the depth map of every successor.
-			final Map<StoryNode, Integer> childDepthMap = successor
-					.createDepthMap();
-
-			for (Entry<StoryNode, Integer> entry : childDepthMap.entrySet()) {
-				final StoryNode childNode = entry.getKey();
-				final Integer depth = entry.getValue() + 1;
-
-				// If the node is already in the depthMap and the new depth is
-				// greater, use the greater depth value.
-				if (depthMap.containsKey(childNode)) {
-					if (depth > depthMap.get(childNode))
-						depthMap.put(childNode, depth);
-				} else
-					depthMap.put(childNode, depth);
-			}
-		}
-
-		if (!depthMap.containsKey(this))
-			depthMap.put(this, 0);
-
-		return depthMap;
+		return GraphOp.createDepthMap(this,
+				new GraphOp.Successors<StoryNode>() {
+					@Override
+					public Collection<StoryNode> getSuccessors(StoryNode node) {
+						return node.getSuccessors();
+					}
+				});
 	}
 
 	public int getNextStoryNodeCounter() {
-		return StoryNode.storyNodeCounter++;
+		return StoryNode.storyNodeCounter.getAndIncrement();
 	}
 
 	@Override
@@ -223,6 +243,16 @@ public abstract class StoryNode extends ComplexStoryComponent {
 		return this.parents;
 	}
 
+	@Override
+	public StoryNode clone() {
+		final StoryNode clone = (StoryNode) super.clone();
+
+		// The clone's descendants start with the clone, not with us.
+		clone.descendantCache = null;
+
+		return clone;
+	}
+
 	@Override
 	public void setEnabled(Boolean isDisabled) {
 		// Do nothing - don't want to be able to disable story nodes
@@ -243,4 +273,33 @@ public abstract class StoryNode extends ComplexStoryComponent {
 	public Integer getUniqueID() {
 		return this.uniqueID;
 	}
+
+	/**
+	 * The descendants of a node as of one version of the graph.
+	 */
+	private static class DescendantCache {
+		private final long version;
+		private final Set<StoryNode> descendants;
+		private final List<StoryNode> orderedDescendants;
+		private final Set<StoryPoint> storyPointDescendants;
+
+		private DescendantCache(long version, Set<StoryNode> descendants) {
+			final Set<StoryPoint> storyPoints = new HashSet<StoryPoint>();
+
+			for (StoryNode descendant : descendants) {
+				if (descendant instanceof StoryPoint)
+					storyPoints.add((StoryPoint) descendant);
+				else if (descendant instanceof StoryGroup)
+					storyPoints.addAll(((StoryGroup) descendant)
+							.getAllStoryPoints());
+			}
+
+			this.version = version;
+			this.descendants = Collections.unmodifiableSet(descendants);
+			this.orderedDescendants = Collections
+					.unmodifiableList(new ArrayList<StoryNode>(descendants));
+			this.storyPointDescendants = Collections
+					.unmodifiableSet(storyPoints);
+		}
+	}
 }
@@ -9,7 +9,7 @@ import scriptease.controller.observer.storycomponent.StoryComponentEvent.StoryCo
 import scriptease.model.StoryComponent;
 import scriptease.model.atomic.KnowIt;
 import scriptease.model.atomic.Note;
-import scriptease.model.semodel.SEModelManager;
+import scriptease.model.semodel.StoryModel;
 import scriptease.translator.io.model.GameType;
 import scriptease.util.StringOp;
 
@@ -98,9 +98,12 @@ public class StoryPoint extends StoryNode {
 	 * Returns a 32 character, lower case string that uses the unique id to
 	 * generate a unique name for the story point.
 	 * 
+	 * @param story
+	 *            The story that the story point is in. Its story point type
+	 *            decides which characters the name can use.
 	 * @return
 	 */
-	public String getUnique32CharName() {
+	public String getUnique32CharName(StoryModel story) {
 		if (this.uniqueID < 0) {
 			throw new IllegalArgumentException("UniqueID (" + this.uniqueID
 					+ ") for " + this + " cannot be less than 0.");
@@ -122,10 +125,9 @@ public class StoryPoint extends StoryNode {
 		final String regex;
 		final Pattern regexPattern;
 
-		regex = SEModelManager.getInstance().getActiveModel()
-				.getType(GameType.STORY_POINT_TYPE).getReg();
+		regex = story.getType(GameType.STORY_POINT_TYPE).getReg();
 
-		regexPattern = Pattern.compile(regex);
+		regexPattern = StringOp.getPattern(regex);
 
 		name = StringOp.removeIllegalCharacters(name, regexPattern, false);
 
@@ -86,8 +86,6 @@ public final class StoryModel extends SEModel {
 		this.optionalLibraries = optionalLibraries;
 		this.observerManager = new ObserverManager<StoryModelObserver>();
 		this.dialogueRoots = new ArrayList<DialogueLine>();
-		this.storyComponentPanelTree = new StoryComponentPanelTree(
-				this.startPoint);
 	}
 
 	public Collection<DialogueLine> getDialogueRoots() {
@@ -367,42 +365,67 @@ public final class StoryModel extends SEModel {
 		return includes;
 	}
 
+	/**
+	 * Returns the tree of panels that shows the story. It is only built the
+	 * first time it is asked for, so that stories that are never shown, such
+	 * as ones built without a display, do not need one.
+	 * 
+	 * @return
+	 */
 	public StoryComponentPanelTree getStoryComponentPanelTree() {
+		if (this.storyComponentPanelTree == null)
+			this.storyComponentPanelTree = new StoryComponentPanelTree(
+					this.startPoint);
+
 		return this.storyComponentPanelTree;
 	}
 
 	/**
-	 * Generates a collection of story components that should be automatically
-	 * added to the root of the model. This should likely only be called right
-	 * before writing the code. The automatics generated will have the proper
-	 * bindings on their parameters, and are ready to be written out.
+	 * Generates a collection of causes that should be automatically treated as
+	 * children of the root of the model. This should likely only be called
+	 * right before writing the code. The automatics generated will have the
+	 * proper bindings on their parameters, and are ready to be written out.
+	 * They are not added to the model.
 	 * 
 	 * @param model
 	 * @return
 	 */
-	public Collection<StoryComponent> generateAutomaticCauses() {
-		final Collection<StoryComponent> automatics;
+	public Collection<CauseIt> generateAutomaticCauses() {
+		final Collection<CauseIt> automatics;
 		final Map<String, Collection<Resource>> automaticHandlers;
+		// Walking the story is expensive, so we only do it once, if needed.
+		Collection<Resource> boundResources = null;
 
-		automatics = new ArrayList<StoryComponent>();
+		automatics = new ArrayList<CauseIt>();
 		automaticHandlers = this.module.getAutomaticHandlers();
 
 		for (LibraryModel library : this.getLibraries()) {
 			for (String automaticLabel : automaticHandlers.keySet()) {
+				final Collection<CauseIt> libraryAutomatics;
+				final boolean onlyBound;
+
+				libraryAutomatics = library.getAutomatics(automaticLabel);
+
+				if (libraryAutomatics.isEmpty())
+					continue;
+
+				// gameobjectautomatic only adds the automatic if we are using
+				// the resource somewhere in the model.
+				onlyBound = automaticLabel.equals("gameobjectautomatic");
+
+				if (onlyBound && boundResources == null)
+					boundResources = this.getBoundResources();
+
 				for (Resource resource : automaticHandlers.get(automaticLabel)) {
 
-					if (automaticLabel.equals("gameobjectautomatic")
-							&& !this.getBoundResources().contains(resource))
-						// gameobjectautomatic only adds the automatic if
-						// we are using the resource somewhere in the model.
+					if (onlyBound && !boundResources.contains(resource))
 						continue;
 
 					final Collection<String> resourceTypes;
 
 					resourceTypes = resource.getTypes();
 
-					for (CauseIt automatic : library
-							.getAutomatics(automaticLabel)) {
+					for (CauseIt automatic : libraryAutomatics) {
 
 						final CauseIt copy = automatic.clone();
 						final Collection<KnowIt> parameters = copy
@@ -2,8 +2,11 @@ package scriptease.translator;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 
 import scriptease.translator.codegenerator.code.fragments.AbstractFragment;
 import scriptease.translator.codegenerator.code.fragments.container.FormatDefinitionFragment;
@@ -19,11 +22,19 @@ import scriptease.translator.codegenerator.code.fragments.container.FormatDefini
 public class LanguageDictionary {
 
 	private final Collection<FormatDefinitionFragment> formats;
+	/*
+	 * The sub fragments of each format, keyed by the upper case format ID.
+	 * Formats are looked up for every script and every format reference in
+	 * them, so we build these once instead of searching and copying the
+	 * formats on every lookup.
+	 */
+	private final Map<String, List<AbstractFragment>> formatsByID;
 	private final Collection<String> reservedWords;
 	private final String indentString;
 	private final String lineBreak;
 	private final String name;
 	private final String functionCallFormat;
+	private final SharedFunctions sharedFunctions;
 
 	/**
 	 * Builds a new LanguageDictionary to represent the given data.
@@ -46,12 +57,47 @@ public class LanguageDictionary {
 			String lineBreak, String functionCallFormat,
 			Collection<String> reservedWords,
 			Collection<FormatDefinitionFragment> formats) {
+		this(name, indentString, lineBreak, functionCallFormat, reservedWords,
+				formats, null);
+	}
+
+	/**
+	 * Builds a new LanguageDictionary to represent the given data, moving the
+	 * functions that are identical in several scripts into one shared include
+	 * as described by sharedFunctions.
+	 * 
+	 * @param name
+	 * @param indentString
+	 * @param lineBreak
+	 * @param functionCallFormat
+	 * @param reservedWords
+	 * @param formats
+	 * @param sharedFunctions
+	 *            The formats used to share functions between scripts, or null
+	 *            if every script keeps its own copy of its functions.
+	 */
+	public LanguageDictionary(String name, String indentString,
+			String lineBreak, String functionCallFormat,
+			Collection<String> reservedWords,
+			Collection<FormatDefinitionFragment> formats,
+			SharedFunctions sharedFunctions) {
 		this.name = name;
 		this.indentString = indentString;
 		this.lineBreak = lineBreak;
 		this.functionCallFormat = functionCallFormat;
+		this.sharedFunctions = sharedFunctions;
 		this.reservedWords = new HashSet<String>(reservedWords);
 		this.formats = new ArrayList<FormatDefinitionFragment>(formats);
+		this.formatsByID = new HashMap<String, List<AbstractFragment>>();
+
+		for (FormatDefinitionFragment format : this.formats) {
+			final String formatID = format.getDirectiveText().toUpperCase();
+
+			// The first format with an ID wins, as it always has.
+			if (!this.formatsByID.containsKey(formatID))
+				this.formatsByID.put(formatID, Collections
+						.unmodifiableList(format.getSubFragments()));
+		}
 	}
 
 	/**
@@ -120,25 +166,19 @@ public class LanguageDictionary {
 	}
 
 	/**
-	 * Get the Collection<FormatFragment> representing the given Format
+	 * Get the List<AbstractFragment> representing the given Format. The format
+	 * ID is not case sensitive. The returned list can not be modified, and is
+	 * shared by everyone who asks for the same format.
 	 * 
 	 * @param formatID
 	 * @return
 	 */
 	public List<AbstractFragment> getFormat(String formatID) {
-		final List<AbstractFragment> format = new ArrayList<AbstractFragment>();
+		final List<AbstractFragment> format;
 
-		boolean containsFragment = false;
+		format = this.formatsByID.get(formatID.toUpperCase());
 
-		for (FormatDefinitionFragment formatFragment : this.formats) {
-			if (formatFragment.getDirectiveText().equalsIgnoreCase(formatID)) {
-				format.addAll(formatFragment.getSubFragments());
-				containsFragment = true;
-				break;
-			}
-		}
-
-		if (!containsFragment)
+		if (format == null)
 			throw new IllegalArgumentException("Unable to resolve formatID "
 					+ formatID);
 
@@ -154,8 +194,126 @@ public class LanguageDictionary {
 		return this.formats;
 	}
 
+	/**
+	 * Returns the formats used to share functions between scripts, or null if
+	 * the translator does not share functions.
+	 * 
+	 * @return
+	 */
+	public SharedFunctions getSharedFunctions() {
+		return this.sharedFunctions;
+	}
+
 	@Override
 	public String toString() {
 		return "LanguageDictionary [" + this.getName() + "]";
 	}
+
+	/**
+	 * Describes how functions that are generated identically in several
+	 * scripts are moved into one generated include file. Each format is named
+	 * by its ID in the dictionary:
+	 * <ul>
+	 * <li>The definition format writes a whole function. Definitions that
+	 * several scripts have in common are moved to the include.</li>
+	 * <li>The declaration format, which is optional, writes the declaration of
+	 * a function. A script drops the declarations of the functions that it
+	 * gets from the include.</li>
+	 * <li>The name format writes the name of the function in the same context
+	 * as the definition or declaration. It is used to keep two different
+	 * functions with the same name out of the same script.</li>
+	 * <li>The file format, which is optional, starts the include file. It is
+	 * resolved with the includes that the shared functions need.</li>
+	 * </ul>
+	 * Scripts include the shared file through their usual includes, so the
+	 * translator's include format decides how the include is written.<br>
+	 * <br>
+	 * A shared function is written once for every script that includes it, so
+	 * it must not use anything that belongs to one script. Dictionaries that
+	 * share functions must not write anything at the top level of a script
+	 * that a generated function could use, such as variables or constants,
+	 * other than the includes and the functions written with the definition
+	 * format. Everything a generated function uses then comes from its
+	 * parameters, its own body, other generated functions or its includes,
+	 * and the {@link scriptease.translator.codegenerator.FunctionDeduplicator}
+	 * keeps functions that call generated functions which are not shared out
+	 * of the include.
+	 */
+	public static class SharedFunctions {
+		private final String include;
+		private final String definitionFormat;
+		private final String declarationFormat;
+		private final String nameFormat;
+		private final String fileFormat;
+
+		/**
+		 * Builds a description of how functions are shared.
+		 * 
+		 * @param include
+		 *            The name of the generated include file.
+		 * @param definitionFormat
+		 * @param declarationFormat
+		 *            May be null.
+		 * @param nameFormat
+		 * @param fileFormat
+		 *            May be null.
+		 */
+		public SharedFunctions(String include, String definitionFormat,
+				String declarationFormat, String nameFormat, String fileFormat) {
+			if (include == null || definitionFormat == null
+					|| nameFormat == null)
+				throw new IllegalArgumentException(
+						"Shared functions need an include, a definition format"
+								+ " and a name format.");
+
+			this.include = include;
+			this.definitionFormat = definitionFormat;
+			this.declarationFormat = declarationFormat;
+			this.nameFormat = nameFormat;
+			this.fileFormat = fileFormat;
+		}
+
+		public String getInclude() {
+			return this.include;
+		}
+
+		public String getDefinitionFormat() {
+			return this.definitionFormat;
+		}
+
+		public String getDeclarationFormat() {
+			return this.declarationFormat;
+		}
+
+		public String getNameFormat() {
+			return this.nameFormat;
+		}
+
+		public String getFileFormat() {
+			return this.fileFormat;
+		}
+
+		/**
+		 * Returns true if the format ID is the definition format. Format IDs
+		 * are not case sensitive.
+		 * 
+		 * @param formatID
+		 * @return
+		 */
+		public boolean isDefinition(String formatID) {
+			return this.definitionFormat.equalsIgnoreCase(formatID);
+		}
+
+		/**
+		 * Returns true if the format ID is the declaration format. Format IDs
+		 * are not case sensitive.
+		 * 
+		 * @param formatID
+		 * @return
+		 */
+		public boolean isDeclaration(String formatID) {
+			return this.declarationFormat != null
+					&& this.declarationFormat.equalsIgnoreCase(formatID);
+		}
+	}
 }
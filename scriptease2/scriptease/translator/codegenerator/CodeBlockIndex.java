@@ -0,0 +1,123 @@
+package scriptease.translator.codegenerator;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import scriptease.controller.StoryComponentUtils;
+import scriptease.model.CodeBlock;
+import scriptease.model.atomic.knowitbindings.KnowItBinding;
+import scriptease.model.atomic.knowitbindings.KnowItBindingNull;
+import scriptease.model.complex.ComplexStoryComponent;
+import scriptease.model.complex.ScriptIt;
+import scriptease.translator.io.model.Resource;
+
+/**
+ * An index of all code blocks in the story points being generated, looked up
+ * by the slot and subject that they are written into. The story is walked
+ * once when the index is built, instead of once for every Context that asks
+ * for its code blocks.<br>
+ * <br>
+ * The index does not change after it has been built, so it can be shared by
+ * every script generated in the same run. It does not notice changes to the
+ * story, so it should be rebuilt for each run.
+ * 
+ * @see LocationInformation#matchesLocation(CodeBlock)
+ */
+public class CodeBlockIndex {
+	/**
+	 * Code blocks by slot, then by the template ID of their subject. Resources
+	 * do not all implement hashCode, so lookups still check each block with
+	 * {@link LocationInformation#matchesLocation(CodeBlock)}.
+	 */
+	private final Map<String, Map<String, List<CodeBlock>>> codeBlocks;
+
+	/**
+	 * Builds an index of the code blocks of every ScriptIt in the roots, such
+	 * as the story points and the automatic causes. Code blocks are kept in
+	 * the order that the roots and their ScriptIts are visited.
+	 * 
+	 * @param roots
+	 */
+	public CodeBlockIndex(Collection<? extends ComplexStoryComponent> roots) {
+		this.codeBlocks = new HashMap<String, Map<String, List<CodeBlock>>>();
+
+		for (ComplexStoryComponent root : roots) {
+			for (ScriptIt scriptIt : StoryComponentUtils
+					.getDescendantScriptIts(root)) {
+				for (CodeBlock codeBlock : scriptIt.getCodeBlocks()) {
+					this.add(codeBlock);
+				}
+			}
+		}
+	}
+
+	private void add(CodeBlock codeBlock) {
+		final KnowItBinding binding = codeBlock.getSubject().getBinding();
+		final Object subject;
+		final String slot;
+		Map<String, List<CodeBlock>> bySubject;
+		List<CodeBlock> blocks;
+
+		if (binding instanceof KnowItBindingNull)
+			return;
+
+		subject = binding.getValue();
+
+		// Only resources can ever match a location.
+		if (!(subject instanceof Resource))
+			return;
+
+		slot = codeBlock.getSlot();
+		bySubject = this.codeBlocks.get(slot);
+
+		if (bySubject == null) {
+			bySubject = new HashMap<String, List<CodeBlock>>();
+			this.codeBlocks.put(slot, bySubject);
+		}
+
+		blocks = bySubject.get(((Resource) subject).getTemplateID());
+
+		if (blocks == null) {
+			blocks = new ArrayList<CodeBlock>(1);
+			bySubject.put(((Resource) subject).getTemplateID(), blocks);
+		}
+
+		blocks.add(codeBlock);
+	}
+
+	/**
+	 * Returns the code blocks written into the location's slot for the
+	 * location's subject, in the same order as they were indexed.
+	 * 
+	 * @param location
+	 * @return
+	 */
+	public Collection<CodeBlock> getCodeBlocks(LocationInformation location) {
+		final Map<String, List<CodeBlock>> bySubject;
+		final List<CodeBlock> candidates;
+		final Collection<CodeBlock> matching;
+
+		bySubject = this.codeBlocks.get(location.getSlot());
+
+		if (bySubject == null)
+			return Collections.emptyList();
+
+		candidates = bySubject.get(location.getSubject().getTemplateID());
+
+		if (candidates == null)
+			return Collections.emptyList();
+
+		matching = new ArrayList<CodeBlock>(candidates.size());
+
+		for (CodeBlock codeBlock : candidates) {
+			if (location.matchesLocation(codeBlock))
+				matching.add(codeBlock);
+		}
+
+		return matching;
+	}
+}
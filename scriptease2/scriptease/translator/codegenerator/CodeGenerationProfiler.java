@@ -0,0 +1,373 @@
+package scriptease.translator.codegenerator;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Records how long each part of a code generation run takes, so that we can
+ * tell what is slow when a story takes a long time to generate. Times are
+ * recorded for:
+ * <ul>
+ * <li>{@link #PHASE}s of the {@link CodeGenerator}, such as semantic analysis
+ * or aggregation,</li>
+ * <li>{@link #CONTEXT}s, by the type of context created,</li>
+ * <li>{@link #FRAGMENT}s, by the type of fragment resolved, and</li>
+ * <li>{@link #FORMAT}s, by the ID of the language dictionary format
+ * resolved.</li>
+ * </ul>
+ * Each timing has a total wall time, which includes everything timed inside
+ * of it, and a self time, which does not. It also has the number of bytes
+ * allocated by the thread while it was timed, if the JVM can tell us. Scripts
+ * are generated on several threads at once, so the times and allocations of
+ * anything done while generating scripts are summed over all of the threads.
+ * A phase only counts what its own thread allocated. <br>
+ * <br>
+ * Profiling is off unless it is turned on with
+ * {@link CodeGenerator#setProfiling(boolean)}. Each {@link GenerationSession}
+ * has its own profiler, or null while profiling is off, so the only cost of
+ * not profiling is checking for null.
+ */
+public class CodeGenerationProfiler {
+	public static final String PHASE = "phase";
+	public static final String CONTEXT = "context";
+	public static final String FRAGMENT = "fragment";
+	public static final String FORMAT = "format";
+
+	private final ConcurrentMap<String, Timing> timings;
+
+	/*
+	 * For each thread, the time spent in the children of everything that is
+	 * currently being timed and the bytes the thread had allocated when it
+	 * started, innermost last. This is how self times are found.
+	 */
+	private final ThreadLocal<List<long[]>> childTimes;
+
+	// Null if the JVM can not tell us how much each thread allocates.
+	private final com.sun.management.ThreadMXBean allocationBean;
+
+	private final long startTime;
+	private long endTime;
+
+	CodeGenerationProfiler() {
+		this.timings = new ConcurrentHashMap<String, Timing>();
+		this.childTimes = new ThreadLocal<List<long[]>>() {
+			@Override
+			protected List<long[]> initialValue() {
+				return new ArrayList<long[]>();
+			}
+		};
+		this.allocationBean = CodeGenerationProfiler.findAllocationBean();
+		this.startTime = System.nanoTime();
+		this.endTime = this.startTime;
+	}
+
+	private static com.sun.management.ThreadMXBean findAllocationBean() {
+		final ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+
+		if (threadBean instanceof com.sun.management.ThreadMXBean) {
+			final com.sun.management.ThreadMXBean sunBean;
+
+			sunBean = (com.sun.management.ThreadMXBean) threadBean;
+
+			if (sunBean.isThreadAllocatedMemorySupported()
+					&& sunBean.isThreadAllocatedMemoryEnabled())
+				return sunBean;
+		}
+
+		return null;
+	}
+
+	/**
+	 * Returns the number of bytes allocated by the current thread, or 0 if the
+	 * JVM can not tell us.
+	 * 
+	 * @return
+	 */
+	private long getAllocatedBytes() {
+		if (this.allocationBean == null)
+			return 0;
+
+		return this.allocationBean.getThreadAllocatedBytes(Thread
+				.currentThread().getId());
+	}
+
+	/**
+	 * Starts timing something on the current thread. Every call must be
+	 * matched by a call to {@link #stop(String, String, long)} on the same
+	 * thread, even if an exception is thrown in between.
+	 * 
+	 * @return The start time.
+	 */
+	public long start() {
+		this.childTimes.get().add(new long[] { 0, this.getAllocatedBytes() });
+
+		return System.nanoTime();
+	}
+
+	/**
+	 * Stops timing the innermost thing being timed on the current thread, and
+	 * records it under the category and name.
+	 * 
+	 * @param category
+	 * @param name
+	 * @param start
+	 *            The time returned by {@link #start()}.
+	 */
+	public void stop(String category, String name, long start) {
+		final long elapsed = System.nanoTime() - start;
+		final List<long[]> stack = this.childTimes.get();
+		final long[] entry = stack.remove(stack.size() - 1);
+		final long allocated = this.getAllocatedBytes() - entry[1];
+
+		if (!stack.isEmpty())
+			stack.get(stack.size() - 1)[0] += elapsed;
+
+		this.getTiming(category, name).add(elapsed, elapsed - entry[0],
+				allocated);
+	}
+
+	/**
+	 * Counts something that is not worth timing, such as a cache hit.
+	 * 
+	 * @param category
+	 * @param name
+	 */
+	public void count(String category, String name) {
+		this.getTiming(category, name).add(0, 0, 0);
+	}
+
+	private Timing getTiming(String category, String name) {
+		final String key = category + ":" + name;
+		Timing timing = this.timings.get(key);
+
+		if (timing == null) {
+			final Timing existing;
+
+			timing = new Timing(category, name);
+			existing = this.timings.putIfAbsent(key, timing);
+
+			if (existing != null)
+				timing = existing;
+		}
+
+		return timing;
+	}
+
+	/**
+	 * Marks the end of the code generation run.
+	 */
+	void finish() {
+		this.endTime = System.nanoTime();
+	}
+
+	/**
+	 * Returns the wall time of the whole run in nanoseconds.
+	 * 
+	 * @return
+	 */
+	public long getRunTime() {
+		return this.endTime - this.startTime;
+	}
+
+	/**
+	 * Returns everything recorded, sorted by the comparator.
+	 * 
+	 * @param comparator
+	 *            For example, {@link Timing#BY_SELF_TIME}.
+	 * @return
+	 */
+	public List<Timing> getTimings(Comparator<Timing> comparator) {
+		final List<Timing> timings = new ArrayList<Timing>(
+				this.timings.values());
+
+		Collections.sort(timings, comparator);
+
+		return timings;
+	}
+
+	/**
+	 * Writes a table of everything recorded, sorted by self time.
+	 * 
+	 * @param writer
+	 * @throws IOException
+	 */
+	public void writeReport(Writer writer) throws IOException {
+		final double runTime = this.getRunTime();
+
+		writer.write(String.format("Code generation took %.1f ms.%n",
+				runTime / 1000000));
+		writer.write(String.format(
+				"Times of work done on several threads are summed.%n%n"));
+		writer.write(String.format("%-10s %-40s %10s %12s %12s %8s %14s%n",
+				"Category", "Name", "Calls", "Total (ms)", "Self (ms)",
+				"Self %", "Allocated (MB)"));
+
+		for (Timing timing : this.getTimings(Timing.BY_SELF_TIME)) {
+			writer.write(String.format(
+					"%-10s %-40s %10d %12.1f %12.1f %7.1f%% %14.1f%n", timing
+							.getCategory(), timing.getName(), timing
+							.getCalls(), timing.getTotalTime() / 1000000.0,
+					timing.getSelfTime() / 1000000.0,
+					runTime > 0 ? timing.getSelfTime() * 100 / runTime : 0,
+					timing.getAllocatedBytes() / (1024.0 * 1024.0)));
+		}
+	}
+
+	/**
+	 * Writes everything recorded as JSON, in the form:
+	 * 
+	 * <pre>
+	 * {"runTime": ns, "timings": [{"category": "", "name": "", "calls": n,
+	 *  "totalTime": ns, "selfTime": ns, "allocated": bytes}, ...]}
+	 * </pre>
+	 * 
+	 * @param writer
+	 * @throws IOException
+	 */
+	public void writeJSON(Writer writer) throws IOException {
+		final List<Timing> timings = this.getTimings(Timing.BY_SELF_TIME);
+
+		writer.write("{\"runTime\": " + this.getRunTime()
+				+ ", \"timings\": [");
+
+		for (int i = 0; i < timings.size(); i++) {
+			final Timing timing = timings.get(i);
+
+			if (i > 0)
+				writer.write(",");
+
+			writer.write("\n  {\"category\": "
+					+ CodeGenerationProfiler.quote(timing.getCategory())
+					+ ", \"name\": "
+					+ CodeGenerationProfiler.quote(timing.getName())
+					+ ", \"calls\": " + timing.getCalls() + ", \"totalTime\": "
+					+ timing.getTotalTime() + ", \"selfTime\": "
+					+ timing.getSelfTime() + ", \"allocated\": "
+					+ timing.getAllocatedBytes() + "}");
+		}
+
+		writer.write("\n]}\n");
+	}
+
+	private static String quote(String text) {
+		final StringBuilder quoted = new StringBuilder(text.length() + 2);
+
+		quoted.append('"');
+		for (int i = 0; i < text.length(); i++) {
+			final char c = text.charAt(i);
+
+			if (c == '"' || c == '\\')
+				quoted.append('\\').append(c);
+			else if (c < ' ')
+				quoted.append(String.format("\\u%04x", (int) c));
+			else
+				quoted.append(c);
+		}
+		quoted.append('"');
+
+		return quoted.toString();
+	}
+
+	/**
+	 * The number of calls, the time spent and the bytes allocated on one
+	 * thing.
+	 */
+	public static class Timing {
+		public static final Comparator<Timing> BY_SELF_TIME = new Comparator<Timing>() {
+			@Override
+			public int compare(Timing o1, Timing o2) {
+				return Long.valueOf(o2.getSelfTime()).compareTo(
+						o1.getSelfTime());
+			}
+		};
+
+		public static final Comparator<Timing> BY_TOTAL_TIME = new Comparator<Timing>() {
+			@Override
+			public int compare(Timing o1, Timing o2) {
+				return Long.valueOf(o2.getTotalTime()).compareTo(
+						o1.getTotalTime());
+			}
+		};
+
+		public static final Comparator<Timing> BY_CALLS = new Comparator<Timing>() {
+			@Override
+			public int compare(Timing o1, Timing o2) {
+				return Long.valueOf(o2.getCalls()).compareTo(o1.getCalls());
+			}
+		};
+
+		private final String category;
+		private final String name;
+		private final AtomicLong calls;
+		private final AtomicLong totalTime;
+		private final AtomicLong selfTime;
+		private final AtomicLong allocated;
+
+		private Timing(String category, String name) {
+			this.category = category;
+			this.name = name;
+			this.calls = new AtomicLong();
+			this.totalTime = new AtomicLong();
+			this.selfTime = new AtomicLong();
+			this.allocated = new AtomicLong();
+		}
+
+		private void add(long total, long self, long allocated) {
+			this.calls.incrementAndGet();
+			this.totalTime.addAndGet(total);
+			this.selfTime.addAndGet(self);
+			this.allocated.addAndGet(allocated);
+		}
+
+		public String getCategory() {
+			return this.category;
+		}
+
+		public String getName() {
+			return this.name;
+		}
+
+		public long getCalls() {
+			return this.calls.get();
+		}
+
+		/**
+		 * Returns the total time in nanoseconds.
+		 * 
+		 * @return
+		 */
+		public long getTotalTime() {
+			return this.totalTime.get();
+		}
+
+		/**
+		 * Returns the time in nanoseconds, not counting the time of anything
+		 * timed inside of this.
+		 * 
+		 * @return
+		 */
+		public long getSelfTime() {
+			return this.selfTime.get();
+		}
+
+		/**
+		 * Returns the number of bytes allocated while this was timed,
+		 * including anything timed inside of it. This is 0 if the JVM can not
+		 * tell us how much each thread allocates.
+		 * 
+		 * @return
+		 */
+		public long getAllocatedBytes() {
+			return this.allocated.get();
+		}
+	}
+}
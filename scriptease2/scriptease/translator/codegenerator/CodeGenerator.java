@@ -3,16 +3,27 @@ package scriptease.translator.codegenerator;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashSet;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
+import javax.swing.SwingUtilities;
 import javax.swing.UIManager;
 
+import scriptease.controller.StoryComponentUtils;
 import scriptease.controller.modelverifier.problem.StoryProblem;
 import scriptease.gui.WindowFactory;
 import scriptease.model.CodeBlock;
 import scriptease.model.StoryComponent;
+import scriptease.model.complex.CauseIt;
+import scriptease.model.complex.ComplexStoryComponent;
+import scriptease.model.complex.ScriptIt;
 import scriptease.model.complex.StoryPoint;
 import scriptease.model.semodel.StoryModel;
 import scriptease.translator.Translator;
@@ -22,6 +33,7 @@ import scriptease.translator.codegenerator.code.fragments.AbstractFragment;
 import scriptease.translator.codegenerator.code.fragments.SimpleDataFragment;
 import scriptease.translator.codegenerator.code.fragments.container.SeriesFragment;
 import scriptease.translator.io.model.GameModule;
+import scriptease.translator.io.model.Resource;
 import scriptease.translator.io.model.Slot;
 
 /**
@@ -44,9 +56,17 @@ import scriptease.translator.io.model.Slot;
  * resolved into concrete strings which are concatenated into what is then the
  * contents of the script file.<br>
  * <br>
- * Code Generation is a good candidate for parallelization. To implement this,
- * make a ThreadPool of threads and assign each thread the task of running a
- * code generator on a bag of pattern trees. <br>
+ * Each script bucket is generated independently of the others, so the
+ * buckets are resolved in parallel on a fixed pool of threads. Fragments and
+ * the story model are shared between the threads and must only be read during
+ * generation; anything that changes while resolving belongs in a Context. <br>
+ * <br>
+ * Translators can have the functions that several scripts define identically
+ * moved into one generated include. See {@link FunctionDeduplicator}. <br>
+ * <br>
+ * Everything about a single run is kept in a {@link GenerationSession} that is
+ * passed along to every Context, so runs on different models can happen at
+ * the same time. <br>
  * <br>
  * See SimpleFragment and SeriesFragment for lists of what data labels those
  * fragments will accept.
@@ -62,10 +82,15 @@ import scriptease.translator.io.model.Slot;
  */
 public class CodeGenerator {
 
-	private final Collection<StoryPoint> generatingStoryPoints;
-
 	private final static CodeGenerator instance = new CodeGenerator();
 
+	private volatile int threadCount;
+
+	private volatile boolean profiling;
+
+	// The contents of a script that could not be generated.
+	private static final String CODE_GENERATION_EXCEPTION = "Code Generation Exception";
+
 	/**
 	 * Returns the sole instance of CodeGenerator.
 	 * 
@@ -76,19 +101,55 @@ public class CodeGenerator {
 	}
 
 	private CodeGenerator() {
-		this.generatingStoryPoints = new HashSet<StoryPoint>();
+		this.threadCount = Runtime.getRuntime().availableProcessors();
+	}
+
+	/**
+	 * Sets the maximum number of threads used to generate script buckets. A
+	 * count of 1 generates every bucket on the calling thread, which is useful
+	 * for comparing output against the parallel generator.
+	 * 
+	 * @param threadCount
+	 */
+	public void setThreadCount(int threadCount) {
+		if (threadCount < 1)
+			throw new IllegalArgumentException(
+					"Code generation needs at least one thread, not "
+							+ threadCount);
+
+		this.threadCount = threadCount;
+	}
+
+	/**
+	 * Sets whether code generation runs started from now on are profiled. See
+	 * {@link CodeGenerationProfiler}.
+	 * 
+	 * @param profiling
+	 */
+	public void setProfiling(boolean profiling) {
+		this.profiling = profiling;
 	}
 
 	/**
-	 * Returns the story nodes currently getting generated. This is faster than
-	 * getting the descendants of the root. This should only be used while we're
-	 * actually generating code, since it won't reset until
-	 * {@link #generateCode(StoryModel, Collection)} is called.
+	 * Starts a code generation run for the model. The session can then be
+	 * passed to {@link #generateCode(GenerationSession, Collection)}, and
+	 * holds the profile of the run once it is done.
 	 * 
+	 * @param model
+	 * @param cache
+	 *            The cache of previously generated scripts, or null to
+	 *            generate every script.
 	 * @return
 	 */
-	public Collection<StoryPoint> getGeneratingStoryPoints() {
-		return this.generatingStoryPoints;
+	public GenerationSession startSession(StoryModel model, ScriptCache cache) {
+		final CodeGenerationProfiler profiler;
+
+		if (this.profiling)
+			profiler = new CodeGenerationProfiler();
+		else
+			profiler = null;
+
+		return new GenerationSession(model, cache, profiler);
 	}
 
 	/**
@@ -102,51 +163,137 @@ public class CodeGenerator {
 	 */
 	public Collection<ScriptInfo> generateCode(StoryModel model,
 			final Collection<StoryProblem> problems) {
+		return this.generateCode(this.startSession(model, null), problems);
+	}
 
+	/**
+	 * Generates the script files for the session's model, reusing any script
+	 * in the session's cache whose inputs have not changed since it was
+	 * generated. Newly generated scripts are added to the cache. Returns the
+	 * scriptInfo files, and any problems that may have arisen during the
+	 * process.
+	 * 
+	 * @param session
+	 *            A session from {@link #startSession(StoryModel, ScriptCache)}
+	 *            that has not been generated yet.
+	 * @param problems
+	 * @return
+	 */
+	public Collection<ScriptInfo> generateCode(GenerationSession session,
+			final Collection<StoryProblem> problems) {
+		try {
+			return this.generate(session, problems);
+		} finally {
+			if (session.getProfiler() != null)
+				session.getProfiler().finish();
+		}
+	}
+
+	private Collection<ScriptInfo> generate(GenerationSession session,
+			final Collection<StoryProblem> problems) {
 		final long initialTime = System.currentTimeMillis();
+		long phaseStart;
 
+		final StoryModel model;
 		final GameModule module;
 		final Translator translator;
 		final Collection<ScriptInfo> scriptInfos;
 		final StoryPoint root;
 		final SemanticAnalyzer analyzer;
 
+		model = session.getModel();
 		translator = model.getTranslator();
 		module = model.getModule();
 		scriptInfos = new ArrayList<ScriptInfo>();
 		root = model.getRoot();
 
-		this.generatingStoryPoints.clear();
-		this.generatingStoryPoints.addAll(root.getStoryPointDescendants());
-
 		// do the first pass (semantic analysis) for the given story
-		analyzer = new SemanticAnalyzer(this.generatingStoryPoints);
+		phaseStart = session.begin();
+		analyzer = new SemanticAnalyzer(translator, session.getStoryPoints());
+		session.end(CodeGenerationProfiler.PHASE, "Semantic analysis",
+				phaseStart);
 
 		// Find problems with code gen, such as slots missing bindings, etc.
 		problems.addAll(analyzer.getProblems());
 
 		// If no problems were detected, generate the scripts
 		if (problems.isEmpty()) {
-			final Collection<StoryComponent> automaticCauses;
+			final Collection<CauseIt> automaticCauses;
+			final List<ComplexStoryComponent> roots;
 			final Collection<Set<CodeBlock>> scriptBuckets;
 
 			// Set the automatic bindings for any causes that require one.
+			phaseStart = session.begin();
 			automaticCauses = model.generateAutomaticCauses();
+			session.end(CodeGenerationProfiler.PHASE, "Automatic causes",
+					phaseStart);
+
+			/*
+			 * The automatics are treated as the last children of the root, but
+			 * are never added to it. Adding them would notify every observer
+			 * of the story twice for each automatic. They only need to know
+			 * their owner for code generation.
+			 */
+			roots = new ArrayList<ComplexStoryComponent>();
+
+			for (StoryPoint point : session.getStoryPoints()) {
+				roots.add(point);
+
+				if (point == root)
+					roots.addAll(automaticCauses);
+			}
+
+			for (CauseIt automatic : automaticCauses) {
+				automatic.setOwner(root);
 
-			// Temporarily add automatics.
-			root.addStoryChildren(automaticCauses);
+				if (!root.isEnabled())
+					automatic.setEnabled(false);
+			}
 
 			// aggregate the scripts based on the storyPoints
+			phaseStart = session.begin();
 			scriptBuckets = module
-					.aggregateScripts(new ArrayList<StoryComponent>(
-							this.generatingStoryPoints));
+					.aggregateScripts(new ArrayList<StoryComponent>(roots));
+			session.end(CodeGenerationProfiler.PHASE, "Aggregation",
+					phaseStart);
 
 			if (scriptBuckets.size() > 0) {
-				scriptInfos.addAll(this.compile(scriptBuckets, model));
+				final CodeBlockIndex codeBlockIndex;
+				final StoryNodeIndex storyNodeIndex;
+
+				phaseStart = session.begin();
+				codeBlockIndex = new CodeBlockIndex(roots);
+				session.end(CodeGenerationProfiler.PHASE, "Code block index",
+						phaseStart);
+
+				phaseStart = session.begin();
+				storyNodeIndex = new StoryNodeIndex(root, automaticCauses);
+				session.end(CodeGenerationProfiler.PHASE, "Story node index",
+						phaseStart);
+
+				session.setIndexes(codeBlockIndex, storyNodeIndex);
+
+				phaseStart = session.begin();
+				scriptInfos.addAll(this.compile(scriptBuckets, session));
+				session.end(CodeGenerationProfiler.PHASE, "Script generation",
+						phaseStart);
+
+				if (translator.getLanguageDictionary().getSharedFunctions() != null) {
+					final List<ScriptInfo> sharedScriptInfos;
+
+					phaseStart = session.begin();
+					sharedScriptInfos = new FunctionDeduplicator(session)
+							.share(scriptInfos);
+					session.end(CodeGenerationProfiler.PHASE,
+							"Shared functions", phaseStart);
+
+					scriptInfos.clear();
+					scriptInfos.addAll(sharedScriptInfos);
+				}
 			}
 
-			// Remove the automatics from the story again.
-			root.removeStoryChildren(automaticCauses);
+			if (session.getCache() != null)
+				session.getCache().finishRun();
 		} else {
 			
 			WindowFactory.getInstance().showCompileProblems(problems);
@@ -172,94 +319,280 @@ public class CodeGenerator {
 		return scriptInfos;
 	}
 
-	private ScriptInfo generateScript(Context context) {
-		// generate the script file
-		final LocationInformation location;
-		final Translator translator;
-
-		final String slotName;
-		final Slot slot;
-		final String format;
-		final List<AbstractFragment> fileFormat;
-
-		location = context.getLocationInfo();
-		translator = context.getTranslator();
-		slotName = location.getSlot();
-		slot = context.getModel().getSlot(slotName);
+	/**
+	 * Compiles the script buckets. Each bucket gets its own FileContext and is
+	 * generated on a pool of up to {@link #setThreadCount(int)} threads. The
+	 * results are collected in bucket order, so the output does not depend on
+	 * which thread finishes first.
+	 * 
+	 * @param scriptSets
+	 * @param session
+	 * @return
+	 */
+	private Collection<ScriptInfo> compile(
+			Collection<Set<CodeBlock>> scriptSets, GenerationSession session) {
 
-		if (slot == null) {
-			throw new IllegalStateException("Unable to find slot " + slotName
-					+ ". Check that it exists in the Library.");
-		}
+		final Collection<ScriptInfo> scriptInfos = new ArrayList<ScriptInfo>();
+		final List<BucketTask> tasks;
+		final ScriptFingerprinter fingerprinter;
+		final int threads;
+		/*
+		 * This method is called so that we load the Language Dictionary if it
+		 * has not been loaded before. It must happen before we start any
+		 * threads, since loading it is not thread safe.
+		 */
+		session.getTranslator().getLanguageDictionary();
 
-		// Get the format keyword from the slot and get the format from the
-		// language dictionary
-		format = slot.getFormatKeyword().toUpperCase();
-		fileFormat = translator.getLanguageDictionary().getFormat(format);
-		// resolve the format into code
+		if (session.getCache() != null)
+			fingerprinter = new ScriptFingerprinter(session.getModel(),
+					session.getStoryPoints());
+		else
+			fingerprinter = null;
 
-		try {
-			final String scriptContent;
+		tasks = new ArrayList<BucketTask>(scriptSets.size());
 
-			scriptContent = AbstractFragment.resolveFormat(fileFormat, context);
+		for (Set<CodeBlock> bucket : scriptSets) {
+			// All CodeBlocks of a given bucket share slot and
+			// subject, so we can just use the first one
+			tasks.add(new BucketTask(session, fingerprinter, bucket
+					.iterator().next()));
+		}
 
-			return new ScriptInfo(scriptContent, location);
-		} catch (Exception e) {
-			final String scriptContent;
+		threads = Math.min(this.threadCount, tasks.size());
 
-			e.printStackTrace();
+		if (threads <= 1) {
+			for (BucketTask task : tasks) {
+				scriptInfos.add(task.call());
+			}
+		} else {
+			final ExecutorService pool = Executors.newFixedThreadPool(threads);
+
+			try {
+				for (Future<ScriptInfo> future : pool.invokeAll(tasks)) {
+					scriptInfos.add(future.get());
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException(
+						"Interrupted while generating code.", e);
+			} catch (ExecutionException e) {
+				final Throwable cause = e.getCause();
+
+				if (cause instanceof RuntimeException)
+					throw (RuntimeException) cause;
+				else if (cause instanceof Error)
+					throw (Error) cause;
+				else
+					throw new IllegalStateException(cause);
+			} finally {
+				pool.shutdownNow();
+			}
+		}
 
-			WindowFactory
-					.getInstance()
-					.showExceptionDialog(
-							"Code Generation Exception",
-							"Code did not write correctly.",
-							"ScriptEase II encountered an error while writing code.<br>"
-									+ "The code has either not been written, or written incorrectly.<br>"
-									+ "Please send us an error report so we can fix the issue.",
-							UIManager.getIcon("OptionPane.errorIcon"), e);
+		this.showException(tasks);
 
-			scriptContent = "Code Generation Exception";
-			return new ScriptInfo(scriptContent, location);
-		}
+		return scriptInfos;
 	}
 
 	/**
-	 * Compiles the script buckets. Note that multithreading was tried at one
-	 * point but ultimately led to more problems than we could fix.
+	 * Shows the first exception that a task ran into while generating its
+	 * script. The tasks run on the pool's threads, so this is only called
+	 * once they are all done, and the dialog is shown on the Swing thread.
 	 * 
-	 * @param scriptSets
-	 * @param analyzer
-	 * @param translator
-	 * @return
+	 * @param tasks
 	 */
-	private Collection<ScriptInfo> compile(
-			Collection<Set<CodeBlock>> scriptSets, StoryModel story) {
+	private void showException(List<BucketTask> tasks) {
+		for (BucketTask task : tasks) {
+			final Exception exception = task.exception;
+
+			if (exception == null)
+				continue;
+
+			SwingUtilities.invokeLater(new Runnable() {
+				@Override
+				public void run() {
+					WindowFactory
+							.getInstance()
+							.showExceptionDialog(
+									"Code Generation Exception",
+									"Code did not write correctly.",
+									"ScriptEase II encountered an error while writing code.<br>"
+											+ "The code has either not been written, or written incorrectly.<br>"
+											+ "Please send us an error report so we can fix the issue.",
+									UIManager.getIcon("OptionPane.errorIcon"),
+									exception);
+				}
+			});
+
+			return;
+		}
+	}
 
-		final Collection<ScriptInfo> scriptInfos = new ArrayList<ScriptInfo>();
-		/*
-		 * This method is called so that we load the Language Dictionary if it
-		 * has not been loaded before.
-		 */
-		story.getTranslator().getLanguageDictionary();
+	/**
+	 * Generates the script for a single bucket in its own FileContext, or
+	 * takes it from the cache if nothing that goes into it has changed.
+	 */
+	private class BucketTask implements Callable<ScriptInfo> {
+		private final GenerationSession session;
+		private final ScriptFingerprinter fingerprinter;
+		private final ScriptCache cache;
+		private final CodeBlock codeBlock;
+
+		// The exception the script could not be generated because of, if any.
+		private Exception exception;
+
+		private BucketTask(GenerationSession session,
+				ScriptFingerprinter fingerprinter, CodeBlock codeBlock) {
+			this.session = session;
+			this.fingerprinter = fingerprinter;
+			this.cache = session.getCache();
+			this.codeBlock = codeBlock;
+		}
 
-		for (final Set<CodeBlock> bucket : scriptSets) {
-			final CodeBlock codeBlock;
+		@Override
+		public ScriptInfo call() {
 			final LocationInformation location;
+			final Collection<CodeBlock> codeBlocks;
+			final Collection<Resource> boundResources;
 			final Context context;
 			final ScriptInfo generated;
+			final String fingerprint;
 
-			// All CodeBlocks of a given bucket share slot and
-			// subject, so we can just use the first one
-			codeBlock = bucket.iterator().next();
-			location = new LocationInformation(codeBlock);
-			context = new FileContext(story, this.generatingStoryPoints,
+			location = new LocationInformation(this.codeBlock);
+			codeBlocks = this.session.getCodeBlockIndex().getCodeBlocks(
 					location);
-			generated = this.generateScript(context);
 
-			scriptInfos.add(generated);
+			long phaseStart;
+
+			phaseStart = this.session.begin();
+			boundResources = this.getBoundResources(location, codeBlocks);
+			this.session.end(CodeGenerationProfiler.PHASE, "Bound resources",
+					phaseStart);
+
+			if (this.cache != null) {
+				final String cached;
+
+				phaseStart = this.session.begin();
+				fingerprint = this.fingerprinter.fingerprint(location,
+						codeBlocks);
+				cached = this.cache.get(fingerprint);
+				this.session.end(CodeGenerationProfiler.PHASE,
+						"Script cache lookup", phaseStart);
+
+				if (cached != null) {
+					final CodeGenerationProfiler profiler;
+
+					profiler = this.session.getProfiler();
+					if (profiler != null)
+						profiler.count(CodeGenerationProfiler.PHASE,
+								"Script cache hits");
+
+					return new ScriptInfo(cached, location, boundResources);
+				}
+			} else
+				fingerprint = null;
+
+			phaseStart = this.session.begin();
+			context = new FileContext(this.session, location);
+			this.session.end(CodeGenerationProfiler.CONTEXT, "FileContext",
+					phaseStart);
+
+			generated = this.generateScript(context, boundResources);
+
+			if (this.cache != null
+					&& !generated.getCode().equals(CODE_GENERATION_EXCEPTION))
+				this.cache.put(fingerprint, generated.getCode());
+
+			return generated;
 		}
 
-		return scriptInfos;
+		private ScriptInfo generateScript(Context context,
+				Collection<Resource> boundResources) {
+			// generate the script file
+			final LocationInformation location;
+			final Translator translator;
+
+			final String slotName;
+			final Slot slot;
+			final String format;
+			final List<AbstractFragment> fileFormat;
+
+			location = context.getLocationInfo();
+			translator = context.getTranslator();
+			slotName = location.getSlot();
+			slot = context.getModel().getSlot(slotName);
+
+			if (slot == null) {
+				throw new IllegalStateException("Unable to find slot "
+						+ slotName + ". Check that it exists in the Library.");
+			}
+
+			// Get the format keyword from the slot and get the format from
+			// the language dictionary
+			format = slot.getFormatKeyword().toUpperCase();
+			fileFormat = translator.getLanguageDictionary().getFormat(format);
+			// resolve the format into code
+
+			try {
+				final String scriptContent;
+
+				final GenerationSession session = context.getSession();
+				final long formatStart = session.begin();
+
+				try {
+					scriptContent = AbstractFragment.resolveFormat(fileFormat,
+							context);
+				} finally {
+					session.end(CodeGenerationProfiler.FORMAT, format,
+							formatStart);
+				}
+
+				return new ScriptInfo(scriptContent, location, boundResources);
+			} catch (Exception e) {
+				final String scriptContent;
+
+				e.printStackTrace();
+
+				// Shown once the whole run is done. See showException.
+				this.exception = e;
+
+				scriptContent = CodeGenerator.CODE_GENERATION_EXCEPTION;
+				return new ScriptInfo(scriptContent, location, boundResources);
+			}
+		}
+
+		/**
+		 * Returns the subject of the script and every resource bound in the
+		 * story components that have code blocks at its location.
+		 * 
+		 * @param location
+		 * @param codeBlocks
+		 * @return
+		 */
+		private Collection<Resource> getBoundResources(
+				LocationInformation location, Collection<CodeBlock> codeBlocks) {
+			final Collection<Resource> boundResources;
+			final List<ScriptIt> owners;
+			final Set<ScriptIt> seen;
+
+			boundResources = new ArrayList<Resource>();
+			owners = new ArrayList<ScriptIt>();
+			seen = Collections
+					.newSetFromMap(new IdentityHashMap<ScriptIt, Boolean>());
+
+			boundResources.add(location.getSubject());
+
+			for (CodeBlock block : codeBlocks) {
+				final ScriptIt owner = block.getOwner();
+
+				if (owner != null && seen.add(owner))
+					owners.add(owner);
+			}
+
+			boundResources.addAll(StoryComponentUtils
+					.getBoundResources(owners));
+
+			return boundResources;
+		}
 	}
 }
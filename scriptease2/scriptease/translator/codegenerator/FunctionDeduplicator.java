@@ -0,0 +1,540 @@
+package scriptease.translator.codegenerator;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import scriptease.translator.LanguageDictionary;
+import scriptease.translator.LanguageDictionary.SharedFunctions;
+import scriptease.translator.codegenerator.code.contexts.IncludeFileContext;
+import scriptease.translator.codegenerator.code.fragments.AbstractFragment;
+
+/**
+ * Moves the functions that several scripts define identically into one
+ * generated include file, so that each script calls the shared definition
+ * instead of carrying its own copy. This is only done for translators whose
+ * {@link LanguageDictionary} describes {@link SharedFunctions}.<br>
+ * <br>
+ * While scripts are generated, every definition and declaration written with
+ * the shared formats is marked in the script's code along with the name of
+ * the function, and each script includes the shared file. Once every script
+ * has been generated, the deduplicator:
+ * <ol>
+ * <li>counts the scripts that define each function with the same name and
+ * text,</li>
+ * <li>shares a function if two or more scripts define it, unless it calls a
+ * function that is not shared,</li>
+ * <li>leaves out any script that defines a function by the same name as a
+ * shared function but with different text, since that script can not include
+ * both, and</li>
+ * <li>removes the shared definitions and their declarations from the scripts
+ * that include the shared file, and the include from the scripts that do
+ * not.</li>
+ * </ol>
+ * Calls between functions are found by looking for their names in the
+ * function's code. A function that only looks like it calls another one is
+ * just shared less often.<br>
+ * <br>
+ * Other names that a function uses are not checked, since telling a script's
+ * own variables apart from keywords and names from the includes would take a
+ * parser for each language. Instead, {@link SharedFunctions} requires that a
+ * script has nothing at its top level that a generated function could use
+ * other than its generated functions and includes. The NWN dictionary only
+ * writes includes, function declarations, <code>main</code> and function
+ * definitions there, and the variables in <code>main</code> are local to
+ * it.<br>
+ * <br>
+ * Marked code is what goes into the {@link ScriptCache}, so cached scripts
+ * take part in sharing like any other.
+ */
+public class FunctionDeduplicator {
+	private static final char UNIT_START = '\u0001';
+	private static final char FIELD_SEPARATOR = '\u0002';
+	private static final char LIST_SEPARATOR = '\u0003';
+	private static final char UNIT_END = '\u0004';
+	private static final char INCLUDE_MARK = '\u0005';
+
+	private static final char DEFINITION = 'D';
+	private static final char DECLARATION = 'P';
+
+	private static final Pattern IDENTIFIER = Pattern
+			.compile("[a-zA-Z_][a-zA-Z_0-9]*");
+
+	private final GenerationSession session;
+	private final SharedFunctions sharedFunctions;
+	private final String lineBreak;
+
+	public FunctionDeduplicator(GenerationSession session) {
+		final LanguageDictionary dictionary;
+
+		dictionary = session.getTranslator().getLanguageDictionary();
+
+		this.session = session;
+		this.sharedFunctions = dictionary.getSharedFunctions();
+		this.lineBreak = dictionary.getLineBreak();
+
+		if (this.sharedFunctions == null)
+			throw new IllegalArgumentException(dictionary
+					+ " does not share functions.");
+	}
+
+	/**
+	 * Writes a function definition to the code, marked so that it can be
+	 * shared.
+	 * 
+	 * @param code
+	 * @param name
+	 *            The name of the function.
+	 * @param includes
+	 *            The includes that the function needs.
+	 * @param definition
+	 * @throws IOException
+	 */
+	public static void appendDefinition(Appendable code, String name,
+			Collection<String> includes, String definition) throws IOException {
+		FunctionDeduplicator.appendUnit(code, DEFINITION, name, includes,
+				definition);
+	}
+
+	/**
+	 * Writes a function declaration to the code, marked so that it can be
+	 * removed if the function is shared.
+	 * 
+	 * @param code
+	 * @param name
+	 *            The name of the function.
+	 * @param declaration
+	 * @throws IOException
+	 */
+	public static void appendDeclaration(Appendable code, String name,
+			String declaration) throws IOException {
+		FunctionDeduplicator.appendUnit(code, DECLARATION, name,
+				new ArrayList<String>(0), declaration);
+	}
+
+	/**
+	 * Marks the name of the shared include, so that the line that includes it
+	 * can be found again.
+	 * 
+	 * @param include
+	 * @return
+	 */
+	public static String markInclude(String include) {
+		return INCLUDE_MARK + include + INCLUDE_MARK;
+	}
+
+	private static void appendUnit(Appendable code, char kind, String name,
+			Collection<String> includes, String text) throws IOException {
+		code.append(UNIT_START).append(kind).append(name)
+				.append(FIELD_SEPARATOR);
+
+		final Iterator<String> it = includes.iterator();
+		while (it.hasNext()) {
+			code.append(it.next());
+
+			if (it.hasNext())
+				code.append(LIST_SEPARATOR);
+		}
+
+		code.append(FIELD_SEPARATOR).append(text).append(UNIT_END);
+	}
+
+	/**
+	 * Shares the functions that the scripts have in common. Returns the
+	 * scripts with their marks removed, in the same order, followed by the
+	 * shared include if anything was shared.
+	 * 
+	 * @param scriptInfos
+	 * @return
+	 */
+	public List<ScriptInfo> share(Collection<ScriptInfo> scriptInfos) {
+		final List<ScriptInfo> shared = new ArrayList<ScriptInfo>();
+		final List<MarkedScript> scripts = new ArrayList<MarkedScript>();
+		final Map<String, Function> functions;
+		final Map<String, Function> sharedByName;
+		final Set<MarkedScript> including;
+
+		functions = new LinkedHashMap<String, Function>();
+
+		for (ScriptInfo scriptInfo : scriptInfos) {
+			scripts.add(new MarkedScript(scriptInfo, functions));
+		}
+
+		including = new HashSet<MarkedScript>();
+		for (MarkedScript script : scripts) {
+			if (script.canInclude())
+				including.add(script);
+		}
+
+		sharedByName = this.chooseSharedFunctions(functions, including);
+
+		for (MarkedScript script : scripts) {
+			final boolean includes;
+
+			includes = including.contains(script)
+					&& script.definesAnyOf(sharedByName);
+
+			shared.add(new ScriptInfo(script.write(sharedByName, includes),
+					script.scriptInfo.getLocationInfo(), script.scriptInfo
+							.getBoundResources()));
+		}
+
+		if (!sharedByName.isEmpty())
+			shared.add(new ScriptInfo(this.writeInclude(sharedByName, scripts),
+					this.sharedFunctions.getInclude()));
+
+		return shared;
+	}
+
+	/**
+	 * Works out which function to share for each name. Scripts that can not
+	 * include the shared functions are removed from <code>including</code>.
+	 * 
+	 * @param functions
+	 * @param including
+	 * @return
+	 */
+	private Map<String, Function> chooseSharedFunctions(
+			Map<String, Function> functions, Set<MarkedScript> including) {
+		final Map<String, Function> sharedByName;
+		final Set<String> names;
+
+		sharedByName = new LinkedHashMap<String, Function>();
+		names = new HashSet<String>();
+
+		for (Function function : functions.values()) {
+			names.add(function.name);
+		}
+
+		while (true) {
+			boolean changed;
+
+			sharedByName.clear();
+
+			// Count the scripts that could share each function.
+			for (Function function : functions.values()) {
+				function.count = 0;
+			}
+
+			for (MarkedScript script : including) {
+				for (Function function : script.definitions.values()) {
+					function.count++;
+				}
+			}
+
+			// Share the most common function of each name.
+			for (Function function : functions.values()) {
+				final Function other = sharedByName.get(function.name);
+
+				if (function.count > 1
+						&& (other == null || function.count > other.count))
+					sharedByName.put(function.name, function);
+			}
+
+			// A shared function can only call other shared functions.
+			do {
+				changed = false;
+
+				final Iterator<Function> it = sharedByName.values().iterator();
+				while (it.hasNext()) {
+					final Function function = it.next();
+
+					for (String call : function.identifiers) {
+						if (names.contains(call)
+								&& !sharedByName.containsKey(call)) {
+							it.remove();
+							changed = true;
+							break;
+						}
+					}
+				}
+			} while (changed);
+
+			// A script can not include a function by the same name as one of
+			// its own.
+			changed = false;
+
+			final Iterator<MarkedScript> it = including.iterator();
+			while (it.hasNext()) {
+				final MarkedScript script = it.next();
+
+				for (Function function : script.definitions.values()) {
+					final Function shared = sharedByName.get(function.name);
+
+					if (shared != null && shared != function) {
+						it.remove();
+						changed = true;
+						break;
+					}
+				}
+			}
+
+			if (!changed)
+				return sharedByName;
+		}
+	}
+
+	/**
+	 * Writes the shared include: the file format, then the declarations of
+	 * the shared functions, then their definitions.
+	 * 
+	 * @param sharedByName
+	 * @param scripts
+	 * @return
+	 */
+	private String writeInclude(Map<String, Function> sharedByName,
+			List<MarkedScript> scripts) {
+		final StringBuilder code = new StringBuilder();
+		final Map<String, String> declarations;
+		final Set<String> includes;
+		final String fileFormat;
+
+		declarations = new HashMap<String, String>();
+		includes = new HashSet<String>();
+		fileFormat = this.sharedFunctions.getFileFormat();
+
+		for (Function function : sharedByName.values()) {
+			includes.addAll(function.includes);
+		}
+
+		if (fileFormat != null) {
+			final List<AbstractFragment> format;
+
+			format = this.session.getTranslator().getLanguageDictionary()
+					.getFormat(fileFormat);
+
+			code.append(AbstractFragment.resolveFormat(format,
+					new IncludeFileContext(this.session, includes)));
+		}
+
+		for (MarkedScript script : scripts) {
+			for (Entry declaration : script.declarations) {
+				if (!declarations.containsKey(declaration.name))
+					declarations.put(declaration.name, declaration.text);
+			}
+		}
+
+		for (String name : sharedByName.keySet()) {
+			final String declaration = declarations.get(name);
+
+			if (declaration != null)
+				code.append(declaration);
+		}
+
+		for (Function function : sharedByName.values()) {
+			code.append(function.text);
+		}
+
+		return code.toString();
+	}
+
+	/**
+	 * Removes the line that includes the shared file.
+	 * 
+	 * @param code
+	 * @return
+	 */
+	private String removeInclude(String code) {
+		int start = code.indexOf(INCLUDE_MARK);
+
+		while (start >= 0) {
+			final int end = code.indexOf(INCLUDE_MARK, start + 1);
+			int lineStart = code.lastIndexOf(this.lineBreak, start);
+			int lineEnd = code.indexOf(this.lineBreak, end);
+
+			if (lineStart < 0)
+				lineStart = 0;
+			else
+				lineStart += this.lineBreak.length();
+
+			if (lineEnd < 0)
+				lineEnd = code.length();
+			else
+				lineEnd += this.lineBreak.length();
+
+			code = code.substring(0, lineStart) + code.substring(lineEnd);
+			start = code.indexOf(INCLUDE_MARK, lineStart);
+		}
+
+		return code;
+	}
+
+	/**
+	 * A function definition as it is written in at least one script.
+	 */
+	private static class Function {
+		private final String name;
+		private final String text;
+		private final Collection<String> includes;
+		/*
+		 * Every identifier in the function other than its name. The ones that
+		 * are the names of generated functions are the calls that it might
+		 * make. The rest come from the function itself or its includes, as
+		 * required by SharedFunctions.
+		 */
+		private final Set<String> identifiers;
+
+		private int count;
+
+		private Function(String name, String text, Collection<String> includes) {
+			this.name = name;
+			this.text = text;
+			this.includes = includes;
+			this.identifiers = new HashSet<String>();
+		}
+	}
+
+	/**
+	 * A marked definition or declaration in a script.
+	 */
+	private static class Entry {
+		private final String name;
+		private final String text;
+
+		private Entry(String name, String text) {
+			this.name = name;
+			this.text = text;
+		}
+	}
+
+	/**
+	 * A generated script split up into its plain code and its marked
+	 * definitions and declarations.
+	 */
+	private class MarkedScript {
+		private final ScriptInfo scriptInfo;
+		// Strings and Entries, in the order they are in the script.
+		private final List<Object> parts;
+		private final Map<String, Function> definitions;
+		private final List<Entry> declarations;
+		private boolean conflicted;
+
+		private MarkedScript(ScriptInfo scriptInfo,
+				Map<String, Function> functions) {
+			final String code = scriptInfo.getCode();
+			int index = 0;
+
+			this.scriptInfo = scriptInfo;
+			this.parts = new ArrayList<Object>();
+			this.definitions = new HashMap<String, Function>();
+			this.declarations = new ArrayList<Entry>();
+			this.conflicted = false;
+
+			while (index < code.length()) {
+				final int start = code.indexOf(UNIT_START, index);
+
+				if (start < 0) {
+					this.parts.add(code.substring(index));
+					break;
+				}
+
+				final int nameEnd = code.indexOf(FIELD_SEPARATOR, start);
+				final int includesEnd = code.indexOf(FIELD_SEPARATOR,
+						nameEnd + 1);
+				final int end = code.indexOf(UNIT_END, includesEnd);
+				final char kind = code.charAt(start + 1);
+				final String name = code.substring(start + 2, nameEnd);
+				final String text = code.substring(includesEnd + 1, end);
+				final Entry entry = new Entry(name, text);
+
+				this.parts.add(code.substring(index, start));
+				this.parts.add(entry);
+
+				if (kind == DEFINITION)
+					this.addDefinition(functions, entry, code.substring(
+							nameEnd + 1, includesEnd));
+				else
+					this.declarations.add(entry);
+
+				index = end + 1;
+			}
+		}
+
+		private void addDefinition(Map<String, Function> functions,
+				Entry entry, String includes) {
+			final String key = entry.name + FIELD_SEPARATOR + entry.text;
+			Function function = functions.get(key);
+
+			if (function == null) {
+				final Collection<String> includeList = new ArrayList<String>();
+				final Matcher matcher = IDENTIFIER.matcher(entry.text);
+
+				for (String include : includes.split(String
+						.valueOf(LIST_SEPARATOR))) {
+					if (!include.isEmpty())
+						includeList.add(include);
+				}
+
+				function = new Function(entry.name, entry.text, includeList);
+
+				while (matcher.find()) {
+					final String identifier = matcher.group();
+
+					if (!identifier.equals(entry.name))
+						function.identifiers.add(identifier);
+				}
+
+				functions.put(key, function);
+			}
+
+			// Two different functions by the same name in one script can
+			// not be sorted out here.
+			final Function existing = this.definitions.put(entry.name,
+					function);
+			if (existing != null && existing != function)
+				this.conflicted = true;
+		}
+
+		/**
+		 * Returns true if the script includes the shared file and could get
+		 * functions from it.
+		 * 
+		 * @return
+		 */
+		private boolean canInclude() {
+			return !this.conflicted && !this.definitions.isEmpty()
+					&& this.scriptInfo.getCode().indexOf(INCLUDE_MARK) >= 0;
+		}
+
+		private boolean definesAnyOf(Map<String, Function> sharedByName) {
+			for (Function function : this.definitions.values()) {
+				if (sharedByName.get(function.name) == function)
+					return true;
+			}
+
+			return false;
+		}
+
+		private String write(Map<String, Function> sharedByName,
+				boolean includes) {
+			final StringBuilder code = new StringBuilder();
+
+			for (Object part : this.parts) {
+				if (part instanceof Entry) {
+					final Entry entry = (Entry) part;
+
+					// The shared file declares and defines the function.
+					if (!includes || !sharedByName.containsKey(entry.name))
+						code.append(entry.text);
+				} else
+					code.append((String) part);
+			}
+
+			if (includes)
+				return code.toString().replace(String.valueOf(INCLUDE_MARK),
+						"");
+			else
+				return FunctionDeduplicator.this
+						.removeInclude(code.toString());
+		}
+	}
+}
@@ -0,0 +1,132 @@
+package scriptease.translator.codegenerator;
+
+import java.util.Collection;
+
+import scriptease.model.complex.StoryPoint;
+import scriptease.model.semodel.StoryModel;
+import scriptease.translator.Translator;
+
+/**
+ * Everything that belongs to a single code generation run: the model being
+ * generated, the story points in it, the indexes built for the run, the script
+ * cache and the profiler. Every Context created during the run carries the
+ * session, so nothing about the run has to be kept in the
+ * {@link CodeGenerator} or in any other singleton.<br>
+ * <br>
+ * Each run gets its own session from
+ * {@link CodeGenerator#startSession(StoryModel, ScriptCache)}, so runs on
+ * different models can happen at the same time. Whoever started the run keeps
+ * the session to get at its story points and profile afterwards.
+ */
+public class GenerationSession {
+	private final StoryModel model;
+	private final Collection<StoryPoint> storyPoints;
+	private final ScriptCache cache;
+	private final CodeGenerationProfiler profiler;
+
+	private CodeBlockIndex codeBlockIndex;
+	private StoryNodeIndex storyNodeIndex;
+
+	/**
+	 * Starts a session for the model's story as it is right now.
+	 * 
+	 * @param model
+	 * @param cache
+	 *            The cache of previously generated scripts, or null.
+	 * @param profiler
+	 *            The profiler to record the run in, or null.
+	 */
+	GenerationSession(StoryModel model, ScriptCache cache,
+			CodeGenerationProfiler profiler) {
+		this.model = model;
+		// Cached by the root until the story changes, so this is a snapshot.
+		this.storyPoints = model.getRoot().getStoryPointDescendants();
+		this.cache = cache;
+		this.profiler = profiler;
+	}
+
+	/**
+	 * Sets the indexes once the story is ready to be written out. This must
+	 * happen before any contexts are created.
+	 * 
+	 * @param codeBlockIndex
+	 * @param storyNodeIndex
+	 */
+	void setIndexes(CodeBlockIndex codeBlockIndex,
+			StoryNodeIndex storyNodeIndex) {
+		this.codeBlockIndex = codeBlockIndex;
+		this.storyNodeIndex = storyNodeIndex;
+	}
+
+	public StoryModel getModel() {
+		return this.model;
+	}
+
+	public Translator getTranslator() {
+		return this.model.getTranslator();
+	}
+
+	/**
+	 * Returns every story point in the story being generated, as it was when
+	 * the session started.
+	 * 
+	 * @return
+	 */
+	public Collection<StoryPoint> getStoryPoints() {
+		return this.storyPoints;
+	}
+
+	public CodeBlockIndex getCodeBlockIndex() {
+		return this.codeBlockIndex;
+	}
+
+	public StoryNodeIndex getStoryNodeIndex() {
+		return this.storyNodeIndex;
+	}
+
+	/**
+	 * Returns the cache of previously generated scripts, or null if every
+	 * script is generated.
+	 * 
+	 * @return
+	 */
+	public ScriptCache getCache() {
+		return this.cache;
+	}
+
+	/**
+	 * Returns the profiler of this session, or null if it is not being
+	 * profiled.
+	 * 
+	 * @return
+	 */
+	public CodeGenerationProfiler getProfiler() {
+		return this.profiler;
+	}
+
+	/**
+	 * Starts timing something if this session is being profiled. Returns the
+	 * start time to pass to {@link #end(String, String, long)}.
+	 * 
+	 * @return
+	 */
+	public long begin() {
+		if (this.profiler == null)
+			return 0;
+
+		return this.profiler.start();
+	}
+
+	/**
+	 * Stops timing something started with {@link #begin()}. Does nothing if
+	 * this session is not being profiled.
+	 * 
+	 * @param category
+	 * @param name
+	 * @param start
+	 */
+	public void end(String category, String name, long start) {
+		if (this.profiler != null)
+			this.profiler.stop(category, name, start);
+	}
+}
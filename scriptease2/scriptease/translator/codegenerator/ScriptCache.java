@@ -0,0 +1,167 @@
+package scriptease.translator.codegenerator;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Remembers the code generated for each script, keyed by the fingerprint of
+ * everything that went into it. When a story is generated again, scripts whose
+ * fingerprints have not changed are taken from the cache instead of being
+ * generated again. See {@link ScriptFingerprinter}.<br>
+ * <br>
+ * The cache only keeps the scripts used in the last generation run, so it
+ * does not grow as the story is edited. It can be written to disk so that it
+ * lasts between sessions. It is only an optimization, so a cache file that
+ * can not be read is treated as an empty cache.<br>
+ * <br>
+ * The cache may be used by several threads at once.
+ */
+public class ScriptCache {
+	// Change this whenever the file format or the fingerprints change.
+	private static final int VERSION = 2;
+
+	private final Map<String, String> scripts;
+	private final Set<String> used;
+
+	/**
+	 * Creates an empty cache.
+	 */
+	public ScriptCache() {
+		this.scripts = new HashMap<String, String>();
+		this.used = new HashSet<String>();
+	}
+
+	/**
+	 * Returns the code generated for the fingerprint, or null if there is
+	 * none.
+	 * 
+	 * @param fingerprint
+	 * @return
+	 */
+	public synchronized String get(String fingerprint) {
+		final String code = this.scripts.get(fingerprint);
+
+		if (code != null)
+			this.used.add(fingerprint);
+
+		return code;
+	}
+
+	/**
+	 * Remembers the code generated for the fingerprint.
+	 * 
+	 * @param fingerprint
+	 * @param code
+	 */
+	public synchronized void put(String fingerprint, String code) {
+		this.scripts.put(fingerprint, code);
+		this.used.add(fingerprint);
+	}
+
+	/**
+	 * Forgets every script that was not used since the last call to this
+	 * method. This should be called at the end of every generation run.
+	 */
+	public synchronized void finishRun() {
+		this.scripts.keySet().retainAll(this.used);
+		this.used.clear();
+	}
+
+	/**
+	 * Returns the number of scripts in the cache.
+	 * 
+	 * @return
+	 */
+	public synchronized int size() {
+		return this.scripts.size();
+	}
+
+	/**
+	 * Writes the cache to the passed in file.
+	 * 
+	 * @param location
+	 * @throws IOException
+	 */
+	public synchronized void write(File location) throws IOException {
+		final DataOutputStream out;
+
+		out = new DataOutputStream(new GZIPOutputStream(
+				new BufferedOutputStream(new FileOutputStream(location))));
+
+		try {
+			out.writeInt(VERSION);
+			out.writeInt(this.scripts.size());
+
+			for (Entry<String, String> entry : this.scripts.entrySet()) {
+				final byte[] code = entry.getValue().getBytes("UTF-8");
+
+				out.writeUTF(entry.getKey());
+				out.writeInt(code.length);
+				out.write(code);
+			}
+		} finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * Reads a cache written by {@link #write(File)}. Returns an empty cache if
+	 * the file does not exist, is from another version or can not be read.
+	 * 
+	 * @param location
+	 * @return
+	 */
+	public static ScriptCache read(File location) {
+		final ScriptCache cache = new ScriptCache();
+
+		if (!location.exists())
+			return cache;
+
+		try {
+			final DataInputStream in;
+
+			in = new DataInputStream(new GZIPInputStream(
+					new BufferedInputStream(new FileInputStream(location))));
+
+			try {
+				final int count;
+
+				if (in.readInt() != VERSION)
+					return cache;
+
+				count = in.readInt();
+
+				for (int i = 0; i < count; i++) {
+					final String fingerprint = in.readUTF();
+					final byte[] code = new byte[in.readInt()];
+
+					in.readFully(code);
+
+					cache.scripts.put(fingerprint, new String(code, "UTF-8"));
+				}
+			} finally {
+				in.close();
+			}
+		} catch (IOException e) {
+			System.err.println("Could not read the script cache at "
+					+ location.getAbsolutePath() + ": " + e);
+
+			cache.scripts.clear();
+		}
+
+		return cache;
+	}
+}
@@ -0,0 +1,757 @@
+package scriptease.translator.codegenerator;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.TreeMap;
+
+import scriptease.ScriptEase;
+import scriptease.controller.BindingAdapter;
+import scriptease.controller.FragmentVisitor;
+import scriptease.controller.StoryAdapter;
+import scriptease.model.CodeBlock;
+import scriptease.model.CodeBlockReference;
+import scriptease.model.CodeBlockSource;
+import scriptease.model.StoryComponent;
+import scriptease.model.atomic.KnowIt;
+import scriptease.model.atomic.knowitbindings.KnowItBinding;
+import scriptease.model.atomic.knowitbindings.KnowItBindingAutomatic;
+import scriptease.model.atomic.knowitbindings.KnowItBindingFunction;
+import scriptease.model.atomic.knowitbindings.KnowItBindingReference;
+import scriptease.model.atomic.knowitbindings.KnowItBindingResource;
+import scriptease.model.atomic.knowitbindings.KnowItBindingStoryGroup;
+import scriptease.model.atomic.knowitbindings.KnowItBindingStoryPoint;
+import scriptease.model.complex.AskIt;
+import scriptease.model.complex.ComplexStoryComponent;
+import scriptease.model.complex.ControlIt;
+import scriptease.model.complex.PickIt;
+import scriptease.model.complex.ScriptIt;
+import scriptease.model.complex.StoryComponentContainer;
+import scriptease.model.complex.StoryNode;
+import scriptease.model.complex.StoryPoint;
+import scriptease.model.complex.behaviours.Behaviour;
+import scriptease.model.complex.behaviours.CollaborativeTask;
+import scriptease.model.complex.behaviours.Task;
+import scriptease.model.semodel.StoryModel;
+import scriptease.model.semodel.dialogue.DialogueLine;
+import scriptease.model.semodel.librarymodel.LibraryModel;
+import scriptease.translator.LanguageDictionary;
+import scriptease.translator.Translator;
+import scriptease.translator.Translator.DescriptionKeys;
+import scriptease.translator.codegenerator.code.fragments.AbstractFragment;
+import scriptease.translator.codegenerator.code.fragments.FormatReferenceFragment;
+import scriptease.translator.codegenerator.code.fragments.LiteralFragment;
+import scriptease.translator.codegenerator.code.fragments.SimpleDataFragment;
+import scriptease.translator.codegenerator.code.fragments.container.AbstractContainerFragment;
+import scriptease.translator.codegenerator.code.fragments.container.FormatDefinitionFragment;
+import scriptease.translator.codegenerator.code.fragments.container.IndentFragment;
+import scriptease.translator.codegenerator.code.fragments.container.LineFragment;
+import scriptease.translator.codegenerator.code.fragments.container.ScopeFragment;
+import scriptease.translator.codegenerator.code.fragments.container.SeriesFragment;
+import scriptease.translator.io.model.GameType;
+import scriptease.translator.io.model.Resource;
+import scriptease.translator.io.model.Slot;
+
+/**
+ * Computes fingerprints of everything that goes into a script, so that we can
+ * tell whether a script would come out the same as the last time it was
+ * generated without actually generating it. See {@link ScriptCache}.<br>
+ * <br>
+ * A fingerprint is made of two parts:
+ * <ul>
+ * <li>Everything that any script can depend on: the version of ScriptEase,
+ * the translator and libraries both as files and as they are loaded (language
+ * dictionary, game types, slots, type converters and includes), the story
+ * points and how they are connected, and the dialogue. This is computed once
+ * per generation run.</li>
+ * <li>The location of the script, and every story component that has a code
+ * block at that location. For each of these we include the whole tree under
+ * the story point, along with the library code and bindings of every code
+ * block in it.</li>
+ * </ul>
+ * 
+ * Anything that can change the generated code must end up in the fingerprint.
+ * When in doubt, add it; a fingerprint that changes too often only costs us a
+ * regenerated script. The cache is kept between sessions, so this includes
+ * anything that changes when ScriptEase, a translator or a library is
+ * updated.
+ */
+public class ScriptFingerprinter {
+	private static final String ALGORITHM = "SHA-1";
+	private static final String CHARSET = "UTF-8";
+
+	private final String storyFingerprint;
+
+	/**
+	 * Creates a fingerprinter for a generation run over the passed in story
+	 * points. The story is not allowed to change for as long as the
+	 * fingerprinter is used.
+	 * 
+	 * @param model
+	 * @param storyPoints
+	 */
+	public ScriptFingerprinter(StoryModel model,
+			Collection<StoryPoint> storyPoints) {
+		final Digest digest = new Digest();
+		final List<StoryPoint> orderedPoints;
+
+		digest.put(ScriptEase.getInstance().getVersion());
+		digest.put(ScriptEase.getInstance().getCommitHash());
+
+		digest.putTranslator(model.getTranslator());
+
+		for (LibraryModel library : model.getLibraries()) {
+			digest.putLibrary(library);
+		}
+
+		orderedPoints = new ArrayList<StoryPoint>(storyPoints);
+		Collections.sort(orderedPoints, new Comparator<StoryPoint>() {
+			@Override
+			public int compare(StoryPoint o1, StoryPoint o2) {
+				return o1.getUniqueID().compareTo(o2.getUniqueID());
+			}
+		});
+
+		for (StoryPoint point : orderedPoints) {
+			digest.putStoryNode(point);
+			digest.put(point.getFanIn());
+		}
+
+		for (DialogueLine root : model.getDialogueRoots()) {
+			digest.putDialogueLine(root, new HashSet<DialogueLine>());
+		}
+
+		this.storyFingerprint = digest.finish();
+	}
+
+	/**
+	 * Returns the fingerprint of the script generated for the location from
+	 * the passed in code blocks.
+	 * 
+	 * @param location
+	 * @param codeBlocks
+	 *            All of the code blocks at the location, in the order that
+	 *            the script will be generated in.
+	 * @return
+	 */
+	public String fingerprint(LocationInformation location,
+			Collection<CodeBlock> codeBlocks) {
+		final Digest digest = new Digest();
+		final Set<StoryComponent> visited;
+
+		visited = Collections
+				.newSetFromMap(new IdentityHashMap<StoryComponent, Boolean>());
+
+		digest.put(this.storyFingerprint);
+		digest.put(location.getSlot());
+		digest.putResource(location.getSubject());
+
+		for (CodeBlock codeBlock : codeBlocks) {
+			final ScriptIt owner = codeBlock.getOwner();
+			StoryComponent topLevel = owner;
+			StoryComponent parent;
+
+			if (owner == null) {
+				digest.putComponent(codeBlock);
+				continue;
+			}
+
+			// Find the component right under the story point, since its
+			// whole tree can show up in the script.
+			parent = topLevel.getOwner();
+			while (parent != null && !(parent instanceof StoryNode)) {
+				topLevel = parent;
+				parent = topLevel.getOwner();
+			}
+
+			if (parent != null)
+				digest.put(((StoryNode) parent).getUniqueID());
+
+			digest.put(owner.getCodeBlocks().indexOf(codeBlock));
+
+			if (visited.add(topLevel))
+				digest.putComponent(topLevel);
+		}
+
+		return digest.finish();
+	}
+
+	/**
+	 * Feeds everything about a story into a message digest. Every value is
+	 * terminated so that "ab" + "c" and "a" + "bc" digest differently.
+	 */
+	private static class Digest {
+		private static final char TERMINATOR = '\0';
+
+		private final MessageDigest digest;
+		private final StringBuilder buffer;
+
+		// The story components and knowIts we are in the middle of, so that
+		// references back up the tree do not recurse forever.
+		private final Set<Object> inProgress;
+
+		private Digest() {
+			try {
+				this.digest = MessageDigest.getInstance(ALGORITHM);
+			} catch (NoSuchAlgorithmException e) {
+				// Every Java platform has to support SHA-1.
+				throw new IllegalStateException(e);
+			}
+
+			this.buffer = new StringBuilder();
+			this.inProgress = Collections
+					.newSetFromMap(new IdentityHashMap<Object, Boolean>());
+		}
+
+		private void put(Object value) {
+			this.buffer.append(value).append(TERMINATOR);
+
+			if (this.buffer.length() > 4096)
+				this.flush();
+		}
+
+		private void putAll(Collection<?> values) {
+			this.put(values.size());
+
+			for (Object value : values) {
+				this.put(value);
+			}
+		}
+
+		private void flush() {
+			try {
+				this.digest.update(this.buffer.toString().getBytes(CHARSET));
+			} catch (UnsupportedEncodingException e) {
+				// Every Java platform has to support UTF-8.
+				throw new IllegalStateException(e);
+			}
+
+			this.buffer.setLength(0);
+		}
+
+		private String finish() {
+			final StringBuilder hex = new StringBuilder();
+
+			this.flush();
+
+			for (byte b : this.digest.digest()) {
+				hex.append(Character.forDigit((b >> 4) & 0xF, 16));
+				hex.append(Character.forDigit(b & 0xF, 16));
+			}
+
+			return hex.toString();
+		}
+
+		private void putStoryNode(StoryNode node) {
+			final List<Integer> successors = new ArrayList<Integer>();
+			final List<Integer> parents = new ArrayList<Integer>();
+
+			for (StoryNode successor : node.getSuccessors()) {
+				successors.add(successor.getUniqueID());
+			}
+
+			for (StoryNode parent : node.getParents()) {
+				parents.add(parent.getUniqueID());
+			}
+
+			Collections.sort(successors);
+			Collections.sort(parents);
+
+			this.put(node.getClass().getName());
+			this.put(node.getUniqueID());
+			this.put(node.getDisplayText());
+			this.put(node.isEnabled());
+			this.putAll(successors);
+			this.putAll(parents);
+		}
+
+		private void putDialogueLine(DialogueLine line, Set<DialogueLine> seen) {
+			this.putResource(line);
+			this.put(line.getUniqueID());
+			this.put(line.getSpeaker());
+			this.put(line.isEnabled());
+			this.putKnowIt(line.getAudio());
+			this.putKnowIt(line.getImage());
+
+			if (!seen.add(line))
+				return;
+
+			this.put(line.getChildren().size());
+			for (DialogueLine child : line.getChildren()) {
+				this.putDialogueLine(child, seen);
+			}
+		}
+
+		private void putResource(Resource resource) {
+			if (resource == null) {
+				this.put(null);
+				return;
+			}
+
+			this.put(resource.getClass().getName());
+			this.put(resource.getTemplateID());
+			this.put(resource.getName());
+			this.put(resource.getTag());
+			this.put(resource.getCodeText());
+			this.putAll(resource.getTypes());
+		}
+
+		private void putKnowIt(KnowIt knowIt) {
+			if (knowIt == null)
+				this.put(null);
+			else
+				this.putComponent(knowIt);
+		}
+
+		private void putComponent(StoryComponent component) {
+			if (!this.inProgress.add(component)) {
+				// We are already in the middle of this one.
+				this.put(component.getDisplayText());
+				return;
+			}
+
+			component.process(new ComponentDigester());
+
+			this.inProgress.remove(component);
+		}
+
+		private void putBinding(KnowItBinding binding) {
+			this.put(binding.getClass().getName());
+			binding.process(new BindingDigester());
+		}
+
+		/**
+		 * Digests the contents of the file. Files that are missing or can not
+		 * be read are digested by their path alone, so they still change the
+		 * fingerprint once they show up.
+		 * 
+		 * @param file
+		 */
+		private void putFile(File file) {
+			this.put(file == null ? null : file.getAbsolutePath());
+
+			if (file == null || !file.isFile()) {
+				this.put(null);
+				return;
+			}
+
+			this.put(file.length());
+			this.flush();
+
+			try {
+				final InputStream in;
+				final byte[] bytes = new byte[8192];
+
+				in = new BufferedInputStream(new FileInputStream(file));
+
+				try {
+					int read;
+
+					while ((read = in.read(bytes)) != -1) {
+						this.digest.update(bytes, 0, read);
+					}
+				} finally {
+					in.close();
+				}
+			} catch (IOException e) {
+				System.err.println("Could not fingerprint "
+						+ file.getAbsolutePath() + ": " + e);
+				this.put(e);
+			}
+		}
+
+		private void putTranslator(Translator translator) {
+			this.put(translator.getTitle());
+			this.put(translator.getProperty(DescriptionKeys.VERSION));
+
+			this.putFile(translator.getLocation());
+			this.putFile(translator
+					.getPathProperty(DescriptionKeys.LANGUAGE_DICTIONARY_PATH));
+			this.putFile(translator
+					.getPathProperty(DescriptionKeys.API_DICTIONARY_PATH));
+			this.putFile(translator
+					.getPathProperty(DescriptionKeys.GAME_MODULE_PATH));
+
+			this.putLanguageDictionary(translator.getLanguageDictionary());
+		}
+
+		private void putLibrary(LibraryModel library) {
+			final List<GameType> types;
+			final Collection<ScriptIt> converters;
+
+			this.put(library.getTitle());
+			this.putFile(library.getLocation());
+
+			this.putAll(library.getIncludeFilePaths());
+			for (File include : library.getIncludeFiles()) {
+				this.putFile(include);
+			}
+
+			types = new ArrayList<GameType>(library.getGameTypes());
+			GameType.sortByName(types);
+
+			this.put(types.size());
+			for (GameType type : types) {
+				this.putGameType(type);
+			}
+
+			this.put(library.getSlotDefaultFormat());
+			this.put(library.getSlots().size());
+			for (Slot slot : library.getSlots()) {
+				this.put(slot.getKeyword());
+				this.put(slot.getFormatKeyword());
+				this.put(slot.getCondition());
+
+				// Slot knowIts are only templates, so their names and types
+				// are all that matter.
+				this.put(slot.getParameters().size());
+				for (KnowIt parameter : slot.getParameters()) {
+					this.put(parameter.getDisplayText());
+					this.putAll(parameter.getTypes());
+				}
+
+				this.put(slot.getImplicits().size());
+				for (KnowIt implicit : slot.getImplicits()) {
+					this.put(implicit.getDisplayText());
+					this.putAll(implicit.getTypes());
+				}
+			}
+
+			converters = library.getTypeConverter().getConverterDoIts();
+			this.put(converters.size());
+			for (ScriptIt converter : converters) {
+				this.putComponent(converter);
+			}
+		}
+
+		private void putGameType(GameType type) {
+			this.put(type.getName());
+			this.put(type.getCodeSymbol());
+			this.put(type.getReg());
+			this.put(new TreeMap<String, String>(type.getEscapes()));
+			this.put(new TreeMap<String, String>(type.getEnumMap()));
+
+			if (type.getFormat() == null)
+				this.put(null);
+			else
+				this.putFragments(type.getFormat());
+		}
+
+		private void putFragments(Collection<AbstractFragment> fragments) {
+			final FragmentDigester digester = new FragmentDigester();
+
+			this.put(fragments.size());
+
+			for (AbstractFragment fragment : fragments) {
+				fragment.process(digester);
+			}
+		}
+
+		private void putLanguageDictionary(LanguageDictionary dictionary) {
+			final List<FormatDefinitionFragment> formats;
+
+			this.put(dictionary.getName());
+			this.put(dictionary.getIndent());
+			this.put(dictionary.getLineBreak());
+			this.put(dictionary.getFunctionCallFormatName());
+			this.putAll(dictionary.getReservedWords());
+
+			formats = new ArrayList<FormatDefinitionFragment>(
+					dictionary.getFormats());
+			this.putFragments(new ArrayList<AbstractFragment>(formats));
+		}
+
+		/**
+		 * Digests a story component and everything under it.
+		 */
+		private class ComponentDigester extends StoryAdapter {
+			@Override
+			protected void defaultProcess(StoryComponent component) {
+				final LibraryModel library = component.getLibrary();
+				final List<String> labels;
+
+				labels = new ArrayList<String>(component.getLabels());
+				Collections.sort(labels);
+
+				Digest.this.put(component.getClass().getName());
+				Digest.this.put(component.getDisplayText());
+				Digest.this.put(component.isEnabled());
+				Digest.this.putAll(labels);
+				Digest.this.put(library == null ? null : library.getTitle());
+			}
+
+			@Override
+			protected void defaultProcessComplex(ComplexStoryComponent complex) {
+				this.defaultProcess(complex);
+
+				Digest.this.put(complex.getChildCount());
+				for (StoryComponent child : complex.getChildren()) {
+					Digest.this.putComponent(child);
+				}
+			}
+
+			@Override
+			public void processStoryNode(StoryNode storyNode) {
+				// Story nodes are in the story fingerprint. Their children
+				// only matter if they have code at the location.
+				Digest.this.putStoryNode(storyNode);
+			}
+
+			@Override
+			public void processScriptIt(ScriptIt scriptIt) {
+				this.defaultProcessComplex(scriptIt);
+
+				Digest.this.put(scriptIt.getCodeBlocks().size());
+				for (CodeBlock codeBlock : scriptIt.getCodeBlocks()) {
+					Digest.this.putComponent(codeBlock);
+				}
+			}
+
+			@Override
+			public void processControlIt(ControlIt controlIt) {
+				this.processScriptIt(controlIt);
+
+				Digest.this.put(controlIt.getFormat());
+			}
+
+			@Override
+			public void processBehaviour(Behaviour behaviour) {
+				final Task start = behaviour.getStartTask();
+
+				this.processScriptIt(behaviour);
+
+				Digest.this.put(behaviour.getType());
+				Digest.this.put(behaviour.getPriority());
+
+				if (start != null) {
+					final Collection<Task> tasks = new ArrayList<Task>();
+
+					tasks.add(start);
+					tasks.addAll(start.getDescendants());
+
+					for (Task task : tasks) {
+						Digest.this.putComponent(task);
+					}
+				}
+			}
+
+			@Override
+			public void processTask(Task task) {
+				final List<Integer> successors = new ArrayList<Integer>();
+
+				for (Task successor : task.getSuccessors()) {
+					successors.add(successor.getUniqueID());
+				}
+
+				Collections.sort(successors);
+
+				this.defaultProcessComplex(task);
+
+				Digest.this.put(task.getUniqueID());
+				Digest.this.put(task.getChance());
+				Digest.this.putAll(successors);
+			}
+
+			@Override
+			public void processCollaborativeTask(CollaborativeTask task) {
+				this.processTask(task);
+
+				Digest.this.put(task.getInitiatorName());
+				Digest.this.put(task.getResponderName());
+			}
+
+			@Override
+			public void processAskIt(AskIt askIt) {
+				this.defaultProcessComplex(askIt);
+
+				Digest.this.putKnowIt(askIt.getCondition());
+			}
+
+			@Override
+			public void processPickIt(PickIt pickIt) {
+				final Map<StoryComponentContainer, Integer> choices;
+
+				choices = pickIt.getChoices();
+
+				this.defaultProcessComplex(pickIt);
+
+				Digest.this.put(choices.size());
+				for (Entry<StoryComponentContainer, Integer> choice : choices
+						.entrySet()) {
+					Digest.this.put(choice.getValue());
+					Digest.this.putComponent(choice.getKey());
+				}
+			}
+
+			@Override
+			public void processKnowIt(KnowIt knowIt) {
+				this.defaultProcess(knowIt);
+
+				Digest.this.putAll(knowIt.getTypes());
+				Digest.this.putBinding(knowIt.getBinding());
+			}
+
+			@Override
+			public void processCodeBlockSource(CodeBlockSource codeBlockSource) {
+				this.processCodeBlock(codeBlockSource);
+			}
+
+			@Override
+			public void processCodeBlockReference(
+					CodeBlockReference codeBlockReference) {
+				this.processCodeBlock(codeBlockReference);
+			}
+
+			private void processCodeBlock(CodeBlock codeBlock) {
+				this.defaultProcess(codeBlock);
+
+				// Blocks without a slot of their own use their cause's, which
+				// is digested with the cause. Library blocks such as type
+				// converters have no cause to ask.
+				Digest.this.put(codeBlock.hasSlot() ? codeBlock.getSlot()
+						: null);
+				Digest.this.put(codeBlock.getSubjectName());
+				Digest.this.putAll(codeBlock.getTypes());
+				Digest.this.putAll(codeBlock.getIncludes());
+				Digest.this.putFragments(codeBlock.getCode());
+
+				if (codeBlock.hasSubject())
+					Digest.this.putKnowIt(codeBlock.getSubject());
+
+				Digest.this.put(codeBlock.getParameters().size());
+				for (KnowIt parameter : codeBlock.getParameters()) {
+					Digest.this.putKnowIt(parameter);
+				}
+
+				Digest.this.put(codeBlock.getImplicits().size());
+				for (KnowIt implicit : codeBlock.getImplicits()) {
+					Digest.this.putKnowIt(implicit);
+				}
+			}
+		}
+
+		/**
+		 * Digests the value of a binding.
+		 */
+		private class BindingDigester extends BindingAdapter {
+			@Override
+			public void processResource(KnowItBindingResource constant) {
+				Digest.this.putResource(constant.getValue());
+
+				if (constant.getValue() instanceof DialogueLine)
+					Digest.this.put(((DialogueLine) constant.getValue())
+							.getUniqueID());
+			}
+
+			@Override
+			public void processFunction(KnowItBindingFunction function) {
+				Digest.this.putComponent(function.getValue());
+			}
+
+			@Override
+			public void processReference(KnowItBindingReference reference) {
+				Digest.this.putKnowIt(reference.getValue());
+			}
+
+			@Override
+			public void processStoryPoint(KnowItBindingStoryPoint storyPoint) {
+				Digest.this.putStoryNode(storyPoint.getValue());
+			}
+
+			@Override
+			public void processStoryGroup(KnowItBindingStoryGroup storyGroup) {
+				Digest.this.putStoryNode(storyGroup.getValue());
+			}
+
+			@Override
+			public void processAutomatic(KnowItBindingAutomatic automatic) {
+				Digest.this.put(automatic.getScriptValue());
+			}
+		}
+
+		/**
+		 * Digests a code fragment and everything in it.
+		 */
+		private class FragmentDigester implements FragmentVisitor {
+			private void processFragment(AbstractFragment fragment) {
+				Digest.this.put(fragment.getClass().getName());
+				Digest.this.put(fragment.getDirectiveText());
+			}
+
+			private void processContainer(AbstractContainerFragment fragment) {
+				this.processFragment(fragment);
+
+				Digest.this.putFragments(fragment.getSubFragments());
+			}
+
+			@Override
+			public void processLineFragment(LineFragment fragment) {
+				this.processContainer(fragment);
+			}
+
+			@Override
+			public void processFormatDefinitionFragment(
+					FormatDefinitionFragment fragment) {
+				this.processContainer(fragment);
+			}
+
+			@Override
+			public void processIndentFragment(IndentFragment fragment) {
+				this.processContainer(fragment);
+			}
+
+			@Override
+			public void processScopeFragment(ScopeFragment fragment) {
+				this.processContainer(fragment);
+
+				Digest.this.put(fragment.getNameRef());
+			}
+
+			@Override
+			public void processSeriesFragment(SeriesFragment fragment) {
+				this.processContainer(fragment);
+
+				Digest.this.put(fragment.getSeparator());
+				Digest.this.put(fragment.getFilter());
+				Digest.this.put(fragment.getFilterType());
+				Digest.this.put(fragment.isUnique());
+			}
+
+			@Override
+			public void processSimpleDataFragment(SimpleDataFragment fragment) {
+				this.processFragment(fragment);
+
+				Digest.this.put(fragment.getDefaultText());
+				Digest.this.put(fragment.getLegalRange());
+			}
+
+			@Override
+			public void processLiteralFragment(LiteralFragment fragment) {
+				this.processFragment(fragment);
+			}
+
+			@Override
+			public void processFormatReferenceFragment(
+					FormatReferenceFragment fragment) {
+				this.processFragment(fragment);
+
+				Digest.this.put(fragment.getType());
+			}
+		}
+	}
+}
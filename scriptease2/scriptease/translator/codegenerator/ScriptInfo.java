@@ -1,5 +1,8 @@
 package scriptease.translator.codegenerator;
 
+import java.util.Collection;
+import java.util.Collections;
+
 import scriptease.translator.io.model.Resource;
 
 /**
@@ -12,6 +15,8 @@ import scriptease.translator.io.model.Resource;
 public final class ScriptInfo {
 	private final String code;
 	private final LocationInformation locationInfo;
+	private final String includeName;
+	private final Collection<Resource> boundResources;
 
 	/**
 	 * Builds a ScriptInfo that contains the given script metadata.
@@ -24,19 +29,106 @@ public final class ScriptInfo {
 	 *            The object
 	 */
 	public ScriptInfo(String code, LocationInformation locationInfo) {
+		this(code, locationInfo, Collections.<Resource> emptyList());
+	}
+
+	/**
+	 * Builds a ScriptInfo for a script generated from story components that
+	 * have the passed in resources bound to them.
+	 * 
+	 * @param code
+	 *            The code fragment that represents the content of the script.
+	 * @param locationInfo
+	 *            Where the script goes.
+	 * @param boundResources
+	 *            The resources bound in the story components.
+	 */
+	public ScriptInfo(String code, LocationInformation locationInfo,
+			Collection<Resource> boundResources) {
 		this.code = code;
 		this.locationInfo = locationInfo;
+		this.includeName = null;
+		this.boundResources = boundResources;
+	}
+
+	/**
+	 * Builds a ScriptInfo for a generated include file. An include is not
+	 * attached to any slot, so it has no slot or subject.
+	 * 
+	 * @param code
+	 *            The content of the include.
+	 * @param includeName
+	 *            The name that scripts include the file by.
+	 */
+	public ScriptInfo(String code, String includeName) {
+		this.code = code;
+		this.locationInfo = null;
+		this.includeName = includeName;
+		this.boundResources = Collections.emptyList();
 	}
 
+	/**
+	 * Returns the complete text of the script. Fragments stream into a single
+	 * builder while the script is generated, but the finished script is kept
+	 * whole here because the script cache and the game modules need all of it.
+	 * 
+	 * @return
+	 */
 	public String getCode() {
 		return this.code;
 	}
 
+	/**
+	 * Returns true if this is a generated include file rather than a script
+	 * attached to a slot.
+	 * 
+	 * @return
+	 */
+	public boolean isInclude() {
+		return this.includeName != null;
+	}
+
+	/**
+	 * Returns the name of the include, or null if this is not an include.
+	 * 
+	 * @return
+	 */
+	public String getIncludeName() {
+		return this.includeName;
+	}
+
+	/**
+	 * Returns where the script goes, or null if this is an include.
+	 * 
+	 * @return
+	 */
+	public LocationInformation getLocationInfo() {
+		return this.locationInfo;
+	}
+
+	/**
+	 * Returns the resources bound in the story components that the script was
+	 * generated from. These are known whether the script was generated or
+	 * taken from a {@link ScriptCache}, so game modules can use them to find
+	 * out what a script refers to without reading its code.
+	 * 
+	 * @return
+	 */
+	public Collection<Resource> getBoundResources() {
+		return this.boundResources;
+	}
+
 	public String getSlot() {
+		if (this.locationInfo == null)
+			return null;
+
 		return this.locationInfo.getSlot();
 	}
 
 	public Resource getSubject() {
+		if (this.locationInfo == null)
+			return null;
+
 		return this.locationInfo.getSubject();
 	}
 }
@@ -2,7 +2,10 @@ package scriptease.translator.codegenerator;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 
 import scriptease.controller.BindingAdapter;
 import scriptease.controller.StoryAdapter;
@@ -21,7 +24,7 @@ import scriptease.model.complex.StoryPoint;
 import scriptease.model.complex.behaviours.Behaviour;
 import scriptease.model.semodel.librarymodel.LibraryModel;
 import scriptease.model.semodel.librarymodel.TypeConverter;
-import scriptease.translator.TranslatorManager;
+import scriptease.translator.Translator;
 
 /**
  * Code generation phase where recursive analysis of the StoryComponent tree
@@ -31,7 +34,11 @@ import scriptease.translator.TranslatorManager;
  * <br>
  * This phase also checks for semantic problems like unbound KnowIts or empty
  * ComplexStoryComponents. Furthermore, it can report a list of include file
- * names required by processed DoIts with the {@link #buildContext()} method.
+ * names required by processed DoIts with the {@link #buildContext()} method.<br>
+ * <br>
+ * Components can be reached more than once, such as through references and
+ * function bindings, but each is only analyzed once per analyzer. Later visits
+ * just note whether it had problems.
  * 
  * @author remiller
  * @author mfchurch
@@ -45,26 +52,54 @@ public class SemanticAnalyzer extends StoryAdapter {
 	 */
 	private final List<StoryProblem> problems;
 
+	/*
+	 * Whether each analyzed component, or anything analyzed while analyzing
+	 * it, had problems. Components are compared by identity, since equal
+	 * components in different places still need to be analyzed.
+	 */
+	private final Map<StoryComponent, Boolean> analyzed;
+
+	/*
+	 * Counts problems found, plus visits to components that already had
+	 * problems, so that we can tell if anything under a component has
+	 * problems without analyzing it again.
+	 */
+	private int problemCount;
+
+	/*
+	 * The converter found for each binding type and KnowIt types, or null if
+	 * there is none.
+	 */
+	private final Map<String, ScriptIt> converters;
+
+	// The translator of the story, whose libraries hold the type converters.
+	private final Translator translator;
+
 	/**
 	 * Creates a new instance that will recursively analyze the StoryComponent
 	 * tree.
 	 */
-	public SemanticAnalyzer(Collection<StoryPoint> storyPoints) {
+	public SemanticAnalyzer(Translator translator,
+			Collection<StoryPoint> storyPoints) {
+		this.translator = translator;
 		this.problems = new ArrayList<StoryProblem>();
 		this.rules = new ArrayList<StoryRule>();
+		this.analyzed = new IdentityHashMap<StoryComponent, Boolean>();
+		this.converters = new HashMap<String, ScriptIt>();
+		this.problemCount = 0;
 
 		// Make sure all parameters are bound before generating code
 		this.rules.add(new ParameterBoundRule());
 		// Get all the StoryNodes in the model
 		for (StoryPoint storyPoint : storyPoints) {
 			// Process all the components from each StoryPoint
-			final int initialSize = this.problems.size();
+			final int initialCount = this.problemCount;
 
 			for (StoryComponent child : storyPoint.getChildren()) {
 				child.process(this);
 			}
 
-			storyPoint.setHasProblems(this.problems.size() > initialSize);
+			storyPoint.setHasProblems(this.problemCount > initialCount);
 		}
 	}
 
@@ -78,19 +113,67 @@ public class SemanticAnalyzer extends StoryAdapter {
 		return new ArrayList<StoryProblem>(this.problems);
 	}
 
+	/**
+	 * Returns true if the component has already been analyzed, or is being
+	 * analyzed. If it had problems, they count towards whatever is being
+	 * analyzed now.
+	 * 
+	 * @param component
+	 * @return
+	 */
+	private boolean isAnalyzed(StoryComponent component) {
+		final Boolean hadProblems = this.analyzed.get(component);
+
+		if (hadProblems == null) {
+			// Mark it now in case it refers back to itself.
+			this.analyzed.put(component, Boolean.FALSE);
+			return false;
+		}
+
+		if (hadProblems)
+			this.problemCount++;
+
+		return true;
+	}
+
+	/**
+	 * Remembers whether the component had problems, given the problem count
+	 * from before it was analyzed.
+	 * 
+	 * @param component
+	 * @param initialCount
+	 */
+	private void setAnalyzed(StoryComponent component, int initialCount) {
+		this.analyzed.put(component, this.problemCount > initialCount);
+	}
+
 	@Override
 	public void processAskIt(AskIt askIt) {
-		this.defaultProcessComplex(askIt);
+		if (this.isAnalyzed(askIt))
+			return;
+
+		final int initialCount = this.problemCount;
+
+		this.analyzeComplex(askIt);
 
 		askIt.getCondition().process(this);
+
+		this.setAnalyzed(askIt, initialCount);
 	}
 
 	@Override
 	public void processScriptIt(ScriptIt scriptIt) {
-		this.defaultProcessComplex(scriptIt);
+		if (this.isAnalyzed(scriptIt))
+			return;
+
+		final int initialCount = this.problemCount;
+
+		this.analyzeComplex(scriptIt);
 
 		scriptIt.processParameters(this);
 		scriptIt.processSubjects(this);
+
+		this.setAnalyzed(scriptIt, initialCount);
 	}
 
 	@Override
@@ -105,6 +188,10 @@ public class SemanticAnalyzer extends StoryAdapter {
 
 	@Override
 	public void processKnowIt(final KnowIt knowIt) {
+		if (this.isAnalyzed(knowIt))
+			return;
+
+		final int initialCount = this.problemCount;
 		final KnowItBinding binding = knowIt.getBinding();
 		binding.process(new BindingAdapter() {
 			@Override
@@ -125,24 +212,59 @@ public class SemanticAnalyzer extends StoryAdapter {
 		 * codegen time
 		 */
 		if (!binding.explicitlyCompatibleWith(knowIt)) {
-			ScriptIt scriptIt = null;
+			final ScriptIt scriptIt = this.getConverter(knowIt);
 
-			for (LibraryModel library : TranslatorManager.getInstance()
-					.getActiveTranslator().getLibraries()) {
-				final TypeConverter converter = library.getTypeConverter();
-				scriptIt = converter.convert(knowIt);
-
-				if (scriptIt != null)
-					break;
-			}
-			// TODO we aren't checking optional libraries that may be loaded.
 			if (scriptIt != null)
 				scriptIt.process(SemanticAnalyzer.this);
 		}
+
+		this.setAnalyzed(knowIt, initialCount);
+	}
+
+	/**
+	 * Finds the converter for the KnowIt's binding in the translator's
+	 * libraries. Converters only depend on the binding's type and the KnowIt's
+	 * types, so we only look each of those up once.
+	 * 
+	 * @param knowIt
+	 * @return
+	 */
+	private ScriptIt getConverter(KnowIt knowIt) {
+		final String key = knowIt.getBinding().getFirstType() + ":"
+				+ knowIt.getTypes();
+
+		if (this.converters.containsKey(key))
+			return this.converters.get(key);
+
+		ScriptIt scriptIt = null;
+
+		for (LibraryModel library : this.translator.getLibraries()) {
+			final TypeConverter converter = library.getTypeConverter();
+			scriptIt = converter.convert(knowIt);
+
+			if (scriptIt != null)
+				break;
+		}
+		// TODO we aren't checking optional libraries that may be loaded.
+
+		this.converters.put(key, scriptIt);
+
+		return scriptIt;
 	}
 
 	@Override
 	protected void defaultProcessComplex(ComplexStoryComponent complex) {
+		if (this.isAnalyzed(complex))
+			return;
+
+		final int initialCount = this.problemCount;
+
+		this.analyzeComplex(complex);
+
+		this.setAnalyzed(complex, initialCount);
+	}
+
+	private void analyzeComplex(ComplexStoryComponent complex) {
 		this.verifyRules(complex);
 
 		complex.processChildren(this);
@@ -155,6 +277,7 @@ public class SemanticAnalyzer extends StoryAdapter {
 			problems = rule.validate(null, component);
 
 			this.problems.addAll(problems);
+			this.problemCount += problems.size();
 			component.setHasProblems(!problems.isEmpty());
 		}
 	}
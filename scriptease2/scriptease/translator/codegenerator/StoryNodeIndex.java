@@ -0,0 +1,302 @@
+package scriptease.translator.codegenerator;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import scriptease.model.StoryComponent;
+import scriptease.model.complex.ComplexStoryComponent;
+import scriptease.model.complex.StoryGroup;
+import scriptease.model.complex.StoryNode;
+import scriptease.model.complex.StoryPoint;
+
+/**
+ * The order and structure of the story nodes being generated, worked out once
+ * per generation run instead of every time a format asks for them. This holds
+ * the ordered story nodes and story points, the depth of each node, and the
+ * story point parents and children of each story point.<br>
+ * <br>
+ * The automatic causes generated for a run are also kept here. Code
+ * generation sees them as the last children of the root through
+ * {@link #getChildren(ComplexStoryComponent)}, so they never have to be added
+ * to the story itself. That would notify every observer of the story, once
+ * when they are added and once when they are removed.<br>
+ * <br>
+ * Like the {@link CodeBlockIndex}, the index is shared by every script
+ * generated in the same run and does not notice changes to the story, so it
+ * should be rebuilt for each run. The lists that it keeps can not be
+ * modified.
+ */
+public class StoryNodeIndex {
+	private final StoryNode root;
+	private final List<StoryComponent> automatics;
+	private final List<StoryNode> orderedStoryNodes;
+	private final List<StoryPoint> orderedStoryPoints;
+
+	private final ConcurrentMap<StoryPoint, List<StoryPoint>> parents;
+	private final ConcurrentMap<StoryPoint, List<StoryPoint>> children;
+
+	// Only worked out if a format asks for it.
+	private Map<StoryNode, Integer> depthMap = null;
+
+	/**
+	 * Builds an index of the root and all of its descendants.
+	 * 
+	 * @param root
+	 * @param automatics
+	 *            The automatic causes to show as children of the root. Their
+	 *            owner should already be set to the root.
+	 */
+	public StoryNodeIndex(StoryNode root,
+			Collection<? extends StoryComponent> automatics) {
+		final List<StoryPoint> orderedStoryPoints = new ArrayList<StoryPoint>();
+
+		this.root = root;
+		this.automatics = Collections
+				.unmodifiableList(new ArrayList<StoryComponent>(automatics));
+		this.orderedStoryNodes = root.getOrderedDescendants();
+
+		for (StoryNode storyNode : this.orderedStoryNodes) {
+			if (storyNode instanceof StoryPoint)
+				orderedStoryPoints.add((StoryPoint) storyNode);
+			else if (storyNode instanceof StoryGroup) {
+				for (StoryComponent child : storyNode.getChildren()) {
+					if (child instanceof StoryPoint)
+						orderedStoryPoints.add((StoryPoint) child);
+				}
+			}
+		}
+
+		this.orderedStoryPoints = Collections
+				.unmodifiableList(orderedStoryPoints);
+		this.parents = new ConcurrentHashMap<StoryPoint, List<StoryPoint>>();
+		this.children = new ConcurrentHashMap<StoryPoint, List<StoryPoint>>();
+	}
+
+	/**
+	 * Returns the automatic causes generated for this run.
+	 * 
+	 * @return
+	 */
+	public List<StoryComponent> getAutomatics() {
+		return this.automatics;
+	}
+
+	/**
+	 * Returns the children of the component as code generation should see
+	 * them. These are the component's own children, followed by the
+	 * automatics if the component is the root. The list is never the
+	 * component's own, so it may be changed by the caller.
+	 * 
+	 * @param component
+	 * @return
+	 */
+	public List<StoryComponent> getChildren(ComplexStoryComponent component) {
+		final List<StoryComponent> children;
+
+		if (component == this.root) {
+			children = new ArrayList<StoryComponent>(component.getChildren());
+			children.addAll(this.automatics);
+		} else
+			children = component.getChildren();
+
+		return children;
+	}
+
+	/**
+	 * Returns the root and all of its descendants, in the order of
+	 * {@link StoryNode#getOrderedDescendants()}.
+	 * 
+	 * @return
+	 */
+	public List<StoryNode> getOrderedStoryNodes() {
+		return this.orderedStoryNodes;
+	}
+
+	/**
+	 * Returns the story points in {@link #getOrderedStoryNodes()}, with the
+	 * story points in each group put in place of the group.
+	 * 
+	 * @return
+	 */
+	public List<StoryPoint> getOrderedStoryPoints() {
+		return this.orderedStoryPoints;
+	}
+
+	/**
+	 * Returns the depth of each story node, as found by
+	 * {@link StoryNode#createDepthMap()} on the root.
+	 * 
+	 * @return
+	 */
+	public synchronized Map<StoryNode, Integer> getDepthMap() {
+		if (this.depthMap == null)
+			this.depthMap = Collections.unmodifiableMap(this.root
+					.createDepthMap());
+
+		return this.depthMap;
+	}
+
+	/**
+	 * Returns the story points that come directly before the story point. If
+	 * the story point starts a group, these are the parents of the group. Any
+	 * group parent is replaced by the story point that it exits through.
+	 * 
+	 * @param storyPoint
+	 * @return
+	 */
+	public List<StoryPoint> getStoryPointParents(StoryPoint storyPoint) {
+		List<StoryPoint> parents = this.parents.get(storyPoint);
+
+		if (parents == null) {
+			parents = Collections.unmodifiableList(StoryNodeIndex
+					.findStoryPointParents(storyPoint));
+
+			this.parents.putIfAbsent(storyPoint, parents);
+		}
+
+		return parents;
+	}
+
+	/**
+	 * Returns the story points that come directly after the story point. If
+	 * the story point exits a group, these are the successors of the group.
+	 * Any group successor is replaced by the story point that it starts with.
+	 * 
+	 * @param storyPoint
+	 * @return
+	 */
+	public List<StoryPoint> getStoryPointChildren(StoryPoint storyPoint) {
+		List<StoryPoint> children = this.children.get(storyPoint);
+
+		if (children == null) {
+			children = Collections.unmodifiableList(StoryNodeIndex
+					.findStoryPointChildren(storyPoint));
+
+			this.children.putIfAbsent(storyPoint, children);
+		}
+
+		return children;
+	}
+
+	private static List<StoryPoint> findStoryPointParents(StoryPoint storyPoint) {
+		// Check if this node belongs to a group.
+		final StoryComponent owner = storyPoint.getOwner();
+		if (owner instanceof StoryGroup) {
+			StoryGroup group = (StoryGroup) owner;
+
+			// Check if this node is the start node of a group.
+			if (group.getStartNode() == storyPoint) {
+
+				// Then we return the parents of this group if it is a
+				// StoryPoint. If not, we return the first StoryPoint exit node
+				// of the story group.
+
+				// Must be cautious of groups within groups that are also the
+				// start node because they will have no parents. Must get the
+				// parents of the highest level group.
+				while (group.getParents().isEmpty()
+						&& group.getOwner() instanceof StoryGroup)
+					group = (StoryGroup) group.getOwner();
+
+				return StoryNodeIndex.getParents(group);
+			}
+		}
+
+		// The node doesn't belong to a group, or isn't its start node. So
+		// let's just get the parents.
+		return StoryNodeIndex.getParents(storyPoint);
+	}
+
+	/**
+	 * Retrieves all the parents of @param node. If the parent is a StoryPoint
+	 * it is just automatically added. If it is a group, we add the first
+	 * instance of the exit node that is a StoryPoint.
+	 * 
+	 * @return
+	 */
+	private static List<StoryPoint> getParents(StoryNode node) {
+		final List<StoryPoint> parents = new ArrayList<StoryPoint>();
+
+		for (StoryNode parent : node.getParents()) {
+			if (parent instanceof StoryPoint) {
+				parents.add((StoryPoint) parent);
+			} else if (parent instanceof StoryGroup) {
+				StoryNode exitNode = ((StoryGroup) parent).getExitNode();
+
+				while (exitNode instanceof StoryGroup) {
+					exitNode = ((StoryGroup) exitNode).getExitNode();
+				}
+
+				if (exitNode instanceof StoryPoint)
+					parents.add((StoryPoint) exitNode);
+			}
+		}
+
+		return parents;
+	}
+
+	private static List<StoryPoint> findStoryPointChildren(
+			StoryPoint storyPoint) {
+		// Check if this node belongs to a group.
+		final StoryComponent owner = storyPoint.getOwner();
+		if (owner instanceof StoryGroup) {
+			StoryGroup group = (StoryGroup) owner;
+
+			// Check if this node is the exit node of a group.
+			if (group.getExitNode() == storyPoint) {
+
+				// Then we return the successors of this group if it is a
+				// StoryPoint. If not, we return the first StoryPoint start node
+				// of the story group.
+
+				// Must be cautious of groups within groups that are also the
+				// exit node because they will have no successors. Must get the
+				// successors of the highest level group.
+				while (group.getSuccessors().isEmpty()
+						&& group.getOwner() instanceof StoryGroup)
+					group = (StoryGroup) group.getOwner();
+
+				return StoryNodeIndex.getSuccessors(group);
+			}
+		}
+
+		// The node doesn't belong to a group, or isn't its exit node. So
+		// let's just get the successors.
+		return StoryNodeIndex.getSuccessors(storyPoint);
+	}
+
+	/**
+	 * Retrieves all the successors of @param node. If the successor is a
+	 * StoryPoint it is just automatically added. If it is a group, we add the
+	 * first instance of the start node that is a StoryPoint.
+	 * 
+	 * @return
+	 */
+	private static List<StoryPoint> getSuccessors(StoryNode node) {
+		final List<StoryPoint> successors = new ArrayList<StoryPoint>();
+
+		for (StoryNode successor : node.getSuccessors()) {
+			if (successor instanceof StoryPoint) {
+				successors.add((StoryPoint) successor);
+			} else if (successor instanceof StoryGroup) {
+				// Get the first instance of the start node of this StoryGroup
+				// that is a StoryPoint.
+				StoryNode startNode = ((StoryGroup) successor).getStartNode();
+
+				while (startNode instanceof StoryGroup) {
+					startNode = ((StoryGroup) startNode).getStartNode();
+				}
+
+				if (startNode instanceof StoryPoint)
+					successors.add((StoryPoint) startNode);
+			}
+		}
+
+		return successors;
+	}
+}
@@ -1,6 +1,9 @@
 package scriptease.translator.codegenerator.code;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.regex.Pattern;
@@ -31,10 +34,26 @@ public class CodeGenerationNamifier {
 	private final LanguageDictionary languageDictionary;
 	private final Map<StoryComponent, String> componentsToNames;
 
+	/*
+	 * The reverse of componentsToNames, so that we can tell if a name is used
+	 * without looking at every name handed out so far.
+	 */
+	private final Map<String, Collection<StoryComponent>> namesToComponents;
+
+	/*
+	 * The next counter to try when uniquifying a name, keyed by the legal
+	 * format and display text it is built from. Every counter below it is
+	 * already taken, so we don't need to try them again. This is only true
+	 * while names are never given back, so it is cleared if they are.
+	 */
+	private final Map<String, Integer> nextCounters;
+
 	public CodeGenerationNamifier(LanguageDictionary languageDictionary) {
 		this.languageDictionary = languageDictionary;
 
 		this.componentsToNames = new HashMap<StoryComponent, String>();
+		this.namesToComponents = new HashMap<String, Collection<StoryComponent>>();
+		this.nextCounters = new HashMap<String, Integer>();
 	}
 
 	/**
@@ -49,19 +68,62 @@ public class CodeGenerationNamifier {
 	 */
 	public String getUniqueName(StoryComponent component, Pattern legalFormat) {
 		if (legalFormat == null || legalFormat.pattern().isEmpty())
-			legalFormat = Pattern.compile(defaultPattern);
+			legalFormat = StringOp.getPattern(defaultPattern);
 
 		String currentName = this.getGeneratedNameFor(component);
 
 		if (currentName == null || currentName.isEmpty()) {
-			currentName = this.buildLegalName(component, legalFormat);
+			currentName = this.buildLegalName(component, legalFormat,
+					currentName == null);
 
-			this.componentsToNames.put(component, currentName);
+			this.setName(component, currentName);
 		}
 
 		return currentName;
 	}
 
+	/**
+	 * Gives the name to the component, keeping the reverse index up to date.
+	 * 
+	 * @param component
+	 * @param name
+	 */
+	private void setName(StoryComponent component, String name) {
+		final String previous = this.componentsToNames.put(component, name);
+		StoryComponent key = component;
+
+		if (previous != null) {
+			final Iterator<StoryComponent> holders;
+
+			// The map keeps the key that was already in it, so that is the
+			// key that now has the new name.
+			holders = this.namesToComponents.get(previous).iterator();
+			while (holders.hasNext()) {
+				final StoryComponent holder = holders.next();
+
+				if (holder == component
+						|| (holder.hashCode() == component.hashCode() && component
+								.equals(holder))) {
+					key = holder;
+					holders.remove();
+					break;
+				}
+			}
+
+			if (this.namesToComponents.get(previous).isEmpty())
+				this.namesToComponents.remove(previous);
+
+			this.nextCounters.clear();
+		}
+
+		Collection<StoryComponent> holders = this.namesToComponents.get(name);
+		if (holders == null) {
+			holders = new ArrayList<StoryComponent>(1);
+			this.namesToComponents.put(name, holders);
+		}
+		holders.add(key);
+	}
+
 	/**
 	 * Checks if the given name is unique in the current scope.
 	 * 
@@ -73,12 +135,15 @@ public class CodeGenerationNamifier {
 		if (this.languageDictionary.isReservedWord(name))
 			return false;
 
-		for (Entry<StoryComponent, String> entry : this.componentsToNames
-				.entrySet()) {
-			if (entry.getValue().equals(name) && entry.getKey() != (component)) {
-				return false;
+		final Collection<StoryComponent> holders;
+
+		holders = this.namesToComponents.get(name);
+
+		if (holders != null)
+			for (StoryComponent holder : holders) {
+				if (holder != component)
+					return false;
 			}
-		}
 
 		return true;
 	}
@@ -89,9 +154,13 @@ public class CodeGenerationNamifier {
 	 * 
 	 * @param component
 	 * @param legalFormat
+	 * @param unnamed
+	 *            True if the component has no name in this namifier yet. Only
+	 *            then can we skip counters that other components have taken.
 	 * @return
 	 */
-	private String buildLegalName(StoryComponent component, Pattern legalFormat) {
+	private String buildLegalName(StoryComponent component,
+			Pattern legalFormat, boolean unnamed) {
 		final String displayText = component.getDisplayText();
 		String name;
 		
@@ -104,7 +173,14 @@ public class CodeGenerationNamifier {
 
 		name = StringOp.removeNonCharPrefix(name);
 
+		final String counterKey = legalFormat.flags() + ":"
+				+ legalFormat.pattern() + ":" + displayText;
+		final Integer nextCounter = this.nextCounters.get(counterKey);
+
 		int counter = 0;
+		if (unnamed && nextCounter != null)
+			counter = nextCounter;
+
 		while (!this.isNameUnique(name, component) && counter < UNIQUIFY_LIMIT) {
 			// tack on a counter to the end of the name,
 			name = displayText + "_" + Integer.toString(counter++, 36);
@@ -112,6 +188,9 @@ public class CodeGenerationNamifier {
 			name = StringOp.removeIllegalCharacters(name, legalFormat, true);
 		}
 
+		if (counter > 0 && counter < UNIQUIFY_LIMIT)
+			this.nextCounters.put(counterKey, counter);
+
 		if (counter >= UNIQUIFY_LIMIT)
 			// We can't uniquify with letters either. Give up. And cry.
 			throw new IndexOutOfBoundsException("The name " + name
@@ -49,7 +49,7 @@ public class CodeBlockContext extends Context {
 			component = component.getOwner();
 
 		if (component != null)
-			return ((StoryPoint) component).getUnique32CharName();
+			return ((StoryPoint) component).getUnique32CharName(this.getModel());
 		else
 			throw new CodeGenerationException(
 					"Failed to find a Story Point parent for CodeBlock: "
@@ -58,7 +58,7 @@ public class CodeBlockContext extends Context {
 
 	@Override
 	public Collection<StoryComponent> getChildren() {
-		return this.codeBlock.getOwner().getChildren();
+		return this.getStoryNodeIndex().getChildren(this.codeBlock.getOwner());
 	}
 
 	@Override
@@ -99,7 +99,7 @@ public class CodeBlockContext extends Context {
 		if (this.variables == null) {
 			this.variables = new ArrayList<KnowIt>();
 
-			for (StoryComponent child : this.codeBlock.getOwner().getChildren()) {
+			for (StoryComponent child : this.getChildren()) {
 				this.variables.addAll(StoryComponentUtils.getVariables(child));
 			}
 		}
@@ -229,7 +229,8 @@ public class CodeBlockContext extends Context {
 			this.identicalCauses = new ArrayList<CauseIt>();
 
 			for (StoryNode node : this.getStoryNodes()) {
-				for (StoryComponent child : node.getChildren()) {
+				for (StoryComponent child : this.getStoryNodeIndex()
+						.getChildren(node)) {
 					if (child instanceof StoryPoint) {
 						// This exists because of Story Groups, I think...
 
@@ -2,6 +2,9 @@ package scriptease.translator.codegenerator.code.contexts;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.regex.Pattern;
 
@@ -10,6 +13,7 @@ import scriptease.model.CodeBlock;
 import scriptease.model.StoryComponent;
 import scriptease.model.atomic.KnowIt;
 import scriptease.model.atomic.knowitbindings.KnowItBinding;
+import scriptease.model.atomic.knowitbindings.KnowItBindingResource;
 import scriptease.model.complex.AskIt;
 import scriptease.model.complex.CauseIt;
 import scriptease.model.complex.ScriptIt;
@@ -22,8 +26,11 @@ import scriptease.model.complex.behaviours.Task;
 import scriptease.model.semodel.StoryModel;
 import scriptease.model.semodel.dialogue.DialogueLine;
 import scriptease.translator.Translator;
+import scriptease.translator.codegenerator.CodeBlockIndex;
 import scriptease.translator.codegenerator.CodeGenerationException;
+import scriptease.translator.codegenerator.GenerationSession;
 import scriptease.translator.codegenerator.LocationInformation;
+import scriptease.translator.codegenerator.StoryNodeIndex;
 import scriptease.translator.codegenerator.code.CodeGenerationNamifier;
 import scriptease.translator.io.model.Resource;
 
@@ -51,11 +58,16 @@ import scriptease.translator.io.model.Resource;
 public abstract class Context {
 	private String indent = "";
 	private final CodeGenerationNamifier namifier;
-	private final StoryModel model;
 
-	// This is a cached list of all story nodes. This prevents multiple
-	// expensive calls to StoryNode#getDescendants()
+	// Everything about the generation run, shared by every context in it.
+	// This includes a cached list of all story points, which prevents
+	// multiple expensive calls to StoryNode#getDescendants(), and the indexes
+	// that let us walk the story only once.
+	private final GenerationSession session;
+	private final StoryModel model;
 	private final Collection<StoryPoint> storyPoints;
+	private final CodeBlockIndex codeBlockIndex;
+	private final StoryNodeIndex storyNodeIndex;
 
 	/**
 	 * The collection of code blocks known by the Context. These are lazy
@@ -69,17 +81,28 @@ public abstract class Context {
 
 	private static final String UNIMPLEMENTED = "<unimplemented in context>";
 
-	public Context(StoryModel model, Collection<StoryPoint> storyPoints,
-			String indent, CodeGenerationNamifier existingNames) {
-		this.model = model;
-		this.storyPoints = storyPoints;
+	public Context(GenerationSession session, String indent,
+			CodeGenerationNamifier existingNames) {
+		this.session = session;
+		this.model = session.getModel();
+		this.storyPoints = session.getStoryPoints();
+		this.codeBlockIndex = session.getCodeBlockIndex();
+		this.storyNodeIndex = session.getStoryNodeIndex();
 		this.indent = indent;
 		this.namifier = existingNames;
 	}
 
 	public Context(Context other) {
-		this(other.getModel(), other.getStoryNodes(), other.getIndent(), other
-				.getNamifier());
+		this(other.getSession(), other.getIndent(), other.getNamifier());
+	}
+
+	/**
+	 * Returns the generation run that this context belongs to.
+	 * 
+	 * @return
+	 */
+	public final GenerationSession getSession() {
+		return this.session;
 	}
 
 	/**
@@ -158,24 +181,8 @@ public abstract class Context {
 	 */
 	public Collection<CodeBlock> getCodeBlocks() {
 		if (this.codeBlocks == null) {
-
-			this.codeBlocks = new ArrayList<CodeBlock>();
-
-			// for each story point
-			for (StoryNode point : this.storyPoints) {
-				final Collection<ScriptIt> scriptIts;
-
-				scriptIts = StoryComponentUtils.getDescendantScriptIts(point);
-
-				for (ScriptIt scriptIt : scriptIts) {
-					final Collection<CodeBlock> codeBlocksForSlot;
-
-					codeBlocksForSlot = scriptIt
-							.getCodeBlocksForLocation(this.locationInfo);
-
-					this.codeBlocks.addAll(codeBlocksForSlot);
-				}
-			}
+			this.codeBlocks = this.codeBlockIndex
+					.getCodeBlocks(this.locationInfo);
 		}
 
 		return this.codeBlocks;
@@ -280,7 +287,7 @@ public abstract class Context {
 	 */
 	public CauseIt getFirstCause() {
 		for (StoryNode node : this.storyPoints) {
-			for (StoryComponent child : node.getChildren()) {
+			for (StoryComponent child : this.storyNodeIndex.getChildren(node)) {
 				if (child instanceof StoryPoint) {
 					for (StoryComponent storyPointChild : ((StoryPoint) child)
 							.getChildren()) {
@@ -322,17 +329,21 @@ public abstract class Context {
 	 */
 	public Collection<CauseIt> getCauses() {
 		final Collection<CauseIt> causes = new ArrayList<CauseIt>();
+		final Map<CauseKey, List<CauseIt>> buckets;
+
+		buckets = new HashMap<CauseKey, List<CauseIt>>();
 
 		for (StoryNode point : this.storyPoints) {
-			for (StoryComponent child : point.getChildren()) {
+			for (StoryComponent child : this.storyNodeIndex.getChildren(point)) {
 				if (child instanceof StoryPoint) {
 					for (StoryComponent storyPointChild : ((StoryPoint) child)
 							.getChildren()) {
 
-						this.addComponentToCauses(storyPointChild, causes);
+						this.addComponentToCauses(storyPointChild, causes,
+								buckets);
 					}
 				} else {
-					this.addComponentToCauses(child, causes);
+					this.addComponentToCauses(child, causes, buckets);
 
 				}
 			}
@@ -347,9 +358,13 @@ public abstract class Context {
 	 * 
 	 * @param component
 	 * @param causes
+	 * @param buckets
+	 *            The causes added so far, grouped by {@link CauseKey}. Only
+	 *            causes in the same bucket can be equivalent, so we only
+	 *            compare against those.
 	 */
 	private void addComponentToCauses(StoryComponent component,
-			Collection<CauseIt> causes) {
+			Collection<CauseIt> causes, Map<CauseKey, List<CauseIt>> buckets) {
 		if (component instanceof CauseIt) {
 			final CauseIt causeIt = (CauseIt) component;
 
@@ -358,9 +373,16 @@ public abstract class Context {
 			codeBlocks = causeIt.getCodeBlocksForLocation(this.locationInfo);
 
 			if (!codeBlocks.isEmpty()) {
+				final CauseKey key = new CauseKey(causeIt);
+				List<CauseIt> bucket = buckets.get(key);
 				boolean causeExists = false;
 
-				for (CauseIt cause : causes) {
+				if (bucket == null) {
+					bucket = new ArrayList<CauseIt>(1);
+					buckets.put(key, bucket);
+				}
+
+				for (CauseIt cause : bucket) {
 					// Don't add equivalent causes to the list
 					if (cause.isEquivalent(causeIt)
 							&& cause.getParameters().equals(
@@ -370,12 +392,90 @@ public abstract class Context {
 					}
 				}
 
-				if (!causeExists)
+				if (!causeExists) {
 					causes.add(causeIt);
+					bucket.add(causeIt);
+				}
 			}
 		}
 	}
 
+	/**
+	 * Groups causes that could be equivalent. Two causes can only be
+	 * equivalent if they are the same type with the same display text and
+	 * visibility, and their parameters have the same display text, the same
+	 * type of binding and, for resources, the same template ID. Labels are
+	 * left out because {@link StoryComponent#isEquivalent(Object)} only checks
+	 * that one cause's labels contain the other's.
+	 */
+	private static final class CauseKey {
+		private final Class<?> type;
+		private final String displayText;
+		private final boolean visible;
+		private final List<String> parameters;
+
+		private CauseKey(CauseIt cause) {
+			this.type = cause.getClass();
+			this.displayText = cause.getDisplayText();
+			this.visible = Boolean.TRUE.equals(cause.isVisible());
+			this.parameters = new ArrayList<String>();
+
+			for (KnowIt parameter : cause.getParameters()) {
+				final KnowItBinding binding = parameter.getBinding();
+				final StringBuilder text = new StringBuilder();
+
+				text.append(parameter.getDisplayText()).append('\0');
+				text.append(binding.getClass().getName());
+
+				if (binding instanceof KnowItBindingResource)
+					text.append('\0').append(
+							((KnowItBindingResource) binding).getTemplateID());
+
+				this.parameters.add(text.toString());
+			}
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (obj instanceof CauseKey) {
+				final CauseKey other = (CauseKey) obj;
+
+				return this.type == other.type
+						&& this.displayText.equals(other.displayText)
+						&& this.visible == other.visible
+						&& this.parameters.equals(other.parameters);
+			}
+
+			return false;
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * (31 * this.type.hashCode() + this.displayText
+					.hashCode()) + this.parameters.hashCode();
+		}
+	}
+
+	/**
+	 * Returns the index of code blocks shared by every context in this
+	 * generation run.
+	 * 
+	 * @return
+	 */
+	public CodeBlockIndex getCodeBlockIndex() {
+		return this.codeBlockIndex;
+	}
+
+	/**
+	 * Returns the order and structure of the story nodes, shared by every
+	 * context in this generation run.
+	 * 
+	 * @return
+	 */
+	public StoryNodeIndex getStoryNodeIndex() {
+		return this.storyNodeIndex;
+	}
+
 	public Collection<StoryPoint> getStoryNodes() {
 		return this.storyPoints;
 	}
@@ -392,7 +492,10 @@ public abstract class Context {
 
 	/**
 	 * Recursively gets the story points for the passed in story nodes. Does a
-	 * deep search within groups to find all the story points.
+	 * deep search within groups to find all the story points. This does not
+	 * go through the {@link StoryNodeIndex} for the children because only
+	 * groups are searched, and the automatics are only ever children of the
+	 * root story point.
 	 * 
 	 * @param storyNode
 	 * @return
@@ -413,41 +516,25 @@ public abstract class Context {
 	}
 
 	/**
-	 * Gets the descendants in an ordered list. This is slower than
-	 * {@link #getStoryNodes()}, so make sure you know what you are getting
-	 * into.
+	 * Gets the descendants in an ordered list. These are only ordered once per
+	 * generation run, and the list can not be modified.
 	 * 
+	 * @see StoryNodeIndex#getOrderedStoryNodes()
 	 * @return
 	 */
 	public Collection<? extends StoryNode> getOrderedStoryNodes() {
-		return this.model.getRoot().getOrderedDescendants();
+		return this.storyNodeIndex.getOrderedStoryNodes();
 	}
 
 	/**
-	 * Gets the descendants in an ordered list. This is slower than
-	 * {@link #getStoryPoints()}, so make sure you know what you are getting
-	 * into.
+	 * Gets the descendants in an ordered list. These are only ordered once per
+	 * generation run, and the list can not be modified.
 	 * 
+	 * @see StoryNodeIndex#getOrderedStoryPoints()
 	 * @return
 	 */
 	public Collection<? extends StoryPoint> getOrderedStoryPoints() {
-		final Collection<StoryNode> storyNodes = this.model.getRoot()
-				.getOrderedDescendants();
-
-		final Collection<StoryPoint> storyPoints = new ArrayList<StoryPoint>();
-
-		for (StoryNode storyNode : storyNodes) {
-			if (storyNode instanceof StoryPoint)
-				storyPoints.add((StoryPoint) storyNode);
-			else if (storyNode instanceof StoryGroup) {
-				for (StoryComponent child : storyNode.getChildren()) {
-					if (child instanceof StoryPoint)
-						storyPoints.add((StoryPoint) child);
-				}
-			}
-		}
-
-		return storyPoints;
+		return this.storyNodeIndex.getOrderedStoryPoints();
 	}
 
 	/**
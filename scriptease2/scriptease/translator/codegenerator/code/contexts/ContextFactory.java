@@ -28,6 +28,7 @@ import scriptease.model.complex.behaviours.CollaborativeTask;
 import scriptease.model.complex.behaviours.IndependentTask;
 import scriptease.model.semodel.dialogue.DialogueLine;
 import scriptease.translator.codegenerator.CodeGenerationException;
+import scriptease.translator.codegenerator.CodeGenerationProfiler;
 import scriptease.translator.codegenerator.code.contexts.knowitbinding.KnowItBindingAutomaticContext;
 import scriptease.translator.codegenerator.code.contexts.knowitbinding.KnowItBindingFunctionContext;
 import scriptease.translator.codegenerator.code.contexts.knowitbinding.KnowItBindingNullContext;
@@ -64,12 +65,9 @@ import scriptease.translator.io.model.Resource;
  * @author jyuen
  */
 public class ContextFactory {
-	private static ContextFactory instance;
-	private Context activeContext;
+	private static final ContextFactory instance = new ContextFactory();
 
 	public static ContextFactory getInstance() {
-		if (instance == null)
-			instance = new ContextFactory();
 		return instance;
 	}
 
@@ -89,6 +87,27 @@ public class ContextFactory {
 	 * @return
 	 */
 	public Context createContext(Context context, Object source) {
+		final CodeGenerationProfiler profiler;
+
+		profiler = context.getSession().getProfiler();
+
+		if (profiler == null)
+			return this.buildContext(context, source);
+
+		final long start = profiler.start();
+		Context created = null;
+
+		try {
+			created = this.buildContext(context, source);
+
+			return created;
+		} finally {
+			profiler.stop(CodeGenerationProfiler.CONTEXT, created == null ? "Failed"
+					: created.getClass().getSimpleName(), start);
+		}
+	}
+
+	private Context buildContext(Context context, Object source) {
 		final Context created;
 
 		/*
@@ -131,58 +150,60 @@ public class ContextFactory {
 	 */
 	private Context createContext(final Context pastContext,
 			final KnowItBinding source) {
+		final ContextHolder holder = new ContextHolder();
+
 		source.process(new BindingVisitor() {
 			@Override
 			public void processFunction(KnowItBindingFunction function) {
-				ContextFactory.this.activeContext = new KnowItBindingFunctionContext(
+				holder.context = new KnowItBindingFunctionContext(
 						pastContext, function);
 			}
 
 			@Override
 			public void processResource(KnowItBindingResource constant) {
-				ContextFactory.this.activeContext = new KnowItBindingResourceContext(
+				holder.context = new KnowItBindingResourceContext(
 						pastContext, constant);
 			}
 
 			@Override
 			public void processUninitialized(
 					KnowItBindingUninitialized uninitialized) {
-				ContextFactory.this.activeContext = new KnowItBindingUninitializedContext(
+				holder.context = new KnowItBindingUninitializedContext(
 						pastContext, uninitialized);
 			}
 
 			@Override
 			public void processNull(KnowItBindingNull nullBinding) {
-				ContextFactory.this.activeContext = new KnowItBindingNullContext(
+				holder.context = new KnowItBindingNullContext(
 						pastContext, nullBinding);
 			}
 
 			@Override
 			public void processReference(KnowItBindingReference reference) {
-				ContextFactory.this.activeContext = new KnowItBindingReferenceContext(
+				holder.context = new KnowItBindingReferenceContext(
 						pastContext, reference);
 			}
 
 			@Override
 			public void processStoryPoint(KnowItBindingStoryPoint storyPoint) {
-				ContextFactory.this.activeContext = new KnowItBindingStoryPointContext(
+				holder.context = new KnowItBindingStoryPointContext(
 						pastContext, storyPoint);
 			}
 
 			@Override
 			public void processStoryGroup(KnowItBindingStoryGroup storyGroup) {
-				ContextFactory.this.activeContext = new KnowItBindingStoryGroupContext(
+				holder.context = new KnowItBindingStoryGroupContext(
 						pastContext, storyGroup);
 			}
 
 			@Override
 			public void processAutomatic(KnowItBindingAutomatic automatic) {
-				ContextFactory.this.activeContext = new KnowItBindingAutomaticContext(
+				holder.context = new KnowItBindingAutomaticContext(
 						pastContext, automatic);
 			}
 		});
 
-		return this.activeContext;
+		return holder.context;
 	}
 
 	/**
@@ -195,54 +216,49 @@ public class ContextFactory {
 	 */
 	private Context createContext(final Context pastContext,
 			final StoryComponent source) {
+		final ContextHolder holder = new ContextHolder();
+
 		source.process(new StoryAdapter() {
 			/* Default Processes */
 			protected void defaultProcessComplex(ComplexStoryComponent complex) {
-				ContextFactory.this.activeContext = new ComplexStoryComponentContext(
+				holder.context = new ComplexStoryComponentContext(
 						pastContext, complex);
 			}
 
 			@Override
 			protected void defaultProcessAtomic(StoryComponent atom) {
-				ContextFactory.this.activeContext = new StoryComponentContext(
-						pastContext, atom);
+				holder.context = new StoryComponentContext(pastContext, atom);
 			}
 
 			/* COMPLEX TYPES */
 			@Override
 			public void processScriptIt(ScriptIt scriptIt) {
-				ContextFactory.this.activeContext = new ScriptItContext(
-						pastContext, scriptIt);
+				holder.context = new ScriptItContext(pastContext, scriptIt);
 			}
 
 			@Override
 			public void processBehaviour(Behaviour behaviour) {
-				ContextFactory.this.activeContext = new BehaviourContext(
-						pastContext, behaviour);
+				holder.context = new BehaviourContext(pastContext, behaviour);
 			}
 
 			@Override
 			public void processActivityIt(ActivityIt activityIt) {
-				ContextFactory.this.activeContext = new ActivityItContext(
-						pastContext, activityIt);
+				holder.context = new ActivityItContext(pastContext, activityIt);
 			}
 
 			@Override
 			public void processControlIt(ControlIt controlIt) {
-				ContextFactory.this.activeContext = new ControlItContext(
-						pastContext, controlIt);
+				holder.context = new ControlItContext(pastContext, controlIt);
 			}
 
 			@Override
 			public void processPickIt(PickIt pickIt) {
-				ContextFactory.this.activeContext = new PickItContext(
-						pastContext, pickIt);
+				holder.context = new PickItContext(pastContext, pickIt);
 			}
 
 			@Override
 			public void processCauseIt(CauseIt causeIt) {
-				ContextFactory.this.activeContext = new CauseItContext(
-						pastContext, causeIt);
+				holder.context = new CauseItContext(pastContext, causeIt);
 			}
 
 			@Override
@@ -253,31 +269,28 @@ public class ContextFactory {
 
 			@Override
 			public void processCollaborativeTask(CollaborativeTask task) {
-				ContextFactory.this.activeContext = new CollaborativeTaskContext(
+				holder.context = new CollaborativeTaskContext(
 						pastContext, task);
 			}
 
 			@Override
 			public void processIndependentTask(IndependentTask task) {
-				ContextFactory.this.activeContext = new IndependentTaskContext(
-						pastContext, task);
+				holder.context = new IndependentTaskContext(pastContext, task);
 			}
 
 			/* ATOMIC TYPES */
 			@Override
 			public void processAskIt(AskIt questionIt) {
-				ContextFactory.this.activeContext = new AskItContext(
-						pastContext, questionIt);
+				holder.context = new AskItContext(pastContext, questionIt);
 			}
 
 			@Override
 			public void processKnowIt(KnowIt knowIt) {
-				ContextFactory.this.activeContext = new KnowItContext(
-						pastContext, knowIt);
+				holder.context = new KnowItContext(pastContext, knowIt);
 			}
 		});
 
-		return this.activeContext;
+		return holder.context;
 	}
 
 	/**
@@ -290,28 +303,28 @@ public class ContextFactory {
 	 */
 	private Context createContext(final Context pastContext,
 			final CodeBlock source) {
-		this.activeContext = new CodeBlockContext(pastContext, source);
-
-		return this.activeContext;
+		return new CodeBlockContext(pastContext, source);
 	}
 
 	private Context createContext(final Context pastContext,
 			final Resource source) {
-		this.activeContext = new ResourceContext(pastContext, source);
-
-		return this.activeContext;
+		return new ResourceContext(pastContext, source);
 	}
 
 	private Context createContext(Context pastContext, DialogueLine source) {
-		this.activeContext = new DialogueLineContext(pastContext, source);
-
-		return this.activeContext;
+		return new DialogueLineContext(pastContext, source);
 	}
 
 	private Context createContext(final Context pastContext,
 			final StoryPoint source) {
-		this.activeContext = new StoryPointContext(pastContext, source);
+		return new StoryPointContext(pastContext, source);
+	}
 
-		return this.activeContext;
+	/**
+	 * Holds the context that a visitor creates. Every call gets its own
+	 * holder, so contexts can be created by several threads at once.
+	 */
+	private static class ContextHolder {
+		private Context context;
 	}
 }
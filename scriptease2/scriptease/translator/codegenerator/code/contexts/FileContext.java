@@ -1,13 +1,13 @@
 package scriptease.translator.codegenerator.code.contexts;
 
-import java.util.Collection;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Set;
 
 import scriptease.model.CodeBlock;
-import scriptease.model.complex.StoryPoint;
-import scriptease.model.semodel.StoryModel;
+import scriptease.translator.LanguageDictionary.SharedFunctions;
+import scriptease.translator.codegenerator.FunctionDeduplicator;
+import scriptease.translator.codegenerator.GenerationSession;
 import scriptease.translator.codegenerator.LocationInformation;
 import scriptease.translator.codegenerator.code.CodeGenerationNamifier;
 import scriptease.translator.io.model.Resource;
@@ -32,10 +32,10 @@ public class FileContext extends Context {
 	private Set<String> includeFiles;
 	private Iterator<String> includeFilesIterator;
 
-	public FileContext(StoryModel model, Collection<StoryPoint> storyPoints,
+	public FileContext(GenerationSession session,
 			LocationInformation locationInfo) {
-		super(model, storyPoints, "", new CodeGenerationNamifier(model
-				.getTranslator().getLanguageDictionary()));
+		super(session, "", new CodeGenerationNamifier(session.getTranslator()
+				.getLanguageDictionary()));
 
 		this.setLocationInfo(locationInfo);
 
@@ -46,10 +46,21 @@ public class FileContext extends Context {
 
 	@Override
 	public Set<String> getIncludeFiles() {
+		final SharedFunctions sharedFunctions;
+
+		sharedFunctions = this.getTranslator().getLanguageDictionary()
+				.getSharedFunctions();
+
 		for (CodeBlock codeBlock : this.getCodeBlocks()) {
 			this.includeFiles.addAll(codeBlock.getIncludes());
 		}
 
+		// Every script includes the shared functions until we know which
+		// scripts use them. See FunctionDeduplicator.
+		if (sharedFunctions != null)
+			this.includeFiles.add(FunctionDeduplicator
+					.markInclude(sharedFunctions.getInclude()));
+
 		this.includeFilesIterator = this.includeFiles.iterator();
 
 		return this.includeFiles;
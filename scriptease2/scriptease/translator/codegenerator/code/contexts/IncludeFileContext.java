@@ -0,0 +1,57 @@
+package scriptease.translator.codegenerator.code.contexts;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.TreeSet;
+
+import scriptease.model.CodeBlock;
+import scriptease.translator.codegenerator.GenerationSession;
+
+/**
+ * IncludeFileContext is the Context for an include file that is generated
+ * along with the scripts, such as the file of functions that several scripts
+ * share. It is not attached to any slot, so it has no code blocks of its own.
+ * Its includes are the files that the code in it needs.
+ * 
+ * @see FileContext
+ */
+public class IncludeFileContext extends FileContext {
+	private final Set<String> includeFiles;
+	private Iterator<String> includeFilesIterator;
+
+	public IncludeFileContext(GenerationSession session,
+			Collection<String> includeFiles) {
+		super(session, null);
+
+		// Sorted, so that the file is the same every time.
+		this.includeFiles = new TreeSet<String>(includeFiles);
+		this.includeFilesIterator = this.includeFiles.iterator();
+	}
+
+	@Override
+	public Set<String> getIncludeFiles() {
+		this.includeFilesIterator = this.includeFiles.iterator();
+
+		return this.includeFiles;
+	}
+
+	@Override
+	public String getInclude() {
+		if (this.includeFilesIterator.hasNext())
+			return this.includeFilesIterator.next();
+		else
+			return "ERROR while getting Include File in IncludeFileContext.java";
+	}
+
+	@Override
+	public Collection<CodeBlock> getCodeBlocks() {
+		return Collections.emptyList();
+	}
+
+	@Override
+	public String toString() {
+		return "IncludeFileContext";
+	}
+}
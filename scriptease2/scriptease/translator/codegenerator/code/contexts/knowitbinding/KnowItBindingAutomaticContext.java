@@ -26,7 +26,7 @@ public class KnowItBindingAutomaticContext extends KnowItBindingContext {
 				.getParentStoryPoint(((KnowItContext) this.previous)
 						.getComponent());
 
-		return val.getUnique32CharName();
+		return val.getUnique32CharName(this.getModel());
 	};
 
 	/**
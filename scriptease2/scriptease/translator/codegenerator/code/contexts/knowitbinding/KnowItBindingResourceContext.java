@@ -88,7 +88,7 @@ public class KnowItBindingResourceContext extends KnowItBindingContext {
 		// Handle Legal Values the type can take
 		final String regex = this.getModel().getType(type).getReg();
 		if (StringOp.exists(regex) && !scriptValue.isEmpty()) {
-			final Pattern regexPattern = Pattern.compile(regex);
+			final Pattern regexPattern = StringOp.getPattern(regex);
 
 			scriptValue = StringOp.removeIllegalCharacters(scriptValue,
 					regexPattern, false);
@@ -27,7 +27,15 @@ public class KnowItBindingStoryPointContext extends KnowItBindingContext {
 		final StoryPoint qp = ((KnowItBindingStoryPoint) this.binding)
 				.getValue();
 
-		return qp.getUnique32CharName();
+		return qp.getUnique32CharName(this.getModel());
+	}
+
+	@Override
+	public String getUniqueID() {
+		final StoryPoint qp = ((KnowItBindingStoryPoint) this.binding)
+				.getValue();
+
+		return qp.getUniqueID().toString();
 	}
 
 	@Override
@@ -10,7 +10,6 @@ import scriptease.model.atomic.knowitbindings.KnowItBindingStoryPoint;
 import scriptease.model.complex.ScriptIt;
 import scriptease.model.semodel.librarymodel.LibraryModel;
 import scriptease.model.semodel.librarymodel.TypeConverter;
-import scriptease.translator.TranslatorManager;
 import scriptease.translator.codegenerator.CodeGenerationException;
 import scriptease.translator.codegenerator.code.contexts.Context;
 import scriptease.translator.codegenerator.code.contexts.ContextFactory;
@@ -81,8 +80,7 @@ public class KnowItContext extends StoryComponentContext {
 			ScriptIt scriptIt = null;
 
 			// TODO We aren't checking optional libraries that may be loaded...
-			for (LibraryModel library : TranslatorManager.getInstance()
-					.getActiveTranslator().getLibraries()) {
+			for (LibraryModel library : this.getTranslator().getLibraries()) {
 				final TypeConverter converter = library.getTypeConverter();
 				
 				scriptIt = converter.convert(knowIt);
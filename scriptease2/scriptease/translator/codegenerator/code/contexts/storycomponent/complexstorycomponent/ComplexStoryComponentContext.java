@@ -34,7 +34,7 @@ public class ComplexStoryComponentContext extends StoryComponentContext {
 	 */
 	@Override
 	public final Collection<StoryComponent> getChildren() {
-		return this.getComponent().getChildren();
+		return this.getStoryNodeIndex().getChildren(this.getComponent());
 	}
 
 	/**
@@ -1,6 +1,7 @@
 package scriptease.translator.codegenerator.code.contexts.storycomponent.complexstorycomponent.scriptit;
 
 import java.util.Collection;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import scriptease.model.complex.ScriptIt;
 import scriptease.model.complex.behaviours.Behaviour;
@@ -8,12 +9,12 @@ import scriptease.model.complex.behaviours.Task;
 import scriptease.translator.codegenerator.code.contexts.Context;
 
 public class BehaviourContext extends ScriptItContext {
-	private static int uniqueIDCounter = 0;
+	private static final AtomicInteger uniqueIDCounter = new AtomicInteger();
 	private final int uniqueID;
 
 	public BehaviourContext(Context other, ScriptIt source) {
 		super(other, source);
-		this.uniqueID = uniqueIDCounter++;
+		this.uniqueID = uniqueIDCounter.getAndIncrement();
 	}
 
 	@Override
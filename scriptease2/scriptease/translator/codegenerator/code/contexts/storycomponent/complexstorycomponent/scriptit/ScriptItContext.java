@@ -222,7 +222,7 @@ public class ScriptItContext extends ComplexStoryComponentContext {
 		StoryComponent owner = this.getOwner();
 		while (owner != null) {
 			if (owner instanceof StoryPoint)
-				return ((StoryPoint) owner).getUnique32CharName();
+				return ((StoryPoint) owner).getUnique32CharName(this.getModel());
 		}
 		throw new NullPointerException("Could not find Story Point for " + this);
 	}
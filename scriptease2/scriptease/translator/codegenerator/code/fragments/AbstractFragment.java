@@ -1,10 +1,12 @@
 package scriptease.translator.codegenerator.code.fragments;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 
 import scriptease.controller.FragmentVisitor;
+import scriptease.translator.codegenerator.CodeGenerationProfiler;
 import scriptease.translator.codegenerator.code.contexts.Context;
 import scriptease.translator.codegenerator.code.fragments.container.AbstractContainerFragment;
 import scriptease.translator.codegenerator.code.fragments.container.SeriesFragment;
@@ -34,7 +36,13 @@ import sun.awt.util.IdentityArrayList;
  */
 public abstract class AbstractFragment implements Cloneable {
 	private String directive;
-	private Context context;
+
+	/*
+	 * The directive parsed into one of the directive enums, so that it is not
+	 * parsed again every time the fragment is resolved. This is replaced
+	 * whenever the directive text changes.
+	 */
+	private volatile ParsedDirective parsedDirective;
 
 	/**
 	 * Builds a new Fragment with the given directive label.
@@ -49,7 +57,6 @@ public abstract class AbstractFragment implements Cloneable {
 
 	protected void init() {
 		this.directive = "";
-		this.context = null;
 	}
 
 	@Override
@@ -64,7 +71,6 @@ public abstract class AbstractFragment implements Cloneable {
 
 		clone.init();
 		clone.setDirectiveText(this.directive);
-		clone.setContext(this.context);
 
 		return clone;
 	}
@@ -79,14 +85,48 @@ public abstract class AbstractFragment implements Cloneable {
 	 * @return The code text that replaces this code fragment.
 	 */
 	public String resolve(Context context) {
-		// Set the global context, to be used by strategy pattern in
-		// FragmentDataBuilders
-		setContext(context);
+		// Fragments are shared by every script, so they must not remember
+		// the context they were resolved in.
 		return "";
 	}
 
-	private void setContext(Context context) {
-		this.context = context;
+	/**
+	 * Resolves the directive like {@link #resolve(Context)}, but appends the
+	 * code to <code>code</code> instead of returning it. Fragments that
+	 * contain other fragments override this so that their code is written
+	 * straight into the script, instead of being built up in a new String at
+	 * every level of the format.
+	 * 
+	 * @param context
+	 *            The context that will be used to resolve the directive.
+	 * @param code
+	 *            Where the code is appended.
+	 * @throws IOException
+	 *             if <code>code</code> can not be appended to.
+	 */
+	public void resolve(Context context, Appendable code) throws IOException {
+		code.append(this.resolve(context));
+	}
+
+	/**
+	 * Resolves the fragment through {@link #resolve(Context, Appendable)} into
+	 * a String. Fragments that override that method can use this to implement
+	 * {@link #resolve(Context)}.
+	 * 
+	 * @param context
+	 * @return
+	 */
+	protected final String resolveToString(Context context) {
+		final StringBuilder code = new StringBuilder();
+
+		try {
+			this.resolve(context, code);
+		} catch (IOException e) {
+			// StringBuilders never throw IOExceptions.
+			throw new IllegalStateException(e);
+		}
+
+		return code.toString();
 	}
 
 	/**
@@ -102,6 +142,26 @@ public abstract class AbstractFragment implements Cloneable {
 		this.directive = text;
 	}
 
+	/**
+	 * Returns the constant of the passed in enum named by the directive text,
+	 * ignoring case, or null if there is none. The directive is only parsed
+	 * again if it has changed since the last call.
+	 * 
+	 * @param type
+	 * @return
+	 */
+	protected final <E extends Enum<E>> E getDirectiveValue(Class<E> type) {
+		ParsedDirective parsed = this.parsedDirective;
+
+		if (parsed == null || parsed.type != type
+				|| !parsed.text.equals(this.directive)) {
+			parsed = new ParsedDirective(this.directive, type);
+			this.parsedDirective = parsed;
+		}
+
+		return type.cast(parsed.value);
+	}
+
 	/**
 	 * Resolves all of the tokens in the given format
 	 * 
@@ -116,15 +176,54 @@ public abstract class AbstractFragment implements Cloneable {
 			Context context) {
 		final StringBuilder code = new StringBuilder();
 
-		for (AbstractFragment token : format) {
-			code.append(token.resolve(context));
+		try {
+			AbstractFragment.resolveFormat(format, context, code);
+		} catch (IOException e) {
+			// StringBuilders never throw IOExceptions.
+			throw new IllegalStateException(e);
 		}
 
 		return code.toString();
 	}
 
-	public Context getContext() {
-		return this.context;
+	/**
+	 * Resolves all of the tokens in the given format, appending the code to
+	 * <code>code</code>.
+	 * 
+	 * @param format
+	 *            the format to resolve
+	 * @param context
+	 *            the context within which the format is resolved.
+	 * @param code
+	 *            Where the code is appended.
+	 * @throws IOException
+	 *             if <code>code</code> can not be appended to.
+	 */
+	public static void resolveFormat(Collection<AbstractFragment> format,
+			Context context, Appendable code) throws IOException {
+		final CodeGenerationProfiler profiler;
+
+		profiler = context.getSession().getProfiler();
+
+		for (AbstractFragment token : format) {
+			if (profiler == null)
+				token.resolve(context, code);
+			else {
+				final long start = profiler.start();
+
+				try {
+					token.resolve(context, code);
+				} finally {
+					// References are timed by the format they refer to.
+					if (token instanceof FormatReferenceFragment)
+						profiler.stop(CodeGenerationProfiler.FORMAT, token
+								.getDirectiveText().toUpperCase(), start);
+					else
+						profiler.stop(CodeGenerationProfiler.FRAGMENT, token
+								.getClass().getSimpleName(), start);
+				}
+			}
+		}
 	}
 
 	@Override
@@ -244,4 +343,29 @@ public abstract class AbstractFragment implements Cloneable {
 	 *            this AbstractFragment.
 	 */
 	public abstract void process(FragmentVisitor visitor);
+
+	/**
+	 * A directive text and the enum constant it names. Never changed once
+	 * created, so it can be shared by all of the threads resolving the
+	 * fragment.
+	 */
+	private static class ParsedDirective {
+		private final String text;
+		private final Class<?> type;
+		private final Enum<?> value;
+
+		private <E extends Enum<E>> ParsedDirective(String text, Class<E> type) {
+			Enum<?> value;
+
+			try {
+				value = Enum.valueOf(type, text.toUpperCase());
+			} catch (IllegalArgumentException e) {
+				value = null;
+			}
+
+			this.text = text;
+			this.type = type;
+			this.value = value;
+		}
+	}
 }
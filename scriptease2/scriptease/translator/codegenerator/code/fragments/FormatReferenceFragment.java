@@ -1,5 +1,8 @@
 package scriptease.translator.codegenerator.code.fragments;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 
 import scriptease.controller.FragmentVisitor;
@@ -12,6 +15,10 @@ import scriptease.model.complex.ControlIt;
 import scriptease.model.complex.PickIt;
 import scriptease.model.complex.ScriptIt;
 import scriptease.model.complex.behaviours.Behaviour;
+import scriptease.translator.LanguageDictionary;
+import scriptease.translator.LanguageDictionary.SharedFunctions;
+import scriptease.translator.codegenerator.FunctionDeduplicator;
+import scriptease.translator.codegenerator.code.contexts.CodeBlockContext;
 import scriptease.translator.codegenerator.code.contexts.Context;
 import scriptease.translator.codegenerator.code.contexts.storycomponent.StoryComponentContext;
 
@@ -67,20 +74,64 @@ public class FormatReferenceFragment extends AbstractFragment {
 	 */
 	@Override
 	public String resolve(Context context) {
-		final String formatID = this.getDirectiveText().toUpperCase();
-		final TypeChecker typeChecker = new TypeChecker(context);
+		return this.resolveToString(context);
+	}
 
-		if (typeChecker.getResult()) {
+	@Override
+	public void resolve(Context context, Appendable code) throws IOException {
+		// Most references are untyped, so don't bother checking those.
+		if (this.type == Type.NONE || new TypeChecker(context).getResult()) {
+			final LanguageDictionary dictionary;
+			final SharedFunctions sharedFunctions;
+			final String formatID;
 			final List<AbstractFragment> format;
 
-			format = context.getTranslator().getLanguageDictionary()
-					.getFormat(formatID);
+			dictionary = context.getTranslator().getLanguageDictionary();
+			sharedFunctions = dictionary.getSharedFunctions();
+			formatID = this.getDirectiveText();
+			format = dictionary.getFormat(formatID);
+
+			if (sharedFunctions == null)
+				AbstractFragment.resolveFormat(format, context, code);
+			else if (sharedFunctions.isDefinition(formatID))
+				FunctionDeduplicator.appendDefinition(code, this.resolveName(
+						dictionary, context), this.getIncludes(context),
+						AbstractFragment.resolveFormat(format, context));
+			else if (sharedFunctions.isDeclaration(formatID))
+				FunctionDeduplicator.appendDeclaration(code, this.resolveName(
+						dictionary, context), AbstractFragment.resolveFormat(
+						format, context));
+			else
+				AbstractFragment.resolveFormat(format, context, code);
+		}
+		// If the type of the context doesn't match the format, we just
+		// write nothing.
+	}
+
+	/**
+	 * Resolves the name of the function that a shared format is writing.
+	 * 
+	 * @param dictionary
+	 * @param context
+	 * @return
+	 */
+	private String resolveName(LanguageDictionary dictionary, Context context) {
+		return AbstractFragment.resolveFormat(dictionary.getFormat(dictionary
+				.getSharedFunctions().getNameFormat()), context);
+	}
 
-			return AbstractFragment.resolveFormat(format, context);
-		} else
-			// If the type of the context doesn't match the format, we just
-			// return nothing.
-			return "";
+	/**
+	 * Returns the includes that the code of the context needs. Only code
+	 * blocks know their includes, so other contexts have none.
+	 * 
+	 * @param context
+	 * @return
+	 */
+	private Collection<String> getIncludes(Context context) {
+		if (context instanceof CodeBlockContext)
+			return context.getIncludeFiles();
+		else
+			return new ArrayList<String>(0);
 	}
 
 	@Override
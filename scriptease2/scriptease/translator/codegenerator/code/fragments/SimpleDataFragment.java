@@ -1,7 +1,5 @@
 package scriptease.translator.codegenerator.code.fragments;
 
-import java.util.regex.Pattern;
-
 import scriptease.controller.FragmentVisitor;
 import scriptease.translator.codegenerator.CodeGenerationException;
 import scriptease.translator.codegenerator.code.contexts.Context;
@@ -75,9 +73,9 @@ public class SimpleDataFragment extends AbstractFragment {
 
 		final Type data;
 
-		try {
-			data = Type.valueOf(directiveText.toUpperCase());
-		} catch (IllegalArgumentException e) {
+		data = this.getDirectiveValue(Type.class);
+
+		if (data == null) {
 			System.out.println("Couldn't find the value of : " + directiveText);
 			return null;
 		}
@@ -85,7 +83,8 @@ public class SimpleDataFragment extends AbstractFragment {
 		try {
 			switch (data) {
 			case NAME:
-				return context.getUniqueName(Pattern.compile(this.legalRange));
+				return context.getUniqueName(StringOp
+						.getPattern(this.legalRange));
 			case DISPLAYTEXT:
 				return context.getDisplayText();
 			case TYPE:
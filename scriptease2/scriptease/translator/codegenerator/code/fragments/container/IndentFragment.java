@@ -1,10 +1,10 @@
 package scriptease.translator.codegenerator.code.fragments.container;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
 import scriptease.controller.FragmentVisitor;
-import scriptease.translator.TranslatorManager;
 import scriptease.translator.codegenerator.code.contexts.Context;
 import scriptease.translator.codegenerator.code.fragments.AbstractFragment;
 
@@ -35,19 +35,19 @@ public class IndentFragment extends AbstractContainerFragment {
 
 	@Override
 	public String resolve(Context context) {
-		super.resolve(context);
-		String generated = "";
-		// Get the indent size from the loaded LanguageDictionary
-		String indent = TranslatorManager.getInstance().getActiveTranslator()
-				.getLanguageDictionary().getIndent();
+		return this.resolveToString(context);
+	}
+
+	@Override
+	public void resolve(Context context, Appendable code) throws IOException {
+		// Get the indent size from the context's LanguageDictionary
+		final String indent = context.getTranslator().getLanguageDictionary()
+				.getIndent();
 		context.increaseIndent(indent);
 
-		for (AbstractFragment fragment : this.subFragments) {
-			generated += fragment.resolve(context);
-		}
+		AbstractFragment.resolveFormat(this.subFragments, context, code);
 
 		context.reduceIndent(indent);
-		return generated;
 	}
 
 	@Override
@@ -1,5 +1,6 @@
 package scriptease.translator.codegenerator.code.fragments.container;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -36,18 +37,19 @@ public class LineFragment extends AbstractContainerFragment {
 
 	@Override
 	public String resolve(Context context) {
-		super.resolve(context);
+		return this.resolveToString(context);
+	}
+
+	@Override
+	public void resolve(Context context, Appendable code) throws IOException {
 		final String lineBreak;
 
 		lineBreak = context.getTranslator().getLanguageDictionary()
 				.getLineBreak();
 
-		String generated = context.getIndent();
-		for (AbstractFragment fragment : this.subFragments) {
-			generated += fragment.resolve(context);
-		}
-
-		return generated + lineBreak;
+		code.append(context.getIndent());
+		AbstractFragment.resolveFormat(this.subFragments, context, code);
+		code.append(lineBreak);
 	}
 
 	@Override
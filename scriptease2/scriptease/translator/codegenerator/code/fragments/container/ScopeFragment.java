@@ -1,5 +1,6 @@
 package scriptease.translator.codegenerator.code.fragments.container;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -51,17 +52,20 @@ public class ScopeFragment extends AbstractContainerFragment {
 
 	@Override
 	public String resolve(Context context) {
-		super.resolve(context);
+		return this.resolveToString(context);
+	}
+
+	@Override
+	public void resolve(Context context, Appendable code) throws IOException {
 		final Object scope = this.getScope(context);
 
 		if (scope != null) {
 			Context newContext = ContextFactory.getInstance().createContext(
 					context, scope);
-			return (AbstractFragment.resolveFormat(this.subFragments,
-					newContext));
+			AbstractFragment.resolveFormat(this.subFragments, newContext, code);
 		} else
-			return "< Scope was unable to be resolved for data: "
-					+ this.getDirectiveText() + " >";
+			code.append("< Scope was unable to be resolved for data: "
+					+ this.getDirectiveText() + " >");
 	}
 
 	/**
@@ -74,9 +78,9 @@ public class ScopeFragment extends AbstractContainerFragment {
 		final Type scope;
 
 		final String directiveText = this.getDirectiveText();
-		try {
-			scope = Type.valueOf(directiveText.toUpperCase());
-		} catch (IllegalArgumentException e) {
+		scope = this.getDirectiveValue(Type.class);
+
+		if (scope == null) {
 			System.out.println("Couldn't find the value of : " + directiveText);
 			return null;
 		}
@@ -1,10 +1,12 @@
 package scriptease.translator.codegenerator.code.fragments.container;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
 import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.regex.Pattern;
 import java.util.regex.PatternSyntaxException;
 
 import scriptease.controller.FragmentVisitor;
@@ -22,6 +24,7 @@ import scriptease.translator.codegenerator.code.contexts.storycomponent.KnowItCo
 import scriptease.translator.codegenerator.code.contexts.storycomponent.StoryComponentContext;
 import scriptease.translator.codegenerator.code.contexts.storycomponent.complexstorycomponent.scriptit.ScriptItContext;
 import scriptease.translator.codegenerator.code.fragments.AbstractFragment;
+import scriptease.util.StringOp;
 
 /**
  * Represents a location where a sequence of related code tokens must be
@@ -146,16 +149,16 @@ public class SeriesFragment extends AbstractContainerFragment {
 
 	@Override
 	public String resolve(Context context) {
-		super.resolve(context);
+		return this.resolveToString(context);
+	}
 
-		final StringBuilder code;
+	@Override
+	public void resolve(Context context, Appendable code) throws IOException {
 		final Iterator<? extends Object> it;
 		Object next;
 		final ContextFactory contextFactory = ContextFactory.getInstance();
 		Context newContext;
 
-		code = new StringBuilder();
-
 		it = this.buildDataIterator(context);
 
 		boolean firstIteration = true;
@@ -172,12 +175,10 @@ public class SeriesFragment extends AbstractContainerFragment {
 				else
 					firstIteration = false;
 
-				code.append(AbstractFragment.resolveFormat(this.subFragments,
-						newContext));
+				AbstractFragment.resolveFormat(this.subFragments, newContext,
+						code);
 			}
 		}
-
-		return code.toString();
 	}
 
 	/**
@@ -205,9 +206,9 @@ public class SeriesFragment extends AbstractContainerFragment {
 
 		final Type series;
 
-		try {
-			series = Type.valueOf(directiveText.toUpperCase());
-		} catch (IllegalArgumentException e) {
+		series = this.getDirectiveValue(Type.class);
+
+		if (series == null) {
 			System.out.println("Couldn't find the value of : " + directiveText);
 			return null;
 		}
@@ -316,13 +317,14 @@ public class SeriesFragment extends AbstractContainerFragment {
 	}
 
 	/**
-	 * A filter for series.
+	 * A filter for series. The filter itself is never changed by filtering,
+	 * so the same series can be resolved by several threads at once.
 	 * 
 	 */
-	public class SeriesFilter extends StoryAdapter {
+	public class SeriesFilter {
 		private final String value;
 		private final FilterType type;
-		private ArrayList<Object> filtered;
+		private final Pattern pattern;
 
 		public String getValue() {
 			return this.value;
@@ -338,6 +340,17 @@ public class SeriesFragment extends AbstractContainerFragment {
 			else
 				this.value = "";
 			this.type = type;
+
+			// Compile the regex once instead of every time something is
+			// filtered.
+			Pattern pattern;
+			try {
+				pattern = StringOp.getPattern(this.value);
+			} catch (PatternSyntaxException e) {
+				System.err.println(this + " has an invalid regex : " + e);
+				pattern = null;
+			}
+			this.pattern = pattern;
 		}
 
 		/**
@@ -351,23 +364,24 @@ public class SeriesFragment extends AbstractContainerFragment {
 			if (this.type.equals(FilterType.NONE))
 				return toFilter;
 
-			this.filtered = new ArrayList<Object>();
+			final List<Object> filtered = new ArrayList<Object>();
+			final StoryAdapter collector = new FilterCollector(filtered);
 
 			while (toFilter.hasNext()) {
 				Object object = toFilter.next();
 
 				if (object instanceof StoryComponent) {
-					((StoryComponent) object).process(this);
+					((StoryComponent) object).process(collector);
 				} else if (object instanceof String) {
 					if (passesFilter((String) object))
-						this.filtered.add(object);
+						filtered.add(object);
 				} else {
 					System.err
 							.println(this + " cannot filter object " + object);
-					this.filtered.add(object);
+					filtered.add(object);
 				}
 			}
-			return this.filtered.iterator();
+			return filtered.iterator();
 		}
 
 		/**
@@ -377,52 +391,58 @@ public class SeriesFragment extends AbstractContainerFragment {
 		 * @return
 		 */
 		private boolean passesFilter(String text) {
-			try {
-				return text.matches(this.value);
-			} catch (PatternSyntaxException e) {
-				System.err.println(this + " has an invalid regex : " + e);
-			}
-			return false;
-		}
-
-		private void processStoryComponent(StoryComponent component) {
-			if (this.type.equals(FilterType.NAME))
-				if (passesFilter(component.getDisplayText()))
-					this.filtered.add(component);
+			return this.pattern != null && this.pattern.matcher(text).matches();
 		}
 
 		@Override
-		public void processStoryComponentContainer(
-				StoryComponentContainer storyComponentContainer) {
-			this.processStoryComponent(storyComponentContainer);
+		public String toString() {
+			return "SeriesFilter[" + this.value + ", " + this.type + "]";
 		}
 
-		@Override
-		public void processScriptIt(ScriptIt scriptIt) {
-			if (this.type.equals(FilterType.SLOT)) {
-				for (CodeBlock codeBlock : scriptIt.getCodeBlocks()) {
-					if (passesFilter(codeBlock.getSlot())) {
-						this.filtered.add(scriptIt);
-						return;
-					}
-				}
-			} else
-				this.processStoryComponent(scriptIt);
-		}
+		/**
+		 * Adds the story components that pass the filter to a list.
+		 */
+		private class FilterCollector extends StoryAdapter {
+			private final List<Object> filtered;
 
-		@Override
-		public void processKnowIt(KnowIt knowIt) {
-			this.processStoryComponent(knowIt);
-		}
+			private FilterCollector(List<Object> filtered) {
+				this.filtered = filtered;
+			}
 
-		@Override
-		public void processAskIt(AskIt askIt) {
-			this.processStoryComponent(askIt);
-		}
+			private void processStoryComponent(StoryComponent component) {
+				if (SeriesFilter.this.type.equals(FilterType.NAME))
+					if (passesFilter(component.getDisplayText()))
+						this.filtered.add(component);
+			}
 
-		@Override
-		public String toString() {
-			return "SeriesFilter[" + this.value + ", " + this.type + "]";
+			@Override
+			public void processStoryComponentContainer(
+					StoryComponentContainer storyComponentContainer) {
+				this.processStoryComponent(storyComponentContainer);
+			}
+
+			@Override
+			public void processScriptIt(ScriptIt scriptIt) {
+				if (SeriesFilter.this.type.equals(FilterType.SLOT)) {
+					for (CodeBlock codeBlock : scriptIt.getCodeBlocks()) {
+						if (passesFilter(codeBlock.getSlot())) {
+							this.filtered.add(scriptIt);
+							return;
+						}
+					}
+				} else
+					this.processStoryComponent(scriptIt);
+			}
+
+			@Override
+			public void processKnowIt(KnowIt knowIt) {
+				this.processStoryComponent(knowIt);
+			}
+
+			@Override
+			public void processAskIt(AskIt askIt) {
+				this.processStoryComponent(askIt);
+			}
 		}
 	}
 
@@ -5,8 +5,8 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashMap;
-import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -15,8 +15,13 @@ import scriptease.controller.StoryAdapter;
 import scriptease.model.CodeBlock;
 import scriptease.model.StoryComponent;
 import scriptease.model.atomic.KnowIt;
+import scriptease.model.atomic.knowitbindings.KnowItBinding;
+import scriptease.model.atomic.knowitbindings.KnowItBindingAutomatic;
+import scriptease.model.atomic.knowitbindings.KnowItBindingNull;
+import scriptease.model.atomic.knowitbindings.KnowItBindingResource;
 import scriptease.model.complex.ComplexStoryComponent;
 import scriptease.model.complex.ScriptIt;
+import scriptease.model.semodel.StoryModel;
 import scriptease.model.semodel.dialogue.DialogueLine;
 import scriptease.translator.codegenerator.ScriptInfo;
 
@@ -154,19 +159,26 @@ public abstract class GameModule {
 	 * Writes the given script to this GameModule module, and attaches a script
 	 * reference to the template supplied via ScriptInfo into the given slot,
 	 * also stored in ScriptInfo. It is up to the specific implementation of
-	 * GameModule to distinguish between different types of Templates.
+	 * GameModule to distinguish between different types of Templates.<br>
+	 * <br>
+	 * If the translator shares functions between scripts, one of the scripts
+	 * is an include file that the others include by name. It is not attached
+	 * to any slot. See {@link ScriptInfo#isInclude()}.
 	 * 
 	 * @param scripts
 	 *            A list of scripts to be written to file.
+	 * @param story
+	 *            The story that the scripts were generated from.
 	 * @see ScriptInfo
 	 */
-	public abstract void addScripts(Collection<ScriptInfo> scripts);
+	public abstract void addScripts(Collection<ScriptInfo> scripts,
+			StoryModel story);
 
 	/**
 	 * Adds the collection of include files to the resources list. It does this
 	 * in a very similar fashion to addScripts.
 	 * 
-	 * @see #addScripts(Collection)
+	 * @see #addScripts(Collection, StoryModel)
 	 */
 	public abstract void addIncludeFiles(Collection<File> includeFiles);
 
@@ -214,11 +226,12 @@ public abstract class GameModule {
 	 */
 	public Collection<Set<CodeBlock>> aggregateScripts(
 			Collection<StoryComponent> roots) {
-		final Map<String, List<CodeBlock>> subjectToCodeBlocks;
+		final Map<ScriptKey, List<CodeBlock>> subjectToCodeBlocks;
 		final StoryAdapter codeBlockMapper;
 		final List<Set<CodeBlock>> scriptBuckets;
 
-		subjectToCodeBlocks = new HashMap<String, List<CodeBlock>>();
+		// Linked so that the buckets always come out in the same order.
+		subjectToCodeBlocks = new LinkedHashMap<ScriptKey, List<CodeBlock>>();
 		scriptBuckets = new ArrayList<Set<CodeBlock>>();
 
 		// Split the story tree into groups by CodeBlock info.
@@ -232,26 +245,22 @@ public abstract class GameModule {
 			@Override
 			public void processScriptIt(ScriptIt scriptIt) {
 				for (CodeBlock codeBlock : scriptIt.getCodeBlocks()) {
-					final String slot;
 					final KnowIt subject;
-					final String key;
-					final List<CodeBlock> bucket;
-					final List<CodeBlock> existingBucket;
+					final ScriptKey key;
+					List<CodeBlock> bucket;
 
-					slot = codeBlock.getSlot();
 					subject = codeBlock.getSubject();
-					key = subject.getBinding().toString() + slot;
-
-					bucket = new ArrayList<CodeBlock>();
+					key = new ScriptKey(subject.getBinding(),
+							codeBlock.getSlot());
 
-					existingBucket = subjectToCodeBlocks.get(key);
+					bucket = subjectToCodeBlocks.get(key);
 
-					if (existingBucket != null)
-						bucket.addAll(existingBucket);
+					if (bucket == null) {
+						bucket = new ArrayList<CodeBlock>();
+						subjectToCodeBlocks.put(key, bucket);
+					}
 
 					bucket.add(codeBlock);
-
-					subjectToCodeBlocks.put(key, bucket);
 				}
 				this.defaultProcessComplex(scriptIt);
 			}
@@ -262,17 +271,82 @@ public abstract class GameModule {
 		}
 
 		// Sort CodeBlocks into groups.
-		for (String key : subjectToCodeBlocks.keySet()) {
-			final Set<CodeBlock> codeBlockGroup = new HashSet<CodeBlock>();
-			for (CodeBlock codeBlock : subjectToCodeBlocks.get(key)) {
-				codeBlockGroup.add(codeBlock);
-			}
-			scriptBuckets.add(codeBlockGroup);
+		for (List<CodeBlock> bucket : subjectToCodeBlocks.values()) {
+			scriptBuckets.add(new LinkedHashSet<CodeBlock>(bucket));
 		}
 
 		return scriptBuckets;
 	}
 
+	/**
+	 * Identifies the script that a code block is written to by the subject's
+	 * bound value and the slot. Game objects are matched by template ID, since
+	 * that is what the script is attached to in the module, and every other
+	 * value is matched by identity. Keying on the binding's display text would
+	 * put two story points with the same name into the same script.
+	 */
+	private static final class ScriptKey {
+		private final Object subject;
+		private final String slot;
+
+		private ScriptKey(KnowItBinding binding, String slot) {
+			this.subject = ScriptKey.getSubject(binding);
+			this.slot = slot;
+		}
+
+		private static Object getSubject(KnowItBinding binding) {
+			if (binding instanceof KnowItBindingResource) {
+				final KnowItBindingResource resource;
+
+				resource = (KnowItBindingResource) binding;
+
+				if (resource.isIdentifiableGameConstant())
+					return resource.getValue().getTemplateID();
+				else
+					// Simple resources have no template, so group by type.
+					return resource.getFirstType();
+			} else if (binding instanceof KnowItBindingNull
+					|| binding instanceof KnowItBindingAutomatic)
+				// Neither has a value of its own to tell them apart.
+				return binding.getClass();
+			else
+				return binding.getValue();
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (obj instanceof ScriptKey) {
+				final ScriptKey other = (ScriptKey) obj;
+				final boolean sameSubject;
+
+				if (this.subject instanceof String)
+					sameSubject = this.subject.equals(other.subject);
+				else
+					sameSubject = this.subject == other.subject;
+
+				// Code blocks without a cause have no slot.
+				return sameSubject
+						&& (this.slot == null ? other.slot == null : this.slot
+								.equals(other.slot));
+			}
+
+			return false;
+		}
+
+		@Override
+		public int hashCode() {
+			final int subjectHash;
+
+			if (this.subject instanceof String)
+				subjectHash = this.subject.hashCode();
+			else
+				subjectHash = System.identityHashCode(this.subject);
+
+			return 31 * subjectHash
+					+ (this.slot == null ? 0 : this.slot.hashCode());
+		}
+	}
+
 	/**
 	 * This returns the keyword for the image type. It is used in
 	 * {@link DialogueLine}s right now but may have other functionality in the
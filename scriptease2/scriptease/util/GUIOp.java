@@ -10,6 +10,7 @@ import java.awt.FontMetrics;
 import java.awt.GradientPaint;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
+import java.awt.GraphicsEnvironment;
 import java.awt.Point;
 import java.awt.Rectangle;
 import java.awt.RenderingHints;
@@ -450,7 +451,8 @@ public class GUIOp {
 
 		Cursor customCursor = null;
 
-		if (name != null) {
+		// Custom cursors can not be made without a display.
+		if (name != null && !GraphicsEnvironment.isHeadless()) {
 			resultingCursorPath = "scriptease/resources/icons/cursors/" + name
 					+ ".png";
 			file = FileOp.getFileResource(resultingCursorPath);
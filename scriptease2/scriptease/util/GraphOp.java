@@ -0,0 +1,108 @@
+package scriptease.util;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Common operations on directed acyclic graphs, such as the story graph and
+ * the graphs drawn by the SEGraph. The graph is given by a start node and a
+ * {@link Successors} that finds the nodes that come directly after each node.
+ * Nodes are compared by identity.
+ */
+public class GraphOp {
+
+	/**
+	 * Finds the nodes that come directly after a node in a graph.
+	 * 
+	 * @param <E>
+	 */
+	public static interface Successors<E> {
+		public Collection<? extends E> getSuccessors(E node);
+	}
+
+	/**
+	 * Returns a map of the start node and all of the nodes after it to how far
+	 * away they are from the start node, along the longest path. Naturally,
+	 * the start node will have a value of "0". This takes time linear in the
+	 * size of the graph.
+	 * 
+	 * @param <E>
+	 * @param start
+	 * @param successors
+	 * @return
+	 */
+	public static <E> Map<E, Integer> createDepthMap(E start,
+			Successors<E> successors) {
+		final Map<E, Integer> depthMap = new IdentityHashMap<E, Integer>();
+
+		depthMap.put(start, 0);
+
+		/*
+		 * Every parent of a node comes before it in topological order, so the
+		 * depth of each node is final by the time we get to it. Pushing it on
+		 * to each successor finds the longest path to every node.
+		 */
+		for (E node : GraphOp.findTopologicalOrder(start, successors)) {
+			final int depth = depthMap.get(node) + 1;
+
+			for (E successor : successors.getSuccessors(node)) {
+				final Integer successorDepth = depthMap.get(successor);
+
+				if (successorDepth == null || depth > successorDepth)
+					depthMap.put(successor, depth);
+			}
+		}
+
+		return depthMap;
+	}
+
+	/**
+	 * Returns the start node and all of the nodes after it in an order where
+	 * every node comes before its successors. This is the reverse of the order
+	 * in which a depth first search finishes with each node.
+	 * 
+	 * @param <E>
+	 * @param start
+	 * @param successors
+	 * @return
+	 */
+	public static <E> List<E> findTopologicalOrder(E start,
+			Successors<E> successors) {
+		final List<E> finished = new ArrayList<E>();
+		final Map<E, Boolean> visited = new IdentityHashMap<E, Boolean>();
+		final Deque<E> nodes = new ArrayDeque<E>();
+		final Deque<Iterator<? extends E>> iterators = new ArrayDeque<Iterator<? extends E>>();
+
+		visited.put(start, Boolean.TRUE);
+		nodes.push(start);
+		iterators.push(successors.getSuccessors(start).iterator());
+
+		while (!nodes.isEmpty()) {
+			final Iterator<? extends E> iterator = iterators.peek();
+
+			if (iterator.hasNext()) {
+				final E successor = iterator.next();
+
+				if (visited.put(successor, Boolean.TRUE) == null) {
+					nodes.push(successor);
+					iterators.push(successors.getSuccessors(successor)
+							.iterator());
+				}
+			} else {
+				finished.add(nodes.pop());
+				iterators.pop();
+			}
+		}
+
+		Collections.reverse(finished);
+
+		return finished;
+	}
+}
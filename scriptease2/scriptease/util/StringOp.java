@@ -2,6 +2,8 @@ package scriptease.util;
 
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -17,6 +19,29 @@ public class StringOp {
 	private static final String XML_EQUIV[] = { "&amp;", "&apos;", "&quot;",
 			"&lt;", "&gt;" };
 
+	/*
+	 * Patterns compiled by getPattern, keyed by their regex. Translators only
+	 * use a handful of regexes, so these are never removed.
+	 */
+	private static final ConcurrentMap<String, Pattern> PATTERNS = new ConcurrentHashMap<String, Pattern>();
+
+	/*
+	 * Matches regexes made of a single character class that may be repeated
+	 * any number of times, such as "[a-zA-Z_0-9]+". Whether a string matches
+	 * one of these only depends on each of its characters on their own.
+	 */
+	private static final Pattern CHARACTER_CLASS_REGEX = Pattern
+			.compile("\\^?\\[(?:[^\\[\\]\\\\]|\\\\.)+\\][*+]\\$?");
+
+	/*
+	 * The legal characters of each character class regex, keyed by the regex
+	 * and its flags. Regexes that are not character classes map to
+	 * NOT_A_CHARACTER_CLASS.
+	 */
+	private static final ConcurrentMap<String, LegalCharacters> LEGAL_CHARACTERS = new ConcurrentHashMap<String, LegalCharacters>();
+	private static final LegalCharacters NOT_A_CHARACTER_CLASS = new LegalCharacters(
+			null);
+
 	/**
 	 * Makes the given string entirely lower case except for the first
 	 * character, which is made upper case.
@@ -187,7 +212,7 @@ public class StringOp {
 			Pattern legalFormat, boolean setUpperCase) {
 		if (legalFormat == null)
 			return source;
-		Matcher legalMatcher = legalFormat.matcher(source);
+		final Matcher legalMatcher = legalFormat.matcher(source);
 
 		if (!StringOp.exists(source)) {
 			throw new IllegalArgumentException(
@@ -196,27 +221,94 @@ public class StringOp {
 		if (legalMatcher.matches()) {
 			return source;
 		} else {
-			String newSource = "";
+			final LegalCharacters legalCharacters;
+			final StringBuilder newSource;
+
+			legalCharacters = StringOp.getLegalCharacters(legalFormat);
+			newSource = new StringBuilder(source.length());
 
+			// Upper casing can add characters the pattern does not allow, after
+			// which nothing else can match.
+			boolean newSourceLegal = true;
 			boolean matchedPreviousChar = false;
-			for (char curChar : source.toCharArray()) {
+			for (int i = 0; i < source.length(); i++) {
+				final char curChar = source.charAt(i);
+				final boolean legal;
+
+				// Surrogates may combine with the previous character, so we
+				// have to check them against the whole string.
+				if (legalCharacters != NOT_A_CHARACTER_CLASS
+						&& !Character.isHighSurrogate(curChar)
+						&& !Character.isLowSurrogate(curChar))
+					legal = newSourceLegal && legalCharacters.isLegal(curChar);
+				else {
+					newSource.append(curChar);
+					legal = legalMatcher.reset(newSource).matches();
+					newSource.setLength(newSource.length() - 1);
+				}
 
-				legalMatcher = legalFormat.matcher(newSource + curChar);
+				if (legal) {
+					if (setUpperCase && !matchedPreviousChar) {
+						final char upperChar = Character.toUpperCase(curChar);
 
-				if (legalMatcher.matches()) {
-					if (setUpperCase && !matchedPreviousChar)
-						newSource += Character.toUpperCase(curChar);
-					else
-						newSource += curChar;
+						if (legalCharacters != NOT_A_CHARACTER_CLASS
+								&& upperChar != curChar
+								&& !legalCharacters.isLegal(upperChar))
+							newSourceLegal = false;
+
+						newSource.append(upperChar);
+					} else
+						newSource.append(curChar);
 					matchedPreviousChar = true;
 				} else {
 					matchedPreviousChar = false;
 				}
 			}
-			return newSource;
+			return newSource.toString();
 		}
 	}
 
+	/**
+	 * Returns the pattern for the passed in regex. Patterns are only compiled
+	 * once for each regex, and are then shared by everyone who asks for them.
+	 * 
+	 * @param regex
+	 * @return
+	 */
+	public static Pattern getPattern(String regex) {
+		Pattern pattern = PATTERNS.get(regex);
+
+		if (pattern == null) {
+			pattern = Pattern.compile(regex);
+			PATTERNS.putIfAbsent(regex, pattern);
+		}
+
+		return pattern;
+	}
+
+	/**
+	 * Returns the legal characters of the pattern if it is a repeated
+	 * character class, or {@link #NOT_A_CHARACTER_CLASS} otherwise.
+	 * 
+	 * @param pattern
+	 * @return
+	 */
+	private static LegalCharacters getLegalCharacters(Pattern pattern) {
+		final String key = pattern.flags() + ":" + pattern.pattern();
+		LegalCharacters legalCharacters = LEGAL_CHARACTERS.get(key);
+
+		if (legalCharacters == null) {
+			if (CHARACTER_CLASS_REGEX.matcher(pattern.pattern()).matches())
+				legalCharacters = new LegalCharacters(pattern);
+			else
+				legalCharacters = NOT_A_CHARACTER_CLASS;
+
+			LEGAL_CHARACTERS.putIfAbsent(key, legalCharacters);
+		}
+
+		return legalCharacters;
+	}
+
 	/**
 	 * Appends "se_" to the given source string if the first character is not a
 	 * letter
@@ -375,4 +467,35 @@ public class StringOp {
 	public static boolean exists(String string) {
 		return string != null && !string.isEmpty();
 	}
+
+	/**
+	 * The characters legal in a character class pattern. ASCII characters are
+	 * looked up in a table, and anything else is checked against the pattern
+	 * on its own.
+	 */
+	private static class LegalCharacters {
+		private final Pattern pattern;
+		private final boolean[] ascii;
+
+		private LegalCharacters(Pattern pattern) {
+			this.pattern = pattern;
+			this.ascii = new boolean[128];
+
+			if (pattern != null)
+				for (char c = 0; c < this.ascii.length; c++) {
+					this.ascii[c] = this.matches(c);
+				}
+		}
+
+		private boolean matches(char c) {
+			return this.pattern.matcher(String.valueOf(c)).matches();
+		}
+
+		private boolean isLegal(char c) {
+			if (c < this.ascii.length)
+				return this.ascii[c];
+			else
+				return this.matches(c);
+		}
+	}
 }
@@ -0,0 +1,184 @@
+package scriptease.translator.codegenerator;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import scriptease.controller.modelverifier.problem.StoryProblem;
+import scriptease.model.semodel.SEModelManager;
+import scriptease.model.semodel.StoryModel;
+import benchmark.SyntheticGameModule;
+import benchmark.SyntheticStory;
+import benchmark.SyntheticTranslator;
+
+/**
+ * Checks that the {@link CodeGenerator} generates the same scripts no matter
+ * how many threads it uses, or how many stories it generates at once.<br>
+ * <br>
+ * The stories are built by the benchmark's {@link SyntheticStory} with the
+ * synthetic translator, which is loaded from the file given by the
+ * <code>synthetic.translator</code> system property.
+ */
+public class CodeGeneratorTest {
+	private static final int THREADS = 4;
+
+	private static SyntheticTranslator translator;
+
+	private StoryModel story;
+
+	@BeforeClass
+	public static void loadTranslator() throws IOException {
+		CodeGeneratorTest.translator = new SyntheticTranslator(new File(
+				System.getProperty("synthetic.translator",
+						"benchmark/synthetic/translator.ini")));
+	}
+
+	@Before
+	public void setUp() {
+		this.story = CodeGeneratorTest.buildStory(40, 1);
+	}
+
+	@After
+	public void tearDown() {
+		SEModelManager.getInstance().remove(this.story);
+
+		CodeGenerator.getInstance().setThreadCount(
+				Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Buckets are generated on several threads, but the scripts have to come
+	 * back exactly as the serial generator makes them, in the same order.
+	 */
+	@Test
+	public void testParallelMatchesSerial() {
+		final List<String> serial;
+
+		CodeGenerator.getInstance().setThreadCount(1);
+		serial = CodeGeneratorTest.describe(CodeGeneratorTest
+				.generate(this.story));
+
+		Assert.assertFalse(serial.isEmpty());
+
+		CodeGenerator.getInstance().setThreadCount(THREADS);
+
+		for (int i = 0; i < 3; i++) {
+			Assert.assertEquals(serial, CodeGeneratorTest
+					.describe(CodeGeneratorTest.generate(this.story)));
+		}
+	}
+
+	/**
+	 * Each run has its own session, so two stories generated at the same time
+	 * have to come out exactly as they do when generated one after the other.
+	 *
+	 * @throws InterruptedException
+	 * @throws ExecutionException
+	 */
+	@Test
+	public void testConcurrentSessionsMatchSerial()
+			throws InterruptedException, ExecutionException {
+		final StoryModel other = CodeGeneratorTest.buildStory(30, 2);
+		final ExecutorService workers = Executors.newFixedThreadPool(2);
+
+		try {
+			final List<String> serial;
+			final List<String> otherSerial;
+
+			serial = CodeGeneratorTest.describe(CodeGeneratorTest
+					.generate(this.story));
+			otherSerial = CodeGeneratorTest.describe(CodeGeneratorTest
+					.generate(other));
+
+			Assert.assertFalse(serial.equals(otherSerial));
+
+			for (int i = 0; i < 5; i++) {
+				final Future<List<String>> first;
+				final Future<List<String>> second;
+
+				first = workers.submit(CodeGeneratorTest.describer(this.story));
+				second = workers.submit(CodeGeneratorTest.describer(other));
+
+				Assert.assertEquals(serial, first.get());
+				Assert.assertEquals(otherSerial, second.get());
+			}
+		} finally {
+			workers.shutdownNow();
+			SEModelManager.getInstance().remove(other);
+		}
+	}
+
+	private static Callable<List<String>> describer(final StoryModel story) {
+		return new Callable<List<String>>() {
+			@Override
+			public List<String> call() {
+				return CodeGeneratorTest.describe(CodeGeneratorTest
+						.generate(story));
+			}
+		};
+	}
+
+	/**
+	 * Builds a synthetic story with a few causes on every story point and
+	 * makes it the active model.
+	 *
+	 * @param storyPoints
+	 * @param seed
+	 * @return
+	 */
+	static StoryModel buildStory(int storyPoints, long seed) {
+		return new SyntheticStory(storyPoints, 2, 2, 2, 2, seed).build(
+				CodeGeneratorTest.translator, new SyntheticGameModule(10));
+	}
+
+	/**
+	 * Generates code for the story and fails if there were any problems.
+	 *
+	 * @param story
+	 * @return
+	 */
+	static Collection<ScriptInfo> generate(StoryModel story) {
+		final Collection<StoryProblem> problems = new ArrayList<StoryProblem>();
+		final Collection<ScriptInfo> scripts;
+
+		scripts = CodeGenerator.getInstance().generateCode(story, problems);
+
+		Assert.assertTrue(problems.toString(), problems.isEmpty());
+
+		return scripts;
+	}
+
+	/**
+	 * Describes each script by where it goes and what its code is, since
+	 * scripts can not be compared directly.
+	 *
+	 * @param scripts
+	 * @return
+	 */
+	static List<String> describe(Collection<ScriptInfo> scripts) {
+		final List<String> descriptions = new ArrayList<String>();
+
+		for (ScriptInfo script : scripts) {
+			if (script.isInclude())
+				descriptions.add("Include " + script.getIncludeName());
+			else
+				descriptions.add(script.getSubject().getTemplateID() + " "
+						+ script.getSlot() + "\n" + script.getCode());
+		}
+
+		return descriptions;
+	}
+}
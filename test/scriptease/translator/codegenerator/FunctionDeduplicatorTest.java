@@ -0,0 +1,242 @@
+package scriptease.translator.codegenerator;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import scriptease.model.semodel.SEModelManager;
+import scriptease.model.semodel.StoryModel;
+import scriptease.translator.LanguageDictionary.SharedFunctions;
+import scriptease.util.ListOp;
+
+/**
+ * Checks which functions {@link FunctionDeduplicator#share(Collection)} moves
+ * into the shared include, and what is left of each script afterwards. The
+ * scripts are written by hand with the marks that the code generator would
+ * put in, against the synthetic translator's {@link SharedFunctions}.
+ */
+public class FunctionDeduplicatorTest {
+	private static final String LIBRARY = "library";
+
+	private StoryModel story;
+	private FunctionDeduplicator deduplicator;
+	private String lineBreak;
+	private String include;
+
+	@BeforeClass
+	public static void loadTranslator() throws IOException {
+		CodeGeneratorTest.loadTranslator();
+	}
+
+	@Before
+	public void setUp() {
+		final GenerationSession session;
+
+		this.story = CodeGeneratorTest.buildStory(2, 47);
+
+		session = CodeGenerator.getInstance().startSession(this.story, null);
+
+		this.deduplicator = new FunctionDeduplicator(session);
+		this.lineBreak = session.getTranslator().getLanguageDictionary()
+				.getLineBreak();
+		this.include = session.getTranslator().getLanguageDictionary()
+				.getSharedFunctions().getInclude();
+	}
+
+	@After
+	public void tearDown() {
+		SEModelManager.getInstance().remove(this.story);
+	}
+
+	/**
+	 * Two scripts that define the same function get it from the include
+	 * instead, and the include declares and defines it once.
+	 */
+	@Test
+	public void testIdenticalDefinitionsAreShared() throws IOException {
+		final String f = this.function("f", "Library();");
+		final List<ScriptInfo> shared;
+		final ScriptInfo sharedInclude;
+
+		shared = this.deduplicator.share(ListOp.createList(
+				this.script(this.declaration("f"), this.definition("f", f)),
+				this.script(this.declaration("f"), this.definition("f", f))));
+
+		Assert.assertEquals(3, shared.size());
+		Assert.assertEquals(this.includeLine(this.include),
+				shared.get(0).getCode());
+		Assert.assertEquals(this.includeLine(this.include),
+				shared.get(1).getCode());
+
+		sharedInclude = shared.get(2);
+
+		Assert.assertTrue(sharedInclude.isInclude());
+		Assert.assertEquals(this.include, sharedInclude.getIncludeName());
+		Assert.assertEquals(this.includeLine(LIBRARY) + this.lineBreak
+				+ this.declarationText("f") + f, sharedInclude.getCode());
+	}
+
+	/**
+	 * A script that defines a function by the same name as a shared one, but
+	 * differently, can not include the shared file. Without it, a function
+	 * that it had in common with only one other script is not shared either.
+	 */
+	@Test
+	public void testSameNameConflictLeavesScriptOut() throws IOException {
+		final String f = this.function("f", "Library();");
+		final String otherF = this.function("f", "Other();");
+		final String g = this.function("g", "Library();");
+		final List<ScriptInfo> shared;
+
+		shared = this.deduplicator.share(ListOp.createList(
+				this.script(this.definition("f", f), this.definition("g", g)),
+				this.script(this.definition("f", f)),
+				this.script(this.definition("f", otherF),
+						this.definition("g", g))));
+
+		Assert.assertEquals(4, shared.size());
+		Assert.assertEquals(this.includeLine(this.include) + g, shared.get(0)
+				.getCode());
+		Assert.assertEquals(this.includeLine(this.include), shared.get(1)
+				.getCode());
+		Assert.assertEquals(otherF + g, shared.get(2).getCode());
+		Assert.assertEquals(
+				this.includeLine(LIBRARY) + this.lineBreak + f,
+				shared.get(3).getCode());
+	}
+
+	/**
+	 * A function that calls a function that is not shared can not be shared,
+	 * and neither can the functions that call it, however far up the chain
+	 * they are.
+	 */
+	@Test
+	public void testCallsOfFunctionsThatAreNotShared() throws IOException {
+		final String e = this.function("e", "f();");
+		final String f = this.function("f", "g();");
+		final String g = this.function("g", "Library();");
+		final String otherG = this.function("g", "Other();");
+		final String h = this.function("h", "e();");
+		final List<ScriptInfo> shared;
+
+		shared = this.deduplicator.share(ListOp.createList(
+				this.script(this.definition("h", h), this.definition("e", e),
+						this.definition("f", f), this.definition("g", g)),
+				this.script(this.definition("h", h), this.definition("e", e),
+						this.definition("f", f), this.definition("g", otherG))));
+
+		Assert.assertEquals(2, shared.size());
+		Assert.assertEquals(h + e + f + g, shared.get(0).getCode());
+		Assert.assertEquals(h + e + f + otherG, shared.get(1).getCode());
+	}
+
+	/**
+	 * Scripts that do not get any function from the include lose the line
+	 * that includes it, and nothing else.
+	 */
+	@Test
+	public void testScriptsThatShareNothingDropTheInclude() throws IOException {
+		final String f = this.function("f", "Library();");
+		final String k = this.function("k", "Library();");
+		final String before = "// Before" + this.lineBreak;
+		final String after = "// After" + this.lineBreak;
+		final List<ScriptInfo> shared;
+
+		shared = this.deduplicator.share(ListOp.createList(
+				this.script(this.definition("f", f)),
+				this.script(this.definition("f", f)),
+				this.script(before, this.definition("k", k), after),
+				this.script(before, after)));
+
+		Assert.assertEquals(5, shared.size());
+		Assert.assertEquals(before + k + after, shared.get(2).getCode());
+		Assert.assertEquals(before + after, shared.get(3).getCode());
+	}
+
+	/**
+	 * Scripts that include the shared file drop the declarations of the
+	 * functions they get from it, but keep the declarations of their own.
+	 */
+	@Test
+	public void testDeclarationsAreStripped() throws IOException {
+		final String f = this.function("f", "Library();");
+		final String own = this.function("own", "Library();");
+		final String otherOwn = this.function("own", "Other();");
+		final List<ScriptInfo> shared;
+
+		shared = this.deduplicator.share(ListOp.createList(
+				this.script(this.declaration("f"), this.declaration("own"),
+						this.definition("f", f), this.definition("own", own)),
+				this.script(this.declaration("own"), this.declaration("f"),
+						this.definition("own", otherOwn),
+						this.definition("f", f))));
+
+		Assert.assertEquals(3, shared.size());
+		Assert.assertEquals(this.includeLine(this.include)
+				+ this.declarationText("own") + own, shared.get(0).getCode());
+		Assert.assertEquals(this.includeLine(this.include)
+				+ this.declarationText("own") + otherOwn, shared.get(1)
+				.getCode());
+		Assert.assertTrue(shared.get(2).getCode()
+				.contains(this.declarationText("f")));
+	}
+
+	/**
+	 * Builds a script that includes the shared file, followed by the parts.
+	 *
+	 * @param parts
+	 * @return
+	 */
+	private ScriptInfo script(String... parts) {
+		final StringBuilder code = new StringBuilder();
+
+		code.append(this.includeLine(FunctionDeduplicator
+				.markInclude(this.include)));
+
+		for (String part : parts) {
+			code.append(part);
+		}
+
+		return new ScriptInfo(code.toString(), (LocationInformation) null);
+	}
+
+	private String includeLine(String include) {
+		return "#include \"" + include + "\"" + this.lineBreak;
+	}
+
+	private String function(String name, String body) {
+		return "void " + name + "() {" + this.lineBreak + "    " + body
+				+ this.lineBreak + "}" + this.lineBreak;
+	}
+
+	private String declarationText(String name) {
+		return "void " + name + "();" + this.lineBreak;
+	}
+
+	private String definition(String name, String text) throws IOException {
+		final StringBuilder code = new StringBuilder();
+		final Collection<String> includes = new ArrayList<String>();
+
+		includes.add(LIBRARY);
+
+		FunctionDeduplicator.appendDefinition(code, name, includes, text);
+
+		return code.toString();
+	}
+
+	private String declaration(String name) throws IOException {
+		final StringBuilder code = new StringBuilder();
+
+		FunctionDeduplicator.appendDeclaration(code, name,
+				this.declarationText(name));
+
+		return code.toString();
+	}
+}
@@ -0,0 +1,253 @@
+package scriptease.translator.codegenerator;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import scriptease.controller.modelverifier.problem.StoryProblem;
+import scriptease.model.StoryComponent;
+import scriptease.model.complex.ComplexStoryComponent;
+import scriptease.model.complex.ScriptIt;
+import scriptease.model.semodel.SEModelManager;
+import scriptease.model.semodel.StoryModel;
+import scriptease.translator.codegenerator.code.fragments.AbstractFragment;
+import scriptease.translator.codegenerator.code.fragments.LiteralFragment;
+import scriptease.translator.io.model.GameType;
+import scriptease.translator.io.model.Resource;
+import benchmark.SyntheticGameModule;
+
+/**
+ * Checks that the {@link ScriptCache} hands back scripts whose inputs have not
+ * changed, and that changing anything that goes into a script makes it
+ * generate again. Cached runs must always match a run without a cache.
+ */
+public class ScriptCacheTest {
+	private StoryModel story;
+	private CountingCache cache;
+
+	@BeforeClass
+	public static void loadTranslator() throws IOException {
+		CodeGeneratorTest.loadTranslator();
+	}
+
+	@Before
+	public void setUp() {
+		this.story = CodeGeneratorTest.buildStory(20, 2);
+		this.cache = new CountingCache();
+	}
+
+	@After
+	public void tearDown() {
+		SEModelManager.getInstance().remove(this.story);
+	}
+
+	/**
+	 * Generating an unchanged story again takes every script from the cache.
+	 */
+	@Test
+	public void testUnchangedStoryHitsCache() {
+		final List<String> first = this.generateCached();
+		final int scripts = this.cache.puts;
+
+		Assert.assertTrue(scripts > 0);
+		Assert.assertEquals(0, this.cache.hits);
+
+		this.cache.reset();
+
+		Assert.assertEquals(first, this.generateCached());
+		Assert.assertEquals(scripts, this.cache.hits);
+		Assert.assertEquals(0, this.cache.puts);
+		Assert.assertEquals(scripts, this.cache.size());
+	}
+
+	/**
+	 * Changing a binding regenerates the scripts it shows up in, and no
+	 * others.
+	 */
+	@Test
+	public void testChangedBindingRegeneratesItsScripts() {
+		final int scripts;
+		final ScriptIt change;
+		final List<Resource> objects;
+		final Object oldTarget;
+
+		this.generateCached();
+		scripts = this.cache.puts;
+		this.cache.reset();
+
+		change = ScriptCacheTest.findChange(this.story.getRoot());
+		objects = this.story.getModule().getResourcesOfType(
+				SyntheticGameModule.OBJECT_TYPE);
+		oldTarget = change.getParameter("Target").getBinding().getValue();
+
+		change.getParameter("Target").setBinding(
+				objects.get(0).equals(oldTarget) ? objects.get(1) : objects
+						.get(0));
+
+		Assert.assertEquals(CodeGeneratorTest.describe(CodeGeneratorTest
+				.generate(this.story)), this.generateCached());
+		Assert.assertTrue("Nothing was regenerated.", this.cache.puts > 0);
+		Assert.assertTrue("Everything was regenerated.", this.cache.hits > 0);
+		Assert.assertEquals(scripts, this.cache.puts + this.cache.hits);
+	}
+
+	/**
+	 * Game types are part of the translator, which does not change while a
+	 * story is open. It does change between sessions, so a changed format has
+	 * to regenerate everything.
+	 */
+	@Test
+	public void testChangedGameTypeRegeneratesEverything() {
+		final GameType object = this.story.getTranslator().getLibrary()
+				.getType(SyntheticGameModule.OBJECT_TYPE);
+		final Collection<AbstractFragment> oldFormat = object.getFormat();
+		final List<AbstractFragment> newFormat;
+		final List<String> before;
+		final List<String> after;
+		final int scripts;
+
+		before = this.generateCached();
+		scripts = this.cache.puts;
+		this.cache.reset();
+
+		newFormat = new ArrayList<AbstractFragment>(oldFormat);
+		newFormat.set(0, new LiteralFragment("FindObject(\""));
+
+		object.setFormat(newFormat);
+
+		try {
+			after = this.generateCached();
+
+			Assert.assertEquals(CodeGeneratorTest.describe(CodeGeneratorTest
+					.generate(this.story)), after);
+		} finally {
+			object.setFormat(oldFormat);
+		}
+
+		Assert.assertFalse(before.equals(after));
+		Assert.assertEquals(0, this.cache.hits);
+		Assert.assertEquals(scripts, this.cache.puts);
+	}
+
+	/**
+	 * A cache written to disk and read back still hits.
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	public void testWrittenCacheStillHits() throws IOException {
+		final File location = File.createTempFile("scriptcache", ".gz");
+		final List<String> first = this.generateCached();
+		final int scripts = this.cache.puts;
+
+		try {
+			this.cache.write(location);
+			this.cache = new CountingCache(ScriptCache.read(location));
+		} finally {
+			location.delete();
+		}
+
+		Assert.assertEquals(first, this.generateCached());
+		Assert.assertEquals(scripts, this.cache.hits);
+		Assert.assertEquals(0, this.cache.puts);
+	}
+
+	private List<String> generateCached() {
+		final Collection<StoryProblem> problems = new ArrayList<StoryProblem>();
+		final CodeGenerator generator = CodeGenerator.getInstance();
+		final Collection<ScriptInfo> scripts;
+
+		scripts = generator.generateCode(
+				generator.startSession(this.story, this.cache), problems);
+
+		Assert.assertTrue(problems.toString(), problems.isEmpty());
+
+		return CodeGeneratorTest.describe(scripts);
+	}
+
+	/**
+	 * Finds the first effect under the component that changes a target.
+	 *
+	 * @param component
+	 * @return
+	 */
+	private static ScriptIt findChange(StoryComponent component) {
+		if (component instanceof ScriptIt
+				&& ((ScriptIt) component).getParameter("Target") != null)
+			return (ScriptIt) component;
+
+		if (component instanceof ComplexStoryComponent)
+			for (StoryComponent child : ((ComplexStoryComponent) component)
+					.getChildren()) {
+				final ScriptIt change = ScriptCacheTest.findChange(child);
+
+				if (change != null)
+					return change;
+			}
+
+		return null;
+	}
+
+	/**
+	 * Counts how many scripts were taken from the cache and how many were
+	 * generated and put into it.
+	 */
+	private static class CountingCache extends ScriptCache {
+		private final ScriptCache cache;
+
+		private int hits;
+		private int puts;
+
+		private CountingCache() {
+			this(new ScriptCache());
+		}
+
+		private CountingCache(ScriptCache cache) {
+			this.cache = cache;
+		}
+
+		@Override
+		public synchronized String get(String fingerprint) {
+			final String code = this.cache.get(fingerprint);
+
+			if (code != null)
+				this.hits++;
+
+			return code;
+		}
+
+		@Override
+		public synchronized void put(String fingerprint, String code) {
+			this.puts++;
+			this.cache.put(fingerprint, code);
+		}
+
+		@Override
+		public synchronized void finishRun() {
+			this.cache.finishRun();
+		}
+
+		@Override
+		public synchronized int size() {
+			return this.cache.size();
+		}
+
+		@Override
+		public synchronized void write(File location) throws IOException {
+			this.cache.write(location);
+		}
+
+		private synchronized void reset() {
+			this.hits = 0;
+			this.puts = 0;
+		}
+	}
+}
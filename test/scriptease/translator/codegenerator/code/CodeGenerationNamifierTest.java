@@ -0,0 +1,192 @@
+package scriptease.translator.codegenerator.code;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Random;
+import java.util.regex.Pattern;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import scriptease.model.StoryComponent;
+import scriptease.model.atomic.KnowIt;
+import scriptease.translator.LanguageDictionary;
+import scriptease.translator.codegenerator.code.fragments.container.FormatDefinitionFragment;
+import scriptease.util.ListOp;
+import scriptease.util.StringOp;
+
+/**
+ * Checks that {@link CodeGenerationNamifier} hands out the same names as the
+ * implementation it replaced, which looked through every name handed out so
+ * far to tell whether a name was taken. Generated code refers to things by
+ * these names, so they have to stay the same.
+ */
+public class CodeGenerationNamifierTest {
+	private static final String[] DISPLAY_TEXTS = { "Door", "door", "Door 1",
+			"Door_1", "Door_0", "1 Door", "Chest", "Chest_a", "Chest a",
+			"while", "", "noname", "Lever!" };
+
+	private static final Pattern[] PATTERNS = {
+			Pattern.compile("^[a-zA-Z]+[0-9a-zA-Z_]*"),
+			Pattern.compile("[a-zA-Z_0-9]+"), null };
+
+	private static final LanguageDictionary DICTIONARY = new LanguageDictionary(
+			"Test", "\t", "\n", "", ListOp.createList("while", "Chest_1"),
+			Collections.<FormatDefinitionFragment> emptyList());
+
+	@Test
+	public void testMatchesOldImplementation() {
+		final Random random = new Random(37);
+
+		for (int run = 0; run < 50; run++) {
+			final CodeGenerationNamifier namifier;
+			final OldNamifier oldNamifier;
+			final List<StoryComponent> components;
+
+			namifier = new CodeGenerationNamifier(DICTIONARY);
+			oldNamifier = new OldNamifier(DICTIONARY);
+			components = new ArrayList<StoryComponent>();
+
+			for (int i = 0; i < 300; i++) {
+				final StoryComponent component;
+				final Pattern pattern;
+
+				// Sometimes ask again for a component that has a name.
+				if (!components.isEmpty() && random.nextInt(4) == 0)
+					component = components.get(random.nextInt(components
+							.size()));
+				else {
+					component = new KnowIt(DISPLAY_TEXTS[random
+							.nextInt(DISPLAY_TEXTS.length)]);
+					components.add(component);
+				}
+
+				pattern = PATTERNS[random.nextInt(PATTERNS.length)];
+
+				Assert.assertEquals("Naming " + component.getDisplayText()
+						+ " in run " + run, CodeGenerationNamifierTest
+						.getUniqueName(oldNamifier, component, pattern),
+						CodeGenerationNamifierTest.getUniqueName(namifier,
+								component, pattern));
+			}
+		}
+	}
+
+	@Test
+	public void testManySimilarNames() {
+		final CodeGenerationNamifier namifier;
+		final List<String> names = new ArrayList<String>();
+
+		namifier = new CodeGenerationNamifier(DICTIONARY);
+
+		for (int i = 0; i < 2000; i++) {
+			names.add(namifier.getUniqueName(new KnowIt("Chest"), null));
+		}
+
+		Assert.assertEquals("Chest", names.get(0));
+		Assert.assertEquals("Chest_0", names.get(1));
+		// Chest_1 is reserved.
+		Assert.assertEquals("Chest_2", names.get(2));
+		Assert.assertEquals("Chest_" + Integer.toString(1999, 36),
+				names.get(1999));
+	}
+
+	private static String getUniqueName(Object namifier,
+			StoryComponent component, Pattern pattern) {
+		try {
+			if (namifier instanceof OldNamifier)
+				return ((OldNamifier) namifier).getUniqueName(component,
+						pattern);
+			else
+				return ((CodeGenerationNamifier) namifier).getUniqueName(
+						component, pattern);
+		} catch (RuntimeException e) {
+			return e.getClass().getName();
+		}
+	}
+
+	/**
+	 * The naming part of the implementation that
+	 * {@link CodeGenerationNamifier} replaced, kept as the reference for its
+	 * names.
+	 */
+	private static class OldNamifier {
+		private static final String defaultPattern = "^[a-zA-Z]+[0-9a-zA-Z_]*";
+		private static final int UNIQUIFY_LIMIT = 10000;
+
+		private final LanguageDictionary languageDictionary;
+		private final Map<StoryComponent, String> componentsToNames;
+
+		private OldNamifier(LanguageDictionary languageDictionary) {
+			this.languageDictionary = languageDictionary;
+
+			this.componentsToNames = new HashMap<StoryComponent, String>();
+		}
+
+		private String getUniqueName(StoryComponent component,
+				Pattern legalFormat) {
+			if (legalFormat == null || legalFormat.pattern().isEmpty())
+				legalFormat = Pattern.compile(defaultPattern);
+
+			String currentName = this.componentsToNames.get(component);
+
+			if (currentName == null || currentName.isEmpty()) {
+				currentName = this.buildLegalName(component, legalFormat);
+
+				this.componentsToNames.put(component, currentName);
+			}
+
+			return currentName;
+		}
+
+		private boolean isNameUnique(String name, StoryComponent component) {
+			if (this.languageDictionary.isReservedWord(name))
+				return false;
+
+			for (Entry<StoryComponent, String> entry : this.componentsToNames
+					.entrySet()) {
+				if (entry.getValue().equals(name)
+						&& entry.getKey() != (component)) {
+					return false;
+				}
+			}
+
+			return true;
+		}
+
+		private String buildLegalName(StoryComponent component,
+				Pattern legalFormat) {
+			final String displayText = component.getDisplayText();
+			String name;
+
+			if (StringOp.exists(displayText)) {
+				name = displayText;
+			} else
+				name = "noname";
+
+			name = StringOp.removeIllegalCharacters(name, legalFormat, true);
+
+			name = StringOp.removeNonCharPrefix(name);
+
+			int counter = 0;
+			while (!this.isNameUnique(name, component)
+					&& counter < UNIQUIFY_LIMIT) {
+				// tack on a counter to the end of the name,
+				name = displayText + "_" + Integer.toString(counter++, 36);
+
+				name = StringOp
+						.removeIllegalCharacters(name, legalFormat, true);
+			}
+
+			if (counter >= UNIQUIFY_LIMIT)
+				throw new IndexOutOfBoundsException("The name " + name
+						+ " already exists.");
+
+			return name;
+		}
+	}
+}
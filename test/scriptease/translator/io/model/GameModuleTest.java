@@ -0,0 +1,302 @@
+package scriptease.translator.io.model;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import scriptease.controller.StoryAdapter;
+import scriptease.model.CodeBlock;
+import scriptease.model.CodeBlockSource;
+import scriptease.model.StoryComponent;
+import scriptease.model.atomic.KnowIt;
+import scriptease.model.complex.ComplexStoryComponent;
+import scriptease.model.complex.ScriptIt;
+import scriptease.model.complex.StoryNode;
+import scriptease.model.complex.StoryPoint;
+import scriptease.model.semodel.SEModelManager;
+import scriptease.model.semodel.StoryModel;
+import scriptease.model.semodel.librarymodel.LibraryModel;
+import scriptease.util.ListOp;
+import benchmark.SyntheticGameModule;
+import benchmark.SyntheticStory;
+import benchmark.SyntheticTranslator;
+
+/**
+ * Checks that {@link GameModule#aggregateScripts(Collection)} puts the code
+ * blocks that go into the same script into the same bucket, and nothing
+ * else.
+ */
+public class GameModuleTest {
+	private static final String SLOT = "OnUpdate";
+	private static final String SUBJECT = "Subject";
+
+	private static SyntheticTranslator translator;
+
+	private SyntheticGameModule module;
+	private StoryModel story;
+
+	@BeforeClass
+	public static void loadTranslator() throws IOException {
+		GameModuleTest.translator = new SyntheticTranslator(new File(
+				System.getProperty("synthetic.translator",
+						"benchmark/synthetic/translator.ini")));
+	}
+
+	@Before
+	public void setUp() {
+		this.module = new SyntheticGameModule(10);
+		this.story = new SyntheticStory(30, 2, 3, 2, 1, 38).build(
+				GameModuleTest.translator, this.module);
+	}
+
+	@After
+	public void tearDown() {
+		SEModelManager.getInstance().remove(this.story);
+	}
+
+	/**
+	 * Every object in the synthetic module has its own name, so the buckets
+	 * have to be the same as the ones the old implementation made by grouping
+	 * on the subject's text and slot. The old buckets came out of a hash map,
+	 * so only the contents of the buckets are compared, not their order.
+	 */
+	@Test
+	public void testBucketsMatchSubjectAndSlot() {
+		final List<StoryComponent> roots = new ArrayList<StoryComponent>();
+		final Collection<Set<CodeBlock>> expected;
+		final Collection<Set<CodeBlock>> actual;
+
+		for (StoryNode node : this.story.getRoot().getOrderedDescendants()) {
+			roots.add(node);
+		}
+
+		expected = GameModuleTest.oldAggregateScripts(roots);
+		actual = this.module.aggregateScripts(roots);
+
+		Assert.assertTrue(expected.size() > 1);
+		Assert.assertEquals(expected.size(), actual.size());
+		Assert.assertEquals(GameModuleTest.toHashSets(expected),
+				GameModuleTest.toHashSets(actual));
+	}
+
+	/**
+	 * Story points with the same name are still different story points, so
+	 * their scripts must not be merged. The same story point twice is one
+	 * script.
+	 */
+	@Test
+	public void testStoryPointsWithTheSameName() {
+		final StoryPoint first = new StoryPoint("Same");
+		final StoryPoint second = new StoryPoint("Same");
+		final List<StoryComponent> roots = new ArrayList<StoryComponent>();
+
+		this.story.getRoot().addSuccessor(first);
+		this.story.getRoot().addSuccessor(second);
+
+		roots.add(GameModuleTest.buildScriptIt(first));
+		roots.add(GameModuleTest.buildScriptIt(second));
+		roots.add(GameModuleTest.buildScriptIt(first));
+
+		Assert.assertEquals(2, this.module.aggregateScripts(roots).size());
+	}
+
+	/**
+	 * Game objects are matched by template ID, since that is what the script
+	 * is attached to, even if they are different instances or share a name.
+	 */
+	@Test
+	public void testResourcesWithTheSameName() {
+		final List<StoryComponent> roots = new ArrayList<StoryComponent>();
+		final List<String> templateIDs = new ArrayList<String>();
+
+		roots.add(GameModuleTest.buildScriptIt(new NamedObject("Same", "a")));
+		roots.add(GameModuleTest.buildScriptIt(new NamedObject("Same", "b")));
+		roots.add(GameModuleTest.buildScriptIt(new NamedObject("Other", "a")));
+
+		for (Set<CodeBlock> bucket : this.module.aggregateScripts(roots)) {
+			final Resource subject = (Resource) bucket.iterator().next()
+					.getSubject().getBinding().getValue();
+
+			templateIDs.add(subject.getTemplateID());
+		}
+
+		Assert.assertEquals(ListOp.createList("a", "b"), templateIDs);
+	}
+
+	private static Set<Set<CodeBlock>> toHashSets(
+			Collection<Set<CodeBlock>> buckets) {
+		final Set<Set<CodeBlock>> sets = new HashSet<Set<CodeBlock>>();
+
+		for (Set<CodeBlock> bucket : buckets) {
+			sets.add(new HashSet<CodeBlock>(bucket));
+		}
+
+		return sets;
+	}
+
+	/**
+	 * The implementation that {@link GameModule#aggregateScripts(Collection)}
+	 * replaced, kept as the reference for its buckets. It grouped code blocks
+	 * on the text of their subject's binding and their slot.
+	 */
+	private static Collection<Set<CodeBlock>> oldAggregateScripts(
+			Collection<StoryComponent> roots) {
+		final Map<String, List<CodeBlock>> subjectToCodeBlocks;
+		final StoryAdapter codeBlockMapper;
+		final List<Set<CodeBlock>> scriptBuckets;
+
+		subjectToCodeBlocks = new HashMap<String, List<CodeBlock>>();
+		scriptBuckets = new ArrayList<Set<CodeBlock>>();
+
+		codeBlockMapper = new StoryAdapter() {
+			@Override
+			protected void defaultProcessComplex(ComplexStoryComponent complex) {
+				complex.processChildren(this);
+			}
+
+			@Override
+			public void processScriptIt(ScriptIt scriptIt) {
+				for (CodeBlock codeBlock : scriptIt.getCodeBlocks()) {
+					final String slot;
+					final KnowIt subject;
+					final String key;
+					final List<CodeBlock> bucket;
+					final List<CodeBlock> existingBucket;
+
+					slot = codeBlock.getSlot();
+					subject = codeBlock.getSubject();
+					key = subject.getBinding().toString() + slot;
+
+					bucket = new ArrayList<CodeBlock>();
+
+					existingBucket = subjectToCodeBlocks.get(key);
+
+					if (existingBucket != null)
+						bucket.addAll(existingBucket);
+
+					bucket.add(codeBlock);
+
+					subjectToCodeBlocks.put(key, bucket);
+				}
+				this.defaultProcessComplex(scriptIt);
+			}
+		};
+
+		for (StoryComponent root : roots) {
+			root.process(codeBlockMapper);
+		}
+
+		for (String key : subjectToCodeBlocks.keySet()) {
+			final Set<CodeBlock> codeBlockGroup = new HashSet<CodeBlock>();
+			for (CodeBlock codeBlock : subjectToCodeBlocks.get(key)) {
+				codeBlockGroup.add(codeBlock);
+			}
+			scriptBuckets.add(codeBlockGroup);
+		}
+
+		return scriptBuckets;
+	}
+
+	private static ScriptIt buildScriptIt(StoryPoint subject) {
+		final KnowIt subjectKnowIt = GameModuleTest.buildSubject(ListOp
+				.createList(GameType.STORY_POINT_TYPE));
+
+		subjectKnowIt.setBinding(subject);
+
+		Assert.assertSame(subject, subjectKnowIt.getBinding().getValue());
+
+		return GameModuleTest.buildScriptIt(subjectKnowIt);
+	}
+
+	private static ScriptIt buildScriptIt(Resource subject) {
+		final KnowIt subjectKnowIt = GameModuleTest.buildSubject(subject
+				.getTypes());
+
+		subjectKnowIt.setBinding(subject);
+
+		Assert.assertSame(subject, subjectKnowIt.getBinding().getValue());
+
+		return GameModuleTest.buildScriptIt(subjectKnowIt);
+	}
+
+	private static KnowIt buildSubject(Collection<String> types) {
+		return new KnowIt(LibraryModel.getNonLibrary(), SUBJECT, types);
+	}
+
+	private static ScriptIt buildScriptIt(KnowIt subject) {
+		final LibraryModel library = LibraryModel.getNonLibrary();
+		final ScriptIt scriptIt = new ScriptIt(library, SLOT);
+
+		scriptIt.addCodeBlock(new CodeBlockSource(SUBJECT, SLOT, ListOp
+				.createList(subject), library));
+
+		return scriptIt;
+	}
+
+	/**
+	 * A game object whose name does not have to be unique.
+	 */
+	private static class NamedObject extends Resource {
+		private final String name;
+		private final String templateID;
+
+		private NamedObject(String name, String templateID) {
+			this.name = name;
+			this.templateID = templateID;
+		}
+
+		@Override
+		public Collection<String> getTypes() {
+			return ListOp.createList(SyntheticGameModule.OBJECT_TYPE);
+		}
+
+		@Override
+		public String getName() {
+			return this.name;
+		}
+
+		@Override
+		public String getTag() {
+			return this.name;
+		}
+
+		@Override
+		public String getTemplateID() {
+			return this.templateID;
+		}
+
+		@Override
+		public String getCodeText() {
+			return this.name;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			return obj instanceof NamedObject
+					&& this.name.equals(((NamedObject) obj).name)
+					&& this.templateID.equals(((NamedObject) obj).templateID);
+		}
+
+		@Override
+		public int hashCode() {
+			return this.name.hashCode() ^ this.templateID.hashCode();
+		}
+
+		@Override
+		public String toString() {
+			return this.name;
+		}
+	}
+}
@@ -0,0 +1,150 @@
+package scriptease.util;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import scriptease.gui.SEGraph.models.StoryNodeGraphModel;
+import scriptease.model.complex.StoryNode;
+import scriptease.model.complex.StoryPoint;
+
+/**
+ * Checks that {@link GraphOp#createDepthMap(Object, GraphOp.Successors)} and
+ * the depth maps of the story and the SEGraph give the same depths as the
+ * recursive search they replaced, which followed every path from the start
+ * node. Layout, story metrics and code generation all depend on these depths.
+ */
+public class GraphOpTest {
+	private static final GraphOp.Successors<StoryNode> STORY_SUCCESSORS = new GraphOp.Successors<StoryNode>() {
+		@Override
+		public Collection<StoryNode> getSuccessors(StoryNode node) {
+			return node.getSuccessors();
+		}
+	};
+
+	/**
+	 * The old search takes time exponential in the number of merges, so the
+	 * random graphs have to stay small.
+	 */
+	private static final int NODES = 25;
+
+	@Test
+	public void testMatchesOldImplementation() {
+		final Random random = new Random(50);
+
+		for (int run = 0; run < 200; run++) {
+			final List<StoryPoint> points;
+			final StoryPoint start;
+			final Map<StoryNode, Integer> expected;
+
+			points = GraphOpTest.buildRandomGraph(random);
+			start = points.get(0);
+			expected = GraphOpTest.oldCreateDepthMap(start, STORY_SUCCESSORS);
+
+			Assert.assertEquals("Run " + run, expected,
+					GraphOp.createDepthMap(start, STORY_SUCCESSORS));
+			Assert.assertEquals("Run " + run, expected,
+					start.createDepthMap());
+			Assert.assertEquals("Run " + run, expected,
+					new StoryNodeGraphModel(start).getDepthMap());
+		}
+	}
+
+	/**
+	 * A chain of diamonds has twice as many paths after every diamond, which
+	 * the old search could not get through.
+	 */
+	@Test
+	public void testLongChainOfDiamonds() {
+		final int diamonds = 5000;
+		final StoryPoint start = new StoryPoint("start");
+		final Map<StoryNode, Integer> depthMap;
+		StoryPoint end = start;
+
+		for (int i = 0; i < diamonds; i++) {
+			final StoryPoint left = new StoryPoint("left" + i);
+			final StoryPoint right = new StoryPoint("right" + i);
+			final StoryPoint merge = new StoryPoint("merge" + i);
+
+			end.addSuccessor(left);
+			end.addSuccessor(right);
+			left.addSuccessor(merge);
+			right.addSuccessor(merge);
+
+			end = merge;
+		}
+
+		depthMap = start.createDepthMap();
+
+		Assert.assertEquals(3 * diamonds + 1, depthMap.size());
+		Assert.assertEquals(Integer.valueOf(0), depthMap.get(start));
+		Assert.assertEquals(Integer.valueOf(2 * diamonds), depthMap.get(end));
+	}
+
+	/**
+	 * Builds story points where each one can only lead to points after it, so
+	 * that there are no cycles. Some points can not be reached from the first
+	 * one, and some paths skip ahead so that nodes are reached along paths of
+	 * different lengths.
+	 *
+	 * @param random
+	 * @return
+	 */
+	private static List<StoryPoint> buildRandomGraph(Random random) {
+		final List<StoryPoint> points = new ArrayList<StoryPoint>();
+		final double density = 0.05 + random.nextDouble() * 0.2;
+
+		for (int i = 0; i < NODES; i++) {
+			points.add(new StoryPoint("point" + i));
+		}
+
+		for (int i = 0; i < NODES; i++) {
+			for (int j = i + 1; j < NODES; j++) {
+				if (random.nextDouble() < density)
+					points.get(i).addSuccessor(points.get(j));
+			}
+		}
+
+		return points;
+	}
+
+	/**
+	 * The recursive search that
+	 * {@link GraphOp#createDepthMap(Object, GraphOp.Successors)} replaced,
+	 * kept as the reference for its depths.
+	 */
+	private static <E> Map<E, Integer> oldCreateDepthMap(E node,
+			GraphOp.Successors<E> successors) {
+		final Map<E, Integer> depthMap = new IdentityHashMap<E, Integer>();
+
+		for (E successor : successors.getSuccessors(node)) {
+			final Map<E, Integer> childDepthMap;
+
+			childDepthMap = GraphOpTest.oldCreateDepthMap(successor,
+					successors);
+
+			for (Entry<E, Integer> entry : childDepthMap.entrySet()) {
+				final E childNode = entry.getKey();
+				final Integer depth = entry.getValue() + 1;
+
+				if (depthMap.containsKey(childNode)) {
+					if (depth > depthMap.get(childNode))
+						depthMap.put(childNode, depth);
+				} else
+					depthMap.put(childNode, depth);
+			}
+		}
+
+		if (!depthMap.containsKey(node))
+			depthMap.put(node, 0);
+
+		return depthMap;
+	}
+}
@@ -0,0 +1,129 @@
+package scriptease.util;
+
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Checks {@link StringOp#removeIllegalCharacters(String, Pattern, boolean)}
+ * against the implementation it replaced, which tested every prefix of the
+ * result against the pattern. The output has to stay the same, since it names
+ * things in the generated code.
+ */
+public class StringOpTest {
+	/*
+	 * Every legal value pattern used by the translators, and a few patterns
+	 * with non-ASCII characters and flags.
+	 */
+	private static final Pattern[] PATTERNS = {
+			Pattern.compile("^[a-zA-Z]+[0-9a-zA-Z_]*"),
+			Pattern.compile("^[a-zA-Z]+[0-9a-zA-Z]*"),
+			Pattern.compile("[a-zA-Z_0-9]+"), Pattern.compile("[a-zA-Z_0-9]*"),
+			Pattern.compile("[^\\\"]*"), Pattern.compile("[^\\n]*"),
+			Pattern.compile("[-+]?[0-9]*\\.?[0-9]+"),
+			Pattern.compile("^[a-z\u00e9\u00df]+$"),
+			Pattern.compile("[a-z]+", Pattern.CASE_INSENSITIVE),
+			Pattern.compile("[\\p{L}]+") };
+
+	/*
+	 * Characters that are legal in some of the patterns and not in others,
+	 * characters whose upper case is not in a pattern that allows them, a
+	 * surrogate pair and a lone surrogate.
+	 */
+	private static final String ALPHABET = "abcxyzABCXYZ0189_-+. \t\n\"\\'$#"
+			+ "\u00e9\u00df\u00ff\u0131\u01c6\u00c9\ud83d\ude00\ud800";
+
+	private static final int STRINGS = 2000;
+
+	@Test
+	public void testMatchesOldImplementation() {
+		final Random random = new Random(36);
+
+		for (Pattern pattern : PATTERNS) {
+			for (int i = 0; i < STRINGS; i++) {
+				final String source = StringOpTest.randomString(random);
+
+				for (boolean upperCase : new boolean[] { false, true }) {
+					Assert.assertEquals("\"" + source + "\" with "
+							+ pattern.pattern() + (upperCase ? " upper" : ""),
+							StringOpTest.oldRemoveIllegalCharacters(source,
+									pattern, upperCase),
+							StringOp.removeIllegalCharacters(source, pattern,
+									upperCase));
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testExamples() {
+		final Pattern name = StringOp.getPattern("^[a-zA-Z]+[0-9a-zA-Z_]*");
+
+		Assert.assertEquals("Story_Point1", StringOp.removeIllegalCharacters(
+				"Story_Point1", name, false));
+		Assert.assertEquals("StoryPoint_1", StringOp.removeIllegalCharacters(
+				"1 Story Point_1", name, false));
+		Assert.assertEquals("StoryPoint", StringOp.removeIllegalCharacters(
+				"story point", name, true));
+		Assert.assertEquals("", StringOp.removeIllegalCharacters("123", name,
+				false));
+		Assert.assertEquals("any text", StringOp.removeIllegalCharacters(
+				"any text", null, false));
+	}
+
+	@Test
+	public void testPatternsAreShared() {
+		final Pattern pattern = StringOp.getPattern("[a-z]+");
+
+		Assert.assertSame(pattern, StringOp.getPattern("[a-z]+"));
+		Assert.assertEquals("[a-z]+", pattern.pattern());
+		Assert.assertNotSame(pattern, StringOp.getPattern("[a-z]*"));
+	}
+
+	private static String randomString(Random random) {
+		final StringBuilder string = new StringBuilder();
+		final int length = 1 + random.nextInt(12);
+
+		for (int i = 0; i < length; i++) {
+			string.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+		}
+
+		return string.toString();
+	}
+
+	/**
+	 * The implementation that
+	 * {@link StringOp#removeIllegalCharacters(String, Pattern, boolean)}
+	 * replaced, kept as the reference for its output.
+	 */
+	private static String oldRemoveIllegalCharacters(String source,
+			Pattern legalFormat, boolean setUpperCase) {
+		Matcher legalMatcher = legalFormat.matcher(source);
+
+		if (legalMatcher.matches()) {
+			return source;
+		} else {
+			String newSource = "";
+
+			boolean matchedPreviousChar = false;
+			for (char curChar : source.toCharArray()) {
+
+				legalMatcher = legalFormat.matcher(newSource + curChar);
+
+				if (legalMatcher.matches()) {
+					if (setUpperCase && !matchedPreviousChar)
+						newSource += Character.toUpperCase(curChar);
+					else
+						newSource += curChar;
+					matchedPreviousChar = true;
+				} else {
+					matchedPreviousChar = false;
+				}
+			}
+			return newSource;
+		}
+	}
+}
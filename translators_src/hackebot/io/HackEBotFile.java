@@ -25,6 +25,7 @@ import scriptease.model.complex.StoryNode;
 import scriptease.model.complex.StoryPoint;
 import scriptease.model.semodel.SEModel;
 import scriptease.model.semodel.SEModelManager;
+import scriptease.model.semodel.StoryModel;
 import scriptease.translator.GameCompilerException;
 import scriptease.translator.Translator;
 import scriptease.translator.TranslatorManager;
@@ -170,7 +171,7 @@ public final class HackEBotFile extends GameModule {
 	}
 
 	@Override
-	public void addScripts(Collection<ScriptInfo> scriptList) {
+	public void addScripts(Collection<ScriptInfo> scriptList, StoryModel story) {
 		for (ScriptInfo scriptInfo : scriptList) {
 			final Resource subject = scriptInfo.getSubject();
 			if (this.botFile.getTemplateID().equals(subject.getTemplateID())){
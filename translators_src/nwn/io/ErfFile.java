@@ -28,12 +28,11 @@ import scriptease.model.atomic.KnowIt;
 import scriptease.model.atomic.knowitbindings.KnowItBindingNull;
 import scriptease.model.atomic.knowitbindings.KnowItBindingStoryPoint;
 import scriptease.model.complex.ScriptIt;
-import scriptease.model.complex.StoryNode;
 import scriptease.model.complex.StoryPoint;
+import scriptease.model.semodel.StoryModel;
 import scriptease.translator.GameCompilerException;
 import scriptease.translator.Translator;
 import scriptease.translator.TranslatorManager;
-import scriptease.translator.codegenerator.CodeGenerator;
 import scriptease.translator.codegenerator.ScriptInfo;
 import scriptease.translator.io.model.GameModule;
 import scriptease.translator.io.model.Resource;
@@ -82,6 +81,12 @@ public final class ErfFile extends GameModule {
 	 */
 	private final List<NWNResource> uncompiledScripts;
 
+	/**
+	 * Include files generated with the scripts. They are compiled along with
+	 * the scripts, but never compiled on their own.
+	 */
+	private final List<NWNResource> generatedIncludes;
+
 	private final Collection<File> includeFiles;
 
 	/**
@@ -111,6 +116,7 @@ public final class ErfFile extends GameModule {
 	public ErfFile() {
 		this.resources = new ArrayList<NWNResource>();
 		this.uncompiledScripts = new ArrayList<NWNResource>();
+		this.generatedIncludes = new ArrayList<NWNResource>();
 		this.includeFiles = new ArrayList<File>();
 	}
 
@@ -120,8 +126,11 @@ public final class ErfFile extends GameModule {
 	 * journal is created if one does not already exist.
 	 * 
 	 * @param scriptIt
+	 * @param story
+	 *            The story that the scriptIt is in.
 	 */
-	private void addJournalCategory(final ScriptIt scriptIt) {
+	private void addJournalCategory(final ScriptIt scriptIt,
+			final StoryModel story) {
 		final GeneratedJournalGFF journalGFF = this.getJournalGFF();
 		final GeneratedJournalGFF journal;
 
@@ -147,7 +156,8 @@ public final class ErfFile extends GameModule {
 
 						storyPoint = storyPointBinding.getValue();
 
-						if (!journal.setStoryPoint(storyPoint, scriptIt)) {
+						if (!journal
+								.setStoryPoint(storyPoint, scriptIt, story)) {
 							// If set tag fails, remove binding.
 							try {
 								// Warn the user that more than one journal
@@ -452,18 +462,25 @@ public final class ErfFile extends GameModule {
 	}
 
 	@Override
-	public void addScripts(Collection<ScriptInfo> scriptList) {
+	public void addScripts(Collection<ScriptInfo> scriptList, StoryModel story) {
 		// the 36 here is to get a number in a base 36 number system. Think of
 		// it like hex that uses the whole alphabet.
 		final int radix = 36;
 
 		this.uncompiledScripts.clear();
+		this.generatedIncludes.clear();
 
 		int scriptCounter = 0;
 		for (ScriptInfo scriptInfo : scriptList) {
 			if (scriptInfo == null)
 				continue;
 
+			if (scriptInfo.isInclude()) {
+				this.generatedIncludes.add(this.addScript(
+						scriptInfo.getIncludeName(), scriptInfo.getCode()));
+				continue;
+			}
+
 			final String code;
 			final String idNum;
 			final NWNResource scriptResource;
@@ -499,6 +516,15 @@ public final class ErfFile extends GameModule {
 
 			this.update(receiverResRef, scriptResRef, scriptInfo);
 		}
+
+		for (StoryPoint point : story.getRoot().getStoryPointDescendants()) {
+			for (ScriptIt scriptIt : StoryComponentUtils
+					.getDescendantScriptIts(point)) {
+				if (scriptIt.getDisplayText().equals(
+						GeneratedJournalGFF.EFFECT_CREATE_JOURNAL_TEXT))
+					this.addJournalCategory(scriptIt, story);
+			}
+		}
 	}
 
 	/**
@@ -600,16 +626,6 @@ public final class ErfFile extends GameModule {
 		final long offsetToResourceList;
 		final Collection<NWNResource> journalResources;
 
-		for (StoryNode point : CodeGenerator.getInstance()
-				.getGeneratingStoryPoints()) {
-			for (ScriptIt scriptIt : StoryComponentUtils
-					.getDescendantScriptIts(point)) {
-				if (scriptIt.getDisplayText().equals(
-						GeneratedJournalGFF.EFFECT_CREATE_JOURNAL_TEXT))
-					ErfFile.this.addJournalCategory((ScriptIt) scriptIt);
-			}
-		}
-
 		if (compile) {
 			try {
 				this.compile();
@@ -710,6 +726,17 @@ public final class ErfFile extends GameModule {
 			out.close();
 		}
 
+		for (NWNResource include : this.generatedIncludes) {
+			scriptFile = new File(compilationDir, include.getExtendedResRef()
+					.toLowerCase());
+
+			out = new FileOutputStream(scriptFile);
+
+			include.writeData(out);
+			out.flush();
+			out.close();
+		}
+
 		for (File include : this.includeFiles) {
 			try {
 				String fileName = include.getName();
@@ -6,6 +6,7 @@ import java.util.List;
 
 import scriptease.model.complex.ScriptIt;
 import scriptease.model.complex.StoryPoint;
+import scriptease.model.semodel.StoryModel;
 
 /**
  * We never want more than one Journal GFF in our erf file. This is its own
@@ -77,16 +78,19 @@ public class GeneratedJournalGFF extends GenericFileFormat {
 	 *            The story point that we are assigning
 	 * @param scriptIt
 	 *            The ScriptIt used to find the Category.
+	 * @param story
+	 *            The story that the story point is in.
 	 * @return Returns true if assignment was successful. Unsuccessful
 	 *         assignment can mean that a category with the tag was not found,
 	 *         or a category with the new tag already existed.
 	 */
-	public boolean setStoryPoint(StoryPoint storyPoint, ScriptIt scriptIt) {
+	public boolean setStoryPoint(StoryPoint storyPoint, ScriptIt scriptIt,
+			StoryModel story) {
 		final int MAX_TAG_LEN = 32;
 		final String tag;
 
 		if (storyPoint != null)
-			tag = storyPoint.getUnique32CharName();
+			tag = storyPoint.getUnique32CharName(story);
 		else
 			tag = this.generateDefaultTag();
 
@@ -27,6 +27,7 @@ import scriptease.gui.SEFrame;
 import scriptease.model.StoryComponent;
 import scriptease.model.StoryModelPool;
 import scriptease.model.complex.StartIt;
+import scriptease.model.semodel.StoryModel;
 import scriptease.translator.TranslatorManager;
 import scriptease.translator.codegenerator.ScriptInfo;
 import scriptease.translator.io.model.GameModule;
@@ -42,7 +43,7 @@ public class PinballGameModule implements GameModule {
 	private Map<String, GameObject> objects = new HashMap<String, GameObject>();
 
 	@Override
-	public void addScripts(Collection<ScriptInfo> scripts) {
+	public void addScripts(Collection<ScriptInfo> scripts, StoryModel story) {
 		this.scripts.addAll(scripts);
 	}
 
@@ -0,0 +1,254 @@
+package benchmark;
+
+import io.UnityFile;
+import io.UnityProject;
+import io.constants.UnityType;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Random;
+
+/**
+ * Generates a Unity project on disk that looks enough like a real one for
+ * ScriptEase to load it, without needing Unity installed. The project has
+ * text serialized scenes full of Game Objects arranged in a hierarchy,
+ * prefabs and assets in a Resources folder, and meta files for all of them.<br>
+ * <br>
+ * The same seed always generates the same project.
+ */
+public class SyntheticUnityProject {
+	private static final String ASSETS = UnityProject.ASSETS_FOLDER_NAME;
+	private static final String RESOURCES = UnityProject.RESOURCE_FOLDER_NAME;
+
+	// How many children each game object has in the generated hierarchy.
+	private static final int DEFAULT_FAN_OUT = 4;
+
+	private final int sceneCount;
+	private final int gameObjectsPerScene;
+	private final int prefabCount;
+	private final int assetCount;
+	private final int fanOut;
+	private final Random random;
+
+	/**
+	 * Creates a generator for a project with the passed in dimensions.
+	 * 
+	 * @param sceneCount
+	 * @param gameObjectsPerScene
+	 * @param prefabCount
+	 * @param assetCount
+	 *            The number of audio and image files in the Resources folder.
+	 * @param seed
+	 */
+	public SyntheticUnityProject(int sceneCount, int gameObjectsPerScene,
+			int prefabCount, int assetCount, long seed) {
+		this(sceneCount, gameObjectsPerScene, prefabCount, assetCount,
+				DEFAULT_FAN_OUT, seed);
+	}
+
+	/**
+	 * Creates a generator for a project with the passed in dimensions, where
+	 * each Game Object has up to <code>fanOut</code> children. Wide
+	 * hierarchies give long <code>m_Children</code> sequences.
+	 * 
+	 * @param sceneCount
+	 * @param gameObjectsPerScene
+	 * @param prefabCount
+	 * @param assetCount
+	 *            The number of audio and image files in the Resources folder.
+	 * @param fanOut
+	 * @param seed
+	 */
+	public SyntheticUnityProject(int sceneCount, int gameObjectsPerScene,
+			int prefabCount, int assetCount, int fanOut, long seed) {
+		this.sceneCount = sceneCount;
+		this.gameObjectsPerScene = gameObjectsPerScene;
+		this.prefabCount = prefabCount;
+		this.assetCount = assetCount;
+		this.fanOut = fanOut;
+		this.random = new Random(seed);
+	}
+
+	/**
+	 * Writes the project to the passed in directory, which should be empty.
+	 * 
+	 * @param projectDirectory
+	 * @throws IOException
+	 */
+	public void generate(File projectDirectory) throws IOException {
+		final File assets = new File(projectDirectory, ASSETS);
+		final File resources = new File(assets, RESOURCES);
+
+		resources.mkdirs();
+
+		for (int i = 0; i < this.sceneCount; i++) {
+			final File scene;
+
+			scene = new File(assets, "Scene" + i
+					+ UnityFile.SCENE_FILE_EXTENSION);
+
+			this.writeUnityFile(scene, this.gameObjectsPerScene);
+			this.writeMetaFile(scene);
+		}
+
+		for (int i = 0; i < this.prefabCount; i++) {
+			final File prefab;
+
+			prefab = new File(resources, "Prefab" + i
+					+ UnityFile.PREFAB_FILE_EXTENSION);
+
+			this.writeUnityFile(prefab, 1 + this.random.nextInt(this.fanOut * 2));
+			this.writeMetaFile(prefab);
+		}
+
+		for (int i = 0; i < this.assetCount; i++) {
+			final File asset;
+
+			if (i % 2 == 0)
+				asset = new File(resources, "Sound" + i + ".wav");
+			else
+				asset = new File(resources, "Image" + i + ".png");
+
+			// The contents do not matter, ScriptEase only looks at the name.
+			this.openWriter(asset).close();
+			this.writeMetaFile(asset);
+		}
+	}
+
+	/**
+	 * Writes a scene or prefab with the passed in number of game objects. Each
+	 * game object has a transform, and every fourth has a behaviour attached.
+	 * The transforms form a tree with the fan out's number of children per
+	 * node.
+	 * 
+	 * @param location
+	 * @param gameObjects
+	 * @throws IOException
+	 */
+	private void writeUnityFile(File location, int gameObjects)
+			throws IOException {
+		final Writer writer = this.openWriter(location);
+
+		try {
+			writer.write("%YAML 1.1\n%TAG !u! " + UnityProject.UNITY_TAG + "\n");
+
+			for (int i = 0; i < gameObjects; i++) {
+				final int gameObjectID = this.gameObjectID(i);
+				final int transformID = gameObjectID + 1;
+				final boolean hasBehaviour = i % 4 == 0;
+
+				writer.write("--- !u!" + UnityType.GAMEOBJECT.getID() + " &"
+						+ gameObjectID + "\nGameObject:\n"
+						+ "  m_ObjectHideFlags: 0\n"
+						+ "  m_PrefabParentObject: {fileID: 0}\n"
+						+ "  m_PrefabInternal: {fileID: 0}\n"
+						+ "  serializedVersion: 4\n" + "  m_Component:\n"
+						+ "  - " + UnityType.TRANSFORM.getID()
+						+ ": {fileID: " + transformID + "}\n");
+
+				if (hasBehaviour)
+					writer.write("  - " + UnityType.MONOBEHAVIOUR.getID()
+							+ ": {fileID: " + (gameObjectID + 2) + "}\n");
+
+				writer.write("  m_Layer: 0\n  m_Name: Object" + i + "\n"
+						+ "  m_TagString: Untagged\n"
+						+ "  m_Icon: {fileID: 0}\n"
+						+ "  m_NavMeshLayer: 0\n"
+						+ "  m_StaticEditorFlags: 0\n"
+						+ "  m_IsActive: 1\n");
+
+				writer.write("--- !u!" + UnityType.TRANSFORM.getID() + " &"
+						+ transformID + "\nTransform:\n"
+						+ "  m_ObjectHideFlags: 0\n"
+						+ "  m_PrefabParentObject: {fileID: 0}\n"
+						+ "  m_PrefabInternal: {fileID: 0}\n"
+						+ "  m_GameObject: {fileID: " + gameObjectID + "}\n"
+						+ "  m_LocalRotation: {x: 0, y: "
+						+ this.randomFloat() + ", z: 0, w: 1}\n"
+						+ "  m_LocalPosition: {x: " + this.randomFloat()
+						+ ", y: " + this.randomFloat() + ", z: "
+						+ this.randomFloat() + "}\n"
+						+ "  m_LocalScale: {x: 1, y: 1, z: 1}\n"
+						+ "  m_Children:");
+
+				final int firstChild = i * this.fanOut + 1;
+
+				if (firstChild >= gameObjects)
+					writer.write(" []\n");
+				else {
+					writer.write("\n");
+					for (int child = firstChild; child < firstChild + this.fanOut
+							&& child < gameObjects; child++) {
+						writer.write("  - {fileID: "
+								+ (this.gameObjectID(child) + 1) + "}\n");
+					}
+				}
+
+				writer.write("  m_Father: {fileID: "
+						+ (i == 0 ? 0
+								: this.gameObjectID((i - 1) / this.fanOut) + 1)
+						+ "}\n");
+
+				if (hasBehaviour)
+					writer.write("--- !u!" + UnityType.MONOBEHAVIOUR.getID()
+							+ " &" + (gameObjectID + 2) + "\nMonoBehaviour:\n"
+							+ "  m_ObjectHideFlags: 0\n"
+							+ "  m_PrefabParentObject: {fileID: 0}\n"
+							+ "  m_PrefabInternal: {fileID: 0}\n"
+							+ "  m_GameObject: {fileID: " + gameObjectID
+							+ "}\n" + "  m_Enabled: 1\n"
+							+ "  m_EditorHideFlags: 0\n"
+							+ "  m_Script: {fileID: 11500000, guid: "
+							+ this.randomGUID() + ", type: 3}\n"
+							+ "  m_Name: \n" + "  speed: " + this.randomFloat()
+							+ "\n");
+			}
+		} finally {
+			writer.close();
+		}
+	}
+
+	private void writeMetaFile(File asset) throws IOException {
+		final Writer writer;
+
+		writer = this.openWriter(new File(asset.getPath()
+				+ UnityFile.META_EXTENSION));
+
+		try {
+			writer.write("fileFormatVersion: 2\nguid: " + this.randomGUID()
+					+ "\n");
+		} finally {
+			writer.close();
+		}
+	}
+
+	/**
+	 * Unity spaces IDs out, so we leave room for the transform and behaviour.
+	 */
+	private int gameObjectID(int index) {
+		return 100000 + index * 4;
+	}
+
+	private String randomFloat() {
+		return String.valueOf(Math.round(this.random.nextFloat() * 2000 - 1000) / 100f);
+	}
+
+	private String randomGUID() {
+		final StringBuilder guid = new StringBuilder();
+
+		for (int i = 0; i < 32; i++) {
+			guid.append(Character.forDigit(this.random.nextInt(16), 16));
+		}
+
+		return guid.toString();
+	}
+
+	private Writer openWriter(File file) throws IOException {
+		return new BufferedWriter(new OutputStreamWriter(new FileOutputStream(
+				file), "UTF-8"));
+	}
+}
@@ -0,0 +1,72 @@
+package benchmark;
+
+import io.UnityProject;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * A {@link SyntheticUnityProject} generated into a new temporary directory,
+ * for tests that need a Unity project on disk. Call {@link #delete()} when
+ * done with it.
+ */
+public class TemporaryUnityProject {
+	private final File directory;
+
+	/**
+	 * Generates the project into a new temporary directory whose name starts
+	 * with the passed in prefix.
+	 *
+	 * @param prefix
+	 * @param generator
+	 * @throws IOException
+	 */
+	public TemporaryUnityProject(String prefix,
+			SyntheticUnityProject generator) throws IOException {
+		this.directory = File.createTempFile(prefix, "");
+		this.directory.delete();
+
+		generator.generate(this.directory);
+	}
+
+	public File getDirectory() {
+		return this.directory;
+	}
+
+	/**
+	 * Loads a new {@link UnityProject} from the directory. Each call reads the
+	 * files again, so it sees anything written since the last load.
+	 *
+	 * @return
+	 * @throws IOException
+	 */
+	public UnityProject load() throws IOException {
+		final UnityProject project = new UnityProject();
+
+		project.setLocation(this.directory);
+		project.load(false);
+
+		return project;
+	}
+
+	/**
+	 * Deletes the directory and everything in it.
+	 */
+	public void delete() {
+		TemporaryUnityProject.delete(this.directory);
+	}
+
+	/**
+	 * Deletes the file, or the directory and everything in it.
+	 *
+	 * @param file
+	 */
+	public static void delete(File file) {
+		if (file.isDirectory())
+			for (File child : file.listFiles()) {
+				TemporaryUnityProject.delete(child);
+			}
+
+		file.delete();
+	}
+}
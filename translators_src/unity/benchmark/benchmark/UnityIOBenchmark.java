@@ -0,0 +1,293 @@
+package benchmark;
+
+import io.UnityFile;
+import io.UnityProject;
+import io.constants.UnityType;
+import io.unityresource.UnityResource;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import scriptease.model.CodeBlock;
+import scriptease.model.CodeBlockSource;
+import scriptease.model.atomic.KnowIt;
+import scriptease.model.complex.ScriptIt;
+import scriptease.model.semodel.StoryModel;
+import scriptease.model.semodel.librarymodel.LibraryModel;
+import scriptease.translator.codegenerator.LocationInformation;
+import scriptease.translator.codegenerator.ScriptInfo;
+import scriptease.translator.io.model.Resource;
+import scriptease.util.ListOp;
+
+/**
+ * Measures how long the Unity translator takes to load, link, attach scripts
+ * to and save a synthetic Unity project generated by
+ * {@link SyntheticUnityProject}. This runs completely offline and does not
+ * need Unity installed. Run it through the <code>benchmark</code> target of
+ * the translator's build file, or directly with arguments of the form
+ * <code>name=value</code>:
+ * 
+ * <ul>
+ * <li><b>scenes</b> - the number of scenes to generate. Default 1.</li>
+ * <li><b>objects</b> - the number of Game Objects in each scene. Default
+ * 1000.</li>
+ * <li><b>prefabs</b> - the number of prefabs in the Resources folder. Default
+ * 20.</li>
+ * <li><b>assets</b> - the number of audio and image files in the Resources
+ * folder. Default 50.</li>
+ * <li><b>scripts</b> - the number of scripts to attach. Default 100.</li>
+ * <li><b>iterations</b> - how many times to run every phase. Default 3.</li>
+ * <li><b>dir</b> - where to generate the project. Defaults to a temporary
+ * directory that is deleted afterwards.</li>
+ * </ul>
+ * 
+ * For each phase, the wall time and the number of bytes allocated by the
+ * benchmark thread are reported.
+ */
+public class UnityIOBenchmark {
+	private static final String SLOT = "Update";
+	private static final String SUBJECT = "Subject";
+
+	private final Map<String, String> arguments;
+
+	private UnityIOBenchmark(Map<String, String> arguments) {
+		this.arguments = arguments;
+	}
+
+	public static void main(String[] args) throws IOException {
+		final Map<String, String> arguments = new HashMap<String, String>();
+
+		for (String arg : args) {
+			final String[] split = arg.split("=", 2);
+
+			if (split.length != 2)
+				throw new IllegalArgumentException("Argument " + arg
+						+ " is not of the form name=value.");
+
+			arguments.put(split[0], split[1]);
+		}
+
+		new UnityIOBenchmark(arguments).run();
+	}
+
+	private int getInt(String name, int defaultValue) {
+		final String value = this.arguments.get(name);
+
+		return value == null ? defaultValue : Integer.parseInt(value);
+	}
+
+	private void run() throws IOException {
+		final int scenes = this.getInt("scenes", 1);
+		final int objects = this.getInt("objects", 1000);
+		final int prefabs = this.getInt("prefabs", 20);
+		final int assets = this.getInt("assets", 50);
+		final int scripts = this.getInt("scripts", 100);
+		final int iterations = this.getInt("iterations", 3);
+		final String dir = this.arguments.get("dir");
+
+		final File projectDirectory;
+
+		if (dir != null)
+			projectDirectory = new File(dir);
+		else {
+			projectDirectory = File.createTempFile("unitybenchmark", "");
+			projectDirectory.delete();
+		}
+
+		if (projectDirectory.exists())
+			throw new IllegalArgumentException("Project directory "
+					+ projectDirectory + " already exists.");
+
+		System.out.println("Generating " + scenes + " scene(s) with "
+				+ objects + " Game Objects, " + prefabs + " prefabs and "
+				+ assets + " assets in " + projectDirectory);
+
+		new SyntheticUnityProject(scenes, objects, prefabs, assets, 0)
+				.generate(projectDirectory);
+
+		System.out.println(String.format("%-3s %-8s %10s %14s %14s", "#",
+				"Phase", "Time (ms)", "Allocated (MB)", "Rate (MB/s)"));
+
+		try {
+			for (int i = 1; i <= iterations; i++) {
+				this.runIteration(i, projectDirectory, scripts);
+			}
+		} finally {
+			if (dir == null)
+				TemporaryUnityProject.delete(projectDirectory);
+		}
+	}
+
+	/**
+	 * Loads, links, attaches scripts to and saves the project once.
+	 * 
+	 * @param iteration
+	 * @param projectDirectory
+	 * @param scriptCount
+	 * @throws IOException
+	 */
+	private void runIteration(int iteration, File projectDirectory,
+			int scriptCount) throws IOException {
+		final UnityProject project = new UnityProject();
+		final Collection<ScriptInfo> scripts;
+		final Phase phase = new Phase(iteration);
+		int linked = 0;
+
+		phase.start("Load");
+		project.setLocation(projectDirectory);
+		project.load(false);
+		phase.end();
+
+		phase.start("Link");
+		for (Resource scene : project.getResourcesOfType(UnityType.SCENE
+				.getName())) {
+			for (UnityResource resource : ((UnityFile) scene).getResources()) {
+				if (project.getInstanceForObjectIdentifier(resource
+						.getTemplateID()) != null)
+					linked++;
+			}
+		}
+		phase.end();
+
+		scripts = UnityIOBenchmark.buildScripts(project, scriptCount);
+
+		phase.start("Attach");
+		project.addScripts(scripts, new StoryModel(project, "Benchmark", "",
+				"", "", null, Collections.<LibraryModel> emptyList()));
+		phase.end();
+
+		phase.start("Save");
+		project.save(false);
+		phase.end();
+
+		project.close();
+
+		if (linked == 0)
+			throw new IllegalStateException("Nothing was linked.");
+	}
+
+	/**
+	 * Builds scripts for Game Objects spread evenly over the project's
+	 * scenes.
+	 * 
+	 * @param project
+	 * @param count
+	 * @return
+	 */
+	private static Collection<ScriptInfo> buildScripts(UnityProject project,
+			int count) {
+		final Collection<ScriptInfo> scripts = new ArrayList<ScriptInfo>();
+		final List<UnityResource> gameObjects = new ArrayList<UnityResource>();
+
+		for (Resource scene : project.getResourcesOfType(UnityType.SCENE
+				.getName())) {
+			for (UnityResource resource : ((UnityFile) scene).getResources()) {
+				if (resource.getType() == UnityType.GAMEOBJECT)
+					gameObjects.add(resource);
+			}
+		}
+
+		if (gameObjects.isEmpty())
+			return scripts;
+
+		for (int i = 0; i < count; i++) {
+			final UnityResource subject;
+
+			subject = gameObjects.get((int) ((long) i * gameObjects.size() / count));
+
+			scripts.add(new ScriptInfo("function " + SLOT + "() {}\n",
+					UnityIOBenchmark.buildLocation(subject)));
+		}
+
+		return scripts;
+	}
+
+	/**
+	 * Builds the location of a script on the subject. Locations only come from
+	 * code blocks, so this makes a code block whose subject is bound to it.
+	 * 
+	 * @param subject
+	 * @return
+	 */
+	private static LocationInformation buildLocation(Resource subject) {
+		final LibraryModel library = LibraryModel.getNonLibrary();
+		final KnowIt subjectKnowIt = new KnowIt(library, SUBJECT,
+				subject.getTypes());
+		final ScriptIt scriptIt = new ScriptIt(library, SLOT);
+		final CodeBlock codeBlock;
+
+		subjectKnowIt.setBinding(subject);
+
+		codeBlock = new CodeBlockSource(SUBJECT, SLOT,
+				ListOp.createList(subjectKnowIt), library);
+
+		scriptIt.addCodeBlock(codeBlock);
+
+		return new LocationInformation(codeBlock);
+	}
+
+	/**
+	 * Times a phase of the benchmark and prints out its results.
+	 */
+	private static class Phase {
+		private static final double MEGABYTE = 1024 * 1024;
+
+		private final int iteration;
+		private final ThreadMXBean threadBean;
+
+		private String name;
+		private long startTime;
+		private long startAllocated;
+
+		private Phase(int iteration) {
+			this.iteration = iteration;
+			this.threadBean = ManagementFactory.getThreadMXBean();
+		}
+
+		private void start(String name) {
+			this.name = name;
+			this.startAllocated = this.getAllocatedBytes();
+			this.startTime = System.nanoTime();
+		}
+
+		private void end() {
+			final long time = System.nanoTime() - this.startTime;
+			final long allocated = this.getAllocatedBytes()
+					- this.startAllocated;
+			final double millis = time / 1000000.0;
+			final double megabytes = allocated / MEGABYTE;
+
+			System.out.println(String.format("%-3d %-8s %10.1f %14.1f %14.1f",
+					this.iteration, this.name, millis, megabytes, megabytes
+							/ Math.max(millis, 0.001) * 1000));
+		}
+
+		/**
+		 * Returns the number of bytes allocated by the current thread, or 0 if
+		 * the JVM can not tell us.
+		 * 
+		 * @return
+		 */
+		private long getAllocatedBytes() {
+			if (this.threadBean instanceof com.sun.management.ThreadMXBean) {
+				final com.sun.management.ThreadMXBean sunBean;
+
+				sunBean = (com.sun.management.ThreadMXBean) this.threadBean;
+
+				if (sunBean.isThreadAllocatedMemorySupported())
+					return sunBean.getThreadAllocatedBytes(Thread
+							.currentThread().getId());
+			}
+
+			return 0;
+		}
+	}
+}
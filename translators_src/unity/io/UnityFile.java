@@ -10,11 +10,13 @@ import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
 import java.io.FileReader;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.nio.channels.Channels;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -41,6 +43,8 @@ public class UnityFile extends Resource {
 	// The first line in any valid YAML file.
 	private static final String YAML_HEADER = "%YAML 1.1";
 	private static final String SCRIPTEASE_OBJECT_NAME = "ScriptEase";
+	// Unity always saves text serialized files as UTF-8.
+	private static final String UNITY_FILE_CHARSET = "UTF-8";
 
 	// There's no point of having multiple parsers unless we were reading in
 	// unity files multi-threaded, which we aren't, so we just use one.
@@ -56,6 +60,10 @@ public class UnityFile extends Resource {
 	private final Collection<String> types;
 	private final List<UnityResource> unityResources;
 	private final List<Resource> visibleChildren;
+	private final UnityProject project;
+
+	// Built lazily, since template IDs need the owners to be initialized.
+	private Map<String, UnityResource> templateIDsToResources = null;
 
 	private UnityResource scriptEaseObject = null;
 
@@ -69,6 +77,10 @@ public class UnityFile extends Resource {
 	 *            The unity file to read from.
 	 * @param types
 	 *            The supported types for the unity file.
+	 * @param project
+	 *            The project the unity file belongs to.
+	 * @param keyPool
+	 *            The keys shared by every file of the project being loaded.
 	 * @return A unity file. If the unity file could not be read, this returns
 	 *         null.
 	 * @throws IOException
@@ -76,15 +88,17 @@ public class UnityFile extends Resource {
 	 *             streams.
 	 */
 	public static UnityFile buildUnityFile(File location,
-			Map<String, File> guidsToMetaFiles, Collection<String> types)
+			Map<String, File> guidsToMetaFiles, Collection<String> types,
+			UnityProject project, Map<String, String> keyPool)
 			throws IOException {
 
 		final String HIDDEN_FILE_PREFIX = "._";
 		final String locationName = location.getName();
 
 		if (!locationName.startsWith(HIDDEN_FILE_PREFIX)) {
-			final UnityFile unityFile = new UnityFile(location, types);
-			if (unityFile.read(guidsToMetaFiles))
+			final UnityFile unityFile = new UnityFile(location, types,
+					project);
+			if (unityFile.read(guidsToMetaFiles, keyPool))
 				return unityFile;
 		} else
 			System.err.println("Did not read Unity file at " + locationName
@@ -106,8 +120,8 @@ public class UnityFile extends Resource {
 	 *             if there is a problem during reading or creating the I/O
 	 *             streams.
 	 */
-	protected UnityFile(File location, Collection<String> types)
-			throws IOException {
+	protected UnityFile(File location, Collection<String> types,
+			UnityProject project) throws IOException {
 		if (!location.exists())
 			throw new FileNotFoundException("Unity file "
 					+ location.getAbsolutePath() + " went missing!");
@@ -117,6 +131,16 @@ public class UnityFile extends Resource {
 		this.types = types;
 		this.location = location;
 		this.filename = FileOp.getFileNameUpTo(location, "Assets");
+		this.project = project;
+	}
+
+	/**
+	 * Returns the project that the file was loaded into.
+	 * 
+	 * @return
+	 */
+	public UnityProject getProject() {
+		return this.project;
 	}
 
 	/**
@@ -144,10 +168,11 @@ public class UnityFile extends Resource {
 	 * 
 	 * @param location
 	 * @param seGeneratedGUIDs
+	 * @param keyPool
 	 * @throws IOException
 	 */
-	protected boolean read(Map<String, File> guidsToMetaFiles)
-			throws IOException {
+	protected boolean read(Map<String, File> guidsToMetaFiles,
+			Map<String, String> keyPool) throws IOException {
 		final BufferedReader reader;
 
 		reader = new BufferedReader(new FileReader(location));
@@ -179,7 +204,7 @@ public class UnityFile extends Resource {
 
 		// Build all of the resources
 		this.unityResources.addAll(UnityResourceFactory.getInstance()
-				.buildResources(eventIterable.iterator()));
+				.buildResources(eventIterable.iterator(), keyPool));
 
 		for (Entry<String, File> entry : guidsToMetaFiles.entrySet()) {
 			final String metaName = entry.getValue().getName();
@@ -334,6 +359,13 @@ public class UnityFile extends Resource {
 	 */
 	public void addResource(UnityResource resource) {
 		this.unityResources.add(resource);
+
+		if (this.templateIDsToResources != null) {
+			final String templateID = resource.getTemplateID();
+
+			if (!this.templateIDsToResources.containsKey(templateID))
+				this.templateIDsToResources.put(templateID, resource);
+		}
 	}
 
 	/**
@@ -344,6 +376,11 @@ public class UnityFile extends Resource {
 	 */
 	public void removeResource(UnityResource object) {
 		this.unityResources.remove(object);
+
+		// Another resource may share the ID, so we just rebuild next time.
+		if (this.templateIDsToResources != null
+				&& this.templateIDsToResources.get(object.getTemplateID()) == object)
+			this.templateIDsToResources = null;
 	}
 
 	/**
@@ -353,13 +390,12 @@ public class UnityFile extends Resource {
 	 */
 	public void write() throws IOException {
 		final BufferedWriter writer;
-		final String unityFileHeader = "%YAML 1.1\n" + "%TAG !u! "
-				+ UnityProject.UNITY_TAG + "\n";
+		final UnityYAMLEmitter emitter;
 
 		// Copy the existing scene file contents to a backup location first.
 		final File backupLocation;
 
-		backupLocation = new File(location.getParent() + "\\._"
+		backupLocation = new File(location.getParentFile(), "._"
 				+ FileOp.removeExtension(location.getName()) + "_backup."
 				+ FileOp.getExtension(location));
 
@@ -375,23 +411,21 @@ public class UnityFile extends Resource {
 											+ location + ": " + e));
 		}
 
-		// Actually write to the scene file now.
-		writer = new BufferedWriter(new FileWriter(location));
+		// Actually write to the scene file now. We stream the resources
+		// straight to the file instead of building a YAML node graph first.
+		writer = new BufferedWriter(Channels.newWriter(new FileOutputStream(
+				location).getChannel(), UNITY_FILE_CHARSET));
+		emitter = new UnityYAMLEmitter(writer);
 
-		writer.write(unityFileHeader);
-
-		// Add an arbitrary number
-		for (UnityResource resource : this.unityResources) {
-			final UnityType type = resource.getType();
-
-			writer.write("--- !u!" + type.getID() + " &"
-					+ resource.getUniqueID() + "\n");
-
-			parser.dump(PropertyValue.convertToValueMap(resource
-					.getTopLevelPropertyMap()), writer);
+		try {
+			emitter.writeHeader();
 
+			for (UnityResource resource : this.unityResources) {
+				emitter.writeResource(resource);
+			}
+		} finally {
+			writer.close();
 		}
-		writer.close();
 	}
 
 	/**
@@ -411,18 +445,25 @@ public class UnityFile extends Resource {
 	}
 
 	/**
-	 * Returns a UnityResource by its TemplateID.
+	 * Returns a UnityResource by its TemplateID. If more than one resource has
+	 * the same ID, the first one in the file is returned.
 	 * 
 	 * @param templateID
 	 * @return
 	 */
 	public UnityResource getObjectByTemplateID(String templateID) {
-		for (UnityResource object : this.unityResources) {
-			if (object.getTemplateID().equals(templateID))
-				return object;
+		if (this.templateIDsToResources == null) {
+			this.templateIDsToResources = new HashMap<String, UnityResource>();
+
+			for (UnityResource object : this.unityResources) {
+				final String objectID = object.getTemplateID();
+
+				if (!this.templateIDsToResources.containsKey(objectID))
+					this.templateIDsToResources.put(objectID, object);
+			}
 		}
 
-		return null;
+		return this.templateIDsToResources.get(templateID);
 	}
 
 	/**
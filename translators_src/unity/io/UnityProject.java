@@ -5,16 +5,20 @@ import io.constants.UnityType;
 import io.unityresource.UnityResource;
 
 import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileFilter;
 import java.io.FileNotFoundException;
 import java.io.FileReader;
+import java.io.FileWriter;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
 import java.util.UUID;
 
 import scriptease.gui.WindowFactory;
@@ -57,6 +61,13 @@ public final class UnityProject extends GameModule {
 
 	public static final String GAME_OBJECT_AUTOMATIC = "gameobjectautomatic";
 
+	/**
+	 * The name of the generated script that lists the slots used by generated
+	 * code and the template IDs of the Game Objects in them. This has to match
+	 * the name used in SEVariable.js.
+	 */
+	public static final String GAME_OBJECT_SLOTS_NAME = "SEGameObjectSlots";
+
 	// Note: this used to be static, but we can't make it static since we want
 	// to be able to work on multiple projects at the same time.
 	private final Map<String, File> guidsToMetaFiles;
@@ -74,6 +85,15 @@ public final class UnityProject extends GameModule {
 	private final Collection<Resource> resources;
 	private final Collection<UnityScript> scripts;
 
+	// Maps template IDs to the unity file that contains them. Built lazily.
+	private Map<String, UnityFile> templateIDsToFiles;
+
+	// The number of Game Object slots handed out when the project was loaded.
+	private int gameObjectSlotCount;
+	// Maps the slots that the scripts added since the last save use to their
+	// Game Object's template ID.
+	private final Map<Integer, String> usedGameObjectSlots;
+
 	/**
 	 * Creates a new UnityProjects with no scenes or scripts added.
 	 */
@@ -84,6 +104,7 @@ public final class UnityProject extends GameModule {
 		this.resources = new ArrayList<Resource>();
 		this.scripts = new ArrayList<UnityScript>();
 		this.guidsToMetaFiles = new HashMap<String, File>();
+		this.usedGameObjectSlots = new TreeMap<Integer, String>();
 	}
 
 	/**
@@ -150,6 +171,26 @@ public final class UnityProject extends GameModule {
 		return metaFile.exists();
 	}
 
+	/**
+	 * Hands out a slot to every Game Object in the files. Generated code uses
+	 * the slot to get at the Game Object without looking it up by its template
+	 * ID every time.<br>
+	 * <br>
+	 * Slots are handed out in the order the Game Objects were loaded, so they
+	 * do not depend on the order that code is generated in, and scripts that
+	 * were generated earlier stay valid until the project is loaded again.
+	 * 
+	 * @param files
+	 */
+	private void assignGameObjectSlots(Collection<UnityFile> files) {
+		for (UnityFile file : files) {
+			for (UnityResource resource : file.getResources()) {
+				if (resource.getType() == UnityType.GAMEOBJECT)
+					resource.setSlot(this.gameObjectSlotCount++);
+			}
+		}
+	}
+
 	@Override
 	public Map<String, Collection<Resource>> getAutomaticHandlers() {
 		final Map<String, Collection<Resource>> automaticMap = new HashMap<String, Collection<Resource>>();
@@ -184,20 +225,35 @@ public final class UnityProject extends GameModule {
 	}
 
 	@Override
-	public void addScripts(Collection<ScriptInfo> scriptList) {
+	public void addScripts(Collection<ScriptInfo> scriptList, StoryModel story) {
+		// Scripts add MonoBehaviours to the files.
+		this.templateIDsToFiles = null;
+
 		for (ScriptInfo scriptInfo : scriptList) {
 			final Resource subject = scriptInfo.getSubject();
 
+			// Cached scripts are never resolved, so the slots they use come
+			// from the resources that were bound when they were generated.
+			for (Resource resource : scriptInfo.getBoundResources()) {
+				if (resource instanceof UnityResource) {
+					final UnityResource gameObject = (UnityResource) resource;
+
+					if (gameObject.getSlot() >= 0)
+						this.usedGameObjectSlots.put(gameObject.getSlot(),
+								gameObject.getTemplateID());
+				}
+			}
+
 			for (UnityFile scene : this.scenes) {
 				if (scene.getTemplateID().equals(subject.getTemplateID())
 						|| scene.getObjectByTemplateID(subject.getTemplateID()) != null) {
-					this.scripts.add(new UnityScript(scriptInfo, scene));
+					this.scripts.add(new UnityScript(scriptInfo, scene, this));
 				}
 			}
 
 			for (UnityFile prefab : this.prefabs) {
 				if (subject.getTemplateID().equals(prefab.getTemplateID())) {
-					this.scripts.add(new UnityScript(scriptInfo, prefab));
+					this.scripts.add(new UnityScript(scriptInfo, prefab, this));
 				}
 			}
 		}
@@ -215,24 +271,50 @@ public final class UnityProject extends GameModule {
 
 	@Override
 	public Resource getInstanceForObjectIdentifier(String id) {
-		for (UnityFile scene : this.scenes) {
-			if (scene.getTemplateID().equals(id))
-				return scene;
+		final UnityFile unityFile;
 
-			for (UnityResource object : scene.getResources())
-				if (object.getTemplateID().equals(id))
-					return object;
-		}
+		if (this.templateIDsToFiles == null)
+			this.templateIDsToFiles = this.buildTemplateIDIndex();
 
-		for (UnityFile prefab : this.prefabs) {
-			if (prefab.getTemplateID().equals(id))
-				return prefab;
+		unityFile = this.templateIDsToFiles.get(id);
+
+		if (unityFile == null)
+			return null;
+		else if (unityFile.getTemplateID().equals(id))
+			return unityFile;
+		else
+			return unityFile.getObjectByTemplateID(id);
+	}
+
+	/**
+	 * Maps the template ID of every scene, prefab, and the resources in them to
+	 * the unity file they belong to. Scenes are indexed before prefabs, and the
+	 * first occurrence of an ID wins, just like a search through them would.
+	 * 
+	 * @return
+	 */
+	private Map<String, UnityFile> buildTemplateIDIndex() {
+		final Map<String, UnityFile> index = new HashMap<String, UnityFile>();
+		final Collection<UnityFile> unityFiles = new ArrayList<UnityFile>();
+
+		unityFiles.addAll(this.scenes);
+		unityFiles.addAll(this.prefabs);
 
-			for (UnityResource object : prefab.getResources())
-				if (object.getTemplateID().equals(id))
-					return object;
+		for (UnityFile unityFile : unityFiles) {
+			final String fileID = unityFile.getTemplateID();
+
+			if (!index.containsKey(fileID))
+				index.put(fileID, unityFile);
+
+			for (UnityResource object : unityFile.getResources()) {
+				final String objectID = object.getTemplateID();
+
+				if (!index.containsKey(objectID))
+					index.put(objectID, unityFile);
+			}
 		}
-		return null;
+
+		return index;
 	}
 
 	@Override
@@ -268,12 +350,19 @@ public final class UnityProject extends GameModule {
 
 	@Override
 	public void load(boolean readOnly) throws IOException {
+		this.templateIDsToFiles = null;
+		this.gameObjectSlotCount = 0;
+		this.usedGameObjectSlots.clear();
+
 		final FileFilter sceneFileFilter;
 		final FileFilter metaFileFilter;
 
 		final Collection<File> sceneFiles;
 		final Collection<File> metaFiles;
 
+		// Shared by every file of this load only, so it can be collected.
+		final Map<String, String> keyPool = new HashMap<String, String>();
+
 		sceneFileFilter = FileOp
 				.createExtensionFilter(UnityFile.SCENE_FILE_EXTENSION);
 
@@ -309,7 +398,7 @@ public final class UnityProject extends GameModule {
 			type = ListOp.createList(UnityType.SCENE.getName());
 
 			scene = UnityFile.buildUnityFile(sceneFile, this.guidsToMetaFiles,
-					type);
+					type, this, keyPool);
 
 			if (scene != null)
 				this.scenes.add(scene);
@@ -333,10 +422,14 @@ public final class UnityProject extends GameModule {
 									+ "<li>Reload the project in ScriptEase.</li>"
 									+ "<li>Celebrate with laser tag.</li></ol></html>");
 
-		this.resources.addAll(this.loadResources());
+		this.resources.addAll(this.loadResources(keyPool));
+
+		this.assignGameObjectSlots(this.scenes);
+		this.assignGameObjectSlots(this.prefabs);
 	}
 
-	private Collection<Resource> loadResources() throws IOException {
+	private Collection<Resource> loadResources(Map<String, String> keyPool)
+			throws IOException {
 		final Collection<Resource> resources = new ArrayList<Resource>();
 
 		final String[] audioExtensions;
@@ -403,7 +496,7 @@ public final class UnityProject extends GameModule {
 			type = ListOp.createList(UnityType.PREFAB.getName());
 
 			prefab = UnityFile.buildUnityFile(prefabFile,
-					this.guidsToMetaFiles, type);
+					this.guidsToMetaFiles, type, this, keyPool);
 
 			if (prefab != null)
 				this.prefabs.add(prefab);
@@ -480,12 +573,83 @@ public final class UnityProject extends GameModule {
 			FileOp.copyFile(includeFile, new File(copyDir + "/" + includeName));
 		}
 
+		this.writeGameObjectSlots();
+
 		// Reset the story to the state it was at before the save.
+		this.templateIDsToFiles = null;
 		this.scripts.clear();
+		this.usedGameObjectSlots.clear();
 		this.includeFiles.clear();
 		UnityScript.resetScriptCounter();
 	}
 
+	/**
+	 * Writes out the script that SEVariable.js reads its Game Object slots
+	 * from.
+	 * 
+	 * @see #getGameObjectSlotsCode()
+	 * @throws IOException
+	 */
+	private void writeGameObjectSlots() throws IOException {
+		final File slotsFile;
+		final BufferedWriter writer;
+
+		slotsFile = new File(this.scripteaseGeneratedDirectory,
+				GAME_OBJECT_SLOTS_NAME + UnityScript.SCRIPT_EXTENSION);
+		writer = new BufferedWriter(new FileWriter(slotsFile));
+
+		try {
+			writer.write(this.getGameObjectSlotsCode());
+		} finally {
+			writer.close();
+		}
+	}
+
+	/**
+	 * Returns the code of the script that SEVariable.js reads its Game Object
+	 * slots from. The script contains the number of slots, the slots that the
+	 * added scripts use, and the template IDs of the Game Objects in those
+	 * slots.
+	 * 
+	 * @return
+	 */
+	String getGameObjectSlotsCode() {
+		final StringBuilder code = new StringBuilder();
+
+		code.append("#pragma strict\n\n");
+		code.append("// Generated by ScriptEase II. Do not edit.\n");
+		code.append("static var SlotCount : int = ")
+				.append(this.gameObjectSlotCount).append(";\n");
+
+		if (this.usedGameObjectSlots.isEmpty()) {
+			// Empty array literals would not be typed.
+			code.append("static var Slots : int[] = new int[0];\n");
+			code.append("static var TemplateIDs : String[] = new String[0];\n");
+		} else {
+			final StringBuilder slots = new StringBuilder();
+			final StringBuilder templateIDs = new StringBuilder();
+
+			for (Entry<Integer, String> entry : this.usedGameObjectSlots
+					.entrySet()) {
+				if (slots.length() > 0) {
+					slots.append(", ");
+					templateIDs.append(", ");
+				}
+
+				slots.append(entry.getKey());
+				templateIDs.append(UnityScript.toStringLiteral(entry
+						.getValue()));
+			}
+
+			code.append("static var Slots : int[] = [").append(slots)
+					.append("];\n");
+			code.append("static var TemplateIDs : String[] = [")
+					.append(templateIDs).append("];\n");
+		}
+
+		return code.toString();
+	}
+
 	@Override
 	public File getLocation() {
 		return new File(this.projectLocation.getAbsolutePath());
@@ -39,7 +39,7 @@ public class UnityScript {
 	 */
 
 	private static final int NAME_RADIX = 36;
-	private static final String SCRIPT_EXTENSION = ".js";
+	static final String SCRIPT_EXTENSION = ".js";
 	private static final String SCRIPT_META_EXTENSION = ".js.meta";
 
 	private final String code;
@@ -63,8 +63,11 @@ public class UnityScript {
 	 * 
 	 * @param scriptInfo
 	 * @param unityFile
+	 * @param project
+	 *            The project that the unity file belongs to.
 	 */
-	public UnityScript(final ScriptInfo scriptInfo, final UnityFile unityFile) {
+	public UnityScript(final ScriptInfo scriptInfo, final UnityFile unityFile,
+			final UnityProject project) {
 		final Resource subject;
 
 		subject = scriptInfo.getSubject();
@@ -75,7 +78,7 @@ public class UnityScript {
 				+ Integer.toString(scriptCounter++, NAME_RADIX) + "_"
 				+ StringOp.makeAlphaNumeric(subject.getName());
 
-		this.guid = UnityProject.getActiveProject().generateGUIDForFile(
+		this.guid = project.generateGUIDForFile(
 				new File(this.fileName + SCRIPT_META_EXTENSION));
 
 		if (this.unityFile.getTypes().contains(UnityType.PREFAB.getName())) {
@@ -208,6 +211,41 @@ public class UnityScript {
 		metaWriter.close();
 	}
 
+	/**
+	 * Quotes the text as a UnityScript string literal. Backslashes and quotes
+	 * get a backslash in front of them, like the escapes of a game type do in
+	 * generated code, and line breaks are written as escape sequences.
+	 * 
+	 * @param text
+	 * @return
+	 */
+	public static String toStringLiteral(String text) {
+		final StringBuilder literal = new StringBuilder(text.length() + 2);
+
+		literal.append('"');
+
+		for (int i = 0; i < text.length(); i++) {
+			final char c = text.charAt(i);
+
+			switch (c) {
+			case '\\':
+			case '"':
+				literal.append('\\').append(c);
+				break;
+			case '\n':
+				literal.append("\\n");
+				break;
+			case '\r':
+				literal.append("\\r");
+				break;
+			default:
+				literal.append(c);
+			}
+		}
+
+		return literal.append('"').toString();
+	}
+
 	/**
 	 * Reset the script counter.
 	 */
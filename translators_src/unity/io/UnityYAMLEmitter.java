@@ -0,0 +1,442 @@
+package io;
+
+import io.unityresource.PackedPropertyList;
+import io.unityresource.PropertyValue;
+import io.unityresource.UnityResource;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+/**
+ * Writes {@link UnityResource}s straight to a {@link Writer} in the restricted
+ * YAML dialect that Unity uses for text serialized scenes and prefabs. This
+ * way we never have to build a second object graph just so a general purpose
+ * YAML library can dump it.<br>
+ * <br>
+ * The output follows Unity's own formatting:
+ * <ul>
+ * <li>The file starts with the <code>%YAML</code> and <code>%TAG !u!</code>
+ * directives.</li>
+ * <li>Each resource is its own document, started with
+ * <code>--- !u!&lt;type&gt; &amp;&lt;uniqueID&gt;</code>.</li>
+ * <li>Maps that only contain scalars, such as <code>{fileID: 0}</code> or
+ * vectors, are written in flow style on one line.</li>
+ * <li>Sequences are written at the same indentation as their key.</li>
+ * </ul>
+ * 
+ * The emitter does not buffer anything itself, so it should be given a
+ * buffered writer.
+ */
+public class UnityYAMLEmitter {
+	private static final String YAML_VERSION_DIRECTIVE = "%YAML 1.1";
+	private static final String TAG_DIRECTIVE = "%TAG !u! ";
+	private static final String DOCUMENT_START = "--- !u!";
+	private static final String INDENT = "  ";
+	private static final String SEQUENCE_ENTRY = "- ";
+	private static final char NEW_LINE = '\n';
+
+	// Characters that can not start a plain scalar.
+	private static final String INDICATORS = "-?:,[]{}#&*!|>'\"%@`";
+	// Characters that can not be in a plain scalar inside of a flow map.
+	private static final String FLOW_INDICATORS = ",[]{}";
+
+	private final Writer writer;
+
+	/**
+	 * Creates a new emitter that writes to the passed in writer.
+	 * 
+	 * @param writer
+	 */
+	public UnityYAMLEmitter(Writer writer) {
+		this.writer = writer;
+	}
+
+	/**
+	 * Writes the YAML version and the Unity tag directive. This must be called
+	 * once before any resources are written.
+	 * 
+	 * @throws IOException
+	 */
+	public void writeHeader() throws IOException {
+		this.writer.write(YAML_VERSION_DIRECTIVE);
+		this.writer.write(NEW_LINE);
+		this.writer.write(TAG_DIRECTIVE);
+		this.writer.write(UnityProject.UNITY_TAG);
+		this.writer.write(NEW_LINE);
+	}
+
+	/**
+	 * Writes the resource as its own document, anchored by its unique ID.
+	 * 
+	 * @param resource
+	 * @throws IOException
+	 */
+	public void writeResource(UnityResource resource) throws IOException {
+		this.writer.write(DOCUMENT_START);
+		this.writer.write(String.valueOf(resource.getType().getID()));
+		this.writer.write(" &");
+		this.writer.write(String.valueOf(resource.getUniqueID()));
+		this.writer.write(NEW_LINE);
+
+		this.writeBlockMap(resource.getTopLevelPropertyMap(), 0, false);
+	}
+
+	/**
+	 * Flushes the underlying writer.
+	 * 
+	 * @throws IOException
+	 */
+	public void flush() throws IOException {
+		this.writer.flush();
+	}
+
+	/**
+	 * Writes a map in block style. If the map is an entry of a sequence, the
+	 * first key is written on the current line, directly after the
+	 * {@link #SEQUENCE_ENTRY} marker.
+	 * 
+	 * @param map
+	 * @param depth
+	 * @param inSequence
+	 * @throws IOException
+	 */
+	private void writeBlockMap(Map<String, PropertyValue> map, int depth,
+			boolean inSequence) throws IOException {
+		boolean first = true;
+
+		for (Entry<String, PropertyValue> entry : map.entrySet()) {
+			if (!(first && inSequence))
+				this.writeIndent(depth);
+
+			first = false;
+
+			this.writeScalar(entry.getKey(), false);
+			this.writer.write(':');
+			this.writeMapValue(entry.getValue(), depth);
+		}
+	}
+
+	/**
+	 * Writes the value of a map entry, starting right after the colon.
+	 * 
+	 * @param value
+	 * @param depth
+	 *            The depth of the key
+	 * @throws IOException
+	 */
+	private void writeMapValue(PropertyValue value, int depth)
+			throws IOException {
+		if (value.isMap()) {
+			final Map<String, PropertyValue> map = value.getMap();
+
+			if (UnityYAMLEmitter.isFlow(value)) {
+				this.writer.write(' ');
+				this.writeFlowMap(map);
+				this.writer.write(NEW_LINE);
+			} else {
+				this.writer.write(NEW_LINE);
+				this.writeBlockMap(map, depth + 1, false);
+			}
+		} else if (value.isList()) {
+			final List<PropertyValue> list = value.getList();
+
+			if (list.isEmpty())
+				this.writer.write(" []\n");
+			else {
+				this.writer.write(NEW_LINE);
+				// Unity does not indent sequences inside of maps.
+				this.writeBlockSequence(list, depth);
+			}
+		} else {
+			this.writer.write(' ');
+			this.writeScalarValue(value, false);
+			this.writer.write(NEW_LINE);
+		}
+	}
+
+	/**
+	 * Writes a sequence in block style, with every entry at the passed in
+	 * depth.
+	 * 
+	 * @param list
+	 * @param depth
+	 * @throws IOException
+	 */
+	private void writeBlockSequence(List<PropertyValue> list, int depth)
+			throws IOException {
+		if (list instanceof PackedPropertyList
+				&& ((PackedPropertyList) list).isPacked()) {
+			this.writePackedSequence((PackedPropertyList) list, depth);
+			return;
+		}
+
+		for (PropertyValue value : list) {
+			this.writeIndent(depth);
+
+			if (value.isMap()) {
+				final Map<String, PropertyValue> map = value.getMap();
+
+				if (UnityYAMLEmitter.isFlow(value)) {
+					this.writer.write(SEQUENCE_ENTRY);
+					this.writeFlowMap(map);
+					this.writer.write(NEW_LINE);
+				} else {
+					this.writer.write(SEQUENCE_ENTRY);
+					this.writeBlockMap(map, depth + 1, true);
+				}
+			} else if (value.isList()) {
+				final List<PropertyValue> innerList = value.getList();
+
+				if (innerList.isEmpty())
+					this.writer.write("- []\n");
+				else {
+					this.writer.write("-\n");
+					this.writeBlockSequence(innerList, depth + 1);
+				}
+			} else {
+				this.writer.write(SEQUENCE_ENTRY);
+				this.writeScalarValue(value, false);
+				this.writer.write(NEW_LINE);
+			}
+		}
+	}
+
+	/**
+	 * Writes a packed sequence straight from its numbers. Going through the
+	 * list interface would materialize it, and it would stay that way after
+	 * the file is saved.
+	 * 
+	 * @param list
+	 * @param depth
+	 * @throws IOException
+	 */
+	private void writePackedSequence(PackedPropertyList list, int depth)
+			throws IOException {
+		final String key = list.getKey();
+		final int size = list.size();
+
+		for (int i = 0; i < size; i++) {
+			this.writeIndent(depth);
+			this.writer.write(SEQUENCE_ENTRY);
+
+			if (key == null)
+				this.writer.write(Long.toString(list.getNumber(i)));
+			else {
+				this.writer.write('{');
+				this.writeScalar(key, true);
+				this.writer.write(": ");
+				this.writer.write(Long.toString(list.getNumber(i)));
+				this.writer.write('}');
+			}
+
+			this.writer.write(NEW_LINE);
+		}
+	}
+
+	/**
+	 * Writes a map of scalars in flow style, e.g. <code>{fileID: 0}</code>.
+	 * 
+	 * @param map
+	 * @throws IOException
+	 */
+	private void writeFlowMap(Map<String, PropertyValue> map)
+			throws IOException {
+		final Iterator<Entry<String, PropertyValue>> iterator;
+
+		iterator = map.entrySet().iterator();
+
+		this.writer.write('{');
+		while (iterator.hasNext()) {
+			final Entry<String, PropertyValue> entry = iterator.next();
+
+			this.writeScalar(entry.getKey(), true);
+			this.writer.write(": ");
+			this.writeScalarValue(entry.getValue(), true);
+
+			if (iterator.hasNext())
+				this.writer.write(", ");
+		}
+		this.writer.write('}');
+	}
+
+	/**
+	 * Writes a scalar property value. Numbers are always written plain.
+	 * 
+	 * @param value
+	 * @param inFlow
+	 * @throws IOException
+	 */
+	@SuppressWarnings("deprecation")
+	private void writeScalarValue(PropertyValue value, boolean inFlow)
+			throws IOException {
+		if (value.isString())
+			this.writeScalar(value.getString(), inFlow);
+		else
+			this.writer.write(String.valueOf(value.getValue()));
+	}
+
+	/**
+	 * Writes a string scalar. We write it plain whenever YAML lets us, the
+	 * way Unity does. Otherwise it is single quoted, or double quoted if it
+	 * contains characters that need escaping.
+	 * 
+	 * @param scalar
+	 * @param inFlow
+	 * @throws IOException
+	 */
+	private void writeScalar(String scalar, boolean inFlow) throws IOException {
+		if (scalar.isEmpty())
+			// Unity writes empty strings as nothing at all.
+			return;
+
+		if (UnityYAMLEmitter.needsEscaping(scalar))
+			this.writeDoubleQuoted(scalar);
+		else if (UnityYAMLEmitter.canBePlain(scalar, inFlow))
+			this.writer.write(scalar);
+		else {
+			this.writer.write('\'');
+			this.writer.write(scalar.replace("'", "''"));
+			this.writer.write('\'');
+		}
+	}
+
+	/**
+	 * Writes a double quoted scalar, escaping anything that can not be
+	 * written as is.
+	 * 
+	 * @param scalar
+	 * @throws IOException
+	 */
+	private void writeDoubleQuoted(String scalar) throws IOException {
+		this.writer.write('"');
+
+		for (int i = 0; i < scalar.length(); i++) {
+			final char c = scalar.charAt(i);
+
+			if (c == '"' || c == '\\') {
+				this.writer.write('\\');
+				this.writer.write(c);
+			} else if (c == '\n')
+				this.writer.write("\\n");
+			else if (c == '\r')
+				this.writer.write("\\r");
+			else if (c == '\t')
+				this.writer.write("\\t");
+			else if (c < ' ') {
+				final String hex = Integer.toHexString(c);
+
+				this.writer.write("\\x");
+				if (hex.length() < 2)
+					this.writer.write('0');
+				this.writer.write(hex);
+			} else
+				this.writer.write(c);
+		}
+
+		this.writer.write('"');
+	}
+
+	private void writeIndent(int depth) throws IOException {
+		for (int i = 0; i < depth; i++) {
+			this.writer.write(INDENT);
+		}
+	}
+
+	/**
+	 * Returns true if the map value should be written in flow style. Maps keep
+	 * the style they were read in. Maps that ScriptEase created are written in
+	 * flow style if they only contain scalars, like Unity's references and
+	 * vectors. Empty maps can only be written in flow style.
+	 * 
+	 * @param value
+	 * @return
+	 */
+	private static boolean isFlow(PropertyValue value) {
+		final Map<String, PropertyValue> map = value.getMap();
+		final Boolean flowStyle = value.isFlowStyle();
+
+		if (map.isEmpty())
+			return true;
+		else if (flowStyle != null)
+			return flowStyle.booleanValue() && UnityYAMLEmitter.isFlat(map);
+		else
+			return UnityYAMLEmitter.isFlat(map);
+	}
+
+	/**
+	 * Returns true if the map is not empty and only contains scalars, which
+	 * means it can be written in flow style.
+	 * 
+	 * @param map
+	 * @return
+	 */
+	private static boolean isFlat(Map<String, PropertyValue> map) {
+		if (map.isEmpty())
+			return false;
+
+		for (PropertyValue value : map.values()) {
+			if (value.isMap() || value.isList())
+				return false;
+		}
+
+		return true;
+	}
+
+	/**
+	 * Returns true if the scalar contains characters that can only be written
+	 * in a double quoted scalar.
+	 * 
+	 * @param scalar
+	 * @return
+	 */
+	private static boolean needsEscaping(String scalar) {
+		for (int i = 0; i < scalar.length(); i++) {
+			if (scalar.charAt(i) < ' ')
+				return true;
+		}
+
+		return false;
+	}
+
+	/**
+	 * Returns true if the scalar would be read back as the exact same string
+	 * if we wrote it without quotes.
+	 * 
+	 * @param scalar
+	 * @param inFlow
+	 * @return
+	 */
+	private static boolean canBePlain(String scalar, boolean inFlow) {
+		final char first = scalar.charAt(0);
+		final char last = scalar.charAt(scalar.length() - 1);
+
+		if (first == ' ' || last == ' ' || last == ':')
+			return false;
+
+		if (INDICATORS.indexOf(first) != -1) {
+			// "-1" and "-0.5" are fine, "- " and "-" are not.
+			final boolean isSafeIndicator = (first == '-' || first == '?' || first == ':')
+					&& scalar.length() > 1 && scalar.charAt(1) != ' '
+					&& !(inFlow && FLOW_INDICATORS.indexOf(scalar.charAt(1)) != -1);
+
+			if (!isSafeIndicator)
+				return false;
+		}
+
+		if (scalar.contains(": ") || scalar.contains(" #"))
+			return false;
+
+		if (inFlow) {
+			for (int i = 0; i < scalar.length(); i++) {
+				if (FLOW_INDICATORS.indexOf(scalar.charAt(i)) != -1)
+					return false;
+			}
+		}
+
+		return true;
+	}
+}
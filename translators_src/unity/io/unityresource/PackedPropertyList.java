@@ -0,0 +1,184 @@
+package io.unityresource;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A compact list for large sequences of numbers in Unity files, such as the
+ * <code>- {fileID: 400002}</code> references in <code>m_Children</code> or
+ * serialized arrays of integers. The numbers are kept in a primitive array
+ * until someone actually looks at an element, at which point the list is
+ * materialized into regular {@link PropertyValue}s. Most of these sequences
+ * are never looked at by ScriptEase until the file is written back out.<br>
+ * <br>
+ * Use {@link #pack(List)} to create one. Code that only reads the list, such
+ * as the {@link io.UnityYAMLEmitter}, should check {@link #isPacked()} and
+ * read the numbers with {@link #getKey()} and {@link #getNumber(int)} so that
+ * the list stays packed.
+ */
+public class PackedPropertyList extends AbstractList<PropertyValue> {
+	/**
+	 * The key of the single entry flow maps that each element is wrapped in,
+	 * or null if the elements are plain numbers.
+	 */
+	private final String key;
+	private long[] numbers;
+
+	private List<PropertyValue> materialized;
+
+	private PackedPropertyList(String key, long[] numbers) {
+		this.key = key;
+		this.numbers = numbers;
+		this.materialized = null;
+	}
+
+	/**
+	 * Packs the list if every element is either a number or a one entry flow
+	 * map with the same key and a number value. Returns null otherwise.
+	 * 
+	 * @param list
+	 * @return
+	 */
+	static PackedPropertyList pack(List<PropertyValue> list) {
+		final long[] numbers = new long[list.size()];
+		String key = null;
+
+		for (int i = 0; i < numbers.length; i++) {
+			final PropertyValue value = list.get(i);
+			final PropertyValue number;
+
+			if (value.isMap()) {
+				final Map<String, PropertyValue> map = value.getMap();
+				final Map.Entry<String, PropertyValue> entry;
+
+				if (map.size() != 1 || !Boolean.TRUE.equals(value.isFlowStyle()))
+					return null;
+
+				entry = map.entrySet().iterator().next();
+
+				if (i == 0)
+					key = entry.getKey();
+				else if (key == null || !key.equals(entry.getKey()))
+					return null;
+
+				number = entry.getValue();
+			} else if (i == 0 || key == null)
+				number = value;
+			else
+				return null;
+
+			if (!number.isNumber())
+				return null;
+
+			numbers[i] = number.getNumber();
+		}
+
+		return new PackedPropertyList(key, numbers);
+	}
+
+	/**
+	 * Creates the regular property values for all of the packed numbers, and
+	 * drops the packed numbers.
+	 * 
+	 * @return
+	 */
+	private List<PropertyValue> materialize() {
+		if (this.materialized == null) {
+			final List<PropertyValue> list;
+
+			list = new ArrayList<PropertyValue>(this.numbers.length);
+
+			for (long number : this.numbers) {
+				final PropertyValue value;
+
+				value = PropertyValue.buildScalar(Long.toString(number));
+
+				if (this.key == null)
+					list.add(value);
+				else {
+					final Map<String, PropertyValue> map;
+
+					map = new SmallPropertyMap(1);
+					map.put(this.key, value);
+
+					list.add(new PropertyValue(map, true));
+				}
+			}
+
+			this.materialized = list;
+			this.numbers = null;
+		}
+
+		return this.materialized;
+	}
+
+	/**
+	 * Returns true if the numbers are still packed. Once anything looks at an
+	 * element through the list interface, this is false.
+	 * 
+	 * @return
+	 */
+	public boolean isPacked() {
+		return this.materialized == null;
+	}
+
+	/**
+	 * Returns the key of the single entry flow maps that each element is
+	 * wrapped in, or null if the elements are plain numbers.
+	 * 
+	 * @return
+	 */
+	public String getKey() {
+		return this.key;
+	}
+
+	/**
+	 * Returns the packed number at the index without materializing the list.
+	 * This can only be called while the list {@link #isPacked()}.
+	 * 
+	 * @param index
+	 * @return
+	 */
+	public long getNumber(int index) {
+		if (this.numbers == null)
+			throw new IllegalStateException(
+					"The list has already been materialized.");
+
+		return this.numbers[index];
+	}
+
+	@Override
+	public int size() {
+		if (this.materialized == null)
+			return this.numbers.length;
+		else
+			return this.materialized.size();
+	}
+
+	@Override
+	public PropertyValue get(int index) {
+		return this.materialize().get(index);
+	}
+
+	@Override
+	public PropertyValue set(int index, PropertyValue element) {
+		return this.materialize().set(index, element);
+	}
+
+	@Override
+	public void add(int index, PropertyValue element) {
+		this.materialize().add(index, element);
+		this.modCount++;
+	}
+
+	@Override
+	public PropertyValue remove(int index) {
+		final PropertyValue removed = this.materialize().remove(index);
+
+		this.modCount++;
+
+		return removed;
+	}
+}
@@ -30,10 +30,23 @@ public class PropertyValue {
 		STRING, INTEGER, FLOAT, LIST, MAP
 	}
 
+	// Most numbers in Unity files are small, such as flags and zeroed IDs.
+	private static final int CACHED_NUMBERS = 1024;
+	private static final PropertyValue[] NUMBER_CACHE = new PropertyValue[CACHED_NUMBERS];
+
+	static {
+		for (int i = 0; i < CACHED_NUMBERS; i++) {
+			NUMBER_CACHE[i] = new NumberValue(i);
+		}
+	}
+
 	private final Type type;
 
 	private final Object value;
 
+	// Null if we do not know how the map was originally written.
+	private Boolean flowStyle = null;
+
 	/**
 	 * Creates a property value for a {@link String}.
 	 * 
@@ -54,6 +67,19 @@ public class PropertyValue {
 		this.type = Type.MAP;
 	}
 
+	/**
+	 * Creates a property value for a {@link Map} that was read in either flow
+	 * style (e.g. <code>{fileID: 0}</code>) or block style. We remember this
+	 * so that we write the map back out the same way.
+	 * 
+	 * @param map
+	 * @param flowStyle
+	 */
+	public PropertyValue(Map<String, PropertyValue> map, boolean flowStyle) {
+		this(map);
+		this.flowStyle = flowStyle;
+	}
+
 	/**
 	 * Creates a property value for a {@link List}.
 	 * 
@@ -84,6 +110,60 @@ public class PropertyValue {
 		this.type = Type.INTEGER;
 	}
 
+	/**
+	 * Creates a property value for a scalar read in from a Unity file. Unity
+	 * files store everything as text, so this is always a {@link String}
+	 * property value. However, numbers that would be written back out exactly
+	 * the same way are stored as primitives instead of Strings, since they
+	 * make up most of a scene. Small numbers are shared.
+	 * 
+	 * @param text
+	 * @return
+	 */
+	public static PropertyValue buildScalar(String text) {
+		final long number;
+
+		if (!PropertyValue.isCanonicalNumber(text))
+			return new PropertyValue(text);
+
+		number = Long.parseLong(text);
+
+		if (number >= 0 && number < CACHED_NUMBERS)
+			return NUMBER_CACHE[(int) number];
+		else
+			return new NumberValue(number);
+	}
+
+	/**
+	 * Returns true if the text is a number that {@link Long#toString(long)}
+	 * would write back out in exactly the same way. That is, it has no plus
+	 * sign, leading zeros, or negative zero, and fits in a long.
+	 * 
+	 * @param text
+	 * @return
+	 */
+	private static boolean isCanonicalNumber(String text) {
+		final int length = text.length();
+		final int start = text.startsWith("-") ? 1 : 0;
+		final int digits = length - start;
+
+		// Long.MAX_VALUE has 19 digits, so we skip anything that long.
+		if (digits <= 0 || digits > 18)
+			return false;
+
+		if (text.charAt(start) == '0' && (digits > 1 || start == 1))
+			return false;
+
+		for (int i = start; i < length; i++) {
+			final char c = text.charAt(i);
+
+			if (c < '0' || c > '9')
+				return false;
+		}
+
+		return true;
+	}
+
 	/**
 	 * Builds a property map value based on the object passed in. If this is not
 	 * a valid type for a property map value, an illegal argument exception is
@@ -187,6 +267,37 @@ public class PropertyValue {
 		return this.type == Type.LIST;
 	}
 
+	/**
+	 * Returns {@link Boolean#TRUE} if the map was read in flow style,
+	 * {@link Boolean#FALSE} if it was read in block style, and null if it was
+	 * created by ScriptEase or is not a map.
+	 * 
+	 * @return
+	 */
+	public Boolean isFlowStyle() {
+		return this.flowStyle;
+	}
+
+	/**
+	 * Returns true if the {@link PropertyValue} is a {@link String} stored as
+	 * a primitive number. See {@link #buildScalar(String)}.
+	 * 
+	 * @return
+	 */
+	boolean isNumber() {
+		return false;
+	}
+
+	/**
+	 * Returns the number held by a {@link PropertyValue} for which
+	 * {@link #isNumber()} is true.
+	 * 
+	 * @return
+	 */
+	long getNumber() {
+		throw new UnsupportedOperationException(this + " is not a number.");
+	}
+
 	/**
 	 * Returns the value held by this object.
 	 * 
@@ -264,13 +375,47 @@ public class PropertyValue {
 	@Override
 	public boolean equals(Object obj) {
 		if (obj instanceof PropertyValue) {
-			return this.value.equals(((PropertyValue) obj).getValue());
+			return this.getValue().equals(((PropertyValue) obj).getValue());
 		} else
-			return this.value.equals(obj);
+			return this.getValue().equals(obj);
 	}
 
 	@Override
 	public String toString() {
-		return "PropertyValue: [" + this.type.name() + ": " + this.value + "]";
+		return "PropertyValue: [" + this.type.name() + ": " + this.getValue()
+				+ "]";
+	}
+
+	/**
+	 * A {@link String} property value that holds a number as a primitive. It
+	 * behaves exactly like a String property value holding the number's text.
+	 */
+	private static class NumberValue extends PropertyValue {
+		private final long number;
+
+		private NumberValue(long number) {
+			super((String) null);
+			this.number = number;
+		}
+
+		@Override
+		boolean isNumber() {
+			return true;
+		}
+
+		@Override
+		long getNumber() {
+			return this.number;
+		}
+
+		@Override
+		public String getString() {
+			return Long.toString(this.number);
+		}
+
+		@Override
+		public Object getValue() {
+			return this.getString();
+		}
 	}
 }
@@ -0,0 +1,227 @@
+package io.unityresource;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * A compact, insertion ordered map for the many tiny maps in Unity files, such
+ * as <code>{fileID: 0}</code> references and vectors. Keys and values are kept
+ * in two arrays and searched linearly, which is faster than hashing for a
+ * handful of entries and avoids an entry object per mapping.<br>
+ * <br>
+ * The map still works if it grows, but large maps should use a
+ * {@link java.util.LinkedHashMap} instead. See
+ * {@link UnityResourceFactory#SMALL_MAP_SIZE}.
+ */
+class SmallPropertyMap extends AbstractMap<String, PropertyValue> {
+	private String[] keys;
+	private PropertyValue[] values;
+	private int size;
+
+	/**
+	 * Creates a new map with room for the passed in number of entries.
+	 * 
+	 * @param capacity
+	 */
+	protected SmallPropertyMap(int capacity) {
+		this.keys = new String[capacity];
+		this.values = new PropertyValue[capacity];
+		this.size = 0;
+	}
+
+	private int indexOf(Object key) {
+		for (int i = 0; i < this.size; i++) {
+			if (this.keys[i].equals(key))
+				return i;
+		}
+
+		return -1;
+	}
+
+	@Override
+	public int size() {
+		return this.size;
+	}
+
+	@Override
+	public boolean containsKey(Object key) {
+		return this.indexOf(key) != -1;
+	}
+
+	@Override
+	public PropertyValue get(Object key) {
+		final int index = this.indexOf(key);
+
+		return index == -1 ? null : this.values[index];
+	}
+
+	@Override
+	public PropertyValue put(String key, PropertyValue value) {
+		final int index = this.indexOf(key);
+
+		if (index != -1) {
+			final PropertyValue previous = this.values[index];
+
+			this.values[index] = value;
+
+			return previous;
+		}
+
+		if (this.size == this.keys.length) {
+			final int capacity = Math.max(2, this.size * 2);
+			final String[] newKeys = new String[capacity];
+			final PropertyValue[] newValues = new PropertyValue[capacity];
+
+			System.arraycopy(this.keys, 0, newKeys, 0, this.size);
+			System.arraycopy(this.values, 0, newValues, 0, this.size);
+
+			this.keys = newKeys;
+			this.values = newValues;
+		}
+
+		this.keys[this.size] = key;
+		this.values[this.size] = value;
+		this.size++;
+
+		return null;
+	}
+
+	@Override
+	public PropertyValue remove(Object key) {
+		final int index = this.indexOf(key);
+
+		if (index == -1)
+			return null;
+
+		final PropertyValue previous = this.values[index];
+
+		this.removeAt(index);
+
+		return previous;
+	}
+
+	private void removeAt(int index) {
+		final int moved = this.size - index - 1;
+
+		System.arraycopy(this.keys, index + 1, this.keys, index, moved);
+		System.arraycopy(this.values, index + 1, this.values, index, moved);
+
+		this.size--;
+		this.keys[this.size] = null;
+		this.values[this.size] = null;
+	}
+
+	@Override
+	public void clear() {
+		for (int i = 0; i < this.size; i++) {
+			this.keys[i] = null;
+			this.values[i] = null;
+		}
+
+		this.size = 0;
+	}
+
+	@Override
+	public Set<Map.Entry<String, PropertyValue>> entrySet() {
+		return new AbstractSet<Map.Entry<String, PropertyValue>>() {
+			@Override
+			public Iterator<Map.Entry<String, PropertyValue>> iterator() {
+				return new EntryIterator();
+			}
+
+			@Override
+			public int size() {
+				return SmallPropertyMap.this.size;
+			}
+		};
+	}
+
+	/**
+	 * Iterates over the entries in insertion order. Entries write through to
+	 * the map.
+	 */
+	private class EntryIterator implements
+			Iterator<Map.Entry<String, PropertyValue>> {
+		private int next = 0;
+		private int last = -1;
+
+		@Override
+		public boolean hasNext() {
+			return this.next < SmallPropertyMap.this.size;
+		}
+
+		@Override
+		public Map.Entry<String, PropertyValue> next() {
+			if (!this.hasNext())
+				throw new NoSuchElementException();
+
+			this.last = this.next++;
+
+			return new Entry(this.last);
+		}
+
+		@Override
+		public void remove() {
+			if (this.last == -1)
+				throw new IllegalStateException();
+
+			SmallPropertyMap.this.removeAt(this.last);
+
+			this.next = this.last;
+			this.last = -1;
+		}
+	}
+
+	private class Entry implements Map.Entry<String, PropertyValue> {
+		private final int index;
+
+		private Entry(int index) {
+			this.index = index;
+		}
+
+		@Override
+		public String getKey() {
+			return SmallPropertyMap.this.keys[this.index];
+		}
+
+		@Override
+		public PropertyValue getValue() {
+			return SmallPropertyMap.this.values[this.index];
+		}
+
+		@Override
+		public PropertyValue setValue(PropertyValue value) {
+			final PropertyValue previous = this.getValue();
+
+			SmallPropertyMap.this.values[this.index] = value;
+
+			return previous;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (obj instanceof Map.Entry<?, ?>) {
+				final Map.Entry<?, ?> other = (Map.Entry<?, ?>) obj;
+				final Object value = this.getValue();
+
+				return this.getKey().equals(other.getKey())
+						&& (value == null ? other.getValue() == null : value
+								.equals(other.getValue()));
+			}
+
+			return false;
+		}
+
+		@Override
+		public int hashCode() {
+			final Object value = this.getValue();
+
+			return this.getKey().hashCode()
+					^ (value == null ? 0 : value.hashCode());
+		}
+	}
+}
@@ -2,6 +2,7 @@ package io.unityresource;
 
 import io.UnityFile;
 import io.UnityProject;
+import io.UnityScript;
 import io.constants.UnityField;
 import io.constants.UnityType;
 
@@ -28,6 +29,12 @@ public class UnityResource extends Resource {
 	private Resource owner;
 	private List<Resource> children;
 
+	// Computed lazily, since game object IDs depend on the owner chain.
+	private String templateID;
+
+	// The slot generated code keeps the game object in, or -1 if it has none.
+	private int slot = -1;
+
 	private final Map<String, PropertyValue> topLevelPropertyMap;
 
 	/**
@@ -77,6 +84,28 @@ public class UnityResource extends Resource {
 		return this.uniqueID;
 	}
 
+	/**
+	 * Returns the slot that SEVariable keeps this Game Object in, or -1 if it
+	 * does not have one.
+	 * 
+	 * @see UnityProject#addScripts(java.util.Collection,
+	 *      scriptease.model.semodel.StoryModel)
+	 * @return
+	 */
+	public int getSlot() {
+		return this.slot;
+	}
+
+	/**
+	 * Sets the slot that SEVariable keeps this Game Object in. This should
+	 * only be done by the {@link UnityProject} when it is loaded.
+	 * 
+	 * @param slot
+	 */
+	public void setSlot(int slot) {
+		this.slot = slot;
+	}
+
 	/**
 	 * Returns the map of various properties of a unity object. This always
 	 * starts with just one value that has the name of the type as the key and
@@ -171,6 +200,18 @@ public class UnityResource extends Resource {
 			this.owner = unityFile.getObjectByUnityID(uniqueID);
 		else
 			this.owner = unityFile;
+
+		// Reparenting changes the Unity file we belong to.
+		this.invalidateTemplateID();
+	}
+
+	/**
+	 * Forgets the cached template ID so that it is recomputed the next time
+	 * {@link #getTemplateID()} is called. This must be called whenever the
+	 * resource or the Unity file it belongs to is renamed or reparented.
+	 */
+	public void invalidateTemplateID() {
+		this.templateID = null;
 	}
 
 	/**
@@ -332,6 +373,13 @@ public class UnityResource extends Resource {
 	 */
 	private static PropertyValue getFirstOccuranceOfFieldInList(
 			List<PropertyValue> list, String fieldName) {
+		// A packed list only holds its own key, and looking through it would
+		// materialize it.
+		if (list instanceof PackedPropertyList
+				&& ((PackedPropertyList) list).isPacked()
+				&& !fieldName.equals(((PackedPropertyList) list).getKey()))
+			return null;
+
 		for (PropertyValue value : list) {
 			if (value.isMap()) {
 				final PropertyValue returnValue;
@@ -367,7 +415,11 @@ public class UnityResource extends Resource {
 			owner = owner.getOwner();
 		}
 
-		return "SEVariable.GetGameObject(\"" + this.getTemplateID() +  "\")";
+		if (this.slot >= 0)
+			return "SEVariable.GetGameObject(" + this.slot + ")";
+		else
+			return "SEVariable.GetGameObject("
+					+ UnityScript.toStringLiteral(this.getTemplateID()) + ")";
 		//return "GameObject.Find(\"" + name + "\")";
 	}
 
@@ -389,10 +441,25 @@ public class UnityResource extends Resource {
 	 * This combines the tag, uniqueID, and, if this is a Game Object, a Unity
 	 * file name to provide the strongest representation of the object as a
 	 * String. This shouldn't ever be called to generate code since we have
-	 * specific methods for that, such as {@link #getUniqueID()}.
+	 * specific methods for that, such as {@link #getUniqueID()}.<br>
+	 * <br>
+	 * The ID is only computed once and then cached until
+	 * {@link #invalidateTemplateID()} is called.
 	 */
 	@Override
 	public String getTemplateID() {
+		if (this.templateID == null)
+			this.templateID = this.computeTemplateID();
+
+		return this.templateID;
+	}
+
+	/**
+	 * Walks up the owner chain to build the template ID.
+	 * 
+	 * @return
+	 */
+	private String computeTemplateID() {
 		final String commonID = this.tag + " " + this.uniqueID;
 		final String templateID;
 
@@ -25,6 +25,18 @@ import org.yaml.snakeyaml.events.ScalarEvent;
 public class UnityResourceFactory {
 	private static final UnityResourceFactory instance = new UnityResourceFactory();
 
+	/**
+	 * Maps with up to this many entries are stored as {@link SmallPropertyMap}
+	 * s. Most Unity maps are references and vectors with a few entries.
+	 */
+	static final int SMALL_MAP_SIZE = 8;
+
+	/**
+	 * Sequences of numbers with at least this many entries are stored as
+	 * {@link PackedPropertyList}s.
+	 */
+	static final int PACKED_SEQUENCE_SIZE = 16;
+
 	// Just a couple of values that make our code cleaner and use less memory.
 	private static final PropertyValue ZERO_VALUE = new PropertyValue(
 			String.valueOf(0));
@@ -257,11 +269,18 @@ public class UnityResourceFactory {
 	/**
 	 * Builds {@link UnityResource}s for a scene based on the passed in event
 	 * iterator. If this event iterator contains start events without matching
-	 * end events, this translator will throw exceptions.
+	 * end events, this translator will throw exceptions.<br>
+	 * <br>
+	 * Unity files repeat the same few hundred keys over and over, so keys are
+	 * shared through the key pool. Pass the same pool for every file of a
+	 * project while it loads, and drop it once the project has loaded.
 	 * 
 	 * @param eventIterator
+	 * @param keyPool
+	 *            Maps each key read so far to its shared copy.
 	 */
-	public List<UnityResource> buildResources(Iterator<Event> eventIterator) {
+	public List<UnityResource> buildResources(Iterator<Event> eventIterator,
+			Map<String, String> keyPool) {
 
 		final List<UnityResource> unityObjects = new ArrayList<UnityResource>();
 
@@ -272,7 +291,7 @@ public class UnityResourceFactory {
 				if (event.is(Event.ID.DocumentStart)) {
 					final UnityResource object;
 
-					object = this.buildResource(eventIterator);
+					object = this.buildResource(eventIterator, keyPool);
 
 					if (object != null)
 						unityObjects.add(object);
@@ -305,9 +324,11 @@ public class UnityResourceFactory {
 	 * 
 	 * @param scene
 	 * @param eventIterator
+	 * @param keyPool
 	 * @return
 	 */
-	private UnityResource buildResource(Iterator<Event> eventIterator) {
+	private UnityResource buildResource(Iterator<Event> eventIterator,
+			Map<String, String> keyPool) {
 		UnityResource object = null;
 
 		if (eventIterator.hasNext()) {
@@ -318,7 +339,7 @@ public class UnityResourceFactory {
 
 				object = new UnityResource(Integer.parseInt(mapEvent
 						.getAnchor()), mapEvent.getTag(),
-						this.buildMap(eventIterator));
+						this.buildMap(eventIterator, keyPool));
 			}
 		}
 
@@ -346,51 +367,57 @@ public class UnityResourceFactory {
 	 * adds any maps to itself.
 	 * 
 	 * @param eventIterator
+	 * @param keyPool
 	 * @return
 	 */
-	@SuppressWarnings("deprecation")
-	private Map<String, PropertyValue> buildMap(Iterator<Event> eventIterator) {
-		final Map<String, PropertyValue> map = new LinkedHashMap<String, PropertyValue>();
+	private Map<String, PropertyValue> buildMap(Iterator<Event> eventIterator,
+			Map<String, String> keyPool) {
+		Map<String, PropertyValue> map = new SmallPropertyMap(4);
 
 		String currentKey = null;
 		while (eventIterator.hasNext()) {
 
 			final Event event = eventIterator.next();
+			final PropertyValue value;
 
 			if (event.is(Event.ID.Scalar)) {
-				final Object value;
+				final String scalar = ((ScalarEvent) event).getValue();
 
-				value = ((ScalarEvent) event).getValue();
 				if (currentKey == null) {
-					if (value instanceof String)
-						currentKey = (String) value;
+					if (scalar != null)
+						currentKey = UnityResourceFactory.internKey(
+								keyPool, scalar);
 					else
 						throw new IllegalArgumentException(
 								"Attempted to add a non "
 										+ "string value as a key.");
-				} else {
-					map.put(currentKey, PropertyValue.buildValue(value));
-					currentKey = null;
-				}
+					continue;
+				} else
+					value = PropertyValue.buildScalar(scalar);
 			} else if (event.is(Event.ID.MappingStart)) {
 				if (currentKey != null) {
-					map.put(currentKey,
-							new PropertyValue(this.buildMap(eventIterator)));
-					currentKey = null;
+					value = this.buildMapValue((MappingStartEvent) event,
+							eventIterator, keyPool);
 				} else
 					throw new NullPointerException(
 							"Attempted to add an entry to map [" + map
 									+ "] with a null key.");
 			} else if (event.is(Event.ID.SequenceStart)) {
-				map.put(currentKey,
-						new PropertyValue(this.buildSequence(eventIterator)));
-				currentKey = null;
+				value = this.buildSequenceValue(eventIterator, keyPool);
 			} else if (event.is(Event.ID.MappingEnd)) {
 				return map;
 			} else {
 				throw new IllegalArgumentException("Invalid event [" + event
 						+ "] found inside map.");
 			}
+
+			// Small maps are upgraded once they get too big.
+			if (map.size() == SMALL_MAP_SIZE && map instanceof SmallPropertyMap
+					&& !map.containsKey(currentKey))
+				map = new LinkedHashMap<String, PropertyValue>(map);
+
+			map.put(currentKey, value);
+			currentKey = null;
 		}
 
 		// Throw an exception if we reach this point because we should have
@@ -399,25 +426,86 @@ public class UnityResourceFactory {
 				"No closing MappingEnd event found for map: " + map);
 	}
 
+	/**
+	 * Returns the shared copy of the key.
+	 * 
+	 * @param keyPool
+	 * @param key
+	 * @return
+	 */
+	private static String internKey(Map<String, String> keyPool, String key) {
+		final String pooledKey = keyPool.get(key);
+
+		if (pooledKey != null)
+			return pooledKey;
+
+		keyPool.put(key, key);
+
+		return key;
+	}
+
+	/**
+	 * Builds a map value for the passed in mapping start event, remembering
+	 * whether the map was written in flow style.
+	 * 
+	 * @param event
+	 * @param eventIterator
+	 * @param keyPool
+	 * @return
+	 */
+	private PropertyValue buildMapValue(MappingStartEvent event,
+			Iterator<Event> eventIterator, Map<String, String> keyPool) {
+		final Boolean flowStyle = event.getFlowStyle();
+
+		return new PropertyValue(this.buildMap(eventIterator, keyPool),
+				flowStyle != null && flowStyle.booleanValue());
+	}
+
+	/**
+	 * Builds a sequence value based on the current location of the event
+	 * iterator. Large sequences of numbers are packed.
+	 * 
+	 * @param eventIterator
+	 * @param keyPool
+	 * @return
+	 */
+	private PropertyValue buildSequenceValue(Iterator<Event> eventIterator,
+			Map<String, String> keyPool) {
+		final List<PropertyValue> sequence = this.buildSequence(eventIterator,
+				keyPool);
+
+		if (sequence.size() >= PACKED_SEQUENCE_SIZE) {
+			final PackedPropertyList packed = PackedPropertyList.pack(sequence);
+
+			if (packed != null)
+				return new PropertyValue(packed);
+		}
+
+		return new PropertyValue(sequence);
+	}
+
 	/**
 	 * Builds a sequence based on the current location of the event iterator.
 	 * 
 	 * @param eventIterator
+	 * @param keyPool
 	 * @return
 	 */
-	private List<PropertyValue> buildSequence(Iterator<Event> eventIterator) {
+	private List<PropertyValue> buildSequence(Iterator<Event> eventIterator,
+			Map<String, String> keyPool) {
 		final List<PropertyValue> sequence = new ArrayList<PropertyValue>();
 
 		while (eventIterator.hasNext()) {
 			final Event event = eventIterator.next();
 
 			if (event.is(Event.ID.Scalar)) {
-				sequence.add(new PropertyValue(((ScalarEvent) event).getValue()));
+				sequence.add(PropertyValue.buildScalar(((ScalarEvent) event)
+						.getValue()));
 			} else if (event.is(Event.ID.MappingStart)) {
-				sequence.add(new PropertyValue(this.buildMap(eventIterator)));
+				sequence.add(this.buildMapValue((MappingStartEvent) event,
+						eventIterator, keyPool));
 			} else if (event.is(Event.ID.SequenceStart)) {
-				sequence.add(new PropertyValue(this
-						.buildSequence(eventIterator)));
+				sequence.add(this.buildSequenceValue(eventIterator, keyPool));
 			} else if (event.is(Event.ID.SequenceEnd)) {
 				return sequence;
 			} else {
@@ -11,6 +11,11 @@ import System.Collections.Generic;
  */
 
 static var DialogueRoots:List.<DialogueLine> = new List.<DialogueLine>();
+/*
+ * All registered Dialogue Lines, including roots, indexed by their unique ID.
+ * If the same ID is registered twice, the first line registered is kept.
+ */
+static var DialogueLines:Dictionary.<int, DialogueLine> = new Dictionary.<int, DialogueLine>();
 static var DialoguesInitialized:boolean = false;
 static var currentLine : DialogueLine;
 static var currentRoot : DialogueLine;
@@ -24,6 +29,9 @@ static function RegisterRoot(text:String, id:int, speaker:int, enabled:boolean,
 	root = new DialogueLine(text, id, speaker, enabled, image, audio);
 	
 	DialogueRoots.Add(root);
+	
+	if(!DialogueLines.ContainsKey(id))
+		DialogueLines[id] = root;
 }
 
 /**
@@ -35,10 +43,12 @@ static function RegisterChild(parentID:int, text:String, id:int, speaker:int, en
 	if(parent != null) {
 		var child:DialogueLine = FindDialogueLine(id);
 		
-		if(child != null) {
-			parent.AddChild(child);
-		} else 
-			parent.AddChild(new DialogueLine(text, id, speaker, enabled, image, audio));
+		if(child == null) {
+			child = new DialogueLine(text, id, speaker, enabled, image, audio);
+			DialogueLines[id] = child;
+		}
+		
+		parent.AddChild(child);
 	} else {
 		Debug.Log("SEDialogue Warning: Could not find parent with id "
 			+ parentID);
@@ -212,34 +222,10 @@ static function FindDialogueRoot(id:int) : DialogueLine {
  * Finds the Dialouge Line that matches the unique ID
  */
 static function FindDialogueLine(id:int) : DialogueLine {
-	for(var root:DialogueLine in SEDialogue.DialogueRoots) {
-		var dialogueLine = FindDialogueLineInDescendants(root, id);
-		
-		if(dialogueLine != null)
-			return dialogueLine;
-	}
-	
-	return null;
-}
-
-/**
- * Recursively searches for a Dialogue Line in the descendants of the passed in line.
- * This should only be called by FindDialogueLine(String).
- */
-private static function FindDialogueLineInDescendants(parent:DialogueLine, id:int) : DialogueLine {
-	if(parent.ID == id) 
-		return parent;
-	else {
-		for(child in parent.Children) {
-			var foundLine:DialogueLine = FindDialogueLineInDescendants(child, id);
-				
-			if(foundLine != null)
-				return foundLine;
-		}
-	}
+	if(SEDialogue.DialogueLines.ContainsKey(id))
+		return SEDialogue.DialogueLines[id];
 	
 	return null;
-
 }
 
 private class DialogueLine {
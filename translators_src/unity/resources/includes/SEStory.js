@@ -12,6 +12,12 @@ import System.Collections.Generic;
 
 static var root:StoryPoint;
 
+/*
+ * All registered Story Points, indexed by their unique ID. This is built once
+ * as the story is registered so that we never have to search the story graph.
+ */
+static var storyPoints:Dictionary.<int, StoryPoint> = new Dictionary.<int, StoryPoint>();
+
 static var storyInitialized:boolean = false;
 
 
@@ -20,8 +26,11 @@ static var storyInitialized:boolean = false;
  * Registers the root of the story. This should only be called when we first
  * start it.
  */
-static function RegisterRoot(uniqueName:String, fanIn:int) {
-	root = new StoryPoint(uniqueName, fanIn);
+static function RegisterRoot(id:int, fanIn:int) {
+	root = new StoryPoint(id, fanIn);
+
+	storyPoints.Clear();
+	storyPoints[id] = root;
 
 	storyInitialized = true;
 
@@ -31,148 +40,150 @@ static function RegisterRoot(uniqueName:String, fanIn:int) {
 /**
  * Registers a child node to the parent.
  */
-static function RegisterChild(parentName:String, uniqueName:String, fanIn:int) {
-	var parent:StoryPoint = FindStoryPoint(parentName);
+static function RegisterChild(parentID:int, id:int, fanIn:int) {
+	var parent:StoryPoint = FindStoryPoint(parentID);
 	
 	if(parent != null) {
-		var child:StoryPoint = FindStoryPoint(uniqueName);
+		var child:StoryPoint = FindStoryPoint(id);
 		
-		if(child != null) {
-			parent.AddChild(child);
-		} else 
-			parent.AddChild(new StoryPoint(uniqueName, fanIn));
+		if(child == null) {
+			child = new StoryPoint(id, fanIn);
+			storyPoints[id] = child;
+		}
+		
+		parent.AddChild(child);
 	} else {
-		Debug.Log("SESTory Warning: Could not find parent with unique name "
-			+ uniqueName);
+		Debug.Log("SESTory Warning: Could not find parent with unique ID "
+			+ parentID);
 	}
 }
 
 /**
  * Adds a function to the Story Point that will be called when it succeeds.
  */
-static function AddSucceedFunctionToStoryPoint(uniqueName:String, funxion:Function) {
-	var storyPoint:StoryPoint = FindStoryPoint(uniqueName);
+static function AddSucceedFunctionToStoryPoint(id:int, funxion:Function) {
+	var storyPoint:StoryPoint = FindStoryPoint(id);
 	
 	if(storyPoint != null) {
 		storyPoint.AddSucceedFunction(funxion);
 	} else
 		Debug.Log("SEStory Warning: Attempted to add succeed function to nonexistant Story " +
-		"Point " + uniqueName);
+		"Point " + id);
 }
 
 /**
  * Adds a function to the Story Point that will be called when it fails.
  */
-static function AddFailFunctionToStoryPoint(uniqueName:String, funxion:Function) {
-	var storyPoint:StoryPoint = FindStoryPoint(uniqueName);
+static function AddFailFunctionToStoryPoint(id:int, funxion:Function) {
+	var storyPoint:StoryPoint = FindStoryPoint(id);
 	
 	if(storyPoint != null) {
 		storyPoint.AddFailFunction(funxion);
 	} else
 		Debug.Log("SEStory Warning: Attempted to add fail function to nonexistant Story " +
-		"Point " + uniqueName);
+		"Point " + id);
 }
 
 /**
  * Adds a function to the Story Point that will be called when it is enabled.
  */
-static function AddEnableFunctionToStoryPoint(uniqueName:String, funxion:Function) {
-	var storyPoint:StoryPoint = FindStoryPoint(uniqueName);
+static function AddEnableFunctionToStoryPoint(id:int, funxion:Function) {
+	var storyPoint:StoryPoint = FindStoryPoint(id);
 	
 	if(storyPoint != null) {
 		storyPoint.AddEnableFunction(funxion);
 	} else
 		Debug.Log("SEStory Warning: Attempted to add enable function to nonexistant Story " +
-		"Point " + uniqueName);
+		"Point " + id);
 }
 
 /**
  * Succeeds the passed in Story Point and all of its parents. Enables the
  * Story Points after it if their fan in is met.
  */
-static function SucceedStoryPoint(uniqueName:String) {
-	var storyPoint:StoryPoint = FindStoryPoint(uniqueName);
+static function SucceedStoryPoint(id:int) {
+	var storyPoint:StoryPoint = FindStoryPoint(id);
 	
 	if(storyPoint != null) {
 		storyPoint.Succeed();
 	} else
 		Debug.Log("SEStory Warning: Attempted to succeed nonexistant Story " +
-		"Point " + uniqueName);
+		"Point " + id);
 }
 
 /**
  * Fails the passed in Story Point and all of its children.
  */
-static function FailStoryPoint(uniqueName:String) {
-	var storyPoint:StoryPoint = FindStoryPoint(uniqueName);
+static function FailStoryPoint(id:int) {
+	var storyPoint:StoryPoint = FindStoryPoint(id);
 	
 	if(storyPoint != null) {
 		storyPoint.Fail();
 	} else
 		Debug.Log("SEStory Warning: Attempted to fail nonexistant Story Point "
-			+ uniqueName);
+			+ id);
 }
 
 /**
  * Continues the story at the Story Point, setting it to enabled and all of its
  * children to disabled.
  */
-static function ContinueAtStoryPoint(uniqueName:String) {
-	var storyPoint:StoryPoint = FindStoryPoint(uniqueName);
+static function ContinueAtStoryPoint(id:int) {
+	var storyPoint:StoryPoint = FindStoryPoint(id);
 	
 	if(storyPoint != null) {
 		storyPoint.ContinueAt();
 	} else
 		Debug.Log("SEStory Warning: Attempted to continue at nonexistant " + 
-			"Story Point " + uniqueName);
+			"Story Point " + id);
 }
 
-static function HasSucceeded(uniqueName:String):boolean {
-	var storyPoint:StoryPoint = FindStoryPoint(uniqueName);
+static function HasSucceeded(id:int):boolean {
+	var storyPoint:StoryPoint = FindStoryPoint(id);
 	
 	if(storyPoint != null)
 		return storyPoint.HasSucceeded();
 	else {
 		Debug.Log("SEStory Warning: Attempted to find succeeded state of " +
-			"nonexistant Story Point " + uniqueName);
+			"nonexistant Story Point " + id);
 		return false;
 	}
 
 }
 
-static function IsEnabled(uniqueName:String):boolean  {
-	var storyPoint:StoryPoint = FindStoryPoint(uniqueName);
+static function IsEnabled(id:int):boolean  {
+	var storyPoint:StoryPoint = FindStoryPoint(id);
 	
 	if(storyPoint != null)
 		return storyPoint.IsEnabled();
 	else {
 		Debug.Log("SEStory Warning: Attempted to find enabled state of " +
-			"nonexistant Story Point " + uniqueName);
+			"nonexistant Story Point " + id);
 		return false;
 	}
 }
 
-static function HasFailed(uniqueName:String):boolean  {
-	var storyPoint:StoryPoint = FindStoryPoint(uniqueName);
+static function HasFailed(id:int):boolean  {
+	var storyPoint:StoryPoint = FindStoryPoint(id);
 	
 	if(storyPoint != null)
 		return storyPoint.HasFailed();
 	else {
 		Debug.Log("SEStory Warning: Attempted to find failed state of " +
-			"nonexistant Story Point " + uniqueName);
+			"nonexistant Story Point " + id);
 		return false;
 	}
 }
 
-static function GetAllActive():List.<String> {
-	var active:List.<String> = new List.<String>();
+static function GetAllActive():List.<int> {
+	var active:List.<int> = new List.<int>();
 	
 	if(root.IsEnabled())
-		active.Add(root.uniqueName);
+		active.Add(root.id);
 		
 	for(descendant in root.GetDescendants()) {
 		if(descendant.IsEnabled()) {
-			active.Add(descendant.uniqueName);	
+			active.Add(descendant.id);	
 		}
 	}
 	
@@ -181,32 +192,14 @@ static function GetAllActive():List.<String> {
 
 
 /**
- * Finds the Story Point that matches the unique name.
- */
-private static function FindStoryPoint(uniqueName:String):StoryPoint {
-	var storyPoint = FindStoryPointInDescendants(root, uniqueName);
-	
-	return storyPoint;
-}
-
-/**
- * Recursively searches for a Story Point in the descendants of the passed in point.
- * This should only be called by FindStoryPoint(String).
+ * Finds the Story Point that matches the unique ID, or null if it was never
+ * registered.
  */
-private static function FindStoryPointInDescendants(parent:StoryPoint, uniqueName:String):StoryPoint {
-	if(parent.uniqueName == uniqueName) 
-		return parent;
-	else {
-		for(child in parent.children) {
-			var foundPoint:StoryPoint = FindStoryPointInDescendants(child, uniqueName);
-				
-			if(foundPoint != null)
-				return foundPoint;
-		}
-	}
+private static function FindStoryPoint(id:int):StoryPoint {
+	if(storyPoints.ContainsKey(id))
+		return storyPoints[id];
 	
 	return null;
-
 }
 
 /**
@@ -220,7 +213,7 @@ private class StoryPoint {
 	var children:List.<StoryPoint>;
 	var parents:List.<StoryPoint>;
 	var fanIn:int;
-	var uniqueName:String;
+	var id:int;
 	var state : State;
 	
 	enum State {
@@ -232,11 +225,11 @@ private class StoryPoint {
 	}
 
 	/*
-	 * Constructs a new StoryPoint based on the passed in unique name and
+	 * Constructs a new StoryPoint based on the passed in unique ID and
 	 * fanIn. Also automatically sets the StoryPoint's state to DISABLED.
 	 */
-	function StoryPoint(uniqueName:String, fanIn:int) {
-		this.uniqueName = uniqueName;
+	function StoryPoint(id:int, fanIn:int) {
+		this.id = id;
 		this.fanIn = fanIn;
 		this.children = new List.<StoryPoint>();
 		this.parents = new List.<StoryPoint>();
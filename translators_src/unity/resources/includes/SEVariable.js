@@ -6,6 +6,14 @@
  * Dictionary.Add(key, value) because Add will not allow the value to be
  * overwritten.
  *
+ * Game Objects that ScriptEase generated code refers to are also kept in
+ * slots. The slots are handed out when the project is loaded into ScriptEase,
+ * and the slots that generated code uses are listed with their template IDs
+ * in the generated SEGameObjectSlots script. Game Objects fill their slot
+ * when they wake up, which happens again whenever a scene is loaded.
+ * Generated code then gets them straight out of the slot instead of looking
+ * them up every time.
+ *
  * @author ScriptEase II Team
  */
  
@@ -14,6 +22,29 @@ private static var floatMap : Dictionary.<String, float> = new Dictionary.<Strin
 private static var gameObjectMap : Dictionary.<String, GameObject> = new Dictionary.<String, GameObject>();
 private static var booleanMap : Dictionary.<String, boolean> = new Dictionary.<String, boolean>();
 
+private static var gameObjectSlots : GameObject[];
+private static var slotsByTemplateID : Dictionary.<String, int>;
+
+// Returned in place of Game Objects that are missing or were destroyed.
+private static var missingGameObject : GameObject;
+private static var missingGameObjectCreated : boolean = false;
+
+/*
+ * Builds the slot table from the generated slot and template ID lists. This
+ * only happens once.
+ */
+private static function InitializeSlots() {
+	var slots : int[] = SEGameObjectSlots.Slots;
+	var templateIDs : String[] = SEGameObjectSlots.TemplateIDs;
+	
+	gameObjectSlots = new GameObject[SEGameObjectSlots.SlotCount];
+	slotsByTemplateID = new Dictionary.<String, int>();
+	
+	for(var i:int = 0; i < slots.Length; i++) {
+		slotsByTemplateID[templateIDs[i]] = slots[i];
+	}
+}
+
 static function PutString(key:String, stored:String) {
 	stringMap[key] = stored;
 }
@@ -24,6 +55,12 @@ static function PutFloat(key:String, stored:float) {
 
 static function PutGameObject(key:String, stored:GameObject) {
 	gameObjectMap[key] = stored;
+	
+	if(slotsByTemplateID == null)
+		InitializeSlots();
+	
+	if(slotsByTemplateID.ContainsKey(key))
+		gameObjectSlots[slotsByTemplateID[key]] = stored;
 }
 
 static function PutBoolean(key:String, stored:boolean) {
@@ -50,12 +87,39 @@ static function GetGameObject(key:String) : GameObject {
 	if(gameObjectMap.ContainsKey(key)) {
 		return gameObjectMap[key];
 	} else {
-		// Create a new object and immediately destroy it. We can't just return null
-		// or other things will break.
-		var object = new GameObject();
-		GameObject.Destroy(object);
+		return GetMissingGameObject();
+	}
+}
+
+/**
+ * Returns the Game Object in the slot. Destroyed Game Objects compare equal
+ * to null in Unity, so they are treated like empty slots until a new Game
+ * Object wakes up in their place.
+ */
+static function GetGameObject(slot:int) : GameObject {
+	if(slotsByTemplateID == null)
+		InitializeSlots();
+	
+	var object : GameObject = gameObjectSlots[slot];
+	
+	if(object != null)
 		return object;
+	else
+		return GetMissingGameObject();
+}
+
+/*
+ * Create a new object and immediately destroy it. We can't just return null
+ * or other things will break. We only need one of these, so it is kept around.
+ */
+private static function GetMissingGameObject() : GameObject {
+	if(!missingGameObjectCreated) {
+		missingGameObject = new GameObject();
+		GameObject.Destroy(missingGameObject);
+		missingGameObjectCreated = true;
 	}
+	
+	return missingGameObject;
 }
 
 static function GetBoolean(key:String) : boolean {
@@ -0,0 +1,182 @@
+package io;
+
+import io.constants.UnityType;
+import io.unityresource.UnityResource;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import scriptease.model.CodeBlock;
+import scriptease.model.CodeBlockSource;
+import scriptease.model.atomic.KnowIt;
+import scriptease.model.complex.ScriptIt;
+import scriptease.model.semodel.StoryModel;
+import scriptease.model.semodel.librarymodel.LibraryModel;
+import scriptease.translator.codegenerator.LocationInformation;
+import scriptease.translator.codegenerator.ScriptInfo;
+import scriptease.translator.io.model.Resource;
+import scriptease.util.ListOp;
+import benchmark.SyntheticUnityProject;
+import benchmark.TemporaryUnityProject;
+
+/**
+ * Checks the Game Object slots that generated code uses instead of looking
+ * Game Objects up by their template IDs, and the script that tells
+ * SEVariable.js which Game Object is in which slot.
+ */
+public class GameObjectSlotsTest {
+	private static final String SLOT = "Update";
+	private static final String SUBJECT = "Subject";
+
+	private TemporaryUnityProject temporaryProject;
+	private UnityProject project;
+
+	@Before
+	public void setUp() throws IOException {
+		this.temporaryProject = new TemporaryUnityProject("unityslotstest",
+				new SyntheticUnityProject(2, 30, 2, 0, 11));
+		this.project = this.temporaryProject.load();
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		this.project.close();
+		this.temporaryProject.delete();
+	}
+
+	/**
+	 * Every Game Object in the scenes and prefabs gets its own slot, and there
+	 * are no gaps between the slots.
+	 */
+	@Test
+	public void testEveryGameObjectHasASlot() {
+		final List<UnityResource> gameObjects = this.getGameObjects();
+		final Set<Integer> slots = new HashSet<Integer>();
+
+		Assert.assertFalse(gameObjects.isEmpty());
+
+		for (UnityResource gameObject : gameObjects) {
+			Assert.assertTrue("Two Game Objects share a slot.",
+					slots.add(gameObject.getSlot()));
+		}
+
+		for (int i = 0; i < gameObjects.size(); i++) {
+			Assert.assertTrue("Slot " + i + " was skipped.", slots.contains(i));
+		}
+
+		Assert.assertEquals("#pragma strict\n\n"
+				+ "// Generated by ScriptEase II. Do not edit.\n"
+				+ "static var SlotCount : int = " + gameObjects.size() + ";\n"
+				+ "static var Slots : int[] = new int[0];\n"
+				+ "static var TemplateIDs : String[] = new String[0];\n",
+				this.project.getGameObjectSlotsCode());
+	}
+
+	/**
+	 * Only the slots of Game Objects bound in the added scripts are written
+	 * out, in slot order, next to the template IDs of their Game Objects.
+	 */
+	@Test
+	public void testUsedSlotsAreRecorded() {
+		final List<UnityResource> gameObjects = this.getGameObjects();
+		final Collection<ScriptInfo> scripts = new ArrayList<ScriptInfo>();
+		final UnityResource first = gameObjects.get(0);
+		final UnityResource middle = gameObjects.get(gameObjects.size() / 2);
+		final UnityResource last = gameObjects.get(gameObjects.size() - 1);
+		final String code;
+
+		// Added in reverse to check that the slots come out sorted.
+		scripts.add(GameObjectSlotsTest.buildScript(last, middle));
+		scripts.add(GameObjectSlotsTest.buildScript(first, first));
+
+		this.project.addScripts(scripts, new StoryModel(this.project,
+				"Slots", "", "", "", null, new ArrayList<LibraryModel>()));
+
+		code = this.project.getGameObjectSlotsCode();
+
+		Assert.assertTrue(code, code.contains("static var Slots : int[] = ["
+				+ first.getSlot() + ", " + middle.getSlot() + ", "
+				+ last.getSlot() + "];\n"));
+		Assert.assertTrue(code, code
+				.contains("static var TemplateIDs : String[] = ["
+						+ UnityScript.toStringLiteral(first.getTemplateID())
+						+ ", "
+						+ UnityScript.toStringLiteral(middle.getTemplateID())
+						+ ", "
+						+ UnityScript.toStringLiteral(last.getTemplateID())
+						+ "];\n"));
+	}
+
+	/**
+	 * Template IDs are file paths, so they can contain anything a file name
+	 * can.
+	 */
+	@Test
+	public void testStringLiteralEscaping() {
+		Assert.assertEquals("\"\"", UnityScript.toStringLiteral(""));
+		Assert.assertEquals("\"Assets/Scene.unity_100000\"",
+				UnityScript.toStringLiteral("Assets/Scene.unity_100000"));
+		Assert.assertEquals("\"C:\\\\My \\\"Game\\\"\"",
+				UnityScript.toStringLiteral("C:\\My \"Game\""));
+		Assert.assertEquals("\"one\\ntwo\\r\\nthree\"",
+				UnityScript.toStringLiteral("one\ntwo\r\nthree"));
+	}
+
+	private List<UnityResource> getGameObjects() {
+		final List<UnityResource> gameObjects = new ArrayList<UnityResource>();
+		final List<Resource> files = new ArrayList<Resource>();
+
+		files.addAll(this.project.getResourcesOfType(UnityType.SCENE.getName()));
+		files.addAll(this.project.getResourcesOfType(UnityType.PREFAB
+				.getName()));
+
+		for (Resource file : files) {
+			for (UnityResource resource : ((UnityFile) file).getResources()) {
+				if (resource.getType() == UnityType.GAMEOBJECT)
+					gameObjects.add(resource);
+			}
+		}
+
+		return gameObjects;
+	}
+
+	/**
+	 * Builds a script attached to the subject that refers to the bound Game
+	 * Object.
+	 *
+	 * @param subject
+	 * @param bound
+	 * @return
+	 */
+	private static ScriptInfo buildScript(UnityResource subject,
+			UnityResource bound) {
+		final LibraryModel library = LibraryModel.getNonLibrary();
+		final KnowIt subjectKnowIt = new KnowIt(library, SUBJECT,
+				subject.getTypes());
+		final ScriptIt scriptIt = new ScriptIt(library, SLOT);
+		final Collection<Resource> boundResources = new ArrayList<Resource>();
+		final CodeBlock codeBlock;
+
+		subjectKnowIt.setBinding(subject);
+
+		codeBlock = new CodeBlockSource(SUBJECT, SLOT,
+				ListOp.createList(subjectKnowIt), library);
+
+		scriptIt.addCodeBlock(codeBlock);
+
+		boundResources.add(subject);
+		boundResources.add(bound);
+
+		return new ScriptInfo("function " + SLOT + "() {}\n",
+				new LocationInformation(codeBlock), boundResources);
+	}
+}
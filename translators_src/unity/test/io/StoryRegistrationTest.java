@@ -0,0 +1,197 @@
+package io;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import scriptease.ScriptEase;
+import scriptease.controller.modelverifier.problem.StoryProblem;
+import scriptease.model.complex.StoryNode;
+import scriptease.model.complex.StoryPoint;
+import scriptease.model.semodel.SEModelManager;
+import scriptease.model.semodel.StoryModel;
+import scriptease.model.semodel.librarymodel.LibraryModel;
+import scriptease.translator.Translator;
+import scriptease.translator.codegenerator.CodeGenerator;
+import scriptease.translator.codegenerator.ScriptInfo;
+import benchmark.SyntheticUnityProject;
+import benchmark.TemporaryUnityProject;
+
+/**
+ * Checks that the script that registers the story with the Unity runtime
+ * matches the story graph. The runtime indexes story points by the IDs it is
+ * given here, so every story point and every edge has to show up with the
+ * right ID and fan in.<br>
+ * <br>
+ * The translator is loaded from the directory given by the
+ * <code>unity.translator</code> system property, which defaults to the build
+ * directory.
+ */
+public class StoryRegistrationTest {
+	private static final Pattern REGISTER_ROOT = Pattern
+			.compile("SEStory\\.RegisterRoot\\((\\d+), (\\d+)\\);");
+	private static final Pattern PARENT = Pattern
+			.compile("parentPointID = (\\d+);");
+	private static final Pattern REGISTER_CHILD = Pattern
+			.compile("SEStory\\.RegisterChild\\(parentPointID, (\\d+), (\\d+)\\);");
+
+	private static Translator translator;
+
+	private TemporaryUnityProject temporaryProject;
+	private UnityProject project;
+	private StoryModel story;
+
+	@Before
+	public void setUp() throws IOException {
+		if (StoryRegistrationTest.translator == null)
+			StoryRegistrationTest.translator = new UnityTranslator(new File(
+					System.getProperty("unity.translator", "build"),
+					"translator.ini"));
+
+		this.temporaryProject = new TemporaryUnityProject("unitystorytest",
+				new SyntheticUnityProject(1, 20, 0, 0, 3));
+		this.project = this.temporaryProject.load();
+
+		this.story = new StoryModel(this.project, "Registration", "Test", "",
+				ScriptEase.getInstance().getVersion(),
+				StoryRegistrationTest.translator,
+				new ArrayList<LibraryModel>());
+
+		// Story points look up their types through the active model.
+		SEModelManager.getInstance().add(this.story);
+		SEModelManager.getInstance().activate(this.story);
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		SEModelManager.getInstance().remove(this.story);
+
+		this.project.close();
+		this.temporaryProject.delete();
+	}
+
+	/**
+	 * Builds a story where points are shared between parents and need more
+	 * than one of them to succeed, and checks the registered graph.
+	 */
+	@Test
+	public void testRegistrationMatchesGraph() {
+		final StoryPoint root = this.story.getRoot();
+		final StoryPoint left = new StoryPoint("Left");
+		final StoryPoint right = new StoryPoint("Right");
+		final StoryPoint both = new StoryPoint("Both");
+		final StoryPoint end = new StoryPoint("End");
+		final StoryPoint skip = new StoryPoint("Skip");
+
+		root.addSuccessor(left);
+		root.addSuccessor(right);
+		left.addSuccessor(both);
+		right.addSuccessor(both);
+		both.addSuccessor(end);
+		root.addSuccessor(skip);
+		skip.addSuccessor(end);
+
+		both.setFanIn(2);
+
+		this.assertRegistrationMatchesGraph();
+	}
+
+	/**
+	 * A story with only the root still has to register it.
+	 */
+	@Test
+	public void testRegistrationOfRootOnly() {
+		this.assertRegistrationMatchesGraph();
+	}
+
+	private void assertRegistrationMatchesGraph() {
+		final StoryPoint root = this.story.getRoot();
+		final Set<String> expected = new HashSet<String>();
+		final Set<String> registered = new HashSet<String>();
+		final Set<Integer> ids = new HashSet<Integer>();
+		final String code = this.generateRegistrationCode();
+		final Matcher rootMatcher = REGISTER_ROOT.matcher(code);
+		String parent = null;
+
+		Assert.assertTrue("The root was not registered.", rootMatcher.find());
+		Assert.assertEquals(root.getUniqueID().toString(),
+				rootMatcher.group(1));
+		Assert.assertEquals(root.getFanIn().toString(), rootMatcher.group(2));
+
+		for (StoryPoint point : root.getStoryPointDescendants()) {
+			Assert.assertTrue("Story point IDs must be unique.",
+					ids.add(point.getUniqueID()));
+
+			for (StoryNode successor : point.getSuccessors()) {
+				expected.add(point.getUniqueID() + " -> "
+						+ successor.getUniqueID() + " needs "
+						+ ((StoryPoint) successor).getFanIn());
+			}
+		}
+
+		for (String line : code.split("\n")) {
+			final Matcher parentMatcher = PARENT.matcher(line);
+			final Matcher childMatcher = REGISTER_CHILD.matcher(line);
+
+			if (parentMatcher.find())
+				parent = parentMatcher.group(1);
+			else if (childMatcher.find()) {
+				Assert.assertNotNull(parent);
+				Assert.assertTrue("An edge was registered twice.",
+						registered.add(parent + " -> " + childMatcher.group(1)
+								+ " needs " + childMatcher.group(2)));
+			}
+		}
+
+		Assert.assertEquals(expected, registered);
+	}
+
+	/**
+	 * Generates code for the story and returns the script that registers the
+	 * story points.
+	 *
+	 * @return
+	 */
+	private String generateRegistrationCode() {
+		final Collection<StoryProblem> problems = new ArrayList<StoryProblem>();
+		final Collection<ScriptInfo> scripts;
+		String registration = null;
+
+		scripts = CodeGenerator.getInstance().generateCode(this.story,
+				problems);
+
+		Assert.assertTrue(problems.toString(), problems.isEmpty());
+
+		for (ScriptInfo script : scripts) {
+			if (script.getCode().contains("SEStory.RegisterRoot(")) {
+				Assert.assertNull("The story was registered twice.",
+						registration);
+
+				registration = script.getCode();
+			}
+		}
+
+		Assert.assertNotNull("No script registers the story.", registration);
+
+		return registration;
+	}
+
+	/**
+	 * Loads the Unity translator from its translator.ini file.
+	 */
+	private static class UnityTranslator extends Translator {
+		private UnityTranslator(File descriptionFile) throws IOException {
+			super(descriptionFile);
+		}
+	}
+}
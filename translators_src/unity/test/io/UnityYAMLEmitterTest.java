@@ -0,0 +1,122 @@
+package io;
+
+import io.constants.UnityType;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import scriptease.translator.io.model.Resource;
+import scriptease.util.FileOp;
+import benchmark.SyntheticUnityProject;
+import benchmark.TemporaryUnityProject;
+
+/**
+ * Checks that {@link UnityYAMLEmitter} writes Unity files the way Unity wrote
+ * them, since Unity refuses files that it did not expect.
+ */
+public class UnityYAMLEmitterTest {
+	private TemporaryUnityProject temporaryProject;
+
+	@Before
+	public void setUp() throws IOException {
+		this.temporaryProject = new TemporaryUnityProject("unityemittertest",
+				new SyntheticUnityProject(2, 200, 3, 4, 42));
+	}
+
+	@After
+	public void tearDown() {
+		this.temporaryProject.delete();
+	}
+
+	/**
+	 * Writing a file only appends the ScriptEase object to it. Everything
+	 * Unity wrote must come back out byte for byte.
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	public void testWritingKeepsOriginalBytes() throws IOException {
+		final Map<File, byte[]> originals = new HashMap<File, byte[]>();
+		final UnityProject project = this.temporaryProject.load();
+		final List<UnityFile> files = UnityYAMLEmitterTest.getFiles(project);
+
+		Assert.assertFalse(files.isEmpty());
+
+		for (UnityFile file : files) {
+			originals.put(file.getLocation(),
+					FileOp.readFileAsBytes(file.getLocation()));
+		}
+
+		for (UnityFile file : files) {
+			file.write();
+		}
+		project.close();
+
+		for (Map.Entry<File, byte[]> entry : originals.entrySet()) {
+			final byte[] original = entry.getValue();
+			final byte[] written = FileOp.readFileAsBytes(entry.getKey());
+
+			Assert.assertTrue(entry.getKey() + " got shorter",
+					written.length >= original.length);
+			Assert.assertArrayEquals(entry.getKey() + " changed", original,
+					Arrays.copyOf(written, original.length));
+		}
+	}
+
+	/**
+	 * Loading and writing a file that ScriptEase already wrote must not change
+	 * it.
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	public void testRewritingIsStable() throws IOException {
+		final Map<File, byte[]> firstWrite = new HashMap<File, byte[]>();
+		UnityProject project = this.temporaryProject.load();
+
+		for (UnityFile file : UnityYAMLEmitterTest.getFiles(project)) {
+			file.write();
+			firstWrite.put(file.getLocation(),
+					FileOp.readFileAsBytes(file.getLocation()));
+		}
+		project.close();
+
+		project = this.temporaryProject.load();
+
+		for (UnityFile file : UnityYAMLEmitterTest.getFiles(project)) {
+			file.write();
+		}
+		project.close();
+
+		Assert.assertFalse(firstWrite.isEmpty());
+
+		for (Map.Entry<File, byte[]> entry : firstWrite.entrySet()) {
+			Assert.assertArrayEquals(entry.getKey() + " changed",
+					entry.getValue(), FileOp.readFileAsBytes(entry.getKey()));
+		}
+	}
+
+	private static List<UnityFile> getFiles(UnityProject project) {
+		final List<UnityFile> files = new ArrayList<UnityFile>();
+		final List<Resource> resources = new ArrayList<Resource>();
+
+		resources.addAll(project.getResourcesOfType(UnityType.SCENE.getName()));
+		resources.addAll(project.getResourcesOfType(UnityType.PREFAB.getName()));
+
+		for (Resource resource : resources) {
+			files.add((UnityFile) resource);
+		}
+
+		return files;
+	}
+}
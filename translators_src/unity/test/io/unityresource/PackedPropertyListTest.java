@@ -0,0 +1,138 @@
+package io.unityresource;
+
+import io.UnityProject;
+import io.UnityYAMLEmitter;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.yaml.snakeyaml.Yaml;
+
+/**
+ * Checks that {@link PackedPropertyList}s stay packed while they are written,
+ * and that packing does not change what gets written.
+ */
+public class PackedPropertyListTest {
+	private static final int SEQUENCE_SIZE = 40;
+
+	private String text;
+	private List<UnityResource> resources;
+
+	@Before
+	public void setUp() {
+		final StringBuilder text = new StringBuilder();
+
+		text.append("%YAML 1.1\n");
+		text.append("%TAG !u! " + UnityProject.UNITY_TAG + "\n");
+
+		text.append("--- !u!4 &400000\n");
+		text.append("Transform:\n");
+		text.append("  m_ObjectHideFlags: 1\n");
+		text.append("  m_GameObject: {fileID: 100000}\n");
+		text.append("  m_Children:\n");
+		for (int i = 1; i <= SEQUENCE_SIZE; i++) {
+			text.append("  - {fileID: " + (400000 + 2 * i) + "}\n");
+		}
+		text.append("  m_Father: {fileID: 0}\n");
+
+		text.append("--- !u!114 &11400000\n");
+		text.append("MonoBehaviour:\n");
+		text.append("  m_ObjectHideFlags: 1\n");
+		text.append("  m_GameObject: {fileID: 100000}\n");
+		text.append("  m_Enabled: 1\n");
+		text.append("  values:\n");
+		for (int i = 0; i < SEQUENCE_SIZE; i++) {
+			text.append("  - " + (i * i - 100) + "\n");
+		}
+
+		this.text = text.toString();
+		this.resources = UnityResourceFactory.getInstance().buildResources(
+				new Yaml().parse(new StringReader(this.text)).iterator(),
+				new HashMap<String, String>());
+	}
+
+	/**
+	 * The lists are packed to keep them small in memory, which only helps if
+	 * writing them out does not materialize them.
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	public void testWritingKeepsListsPacked() throws IOException {
+		final List<PackedPropertyList> lists = this.findPackedLists();
+
+		Assert.assertEquals(2, lists.size());
+
+		Assert.assertEquals(this.text, this.emit());
+
+		for (PackedPropertyList list : lists) {
+			Assert.assertTrue("Writing materialized a list.", list.isPacked());
+		}
+	}
+
+	/**
+	 * A packed list must be written exactly the same way as the regular
+	 * property values it stands in for.
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	public void testMaterializingDoesNotChangeOutput() throws IOException {
+		final List<PackedPropertyList> lists = this.findPackedLists();
+		final String packed = this.emit();
+
+		for (PackedPropertyList list : lists) {
+			// Looking at any element materializes the whole list.
+			list.get(0);
+
+			Assert.assertFalse(list.isPacked());
+			Assert.assertEquals(SEQUENCE_SIZE, list.size());
+		}
+
+		Assert.assertEquals(packed, this.emit());
+	}
+
+	private String emit() throws IOException {
+		final StringWriter writer = new StringWriter();
+		final UnityYAMLEmitter emitter = new UnityYAMLEmitter(writer);
+
+		emitter.writeHeader();
+
+		for (UnityResource resource : this.resources) {
+			emitter.writeResource(resource);
+		}
+
+		emitter.flush();
+
+		return writer.toString();
+	}
+
+	private List<PackedPropertyList> findPackedLists() {
+		final List<PackedPropertyList> lists;
+
+		lists = new ArrayList<PackedPropertyList>();
+
+		for (UnityResource resource : this.resources) {
+			for (PropertyValue value : resource.getPropertyMap().values()) {
+				if (value.isList() && value.getList() instanceof PackedPropertyList) {
+					final PackedPropertyList list;
+
+					list = (PackedPropertyList) value.getList();
+
+					if (list.isPacked())
+						lists.add(list);
+				}
+			}
+		}
+
+		return lists;
+	}
+}
@@ -0,0 +1,286 @@
+package io.unityresource;
+
+import io.UnityFile;
+import io.UnityProject;
+import io.constants.UnityType;
+
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import scriptease.translator.io.model.Resource;
+import benchmark.SyntheticUnityProject;
+import benchmark.TemporaryUnityProject;
+
+/**
+ * Keeps the memory taken by a Unity scene after it is read within budget.
+ * Measuring the heap is too noisy for a test, so this estimates the retained
+ * size of the property values of a generated scene from the objects they are
+ * made of, and compares it to the same scene read into a boxed tree: a
+ * {@link PropertyValue} and String for every scalar, a linked hash map for
+ * every map, an array list for every sequence and a String for every key.
+ * That is how scenes were read before the compact nodes.
+ */
+public class UnityResourceFootprintTest {
+	private static final int GAME_OBJECTS = 2000;
+
+	/*
+	 * The generated scene takes about 0.36 of the boxed tree. Packed
+	 * sequences, shared numbers and keys, and small maps all have to keep
+	 * working to stay under this.
+	 */
+	private static final double BUDGET = 0.4;
+
+	/*
+	 * Sizes in bytes on a 64 bit VM with compressed references, where objects
+	 * have a 12 byte header and are aligned to 8 bytes.
+	 */
+	private static final int PROPERTY_VALUE = 24;
+	private static final int NUMBER_VALUE = 32;
+	private static final int LINKED_HASH_MAP = 56;
+	private static final int LINKED_HASH_MAP_ENTRY = 40;
+	private static final int HASH_MAP_TABLE = 16;
+	private static final int SMALL_PROPERTY_MAP = 24;
+	private static final int ARRAY_LIST = 24;
+	private static final int ARRAY_LIST_CAPACITY = 10;
+	private static final int PACKED_PROPERTY_LIST = 32;
+
+	private TemporaryUnityProject temporaryProject;
+	private UnityProject project;
+	private UnityFile scene;
+
+	@Before
+	public void setUp() throws IOException {
+		final List<Resource> scenes;
+
+		// A wide hierarchy, so that m_Children is long enough to be packed.
+		this.temporaryProject = new TemporaryUnityProject(
+				"unityfootprinttest", new SyntheticUnityProject(1,
+						GAME_OBJECTS, 0, 0,
+						2 * UnityResourceFactory.PACKED_SEQUENCE_SIZE, 28));
+		this.project = this.temporaryProject.load();
+
+		scenes = this.project.getResourcesOfType(UnityType.SCENE.getName());
+
+		Assert.assertEquals(1, scenes.size());
+
+		this.scene = (UnityFile) scenes.get(0);
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		this.project.close();
+		this.temporaryProject.delete();
+	}
+
+	/**
+	 * The estimated size of the scene's property values stays within the
+	 * budget.
+	 */
+	@Test
+	public void testSceneStaysWithinBudget() {
+		final Footprint footprint = this.measure();
+
+		Assert.assertTrue("Nothing was packed.", footprint.packedLists > 0);
+		Assert.assertTrue("The scene takes about " + footprint.bytes
+				+ " bytes, where a boxed tree takes " + footprint.boxedBytes
+				+ ".", footprint.bytes <= BUDGET * footprint.boxedBytes);
+	}
+
+	/**
+	 * Each of the compact nodes is used wherever it applies, and loading the
+	 * project does not materialize packed lists.
+	 */
+	@Test
+	public void testCompactNodesAreUsed() {
+		final Footprint footprint = this.measure();
+
+		Assert.assertEquals("Numbers stored as text.", 0,
+				footprint.numbersAsText);
+		Assert.assertEquals("Small maps stored as hash maps.", 0,
+				footprint.unspecializedMaps);
+		Assert.assertEquals("Sequences of numbers not packed.", 0,
+				footprint.unpackedSequences);
+		Assert.assertEquals("Keys not shared.", footprint.keyTexts.size(),
+				footprint.keys.size());
+	}
+
+	private Footprint measure() {
+		final UnityResource scriptEaseObject = this.scene.getScriptEaseObject();
+		final Footprint footprint = new Footprint();
+
+		// Only what was read counts, not the objects ScriptEase adds itself.
+		for (UnityResource resource : this.scene.getResources()) {
+			if (resource != scriptEaseObject
+					&& resource.getOwner() != scriptEaseObject)
+				footprint.addMap(resource.getTopLevelPropertyMap());
+		}
+
+		return footprint;
+	}
+
+	private static int align(int bytes) {
+		return (bytes + 7) / 8 * 8;
+	}
+
+	private static int array(int length, int elementSize) {
+		return UnityResourceFootprintTest.align(16 + length * elementSize);
+	}
+
+	private static int string(String string) {
+		return 24 + UnityResourceFootprintTest.array(string.length(), 2);
+	}
+
+	private static int linkedHashMap(int size) {
+		int capacity = HASH_MAP_TABLE;
+
+		while (size > capacity * 3 / 4)
+			capacity *= 2;
+
+		return LINKED_HASH_MAP + UnityResourceFootprintTest.array(capacity, 4)
+				+ size * LINKED_HASH_MAP_ENTRY;
+	}
+
+	private static int arrayList(int size) {
+		int capacity = ARRAY_LIST_CAPACITY;
+
+		while (size > capacity)
+			capacity += capacity / 2;
+
+		return ARRAY_LIST + UnityResourceFootprintTest.array(capacity, 4);
+	}
+
+	/**
+	 * Adds up the estimated size of property values, and of the boxed tree
+	 * for the same values. Values and keys that are shared are only counted
+	 * once. Packed lists are measured without looking at their elements,
+	 * since that would materialize them.
+	 */
+	private static class Footprint {
+		private final Map<Object, Boolean> seen = new IdentityHashMap<Object, Boolean>();
+		private final Map<String, Boolean> keys = new IdentityHashMap<String, Boolean>();
+		private final Set<String> keyTexts = new HashSet<String>();
+
+		private long bytes;
+		private long boxedBytes;
+
+		private int packedLists;
+		private int numbersAsText;
+		private int unspecializedMaps;
+		private int unpackedSequences;
+
+		private void addValue(PropertyValue value) {
+			final boolean isNew = this.seen.put(value, Boolean.TRUE) == null;
+
+			this.boxedBytes += PROPERTY_VALUE;
+
+			if (value.isMap())
+				this.addMap(value.getMap());
+			else if (value.isList())
+				this.addList(value.getList());
+			else {
+				final String text = value.getString();
+
+				this.boxedBytes += UnityResourceFootprintTest.string(text);
+
+				if (value.isNumber()) {
+					if (isNew)
+						this.bytes += NUMBER_VALUE - PROPERTY_VALUE;
+				} else {
+					if (isNew)
+						this.bytes += UnityResourceFootprintTest.string(text);
+
+					if (PropertyValue.buildScalar(text).isNumber())
+						this.numbersAsText++;
+				}
+			}
+
+			if (isNew)
+				this.bytes += PROPERTY_VALUE;
+		}
+
+		private void addMap(Map<String, PropertyValue> map) {
+			this.boxedBytes += UnityResourceFootprintTest.linkedHashMap(map
+					.size());
+
+			if (map instanceof SmallPropertyMap)
+				// The key and value arrays.
+				this.bytes += SMALL_PROPERTY_MAP + 2
+						* UnityResourceFootprintTest.array(map.size(), 4);
+			else {
+				this.bytes += UnityResourceFootprintTest.linkedHashMap(map
+						.size());
+
+				if (map.size() <= UnityResourceFactory.SMALL_MAP_SIZE)
+					this.unspecializedMaps++;
+			}
+
+			for (Entry<String, PropertyValue> entry : map.entrySet()) {
+				final String key = entry.getKey();
+
+				this.boxedBytes += UnityResourceFootprintTest.string(key);
+
+				if (this.keys.put(key, Boolean.TRUE) == null)
+					this.bytes += UnityResourceFootprintTest.string(key);
+
+				this.keyTexts.add(key);
+
+				this.addValue(entry.getValue());
+			}
+		}
+
+		private void addList(List<PropertyValue> list) {
+			this.boxedBytes += UnityResourceFootprintTest.arrayList(list
+					.size());
+
+			if (list instanceof PackedPropertyList
+					&& ((PackedPropertyList) list).isPacked()) {
+				final PackedPropertyList packed = (PackedPropertyList) list;
+				final String key = packed.getKey();
+
+				this.packedLists++;
+
+				this.bytes += PACKED_PROPERTY_LIST
+						+ UnityResourceFootprintTest.array(packed.size(), 8);
+
+				for (int i = 0; i < packed.size(); i++) {
+					final String number = Long.toString(packed.getNumber(i));
+
+					// A number, or a flow map with one entry for the number.
+					this.boxedBytes += PROPERTY_VALUE
+							+ UnityResourceFootprintTest.string(number);
+
+					if (key != null)
+						this.boxedBytes += PROPERTY_VALUE
+								+ UnityResourceFootprintTest.linkedHashMap(1)
+								+ UnityResourceFootprintTest.string(key);
+				}
+			} else {
+				boolean numbers;
+
+				this.bytes += UnityResourceFootprintTest.arrayList(list.size());
+
+				numbers = list.size() >= UnityResourceFactory.PACKED_SEQUENCE_SIZE;
+
+				for (PropertyValue element : list) {
+					this.addValue(element);
+
+					numbers &= element.isNumber()
+							|| (element.isMap() && element.getMap().size() == 1);
+				}
+
+				if (numbers)
+					this.unpackedSequences++;
+			}
+		}
+	}
+}